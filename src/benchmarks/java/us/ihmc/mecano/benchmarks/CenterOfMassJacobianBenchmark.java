@@ -0,0 +1,30 @@
+package us.ihmc.mecano.benchmarks;
+
+import org.ejml.data.DenseMatrix64F;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.mecano.algorithms.CenterOfMassJacobian;
+
+/**
+ * Benchmarks {@link CenterOfMassJacobian}.
+ *
+ * @author Sylvain Bertrand
+ */
+public class CenterOfMassJacobianBenchmark extends MultiBodySystemBenchmarkState
+{
+   private CenterOfMassJacobian calculator;
+
+   @Override
+   protected void setupCalculator()
+   {
+      calculator = new CenterOfMassJacobian(rootBody, ReferenceFrame.getWorldFrame());
+   }
+
+   @Benchmark
+   public DenseMatrix64F getJacobianMatrix()
+   {
+      calculator.reset();
+      return calculator.getJacobianMatrix();
+   }
+}
@@ -0,0 +1,39 @@
+package us.ihmc.mecano.benchmarks;
+
+import org.ejml.data.DenseMatrix64F;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.mecano.algorithms.CentroidalMomentumRateCalculator;
+
+/**
+ * Benchmarks {@link CentroidalMomentumRateCalculator}.
+ *
+ * @author Sylvain Bertrand
+ */
+public class CentroidalMomentumRateCalculatorBenchmark extends MultiBodySystemBenchmarkState
+{
+   private CentroidalMomentumRateCalculator calculator;
+
+   @Override
+   protected void setupCalculator()
+   {
+      calculator = new CentroidalMomentumRateCalculator(rootBody, ReferenceFrame.getWorldFrame());
+   }
+
+   @Benchmark
+   public DenseMatrix64F getCentroidalMomentumMatrix()
+   {
+      calculator.reset();
+      return calculator.getCentroidalMomentumMatrix();
+   }
+
+   @Benchmark
+   public void getMomentumAndMomentumRate(Blackhole blackhole)
+   {
+      calculator.reset();
+      blackhole.consume(calculator.getMomentum());
+      blackhole.consume(calculator.getMomentumRate());
+   }
+}
@@ -0,0 +1,39 @@
+package us.ihmc.mecano.benchmarks;
+
+import org.ejml.data.DenseMatrix64F;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.infra.Blackhole;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.mecano.algorithms.CompositeRigidBodyMassMatrixCalculator;
+
+/**
+ * Benchmarks {@link CompositeRigidBodyMassMatrixCalculator}.
+ *
+ * @author Sylvain Bertrand
+ */
+public class CompositeRigidBodyMassMatrixCalculatorBenchmark extends MultiBodySystemBenchmarkState
+{
+   private CompositeRigidBodyMassMatrixCalculator calculator;
+
+   @Override
+   protected void setupCalculator()
+   {
+      calculator = new CompositeRigidBodyMassMatrixCalculator(rootBody, ReferenceFrame.getWorldFrame());
+   }
+
+   @Benchmark
+   public DenseMatrix64F getMassMatrix()
+   {
+      calculator.reset();
+      return calculator.getMassMatrix();
+   }
+
+   @Benchmark
+   public void getCentroidalMomentumMatrixAndConvectiveTerm(Blackhole blackhole)
+   {
+      calculator.reset();
+      blackhole.consume(calculator.getCentroidalMomentumMatrix());
+      blackhole.consume(calculator.getCentroidalConvectiveTermMatrix());
+   }
+}
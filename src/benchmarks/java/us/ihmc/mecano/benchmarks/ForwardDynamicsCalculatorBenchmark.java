@@ -0,0 +1,30 @@
+package us.ihmc.mecano.benchmarks;
+
+import org.ejml.data.DenseMatrix64F;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import us.ihmc.mecano.algorithms.ForwardDynamicsCalculator;
+
+/**
+ * Benchmarks {@link ForwardDynamicsCalculator#compute()}.
+ *
+ * @author Sylvain Bertrand
+ */
+public class ForwardDynamicsCalculatorBenchmark extends MultiBodySystemBenchmarkState
+{
+   private ForwardDynamicsCalculator calculator;
+
+   @Override
+   protected void setupCalculator()
+   {
+      calculator = new ForwardDynamicsCalculator(rootBody);
+      calculator.setGravitionalAcceleration(-9.81);
+   }
+
+   @Benchmark
+   public DenseMatrix64F compute()
+   {
+      calculator.compute();
+      return calculator.getJointAccelerationMatrix();
+   }
+}
@@ -0,0 +1,40 @@
+package us.ihmc.mecano.benchmarks;
+
+import org.ejml.data.DenseMatrix64F;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import us.ihmc.mecano.algorithms.GeometricJacobianCalculator;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+
+/**
+ * Benchmarks {@link GeometricJacobianCalculator} from the root body to the last generated body.
+ *
+ * @author Sylvain Bertrand
+ */
+public class GeometricJacobianCalculatorBenchmark extends MultiBodySystemBenchmarkState
+{
+   private GeometricJacobianCalculator calculator;
+
+   @Override
+   protected void setupCalculator()
+   {
+      RigidBodyBasics endEffector = getLastJoint().getSuccessor();
+      calculator = new GeometricJacobianCalculator();
+      calculator.setKinematicChain(rootBody, endEffector);
+      calculator.setJacobianFrame(endEffector.getBodyFixedFrame());
+   }
+
+   @Benchmark
+   public DenseMatrix64F getJacobianMatrix()
+   {
+      calculator.reset();
+      return calculator.getJacobianMatrix();
+   }
+
+   @Benchmark
+   public DenseMatrix64F getConvectiveTermMatrix()
+   {
+      calculator.reset();
+      return calculator.getConvectiveTermMatrix();
+   }
+}
@@ -0,0 +1,30 @@
+package us.ihmc.mecano.benchmarks;
+
+import org.ejml.data.DenseMatrix64F;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import us.ihmc.mecano.algorithms.InverseDynamicsCalculator;
+
+/**
+ * Benchmarks {@link InverseDynamicsCalculator#compute()}.
+ *
+ * @author Sylvain Bertrand
+ */
+public class InverseDynamicsCalculatorBenchmark extends MultiBodySystemBenchmarkState
+{
+   private InverseDynamicsCalculator calculator;
+
+   @Override
+   protected void setupCalculator()
+   {
+      calculator = new InverseDynamicsCalculator(rootBody);
+      calculator.setGravitionalAcceleration(-9.81);
+   }
+
+   @Benchmark
+   public DenseMatrix64F compute()
+   {
+      calculator.compute();
+      return calculator.getJointTauMatrix();
+   }
+}
@@ -0,0 +1,38 @@
+package us.ihmc.mecano.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point for running the mecano benchmarks.
+ * <p>
+ * The results are reported in ns/op and the {@link GCProfiler} is enabled so the allocation rate
+ * of each algorithm is reported as well, e.g. {@code gc.alloc.rate.norm} in B/op.
+ * </p>
+ * <p>
+ * By default all the benchmarks are run, a regular expression can be passed as first argument to
+ * only run a subset, for instance {@code InverseDynamics}.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class MecanoBenchmarkRunner
+{
+   public static void main(String[] args) throws RunnerException
+   {
+      String include = args.length > 0 ? args[0] : MecanoBenchmarkRunner.class.getPackage().getName() + ".*Benchmark";
+
+      Options options = new OptionsBuilder().include(include)
+                                            .mode(Mode.AverageTime)
+                                            .timeUnit(TimeUnit.NANOSECONDS)
+                                            .addProfiler(GCProfiler.class)
+                                            .build();
+      new Runner(options).run();
+   }
+}
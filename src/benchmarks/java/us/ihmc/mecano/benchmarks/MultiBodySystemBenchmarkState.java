@@ -0,0 +1,151 @@
+package us.ihmc.mecano.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+/**
+ * Base state shared by all the benchmarks of the mecano algorithms.
+ * <p>
+ * The multi-body system is generated with {@link MultiBodySystemRandomTools} according to the
+ * benchmark parameters:
+ * <ul>
+ * <li>{@link #topology}: whether the system is a kinematic chain or a kinematic tree.
+ * <li>{@link #numberOfJoints}: the number of joints composing the system.
+ * <li>{@link #jointMix}: the type of joints composing the system.
+ * </ul>
+ * The state of the system is randomized once per trial such that the benchmarks only measure the
+ * cost of the algorithms.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public abstract class MultiBodySystemBenchmarkState
+{
+   /** The shape of the multi-body system to generate. */
+   public enum Topology
+   {
+      /** Every rigid-body has at most one child joint. */
+      CHAIN,
+      /** Rigid-bodies can have several child joints. */
+      TREE
+   }
+
+   /** The type of joints the multi-body system is composed of. */
+   public enum JointMix
+   {
+      /** Only {@code RevoluteJoint}s. */
+      REVOLUTE,
+      /** Only {@code PrismaticJoint}s. */
+      PRISMATIC,
+      /** Randomly picked {@code RevoluteJoint}s and {@code PrismaticJoint}s. */
+      ONE_DOF,
+      /** Randomly picked joints of any type, including floating and spherical joints. */
+      ALL
+   }
+
+   @Param({"CHAIN", "TREE"})
+   public Topology topology;
+   @Param({"10", "40"})
+   public int numberOfJoints;
+   @Param({"REVOLUTE", "PRISMATIC", "ONE_DOF", "ALL"})
+   public JointMix jointMix;
+
+   /** The seed used to generate the multi-body system such that results are reproducible. */
+   private static final long SEED = 2357L;
+
+   protected Random random;
+   protected List<JointBasics> joints;
+   protected RigidBodyBasics rootBody;
+
+   /**
+    * Creates the multi-body system, randomizes its state, and then calls
+    * {@link #setupCalculator()}.
+    */
+   @Setup(Level.Trial)
+   public void setup()
+   {
+      random = new Random(SEED);
+      joints = nextMultiBodySystem(random, topology, jointMix, numberOfJoints);
+      rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+
+      for (JointStateType stateType : JointStateType.values())
+         MultiBodySystemRandomTools.nextState(random, stateType, joints);
+      rootBody.updateFramesRecursively();
+
+      setupCalculator();
+   }
+
+   /**
+    * Creates the calculator to benchmark. Called once per trial after the multi-body system has been
+    * generated.
+    */
+   protected abstract void setupCalculator();
+
+   /**
+    * Gets the last joint that was generated, its successor is typically used as end-effector.
+    *
+    * @return the last generated joint.
+    */
+   protected JointBasics getLastJoint()
+   {
+      return joints.get(joints.size() - 1);
+   }
+
+   /**
+    * Generates a random multi-body system.
+    *
+    * @param random         the random generator to use.
+    * @param topology       whether to generate a kinematic chain or tree.
+    * @param jointMix       the type of joints to use.
+    * @param numberOfJoints the number of joints to generate.
+    * @return the list of all the joints composing the new multi-body system.
+    */
+   public static List<JointBasics> nextMultiBodySystem(Random random, Topology topology, JointMix jointMix, int numberOfJoints)
+   {
+      boolean chain = topology == Topology.CHAIN;
+
+      switch (jointMix)
+      {
+         case REVOLUTE:
+            return new ArrayList<>(chain ? MultiBodySystemRandomTools.nextRevoluteJointChain(random, numberOfJoints)
+                  : MultiBodySystemRandomTools.nextRevoluteJointTree(random, numberOfJoints));
+         case PRISMATIC:
+            return new ArrayList<>(chain ? MultiBodySystemRandomTools.nextPrismaticJointChain(random, numberOfJoints)
+                  : MultiBodySystemRandomTools.nextPrismaticJointTree(random, numberOfJoints));
+         case ONE_DOF:
+            return new ArrayList<>(chain ? MultiBodySystemRandomTools.nextOneDoFJointChain(random, numberOfJoints)
+                  : MultiBodySystemRandomTools.nextOneDoFJointTree(random, numberOfJoints));
+         case ALL:
+            return new ArrayList<>(chain ? MultiBodySystemRandomTools.nextJointChain(random, numberOfJoints)
+                  : MultiBodySystemRandomTools.nextJointTree(random, numberOfJoints));
+         default:
+            throw new IllegalStateException("Unexpected joint mix: " + jointMix);
+      }
+   }
+}
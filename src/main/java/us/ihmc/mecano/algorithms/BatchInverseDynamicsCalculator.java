@@ -0,0 +1,332 @@
+package us.ihmc.mecano.algorithms;
+
+import static us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem.SPATIAL_VECTOR_SIZE;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.ejml.data.DenseMatrix64F;
+
+import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
+import us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.spatial.interfaces.SpatialAccelerationReadOnly;
+
+/**
+ * Computes the joint efforts for a batch of states of the same multi-body system.
+ * <p>
+ * Each state is given as one row of the input matrices:
+ * <ul>
+ * <li>the configuration matrix is <tt>N</tt>-by-<tt>C</tt>, where <tt>N</tt> is the number of
+ * states and <tt>C</tt> is the size of the configuration vector of the system.
+ * <li>the velocity and acceleration matrices are <tt>N</tt>-by-<tt>D</tt>, where <tt>D</tt> is the
+ * number of degrees of freedom of the system.
+ * </ul>
+ * The output is the <tt>N</tt>-by-<tt>D</tt> matrix of the joint efforts, such that the <tt>i</tt>th
+ * row corresponds to the <tt>i</tt>th state.
+ * </p>
+ * <p>
+ * The system is compiled once into a {@link CompiledMultiBodySystem} and each state is evaluated
+ * with a {@link CompiledInverseDynamicsCalculator}, such that the joints and reference frames of the
+ * original system are never modified and do not need to be updated.
+ * </p>
+ * <p>
+ * When a {@link ForkJoinPool} is provided, the batch is recursively split and the sub-batches are
+ * evaluated in parallel. Each task borrows its own workspace, i.e. a
+ * {@link CompiledInverseDynamicsCalculator}, from a pool that is filled on demand and reused from one
+ * call to the next. The workspaces share the same compiled system.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class BatchInverseDynamicsCalculator
+{
+   /** The default minimum number of states a parallel task should evaluate. */
+   public static final int DEFAULT_MINIMUM_TASK_SIZE = 8;
+
+   /** The compiled multi-body system shared by all the workspaces. */
+   private final CompiledMultiBodySystem system;
+   /** The acceleration of the root body expressed in its body-fixed frame. */
+   private final double[] rootAcceleration = new double[SPATIAL_VECTOR_SIZE];
+   /** The workspace used when evaluating the batch sequentially. */
+   private final CompiledInverseDynamicsCalculator sequentialWorkspace;
+   /** The workspaces available for the parallel tasks. */
+   private final ConcurrentLinkedQueue<CompiledInverseDynamicsCalculator> parallelWorkspaces = new ConcurrentLinkedQueue<>();
+
+   /** The pool used to evaluate the batch in parallel, {@code null} to evaluate sequentially. */
+   private ForkJoinPool forkJoinPool = null;
+   /** The minimum number of states a parallel task should evaluate. */
+   private int minimumTaskSize = DEFAULT_MINIMUM_TASK_SIZE;
+
+   /** The output of this algorithm: the effort matrix, one row per state. */
+   private final DenseMatrix64F jointTauMatrix;
+
+   /**
+    * Creates a calculator for computing the joint efforts for all the descendants of the given
+    * {@code rootBody}.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param rootBody the supporting body of the subtree to be evaluated by this calculator. Not
+    *                 modified.
+    */
+   public BatchInverseDynamicsCalculator(RigidBodyReadOnly rootBody)
+   {
+      this(CompiledMultiBodySystem.compile(rootBody));
+   }
+
+   /**
+    * Creates a calculator for computing the joint efforts for system defined by the given
+    * {@code input}.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param input the definition of the system to be evaluated by this calculator.
+    */
+   public BatchInverseDynamicsCalculator(MultiBodySystemReadOnly input)
+   {
+      this(CompiledMultiBodySystem.compile(input));
+   }
+
+   /**
+    * Creates a calculator for computing the joint efforts for the given compiled system.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param system the compiled system to be evaluated by this calculator. Not modified.
+    */
+   public BatchInverseDynamicsCalculator(CompiledMultiBodySystem system)
+   {
+      this.system = system;
+      sequentialWorkspace = new CompiledInverseDynamicsCalculator(system);
+      jointTauMatrix = new DenseMatrix64F(1, system.getNumberOfDoFs());
+   }
+
+   /**
+    * Sets the pool to use for evaluating the batch in parallel.
+    *
+    * @param forkJoinPool the pool to use, or {@code null} to evaluate the batch sequentially on the
+    *                     calling thread.
+    */
+   public void setForkJoinPool(ForkJoinPool forkJoinPool)
+   {
+      this.forkJoinPool = forkJoinPool;
+   }
+
+   /**
+    * Sets the minimum number of states a parallel task should evaluate. Batches that are smaller than
+    * this are evaluated on the calling thread.
+    *
+    * @param minimumTaskSize the minimum number of states per task, default value
+    *                        {@value #DEFAULT_MINIMUM_TASK_SIZE}.
+    */
+   public void setMinimumTaskSize(int minimumTaskSize)
+   {
+      this.minimumTaskSize = Math.max(1, minimumTaskSize);
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following inverse dynamics
+    * calculation.
+    * <p>
+    * Similar to {@link InverseDynamicsCalculator}, the gravity is assumed to be expressed in the
+    * root body-fixed frame.
+    * </p>
+    *
+    * @param gravity the gravitational acceleration to use. Not modified.
+    */
+   public void setGravitionalAcceleration(Tuple3DReadOnly gravity)
+   {
+      setGravitionalAcceleration(gravity.getX(), gravity.getY(), gravity.getZ());
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following inverse dynamics
+    * calculation.
+    *
+    * @param gravity the gravitational acceleration along the z-axis, it is usually equal to
+    *                {@code -9.81}.
+    */
+   public void setGravitionalAcceleration(double gravity)
+   {
+      setGravitionalAcceleration(0.0, 0.0, gravity);
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following inverse dynamics
+    * calculation.
+    *
+    * @param gravityX the gravitational linear acceleration along the x-axis.
+    * @param gravityY the gravitational linear acceleration along the y-axis.
+    * @param gravityZ the gravitational linear acceleration along the z-axis.
+    */
+   public void setGravitionalAcceleration(double gravityX, double gravityY, double gravityZ)
+   {
+      sequentialWorkspace.setGravitionalAcceleration(gravityX, gravityY, gravityZ);
+      sequentialWorkspace.getRootAcceleration(rootAcceleration, 0);
+   }
+
+   /**
+    * Changes the spatial acceleration of the root. Even though the root is assumed to be non-moving,
+    * the {@code rootAcceleration} is usually set to the opposite of the gravitational acceleration,
+    * such that the effect of the gravity is naturally propagated to the entire system.
+    *
+    * @param newRootAcceleration the new spatial acceleration of the root, expressed in the root
+    *                            body-fixed frame. Not modified.
+    */
+   public void setRootAcceleration(SpatialAccelerationReadOnly newRootAcceleration)
+   {
+      sequentialWorkspace.setRootAcceleration(newRootAcceleration);
+      sequentialWorkspace.getRootAcceleration(rootAcceleration, 0);
+   }
+
+   /**
+    * Computes the joint efforts for each state of the given batch.
+    * <p>
+    * The result is stored in {@link #getJointTauMatrix()}.
+    * </p>
+    *
+    * @param jointConfigurationMatrix the <tt>N</tt>-by-<tt>C</tt> matrix containing one joint
+    *                                 configuration per row. Not modified.
+    * @param jointVelocityMatrix      the <tt>N</tt>-by-<tt>D</tt> matrix containing one joint
+    *                                 velocity per row. Can be {@code null} in which case the joint
+    *                                 velocities are assumed to be zero. Not modified.
+    * @param jointAccelerationMatrix  the <tt>N</tt>-by-<tt>D</tt> matrix containing one joint
+    *                                 acceleration per row. Can be {@code null} in which case the
+    *                                 joint accelerations are assumed to be zero. Not modified.
+    * @throws IllegalArgumentException if the size of any of the matrices is incorrect.
+    */
+   public void compute(DenseMatrix64F jointConfigurationMatrix, DenseMatrix64F jointVelocityMatrix, DenseMatrix64F jointAccelerationMatrix)
+   {
+      int batchSize = jointConfigurationMatrix.getNumRows();
+      checkMatrixSize("configuration", jointConfigurationMatrix, batchSize, system.getConfigurationSize());
+      checkMatrixSize("velocity", jointVelocityMatrix, batchSize, system.getNumberOfDoFs());
+      checkMatrixSize("acceleration", jointAccelerationMatrix, batchSize, system.getNumberOfDoFs());
+
+      jointTauMatrix.reshape(batchSize, system.getNumberOfDoFs());
+
+      double[] configurations = jointConfigurationMatrix.getData();
+      double[] velocities = jointVelocityMatrix == null ? null : jointVelocityMatrix.getData();
+      double[] accelerations = jointAccelerationMatrix == null ? null : jointAccelerationMatrix.getData();
+
+      if (forkJoinPool == null || batchSize <= minimumTaskSize)
+      {
+         computeRange(sequentialWorkspace, configurations, velocities, accelerations, 0, batchSize);
+      }
+      else
+      {
+         forkJoinPool.invoke(new BatchTask(configurations, velocities, accelerations, 0, batchSize));
+      }
+   }
+
+   private void computeRange(CompiledInverseDynamicsCalculator workspace, double[] configurations, double[] velocities, double[] accelerations, int from,
+                             int to)
+   {
+      int configurationSize = system.getConfigurationSize();
+      int nDoFs = system.getNumberOfDoFs();
+      double[] tau = jointTauMatrix.getData();
+
+      for (int row = from; row < to; row++)
+      {
+         workspace.compute(configurations, row * configurationSize, velocities, row * nDoFs, accelerations, row * nDoFs, tau, row * nDoFs);
+      }
+   }
+
+   private CompiledInverseDynamicsCalculator borrowWorkspace()
+   {
+      CompiledInverseDynamicsCalculator workspace = parallelWorkspaces.poll();
+      if (workspace == null)
+         workspace = new CompiledInverseDynamicsCalculator(system);
+      workspace.setRootAcceleration(rootAcceleration, 0);
+      return workspace;
+   }
+
+   private void returnWorkspace(CompiledInverseDynamicsCalculator workspace)
+   {
+      parallelWorkspaces.offer(workspace);
+   }
+
+   private static void checkMatrixSize(String name, DenseMatrix64F matrix, int expectedNumberOfRows, int expectedNumberOfColumns)
+   {
+      if (matrix == null)
+         return;
+      if (matrix.getNumRows() != expectedNumberOfRows || matrix.getNumCols() != expectedNumberOfColumns)
+         throw new IllegalArgumentException("Unexpected size for the " + name + " matrix, expected: [" + expectedNumberOfRows + ", " + expectedNumberOfColumns
+               + "], was: [" + matrix.getNumRows() + ", " + matrix.getNumCols() + "].");
+   }
+
+   /**
+    * Gets the compiled multi-body system used with this calculator.
+    *
+    * @return the compiled system.
+    */
+   public CompiledMultiBodySystem getSystem()
+   {
+      return system;
+   }
+
+   /**
+    * Gets the computed joint efforts, one row per state of the last batch.
+    *
+    * @return this calculator output: the joint efforts.
+    */
+   public DenseMatrix64F getJointTauMatrix()
+   {
+      return jointTauMatrix;
+   }
+
+   /**
+    * Task evaluating a range of states, it splits itself in halves until the range is small enough.
+    */
+   private class BatchTask extends RecursiveAction
+   {
+      private static final long serialVersionUID = -7227146102541722542L;
+
+      private final double[] configurations;
+      private final double[] velocities;
+      private final double[] accelerations;
+      private final int from;
+      private final int to;
+
+      private BatchTask(double[] configurations, double[] velocities, double[] accelerations, int from, int to)
+      {
+         this.configurations = configurations;
+         this.velocities = velocities;
+         this.accelerations = accelerations;
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+      protected void compute()
+      {
+         if (to - from <= minimumTaskSize)
+         {
+            CompiledInverseDynamicsCalculator workspace = borrowWorkspace();
+
+            try
+            {
+               computeRange(workspace, configurations, velocities, accelerations, from, to);
+            }
+            finally
+            {
+               returnWorkspace(workspace);
+            }
+         }
+         else
+         {
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchTask(configurations, velocities, accelerations, from, middle),
+                      new BatchTask(configurations, velocities, accelerations, middle, to));
+         }
+      }
+   }
+}
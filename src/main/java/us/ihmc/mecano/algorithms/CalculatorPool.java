@@ -0,0 +1,337 @@
+package us.ihmc.mecano.algorithms;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+
+/**
+ * Thread-safe pool of calculators created for the same multi-body system.
+ * <p>
+ * The calculators of this library allocate their recursion trees and matrices at construction and
+ * are not thread-safe. This pool allows a multi-threaded application to borrow a calculator ready
+ * for use from any thread and to give it back once done, such that calculators are only created
+ * when all the existing ones are in use and a single instance is never shared between threads.
+ * </p>
+ * <p>
+ * Example of usage:
+ *
+ * <pre>
+ * CalculatorPool&lt;InverseDynamicsCalculator&gt; pool = new CalculatorPool&lt;&gt;(input, InverseDynamicsCalculator::new);
+ * ...
+ * InverseDynamicsCalculator calculator = pool.borrow();
+ * try
+ * {
+ *    calculator.compute();
+ *    ...
+ * }
+ * finally
+ * {
+ *    pool.giveBack(calculator);
+ * }
+ * </pre>
+ * </p>
+ * <p>
+ * A calculator is given back as is, such that any setting changed by a borrower, e.g. an external
+ * wrench or the gravitational acceleration, is seen by the next borrower. A reset action can be
+ * provided at construction to restore calculators to a default state when they are given back,
+ * otherwise borrowers are responsible for resetting the settings they change:
+ *
+ * <pre>
+ * CalculatorPool&lt;InverseDynamicsCalculator&gt; pool = new CalculatorPool&lt;&gt;(input, InverseDynamicsCalculator::new,
+ *                                                                             InverseDynamicsCalculator::setExternalWrenchesToZero);
+ * </pre>
+ * </p>
+ * <p>
+ * Note that most calculators read the state of the joints and reference frames of their input when
+ * computing, the pool does not protect these against concurrent modifications. Calculators operating
+ * on a {@code CompiledMultiBodySystem} do not have this limitation.
+ * </p>
+ * <p>
+ * Borrowing and giving back a calculator is garbage free: the idle calculators are kept in a stack
+ * backed by an array which is only grown when a new calculator is created.
+ * </p>
+ * <p>
+ * The pool keeps track of the number of borrows that were served with an idle calculator (hits),
+ * the number that required to create a new calculator (misses), and the time spent in
+ * {@link #borrow()}.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ * @param <T> the type of calculator.
+ */
+public class CalculatorPool<T>
+{
+   /** The factory used to create new calculators. */
+   private final Supplier<? extends T> calculatorFactory;
+   /** The action applied to the calculators given back, {@code null} if none. */
+   private final Consumer<? super T> resetAction;
+   /** The lock guarding {@link #idleCalculators} and {@link #numberOfIdleCalculators}. */
+   private final Object lock = new Object();
+   /**
+    * Stack of the calculators ready to be borrowed, its length is at least the number of calculators
+    * created such that giving back a calculator never has to grow it.
+    */
+   private Object[] idleCalculators = new Object[0];
+   /** The number of calculators in {@link #idleCalculators}, the top of the stack. */
+   private int numberOfIdleCalculators = 0;
+   /** The number of calculators created by this pool since its creation. */
+   private final AtomicInteger numberOfCreatedCalculators = new AtomicInteger();
+   /** The number of borrows served with an idle calculator since the last reset of the metrics. */
+   private final AtomicLong numberOfHits = new AtomicLong();
+   /** The number of borrows that created a new calculator since the last reset of the metrics. */
+   private final AtomicLong numberOfMisses = new AtomicLong();
+   /** The time in nanoseconds spent in {@link #borrow()} since the last reset of the metrics. */
+   private final AtomicLong totalCheckoutTime = new AtomicLong();
+   /** The longest time in nanoseconds spent in {@link #borrow()} since the last reset of the metrics. */
+   private final AtomicLong maximumCheckoutTime = new AtomicLong();
+
+   /**
+    * Creates a new empty pool of calculators for the given system.
+    *
+    * @param input             the definition of the system the calculators are for. Not modified.
+    * @param calculatorFactory the function creating a new calculator for the given system, typically
+    *                          the constructor of the calculator, e.g.
+    *                          {@code InverseDynamicsCalculator::new}.
+    */
+   public CalculatorPool(MultiBodySystemReadOnly input, Function<MultiBodySystemReadOnly, ? extends T> calculatorFactory)
+   {
+      this(input, calculatorFactory, null);
+   }
+
+   /**
+    * Creates a new empty pool of calculators for the given system.
+    *
+    * @param input             the definition of the system the calculators are for. Not modified.
+    * @param calculatorFactory the function creating a new calculator for the given system, typically
+    *                          the constructor of the calculator, e.g.
+    *                          {@code InverseDynamicsCalculator::new}.
+    * @param resetAction       the action applied to each calculator when it is given back to restore
+    *                          the settings borrowers may have changed. Can be {@code null}.
+    */
+   public CalculatorPool(MultiBodySystemReadOnly input, Function<MultiBodySystemReadOnly, ? extends T> calculatorFactory, Consumer<? super T> resetAction)
+   {
+      this(() -> calculatorFactory.apply(input), resetAction);
+   }
+
+   /**
+    * Creates a new empty pool of calculators.
+    *
+    * @param calculatorFactory the supplier used to create a new calculator whenever all the
+    *                          calculators of this pool are in use.
+    */
+   public CalculatorPool(Supplier<? extends T> calculatorFactory)
+   {
+      this(calculatorFactory, null);
+   }
+
+   /**
+    * Creates a new empty pool of calculators.
+    *
+    * @param calculatorFactory the supplier used to create a new calculator whenever all the
+    *                          calculators of this pool are in use.
+    * @param resetAction       the action applied to each calculator when it is given back to restore
+    *                          the settings borrowers may have changed. Can be {@code null}.
+    */
+   public CalculatorPool(Supplier<? extends T> calculatorFactory, Consumer<? super T> resetAction)
+   {
+      this.calculatorFactory = Objects.requireNonNull(calculatorFactory);
+      this.resetAction = resetAction;
+   }
+
+   /**
+    * Creates calculators until this pool has at least {@code numberOfIdleCalculators} idle calculators.
+    * <p>
+    * This can be used at startup to avoid creating calculators later when borrowing them.
+    * </p>
+    *
+    * @param numberOfIdleCalculators the number of calculators to have ready.
+    */
+   public void preallocate(int numberOfIdleCalculators)
+   {
+      while (getNumberOfIdleCalculators() < numberOfIdleCalculators)
+         addIdleCalculator(createCalculator());
+   }
+
+   /**
+    * Borrows a calculator from this pool.
+    * <p>
+    * If no calculator is idle, a new one is created. The calculator is for the exclusive use of the
+    * caller until it is given back with {@link #giveBack(Object)}.
+    * </p>
+    *
+    * @return the borrowed calculator.
+    */
+   public T borrow()
+   {
+      long startTime = System.nanoTime();
+      T calculator = pollIdleCalculator();
+
+      if (calculator != null)
+      {
+         numberOfHits.incrementAndGet();
+      }
+      else
+      {
+         calculator = createCalculator();
+         numberOfMisses.incrementAndGet();
+      }
+
+      long checkoutTime = System.nanoTime() - startTime;
+      totalCheckoutTime.addAndGet(checkoutTime);
+      maximumCheckoutTime.accumulateAndGet(checkoutTime, Math::max);
+
+      return calculator;
+   }
+
+   /**
+    * Gives back a calculator that was borrowed from this pool such that it can be borrowed again.
+    * <p>
+    * The calculator should not be used by the caller after this call. The reset action of this pool,
+    * if any, is applied to the calculator before it is made available to other borrowers.
+    * </p>
+    *
+    * @param calculator the calculator to give back.
+    */
+   public void giveBack(T calculator)
+   {
+      Objects.requireNonNull(calculator);
+      if (resetAction != null)
+         resetAction.accept(calculator);
+      addIdleCalculator(calculator);
+   }
+
+   @SuppressWarnings("unchecked")
+   private T pollIdleCalculator()
+   {
+      synchronized (lock)
+      {
+         if (numberOfIdleCalculators == 0)
+            return null;
+
+         T calculator = (T) idleCalculators[--numberOfIdleCalculators];
+         idleCalculators[numberOfIdleCalculators] = null;
+         return calculator;
+      }
+   }
+
+   private void addIdleCalculator(T calculator)
+   {
+      synchronized (lock)
+      {
+         // Only happens when given a calculator that was not created by this pool.
+         if (numberOfIdleCalculators == idleCalculators.length)
+            ensureCapacity(numberOfIdleCalculators + 1);
+         idleCalculators[numberOfIdleCalculators++] = calculator;
+      }
+   }
+
+   private T createCalculator()
+   {
+      T calculator = calculatorFactory.get();
+      int capacity = numberOfCreatedCalculators.incrementAndGet();
+
+      synchronized (lock)
+      {
+         ensureCapacity(capacity);
+      }
+      return calculator;
+   }
+
+   private void ensureCapacity(int capacity)
+   {
+      if (idleCalculators.length < capacity)
+         idleCalculators = Arrays.copyOf(idleCalculators, Math.max(capacity, 2 * idleCalculators.length));
+   }
+
+   /**
+    * Resets the metrics of this pool.
+    */
+   public void resetMetrics()
+   {
+      numberOfHits.set(0);
+      numberOfMisses.set(0);
+      totalCheckoutTime.set(0);
+      maximumCheckoutTime.set(0);
+   }
+
+   /**
+    * Gets the number of calculators currently ready to be borrowed.
+    *
+    * @return the number of idle calculators.
+    */
+   public int getNumberOfIdleCalculators()
+   {
+      synchronized (lock)
+      {
+         return numberOfIdleCalculators;
+      }
+   }
+
+   /**
+    * Gets the total number of calculators created by this pool.
+    *
+    * @return the number of created calculators.
+    */
+   public int getNumberOfCreatedCalculators()
+   {
+      return numberOfCreatedCalculators.get();
+   }
+
+   /**
+    * Gets the number of borrows that were served with an idle calculator.
+    *
+    * @return the number of hits.
+    */
+   public long getNumberOfHits()
+   {
+      return numberOfHits.get();
+   }
+
+   /**
+    * Gets the number of borrows that required the creation of a new calculator.
+    *
+    * @return the number of misses.
+    */
+   public long getNumberOfMisses()
+   {
+      return numberOfMisses.get();
+   }
+
+   /**
+    * Gets the total time spent in {@link #borrow()}, including the creation of new calculators.
+    *
+    * @return the total checkout time in nanoseconds.
+    */
+   public long getTotalCheckoutTime()
+   {
+      return totalCheckoutTime.get();
+   }
+
+   /**
+    * Gets the longest time spent in a single call to {@link #borrow()}.
+    *
+    * @return the maximum checkout time in nanoseconds.
+    */
+   public long getMaximumCheckoutTime()
+   {
+      return maximumCheckoutTime.get();
+   }
+
+   /**
+    * Gets the average time spent in {@link #borrow()}.
+    *
+    * @return the average checkout time in nanoseconds, or {@code 0} if no calculator has been
+    *         borrowed.
+    */
+   public double getAverageCheckoutTime()
+   {
+      long numberOfBorrows = numberOfHits.get() + numberOfMisses.get();
+      return numberOfBorrows == 0 ? 0.0 : (double) totalCheckoutTime.get() / numberOfBorrows;
+   }
+}
@@ -0,0 +1,461 @@
+package us.ihmc.mecano.algorithms;
+
+import static us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem.SPATIAL_VECTOR_SIZE;
+import static us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem.TRANSFORM_SIZE;
+
+import java.util.List;
+
+import org.ejml.data.DenseMatrix64F;
+
+import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
+import us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem;
+import us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystemState;
+import us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystemTools;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.spatial.Wrench;
+import us.ihmc.mecano.spatial.interfaces.SpatialAccelerationReadOnly;
+import us.ihmc.mecano.spatial.interfaces.WrenchReadOnly;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+/**
+ * Computes joint efforts based on joint accelerations using a {@link CompiledMultiBodySystem}.
+ * <p>
+ * This calculator implements the same recursive Newton-Euler algorithm as
+ * {@link InverseDynamicsCalculator}, but instead of building a tree of recursion steps, the two
+ * passes are performed as a forward and a backward loop over the joint indices of the compiled
+ * system. All the intermediate quantities are stored in arrays and the joint kinematics is computed
+ * from the given joint configuration, such that the state of the joints and their reference frames
+ * are not needed.
+ * </p>
+ * <p>
+ * The compiled system is immutable and can be shared with other calculators, each calculator can be
+ * used from a different thread.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class CompiledInverseDynamicsCalculator
+{
+   /** The compiled multi-body system used with this calculator. */
+   private final CompiledMultiBodySystem system;
+
+   /** The acceleration of the root body expressed in its body-fixed frame. */
+   private final double[] rootAcceleration = new double[SPATIAL_VECTOR_SIZE];
+   /** For each joint, the transform from its {@code frameAfterJoint} to its parent frame. */
+   private final double[] transforms;
+   /** For each body, its twist expressed in its parent joint {@code frameAfterJoint}. */
+   private final double[] bodyTwists;
+   /** For each joint, its twist, i.e. <tt>S * qDot</tt>. */
+   private final double[] jointTwists;
+   /** For each body, its spatial acceleration expressed in its parent joint {@code frameAfterJoint}. */
+   private final double[] bodyAccelerations;
+   /** For each joint, the joint wrench before projection onto the joint motion subspace. */
+   private final double[] jointWrenches;
+   /** For each body, the external wrench applied to it expressed in its parent joint {@code frameAfterJoint}. */
+   private final double[] externalWrenches;
+   /** Intermediate variable for garbage free operations. */
+   private final double[] momentum = new double[SPATIAL_VECTOR_SIZE];
+   /** Intermediate variable for garbage free operations. */
+   private final Wrench externalWrench = new Wrench();
+
+   /** The joint configurations used when computing from the state of the joints. */
+   private final DenseMatrix64F jointConfigurationMatrix;
+   /** The joint velocities used when computing from the state of the joints. */
+   private final DenseMatrix64F jointVelocityMatrix;
+   /** The joint accelerations used when computing from the state of the joints. */
+   private final DenseMatrix64F jointAccelerationMatrix;
+   /** The output of this algorithm: the effort matrix for all the joints to consider. */
+   private final DenseMatrix64F jointTauMatrix;
+
+   /**
+    * Creates a calculator for computing the joint efforts for all the descendants of the given
+    * {@code rootBody}.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param rootBody the supporting body of the subtree to be evaluated by this calculator. Not
+    *                 modified.
+    */
+   public CompiledInverseDynamicsCalculator(RigidBodyReadOnly rootBody)
+   {
+      this(CompiledMultiBodySystem.compile(rootBody));
+   }
+
+   /**
+    * Creates a calculator for computing the joint efforts for system defined by the given
+    * {@code input}.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param input the definition of the system to be evaluated by this calculator.
+    */
+   public CompiledInverseDynamicsCalculator(MultiBodySystemReadOnly input)
+   {
+      this(CompiledMultiBodySystem.compile(input));
+   }
+
+   /**
+    * Creates a calculator for computing the joint efforts for the given compiled system.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param system the compiled system to be evaluated by this calculator. Not modified.
+    */
+   public CompiledInverseDynamicsCalculator(CompiledMultiBodySystem system)
+   {
+      this.system = system;
+
+      int numberOfJoints = system.getNumberOfJoints();
+      transforms = new double[TRANSFORM_SIZE * numberOfJoints];
+      bodyTwists = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      jointTwists = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      bodyAccelerations = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      jointWrenches = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      externalWrenches = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+
+      int nDoFs = system.getNumberOfDoFs();
+      jointConfigurationMatrix = new DenseMatrix64F(system.getConfigurationSize(), 1);
+      jointVelocityMatrix = new DenseMatrix64F(nDoFs, 1);
+      jointAccelerationMatrix = new DenseMatrix64F(nDoFs, 1);
+      jointTauMatrix = new DenseMatrix64F(nDoFs, 1);
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following inverse dynamics
+    * calculation.
+    * <p>
+    * Similar to {@link InverseDynamicsCalculator}, the gravity is assumed to be expressed in the
+    * root body-fixed frame.
+    * </p>
+    *
+    * @param gravity the gravitational acceleration to use. Not modified.
+    */
+   public void setGravitionalAcceleration(Tuple3DReadOnly gravity)
+   {
+      setGravitionalAcceleration(gravity.getX(), gravity.getY(), gravity.getZ());
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following inverse dynamics
+    * calculation.
+    *
+    * @param gravity the gravitational acceleration along the z-axis, it is usually equal to
+    *                {@code -9.81}.
+    */
+   public void setGravitionalAcceleration(double gravity)
+   {
+      setGravitionalAcceleration(0.0, 0.0, gravity);
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following inverse dynamics
+    * calculation.
+    *
+    * @param gravityX the gravitational linear acceleration along the x-axis.
+    * @param gravityY the gravitational linear acceleration along the y-axis.
+    * @param gravityZ the gravitational linear acceleration along the z-axis.
+    */
+   public void setGravitionalAcceleration(double gravityX, double gravityY, double gravityZ)
+   {
+      rootAcceleration[0] = 0.0;
+      rootAcceleration[1] = 0.0;
+      rootAcceleration[2] = 0.0;
+      rootAcceleration[3] = -gravityX;
+      rootAcceleration[4] = -gravityY;
+      rootAcceleration[5] = -gravityZ;
+   }
+
+   /**
+    * Changes the spatial acceleration of the root. Even though the root is assumed to be non-moving,
+    * the {@code rootAcceleration} is usually set to the opposite of the gravitational acceleration,
+    * such that the effect of the gravity is naturally propagated to the entire system.
+    *
+    * @param newRootAcceleration the new spatial acceleration of the root, expressed in the root
+    *                            body-fixed frame. Not modified.
+    */
+   public void setRootAcceleration(SpatialAccelerationReadOnly newRootAcceleration)
+   {
+      newRootAcceleration.getAngularPart().get(0, rootAcceleration);
+      newRootAcceleration.getLinearPart().get(3, rootAcceleration);
+   }
+
+   /**
+    * Changes the spatial acceleration of the root.
+    *
+    * @param newRootAcceleration the array containing the new spatial acceleration of the root,
+    *                            expressed in the root body-fixed frame, angular part first. Not
+    *                            modified.
+    * @param startIndex          the index in {@code newRootAcceleration} of the first element.
+    */
+   public void setRootAcceleration(double[] newRootAcceleration, int startIndex)
+   {
+      System.arraycopy(newRootAcceleration, startIndex, rootAcceleration, 0, SPATIAL_VECTOR_SIZE);
+   }
+
+   /**
+    * Packs the spatial acceleration of the root currently used by this calculator.
+    *
+    * @param rootAccelerationToPack the array used to store the spatial acceleration of the root,
+    *                               expressed in the root body-fixed frame, angular part first.
+    *                               Modified.
+    * @param startIndex             the index in {@code rootAccelerationToPack} of the first element.
+    */
+   public void getRootAcceleration(double[] rootAccelerationToPack, int startIndex)
+   {
+      System.arraycopy(rootAcceleration, 0, rootAccelerationToPack, startIndex, SPATIAL_VECTOR_SIZE);
+   }
+
+   /**
+    * Resets all the external wrenches that were added to the rigid-bodies.
+    */
+   public void setExternalWrenchesToZero()
+   {
+      for (int i = 0; i < externalWrenches.length; i++)
+         externalWrenches[i] = 0.0;
+   }
+
+   /**
+    * Sets the external wrench to apply to the given rigid-body.
+    * <p>
+    * The wrench is converted to the frame after the parent joint of the rigid-body using the current
+    * state of the reference frames, the external wrench is then assumed to remain constant in the
+    * rigid-body frame for any configuration given to this calculator.
+    * </p>
+    *
+    * @param rigidBody      the rigid-body to apply the wrench to. Not modified.
+    * @param externalWrench the external wrench to apply. Not modified.
+    */
+   public void setExternalWrench(RigidBodyReadOnly rigidBody, WrenchReadOnly externalWrench)
+   {
+      int jointIndex = system.getBodyIndex(rigidBody);
+
+      if (jointIndex < 0)
+         return;
+
+      this.externalWrench.setIncludingFrame(externalWrench);
+      this.externalWrench.changeFrame(rigidBody.getParentJoint().getFrameAfterJoint());
+      this.externalWrench.get(SPATIAL_VECTOR_SIZE * jointIndex, externalWrenches);
+   }
+
+   /**
+    * Computes the joint efforts needed to achieve the current joint accelerations given the current
+    * joint configurations and velocities.
+    * <p>
+    * The state is read from the joints of the input of the compiled system.
+    * </p>
+    */
+   public void compute()
+   {
+      List<? extends JointReadOnly> indexedJoints = system.getInput().getJointMatrixIndexProvider().getIndexedJointsInOrder();
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.CONFIGURATION, jointConfigurationMatrix);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.VELOCITY, jointVelocityMatrix);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.ACCELERATION, jointAccelerationMatrix);
+      compute(jointConfigurationMatrix, jointVelocityMatrix, jointAccelerationMatrix);
+   }
+
+   /**
+    * Computes the joint efforts needed to achieve the joint accelerations of the given state given its
+    * joint configurations and velocities.
+    * <p>
+    * The result is stored in the joint efforts of the state.
+    * </p>
+    *
+    * @param state the state of the system to evaluate. Its joint efforts are modified.
+    * @throws IllegalArgumentException if the state is not for the compiled system of this calculator.
+    */
+   public void compute(CompiledMultiBodySystemState state)
+   {
+      if (state.getModel() != system)
+         throw new IllegalArgumentException("The state is not for the compiled system of this calculator.");
+
+      compute(state.getConfiguration(), 0, state.getVelocity(), 0, state.getAcceleration(), 0, state.getEffort(), 0);
+   }
+
+   /**
+    * Computes the joint efforts needed to achieve the given joint accelerations given the joint
+    * configurations and velocities.
+    * <p>
+    * The result is stored in {@link #getJointTauMatrix()}.
+    * </p>
+    *
+    * @param jointConfigurationMatrix the configuration of the joints ordered as defined by the
+    *                                 {@code JointMatrixIndexProvider}. Not modified.
+    * @param jointVelocityMatrix      the velocity of the joints. Can be {@code null} in which case
+    *                                 the joint velocities are assumed to be zero. Not modified.
+    * @param jointAccelerationMatrix  the acceleration of the joints. Can be {@code null} in which case
+    *                                 the joint accelerations are assumed to be zero. Not modified.
+    */
+   public void compute(DenseMatrix64F jointConfigurationMatrix, DenseMatrix64F jointVelocityMatrix, DenseMatrix64F jointAccelerationMatrix)
+   {
+      compute(jointConfigurationMatrix.getData(),
+              0,
+              jointVelocityMatrix == null ? null : jointVelocityMatrix.getData(),
+              0,
+              jointAccelerationMatrix == null ? null : jointAccelerationMatrix.getData(),
+              0,
+              jointTauMatrix.getData(),
+              0);
+   }
+
+   /**
+    * Computes the joint efforts needed to achieve the given joint accelerations given the joint
+    * configurations and velocities.
+    * <p>
+    * This is the core of this calculator, it operates directly on arrays such that several states can
+    * be stored in the same array, for instance one state per row of a matrix.
+    * </p>
+    *
+    * @param configuration      the array containing the joint configurations. Not modified.
+    * @param configurationStart the index in {@code configuration} of the first element.
+    * @param velocity           the array containing the joint velocities. Can be {@code null} in
+    *                           which case the joint velocities are assumed to be zero. Not modified.
+    * @param velocityStart      the index in {@code velocity} of the first element.
+    * @param acceleration       the array containing the joint accelerations. Can be {@code null} in
+    *                           which case the joint accelerations are assumed to be zero. Not
+    *                           modified.
+    * @param accelerationStart  the index in {@code acceleration} of the first element.
+    * @param tauToPack          the array used to store the joint efforts. Modified.
+    * @param tauStart           the index in {@code tauToPack} of the first element.
+    */
+   public void compute(double[] configuration, int configurationStart, double[] velocity, int velocityStart, double[] acceleration, int accelerationStart,
+                       double[] tauToPack, int tauStart)
+   {
+      int numberOfJoints = system.getNumberOfJoints();
+      int[] parentIndices = system.getParentIndices();
+
+      // Pass one: from the root to the leaves.
+      for (int jointIndex = 0; jointIndex < numberOfJoints; jointIndex++)
+      {
+         int parentIndex = parentIndices[jointIndex];
+         int t = TRANSFORM_SIZE * jointIndex;
+         int s = SPATIAL_VECTOR_SIZE * jointIndex;
+
+         system.computeTransformToParent(jointIndex, configuration, configurationStart, transforms, t);
+
+         // Body twist: v = X * v_parent + S * qDot
+         if (parentIndex < 0)
+         {
+            for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+               bodyTwists[s + i] = 0.0;
+         }
+         else
+         {
+            CompiledMultiBodySystemTools.transformMotionToChild(transforms, t, bodyTwists, SPATIAL_VECTOR_SIZE * parentIndex, bodyTwists, s);
+         }
+
+         if (velocity != null)
+         {
+            CompiledMultiBodySystemTools.multiplyMotionSubspace(system, jointIndex, velocity, velocityStart, jointTwists, s, false);
+            for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+               bodyTwists[s + i] += jointTwists[s + i];
+         }
+         else
+         {
+            for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+               jointTwists[s + i] = 0.0;
+         }
+
+         // Body acceleration: a = X * a_parent + S * qDDot + v x (S * qDot)
+         if (parentIndex < 0)
+            CompiledMultiBodySystemTools.transformMotionToChild(transforms, t, rootAcceleration, 0, bodyAccelerations, s);
+         else
+            CompiledMultiBodySystemTools.transformMotionToChild(transforms, t, bodyAccelerations, SPATIAL_VECTOR_SIZE * parentIndex, bodyAccelerations, s);
+
+         if (acceleration != null)
+            CompiledMultiBodySystemTools.multiplyMotionSubspace(system, jointIndex, acceleration, accelerationStart, bodyAccelerations, s, true);
+
+         if (velocity != null)
+            CompiledMultiBodySystemTools.crossMotion(bodyTwists, s, jointTwists, s, bodyAccelerations, s, true);
+
+         // Net wrench: f = I * a + v x* (I * v) - f_ext
+         CompiledMultiBodySystemTools.multiplyInertia(system, jointIndex, bodyAccelerations, s, jointWrenches, s, false);
+
+         if (velocity != null)
+         {
+            CompiledMultiBodySystemTools.multiplyInertia(system, jointIndex, bodyTwists, s, momentum, 0, false);
+            CompiledMultiBodySystemTools.crossForce(bodyTwists, s, momentum, 0, jointWrenches, s, true);
+         }
+
+         for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+            jointWrenches[s + i] -= externalWrenches[s + i];
+      }
+
+      // Pass two: from the leaves to the root.
+      for (int jointIndex = numberOfJoints - 1; jointIndex >= 0; jointIndex--)
+      {
+         int parentIndex = parentIndices[jointIndex];
+         int s = SPATIAL_VECTOR_SIZE * jointIndex;
+
+         CompiledMultiBodySystemTools.multiplyMotionSubspaceTransposed(system, jointIndex, jointWrenches, s, tauToPack, tauStart);
+
+         if (parentIndex >= 0)
+         {
+            CompiledMultiBodySystemTools.addForceTransformedToParent(transforms,
+                                                                     TRANSFORM_SIZE * jointIndex,
+                                                                     jointWrenches,
+                                                                     s,
+                                                                     jointWrenches,
+                                                                     SPATIAL_VECTOR_SIZE * parentIndex);
+         }
+      }
+   }
+
+   /**
+    * Gets the compiled multi-body system used with this calculator.
+    *
+    * @return the compiled system.
+    */
+   public CompiledMultiBodySystem getSystem()
+   {
+      return system;
+   }
+
+   /**
+    * Gets the computed joint efforts.
+    *
+    * @return this calculator output: the joint efforts.
+    */
+   public DenseMatrix64F getJointTauMatrix()
+   {
+      return jointTauMatrix;
+   }
+
+   /** For each joint, the transform from its {@code frameAfterJoint} to its parent frame. */
+   double[] getTransforms()
+   {
+      return transforms;
+   }
+
+   /** For each body, its twist expressed in its parent joint {@code frameAfterJoint}. */
+   double[] getBodyTwists()
+   {
+      return bodyTwists;
+   }
+
+   /** For each joint, its twist, i.e. <tt>S * qDot</tt>. */
+   double[] getJointTwists()
+   {
+      return jointTwists;
+   }
+
+   /** For each body, its spatial acceleration expressed in its parent joint {@code frameAfterJoint}. */
+   double[] getBodyAccelerations()
+   {
+      return bodyAccelerations;
+   }
+
+   /** For each joint, the wrench of its subtree before projection onto the joint motion subspace. */
+   double[] getJointWrenches()
+   {
+      return jointWrenches;
+   }
+}
@@ -1,7 +1,9 @@
 package us.ihmc.mecano.algorithms;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.IntStream;
 
 import org.ejml.data.DenseMatrix64F;
@@ -62,6 +64,12 @@ import us.ihmc.mecano.tools.MultiBodySystemTools;
  * where <tt>h</tt> is the system's momentum and <tt>A</tt> is the centroidal momentum matrix, the
  * term introduce <tt>b</tt> represents the convective term.
  * </p>
+ * <p>
+ * When only a few joints have changed since the last update, the mass matrix can be updated
+ * incrementally by notifying this calculator with {@link #markJointChanged(JointReadOnly)} instead
+ * of calling {@link #reset()}. Only the composite inertias of the ancestors of the changed joints
+ * and the coefficients depending on the changed joints are then recomputed.
+ * </p>
  * 
  * @author Twan Koolen
  * @author Sylvain Bertrand
@@ -78,6 +86,8 @@ public class CompositeRigidBodyMassMatrixCalculator
     * computing the centroidal momentum matrix.
     */
    private final CompositeRigidBodyInertia[] compositeInertias;
+   /** Map to quickly retrieve the recursion step associated to each joint. */
+   private final Map<JointReadOnly, CompositeRigidBodyInertia> jointToCompositeInertiaMap = new HashMap<>();
    /** The mass matrix of the system. */
    private final DenseMatrix64F massMatrix;
    /** Intermediate variable to store the child inertia. */
@@ -115,6 +125,12 @@ public class CompositeRigidBodyMassMatrixCalculator
     * Whether the mass matrix has been updated since the last call to {@link #reset()}.
     */
    private boolean isMassMatrixUpToDate = false;
+   /**
+    * Whether the mass matrix has to be entirely recomputed, i.e. {@link #reset()} has been called
+    * since the last update. When {@code false} and the mass matrix is not up-to-date, only the part
+    * affected by the joints marked as changed is recomputed.
+    */
+   private boolean isMassMatrixFullUpdateRequired = true;
    /**
     * Whether the centroidal momentum matrix has been updated since the last call to {@link #reset()}.
     */
@@ -219,6 +235,7 @@ public class CompositeRigidBodyMassMatrixCalculator
          {
             int[] jointIndices = input.getJointMatrixIndexProvider().getJointDoFIndices(childJoint);
             CompositeRigidBodyInertia child = new CompositeRigidBodyInertia(childBody, parent, jointIndices);
+            jointToCompositeInertiaMap.put(childJoint, child);
             inertiaList.add(child);
             inertiaList.addAll(buildMultiBodyTree(child));
          }
@@ -232,8 +249,49 @@ public class CompositeRigidBodyMassMatrixCalculator
    public void reset()
    {
       isMassMatrixUpToDate = false;
+      isMassMatrixFullUpdateRequired = true;
+      isCentroidalMomentumMatrixUpToDate = false;
+      isCentroidalConvectiveTermUpToDate = false;
+   }
+
+   /**
+    * Notifies this calculator that the configuration of the given joint has changed since the last
+    * update.
+    * <p>
+    * This is an alternative to {@link #reset()} for when only a few joints have changed: the next
+    * time the mass matrix is accessed, only the composite inertias of the ancestors of the changed
+    * joints and the coefficients that depend on the changed joints are recomputed. The centroidal
+    * momentum matrix and convective term are entirely invalidated.
+    * </p>
+    * <p>
+    * The state of all the other joints is assumed to be unchanged, and the reference frames of the
+    * multi-body system are expected to be updated before accessing the mass matrix. Joints that are
+    * not considered by this calculator are ignored.
+    * </p>
+    * 
+    * @param joint the joint which configuration has changed. Not modified.
+    */
+   public void markJointChanged(JointReadOnly joint)
+   {
       isCentroidalMomentumMatrixUpToDate = false;
       isCentroidalConvectiveTermUpToDate = false;
+
+      if (isMassMatrixFullUpdateRequired)
+         return;
+
+      CompositeRigidBodyInertia compositeInertia = jointToCompositeInertiaMap.get(joint);
+
+      if (compositeInertia == null)
+         return;
+
+      isMassMatrixUpToDate = false;
+      compositeInertia.markSubtreeForUpdate();
+
+      for (CompositeRigidBodyInertia ancestor = compositeInertia.parent; ancestor != null; ancestor = ancestor.parent)
+      {
+         ancestor.isCompositeInertiaUpdateRequired = true;
+         ancestor.isMassMatrixUpdateRequired = true;
+      }
    }
 
    private void updateMassMatrix()
@@ -241,8 +299,17 @@ public class CompositeRigidBodyMassMatrixCalculator
       if (isMassMatrixUpToDate)
          return;
 
-      massMatrix.zero();
-      rootCompositeInertia.computeMassMatrix();
+      if (isMassMatrixFullUpdateRequired)
+      {
+         massMatrix.zero();
+         rootCompositeInertia.computeMassMatrix();
+         isMassMatrixFullUpdateRequired = false;
+      }
+      else
+      {
+         rootCompositeInertia.updateMassMatrix();
+      }
+
       isMassMatrixUpToDate = true;
    }
 
@@ -410,6 +477,17 @@ public class CompositeRigidBodyMassMatrixCalculator
       /** The Coriolis and centrifugal accelerations for this rigid-body. */
       private final SpatialAcceleration coriolisBodyAcceleration;
 
+      /**
+       * Whether the composite inertia of this rigid-body has to be recomputed during the next
+       * incremental update of the mass matrix.
+       */
+      private boolean isCompositeInertiaUpdateRequired = false;
+      /**
+       * Whether the coefficients of the mass matrix coupling this joint with its ancestors have to be
+       * recomputed during the next incremental update of the mass matrix.
+       */
+      private boolean isMassMatrixUpdateRequired = false;
+
       public CompositeRigidBodyInertia(RigidBodyReadOnly rigidBody, CompositeRigidBodyInertia parent, int[] jointIndices)
       {
          this.rigidBody = rigidBody;
@@ -469,9 +547,55 @@ public class CompositeRigidBodyMassMatrixCalculator
          for (int childIndex = 0; childIndex < children.size(); childIndex++)
             children.get(childIndex).computeMassMatrix();
 
+         isCompositeInertiaUpdateRequired = false;
+         isMassMatrixUpdateRequired = false;
+
          if (isRoot())
             return;
 
+         computeCompositeInertia();
+         computeMassMatrixCoefficients();
+      }
+
+      /**
+       * Recursion step to incrementally update the mass-matrix, only the branches marked for update
+       * are visited. The recursion is from the leaves to the root.
+       */
+      public void updateMassMatrix()
+      {
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+         {
+            CompositeRigidBodyInertia child = children.get(childIndex);
+
+            if (child.isMassMatrixUpdateRequired)
+               child.updateMassMatrix();
+         }
+
+         if (!isRoot())
+         {
+            if (isCompositeInertiaUpdateRequired)
+               computeCompositeInertia();
+            computeMassMatrixCoefficients();
+         }
+
+         isCompositeInertiaUpdateRequired = false;
+         isMassMatrixUpdateRequired = false;
+      }
+
+      /**
+       * Marks this joint and all its descendants for update: the coefficients coupling them with the
+       * ancestors of this joint depend on this joint configuration.
+       */
+      public void markSubtreeForUpdate()
+      {
+         isMassMatrixUpdateRequired = true;
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).markSubtreeForUpdate();
+      }
+
+      private void computeCompositeInertia()
+      {
          compositeInertia.setIncludingFrame(bodyInertia);
          compositeInertia.changeFrame(getFrameAfterJoint());
 
@@ -481,7 +605,10 @@ public class CompositeRigidBodyMassMatrixCalculator
             childInertia.changeFrame(getFrameAfterJoint());
             compositeInertia.add(childInertia);
          }
+      }
 
+      private void computeMassMatrixCoefficients()
+      {
          for (int i = 0; i < getNumberOfDoFs(); i++)
          {
             unitMomenta[i].setReferenceFrame(getFrameAfterJoint());
@@ -529,6 +656,12 @@ public class CompositeRigidBodyMassMatrixCalculator
          for (int dofIndex = 0; dofIndex < getNumberOfDoFs(); dofIndex++)
          {
             Momentum unitMomentum = unitMomenta[dofIndex];
+            /*
+             * The unit-momenta are recomputed as they may have been expressed in a frame that has moved
+             * since the last update when the mass matrix was only partially updated.
+             */
+            unitMomentum.setReferenceFrame(getFrameAfterJoint());
+            unitMomentum.compute(compositeInertia, unitTwists[dofIndex]);
             unitMomentum.changeFrame(centroidalMomentumFrame);
             unitMomentum.get(0, jointIndices[dofIndex], centroidalMomentumMatrix);
          }
@@ -19,10 +19,12 @@ import us.ihmc.euclid.transform.RigidBodyTransform;
 import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
 import us.ihmc.mecano.algorithms.interfaces.RigidBodyAccelerationProvider;
 import us.ihmc.mecano.frames.MovingReferenceFrame;
+import us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointMatrixIndexProvider;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
 import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointReadOnly;
 import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
 import us.ihmc.mecano.spatial.SpatialAcceleration;
 import us.ihmc.mecano.spatial.SpatialForce;
@@ -67,6 +69,33 @@ public class ForwardDynamicsCalculator
     */
    private final RigidBodyAccelerationProvider accelerationProvider;
 
+   /** Whether the inertia of the ignored subtrees is considered, used to create the derivatives calculator. */
+   private final boolean considerIgnoredSubtreesInertia;
+   /**
+    * Calculator for the partial derivatives of the inverse dynamics, only created when the derivatives
+    * of the forward dynamics are requested.
+    */
+   private InverseDynamicsDerivativesCalculator inverseDynamicsDerivativesCalculator = null;
+   /** The partial derivatives of the joint accelerations with respect to the joint configurations. */
+   private DenseMatrix64F accelerationPartialDerivativesWrtConfiguration;
+   /** The partial derivatives of the joint accelerations with respect to the joint velocities. */
+   private DenseMatrix64F accelerationPartialDerivativesWrtVelocity;
+   /** The partial derivatives of the joint accelerations with respect to the joint efforts. */
+   private DenseMatrix64F accelerationPartialDerivativesWrtTau;
+   /** Intermediate variable for garbage free operations. */
+   private DenseMatrix64F jointConfigurationMatrix;
+   /** Intermediate variable for garbage free operations. */
+   private DenseMatrix64F jointVelocityMatrix;
+   /** Intermediate variable for garbage free operations. */
+   private DenseMatrix64F derivativeInputColumn;
+   /** Intermediate variable for garbage free operations. */
+   private DenseMatrix64F derivativeOutputColumn;
+   /**
+    * Whether the fast path for 1-DoF joints is used, only disabled to test the fast path against the
+    * general path.
+    */
+   private boolean enableOneDoFJointFastPath = true;
+
    /**
     * Creates a calculator for computing the joint accelerations for all the descendants of the given
     * {@code rootBody}.
@@ -121,6 +150,7 @@ public class ForwardDynamicsCalculator
    public ForwardDynamicsCalculator(MultiBodySystemReadOnly input, boolean considerIgnoredSubtreesInertia)
    {
       this.input = input;
+      this.considerIgnoredSubtreesInertia = considerIgnoredSubtreesInertia;
 
       RigidBodyReadOnly rootBody = input.getRootBody();
       initialRecursionStep = new ArticulatedBodyRecursionStep(rootBody, null, null);
@@ -272,6 +302,69 @@ public class ForwardDynamicsCalculator
       rigidBodyToRecursionStepMap.get(rigidBody).externalWrench.setMatchingFrame(externalWrench);
    }
 
+   /**
+    * Enables or disables the computation of the partial derivatives of the joint accelerations with
+    * respect to the joint configurations, velocities, and efforts.
+    * <p>
+    * When enabled, the derivatives are computed every time {@link #compute(DenseMatrix64F)} is
+    * called. The partial derivatives of the inverse dynamics are first evaluated at the newly
+    * computed joint accelerations, then the derivatives of the forward dynamics are obtained as
+    * follows:
+    *
+    * <pre>
+    * &part;q&#776;/&part;q = -M<sup>-1</sup> &part;&tau;/&part;q
+    * &part;q&#776;/&part;q&#775; = -M<sup>-1</sup> &part;&tau;/&part;q&#775;
+    * &part;q&#776;/&part;&tau; = M<sup>-1</sup>
+    * </pre>
+    *
+    * where the products with <tt>M<sup>-1</sup></tt> are computed column by column with two
+    * additional passes of the articulated-body algorithm reusing the articulated-body inertias
+    * computed for the forward dynamics, for an overall cost in <tt>O(n<sup>2</sup>)</tt>.
+    * </p>
+    * <p>
+    * See {@link InverseDynamicsDerivativesCalculator} for the definition of the derivatives with
+    * respect to the configuration of spherical, planar, and floating joints.
+    * </p>
+    *
+    * @param computeDerivatives {@code true} to compute the derivatives, {@code false} otherwise.
+    */
+   public void setComputeDerivatives(boolean computeDerivatives)
+   {
+      if (!computeDerivatives)
+      {
+         inverseDynamicsDerivativesCalculator = null;
+         return;
+      }
+
+      if (inverseDynamicsDerivativesCalculator != null)
+         return;
+
+      inverseDynamicsDerivativesCalculator = new InverseDynamicsDerivativesCalculator(CompiledMultiBodySystem.compile(input, considerIgnoredSubtreesInertia));
+
+      int nDoFs = jointTauMatrix.getNumRows();
+      accelerationPartialDerivativesWrtConfiguration = new DenseMatrix64F(nDoFs, nDoFs);
+      accelerationPartialDerivativesWrtVelocity = new DenseMatrix64F(nDoFs, nDoFs);
+      accelerationPartialDerivativesWrtTau = new DenseMatrix64F(nDoFs, nDoFs);
+      jointConfigurationMatrix = new DenseMatrix64F(inverseDynamicsDerivativesCalculator.getSystem().getConfigurationSize(), 1);
+      jointVelocityMatrix = new DenseMatrix64F(nDoFs, 1);
+      derivativeInputColumn = new DenseMatrix64F(nDoFs, 1);
+      derivativeOutputColumn = new DenseMatrix64F(nDoFs, 1);
+   }
+
+   /**
+    * Enables or disables the fast path used for 1-DoF joints, it is enabled by default.
+    * <p>
+    * Both paths give the same result, the general path is only meant to be used as a reference for
+    * testing the fast path.
+    * </p>
+    *
+    * @param enable whether the fast path for 1-DoF joints should be used.
+    */
+   void setOneDoFJointFastPathEnabled(boolean enable)
+   {
+      enableOneDoFJointFastPath = enable;
+   }
+
    /**
     * Computes the joint accelerations resulting from the joint efforts.
     * <p>
@@ -308,6 +401,54 @@ public class ForwardDynamicsCalculator
       initialRecursionStep.passOne();
       initialRecursionStep.passTwo();
       initialRecursionStep.passThree();
+
+      if (inverseDynamicsDerivativesCalculator != null)
+         computeDerivatives();
+   }
+
+   private void computeDerivatives()
+   {
+      inverseDynamicsDerivativesCalculator.setRootAcceleration(initialRecursionStep.rigidBodyAcceleration);
+      inverseDynamicsDerivativesCalculator.setExternalWrenchesToZero();
+
+      for (ArticulatedBodyRecursionStep recursionStep : rigidBodyToRecursionStepMap.values())
+      {
+         if (!recursionStep.isRoot())
+            inverseDynamicsDerivativesCalculator.setExternalWrench(recursionStep.rigidBody, recursionStep.externalWrench);
+      }
+
+      List<? extends JointReadOnly> indexedJointsInOrder = input.getJointMatrixIndexProvider().getIndexedJointsInOrder();
+      MultiBodySystemTools.extractJointsState(indexedJointsInOrder, JointStateType.CONFIGURATION, jointConfigurationMatrix);
+      MultiBodySystemTools.extractJointsState(indexedJointsInOrder, JointStateType.VELOCITY, jointVelocityMatrix);
+      inverseDynamicsDerivativesCalculator.compute(jointConfigurationMatrix, jointVelocityMatrix, jointAccelerationMatrix);
+
+      DenseMatrix64F tauWrtConfiguration = inverseDynamicsDerivativesCalculator.getTauPartialDerivativesWrtConfiguration();
+      DenseMatrix64F tauWrtVelocity = inverseDynamicsDerivativesCalculator.getTauPartialDerivativesWrtVelocity();
+
+      for (int column = 0; column < jointTauMatrix.getNumRows(); column++)
+      {
+         // dqdd/dtau = M^-1
+         derivativeInputColumn.zero();
+         derivativeInputColumn.set(column, 0, 1.0);
+         multiplyByInverseMassMatrix(derivativeInputColumn, accelerationPartialDerivativesWrtTau, column);
+
+         // dqdd/dq = - M^-1 dtau/dq
+         CommonOps.extract(tauWrtConfiguration, 0, tauWrtConfiguration.getNumRows(), column, column + 1, derivativeInputColumn, 0, 0);
+         CommonOps.changeSign(derivativeInputColumn);
+         multiplyByInverseMassMatrix(derivativeInputColumn, accelerationPartialDerivativesWrtConfiguration, column);
+
+         // dqdd/dqd = - M^-1 dtau/dqd
+         CommonOps.extract(tauWrtVelocity, 0, tauWrtVelocity.getNumRows(), column, column + 1, derivativeInputColumn, 0, 0);
+         CommonOps.changeSign(derivativeInputColumn);
+         multiplyByInverseMassMatrix(derivativeInputColumn, accelerationPartialDerivativesWrtVelocity, column);
+      }
+   }
+
+   private void multiplyByInverseMassMatrix(DenseMatrix64F vector, DenseMatrix64F matrixToPack, int column)
+   {
+      initialRecursionStep.inverseMassMatrixPassOne(vector);
+      initialRecursionStep.inverseMassMatrixPassTwo(derivativeOutputColumn);
+      CommonOps.insert(derivativeOutputColumn, matrixToPack, 0, column);
    }
 
    /**
@@ -395,6 +536,51 @@ public class ForwardDynamicsCalculator
       return true;
    }
 
+   /**
+    * Gets the partial derivatives of the joint accelerations with respect to the joint
+    * configurations: <tt>&part;q&#776;/&part;q</tt>.
+    * <p>
+    * The derivatives are only available when enabled via {@link #setComputeDerivatives(boolean)}.
+    * </p>
+    *
+    * @return the <tt>n</tt>-by-<tt>n</tt> matrix of the partial derivatives, where <tt>n</tt> is the
+    *         number of degrees of freedom, or {@code null} if the derivatives are not computed.
+    */
+   public DenseMatrix64F getAccelerationPartialDerivativesWrtConfiguration()
+   {
+      return inverseDynamicsDerivativesCalculator == null ? null : accelerationPartialDerivativesWrtConfiguration;
+   }
+
+   /**
+    * Gets the partial derivatives of the joint accelerations with respect to the joint velocities:
+    * <tt>&part;q&#776;/&part;q&#775;</tt>.
+    * <p>
+    * The derivatives are only available when enabled via {@link #setComputeDerivatives(boolean)}.
+    * </p>
+    *
+    * @return the <tt>n</tt>-by-<tt>n</tt> matrix of the partial derivatives, where <tt>n</tt> is the
+    *         number of degrees of freedom, or {@code null} if the derivatives are not computed.
+    */
+   public DenseMatrix64F getAccelerationPartialDerivativesWrtVelocity()
+   {
+      return inverseDynamicsDerivativesCalculator == null ? null : accelerationPartialDerivativesWrtVelocity;
+   }
+
+   /**
+    * Gets the partial derivatives of the joint accelerations with respect to the joint efforts:
+    * <tt>&part;q&#776;/&part;&tau;</tt>, which is the inverse of the mass matrix.
+    * <p>
+    * The derivatives are only available when enabled via {@link #setComputeDerivatives(boolean)}.
+    * </p>
+    *
+    * @return the <tt>n</tt>-by-<tt>n</tt> matrix of the partial derivatives, where <tt>n</tt> is the
+    *         number of degrees of freedom, or {@code null} if the derivatives are not computed.
+    */
+   public DenseMatrix64F getAccelerationPartialDerivativesWrtTau()
+   {
+      return inverseDynamicsDerivativesCalculator == null ? null : accelerationPartialDerivativesWrtTau;
+   }
+
    /**
     * Gets the rigid-body acceleration provider that uses accelerations computed in this calculator.
     * 
@@ -474,6 +660,17 @@ public class ForwardDynamicsCalculator
        * the number of DoFs of the joint.
        */
       final DenseMatrix64F S;
+      /**
+       * Operations involving the motion subspace <tt>S</tt> specialized for the number of DoFs of the
+       * parent joint.
+       */
+      final MotionSubspaceKernel motionSubspaceKernel;
+      /**
+       * The parent joint if it is a 1-DoF joint, {@code null} otherwise. Used for a fast path where
+       * <tt>S<sup>T</sup> * f</tt> is a dot product with the joint unit-twist and <tt>S * qdd</tt> is a
+       * scaling of the joint unit-twist.
+       */
+      final OneDoFJointReadOnly oneDoFJoint;
 
       /**
        * Intermediate result to save operations:
@@ -630,6 +827,33 @@ public class ForwardDynamicsCalculator
        * </pre>
        */
       final DenseMatrix64F qdd;
+      /**
+       * Spatial acceleration of this rigid-body used when multiplying a vector by the inverse of the
+       * mass matrix.
+       */
+      final SpatialAcceleration rigidBodyAccelerationForInverse = new SpatialAcceleration();
+      /**
+       * Apparent bias wrench to this joint used when multiplying a vector by the inverse of the mass
+       * matrix.
+       */
+      final SpatialForce articulatedBiasWrenchForInverse;
+      /**
+       * Pre-transformed bias wrench for the parent used when multiplying a vector by the inverse of the
+       * mass matrix.
+       */
+      final SpatialForce articulatedBiasWrenchForParentForInverse;
+      /**
+       * Equivalent of {@link #u} when multiplying a vector by the inverse of the mass matrix.
+       */
+      final DenseMatrix64F uForInverse;
+      /**
+       * Equivalent of {@link #pa} when multiplying a vector by the inverse of the mass matrix.
+       */
+      final DenseMatrix64F paForInverse;
+      /**
+       * Equivalent of {@link #qdd} when multiplying a vector by the inverse of the mass matrix.
+       */
+      final DenseMatrix64F qddForInverse;
       /**
        * The recursion step holding onto the direct predecessor of this recursion step's rigid-body.
        */
@@ -672,9 +896,17 @@ public class ForwardDynamicsCalculator
             articulatedBiasWrenchForParent = null;
             parentAcceleration = null;
             rigidBodyAcceleration.setToZero(getBodyFixedFrame(), input.getInertialFrame(), getBodyFixedFrame());
+            rigidBodyAccelerationForInverse.setToZero(getBodyFixedFrame(), input.getInertialFrame(), getBodyFixedFrame());
+            articulatedBiasWrenchForInverse = null;
+            articulatedBiasWrenchForParentForInverse = null;
+            uForInverse = null;
+            paForInverse = null;
+            qddForInverse = null;
 
             IA = null;
             S = null;
+            motionSubspaceKernel = null;
+            oneDoFJoint = null;
             U = null;
             D = null;
             Dinv = null;
@@ -727,7 +959,14 @@ public class ForwardDynamicsCalculator
             a = new DenseMatrix64F(SpatialAccelerationReadOnly.SIZE, 1);
             inverseSolver = nDoFs == 6 ? LinearSolverFactory.symmPosDef(6) : null;
             transformToParentJointFrame = new RigidBodyTransform();
+            articulatedBiasWrenchForInverse = new SpatialForce();
+            articulatedBiasWrenchForParentForInverse = parent.isRoot() ? null : new SpatialForce();
+            uForInverse = new DenseMatrix64F(nDoFs, 1);
+            paForInverse = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, 1);
+            qddForInverse = new DenseMatrix64F(nDoFs, 1);
             getJoint().getMotionSubspace(S);
+            motionSubspaceKernel = MotionSubspaceKernel.newKernel(S);
+            oneDoFJoint = getJoint() instanceof OneDoFJointReadOnly ? (OneDoFJointReadOnly) getJoint() : null;
          }
       }
 
@@ -816,8 +1055,7 @@ public class ForwardDynamicsCalculator
 
          // Computing intermediate variables used in later calculation
          articulatedInertia.get(IA);
-         CommonOps.mult(IA, S, U);
-         CommonOps.multTransA(S, U, D);
+         motionSubspaceKernel.multiplyInertia(IA, U, D);
 
          int nDoFs = getJoint().getDegreesOfFreedom();
          if (nDoFs == 1)
@@ -839,19 +1077,25 @@ public class ForwardDynamicsCalculator
          }
 
          // Computing u_i = tau_i - S_i^T * p_i^A
-         for (int dofIndex = 0; dofIndex < nDoFs; dofIndex++)
+         if (oneDoFJoint != null && enableOneDoFJointFastPath)
          {
-            tau.set(dofIndex, 0, jointTauMatrix.get(jointIndices[dofIndex], 0));
+            u.data[0] = jointTauMatrix.get(jointIndices[0], 0) - oneDoFJoint.getUnitJointTwist().dot(articulatedBiasWrench);
          }
+         else
+         {
+            for (int dofIndex = 0; dofIndex < nDoFs; dofIndex++)
+            {
+               tau.set(dofIndex, 0, jointTauMatrix.get(jointIndices[dofIndex], 0));
+            }
 
-         articulatedBiasWrench.get(pA);
-         CommonOps.multTransA(-1.0, S, pA, u);
-         CommonOps.addEquals(u, tau);
+            articulatedBiasWrench.get(pA);
+            motionSubspaceKernel.multiplyTransA(-1.0, pA, u);
+            CommonOps.addEquals(u, tau);
+         }
 
          if (!parent.isRoot())
          {
-            CommonOps.mult(U, Dinv, U_Dinv);
-            CommonOps.multTransB(U_Dinv, U, U_Dinv_UT);
+            motionSubspaceKernel.computeSymmetricUpdate(U, Dinv, U_Dinv, U_Dinv_UT);
 
             // Computing I_i^a = I_i^A - U_i * D_i^-1 * U_i^T
             articulatedInertiaForParent.setIncludingFrame(articulatedInertia);
@@ -880,15 +1124,22 @@ public class ForwardDynamicsCalculator
             parentAcceleration.add((SpatialVectorReadOnly) biasAcceleration);
             parentAcceleration.get(aPrime);
 
-            // Computing qdd_i = D_i^-1 * ( u_i - U_i^T * a'_i )
-            CommonOps.multTransA(-1.0, U, aPrime, qdd_intermediate);
-            CommonOps.addEquals(qdd_intermediate, u);
-            CommonOps.mult(Dinv, qdd_intermediate, qdd);
-
-            // Computing a_i = a'_i + S_i * qdd_i
-            CommonOps.mult(S, qdd, a);
-            CommonOps.addEquals(a, aPrime);
-            rigidBodyAcceleration.setIncludingFrame(getBodyFixedFrame(), parent.getBodyFixedFrame(), getFrameAfterJoint(), a);
+            if (oneDoFJoint != null && enableOneDoFJointFastPath)
+            {
+               computeOneDoFJointAcceleration(u, qdd, rigidBodyAcceleration);
+            }
+            else
+            {
+               // Computing qdd_i = D_i^-1 * ( u_i - U_i^T * a'_i )
+               CommonOps.multTransA(-1.0, U, aPrime, qdd_intermediate);
+               CommonOps.addEquals(qdd_intermediate, u);
+               CommonOps.mult(Dinv, qdd_intermediate, qdd);
+
+               // Computing a_i = a'_i + S_i * qdd_i
+               a.set(aPrime);
+               motionSubspaceKernel.multiplyAdd(qdd, a);
+               rigidBodyAcceleration.setIncludingFrame(getBodyFixedFrame(), parent.getBodyFixedFrame(), getFrameAfterJoint(), a);
+            }
 
             for (int dofIndex = 0; dofIndex < getJoint().getDegreesOfFreedom(); dofIndex++)
             {
@@ -900,6 +1151,131 @@ public class ForwardDynamicsCalculator
             children.get(childIndex).passThree();
       }
 
+      /**
+       * First pass for multiplying a vector by the inverse of the mass matrix. It is equivalent to
+       * {@link #passTwo()} when there is no bias forces and reuses the articulated-body inertias
+       * computed in {@link #passTwo()}.
+       *
+       * @param vector the vector to multiply by the inverse of the mass matrix. Not modified.
+       */
+      public void inverseMassMatrixPassOne(DenseMatrix64F vector)
+      {
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).inverseMassMatrixPassOne(vector);
+
+         if (isRoot())
+            return;
+
+         MovingReferenceFrame frameAfterJoint = getFrameAfterJoint();
+         articulatedBiasWrenchForInverse.setToZero(frameAfterJoint);
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+         {
+            ArticulatedBodyRecursionStep child = children.get(childIndex);
+            child.articulatedBiasWrenchForParentForInverse.applyTransform(child.transformToParentJointFrame);
+            child.articulatedBiasWrenchForParentForInverse.setReferenceFrame(frameAfterJoint);
+            articulatedBiasWrenchForInverse.add(child.articulatedBiasWrenchForParentForInverse);
+         }
+
+         // Computing u_i = x_i - S_i^T * p_i^A
+         if (oneDoFJoint != null && enableOneDoFJointFastPath)
+         {
+            uForInverse.data[0] = vector.get(jointIndices[0], 0) - oneDoFJoint.getUnitJointTwist().dot(articulatedBiasWrenchForInverse);
+         }
+         else
+         {
+            articulatedBiasWrenchForInverse.get(pA);
+            motionSubspaceKernel.multiplyTransA(-1.0, pA, uForInverse);
+
+            for (int dofIndex = 0; dofIndex < getJoint().getDegreesOfFreedom(); dofIndex++)
+            {
+               uForInverse.add(dofIndex, 0, vector.get(jointIndices[dofIndex], 0));
+            }
+         }
+
+         if (!parent.isRoot())
+         {
+            // Computing p_i^a = p_i^A + U_i * D_i^-1 * u_i
+            articulatedBiasWrenchForInverse.get(paForInverse);
+            CommonOps.multAdd(U_Dinv, uForInverse, paForInverse);
+            articulatedBiasWrenchForParentForInverse.setIncludingFrame(frameAfterJoint, paForInverse);
+         }
+      }
+
+      /**
+       * Second and last pass for multiplying a vector by the inverse of the mass matrix. It is
+       * equivalent to {@link #passThree()} when there is no bias accelerations.
+       *
+       * @param resultToPack the vector used to store the result. Modified.
+       */
+      public void inverseMassMatrixPassTwo(DenseMatrix64F resultToPack)
+      {
+         if (!isRoot())
+         {
+            // Computing a'_i = a_{lambda(i)}
+            parentAcceleration.setIncludingFrame(parent.rigidBodyAccelerationForInverse);
+            parentAcceleration.applyInverseTransform(transformToParentJointFrame);
+            parentAcceleration.setReferenceFrame(getFrameAfterJoint());
+            parentAcceleration.get(aPrime);
+
+            if (oneDoFJoint != null && enableOneDoFJointFastPath)
+            {
+               computeOneDoFJointAcceleration(uForInverse, qddForInverse, rigidBodyAccelerationForInverse);
+            }
+            else
+            {
+               // Computing qdd_i = D_i^-1 * ( u_i - U_i^T * a'_i )
+               CommonOps.multTransA(-1.0, U, aPrime, qdd_intermediate);
+               CommonOps.addEquals(qdd_intermediate, uForInverse);
+               CommonOps.mult(Dinv, qdd_intermediate, qddForInverse);
+
+               // Computing a_i = a'_i + S_i * qdd_i
+               a.set(aPrime);
+               motionSubspaceKernel.multiplyAdd(qddForInverse, a);
+               rigidBodyAccelerationForInverse.setIncludingFrame(getBodyFixedFrame(), parent.getBodyFixedFrame(), getFrameAfterJoint(), a);
+            }
+
+            for (int dofIndex = 0; dofIndex < getJoint().getDegreesOfFreedom(); dofIndex++)
+            {
+               resultToPack.set(jointIndices[dofIndex], 0, qddForInverse.get(dofIndex, 0));
+            }
+         }
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).inverseMassMatrixPassTwo(resultToPack);
+      }
+
+      /**
+       * Fast path for 1-DoF joints computing the joint acceleration and the rigid-body acceleration
+       * without matrix operations:
+       *
+       * <pre>
+       * qdd_i = D_i^-1 * ( u_i - U_i^T * a'_i )
+       * a_i = a'_i + S_i * qdd_i
+       * </pre>
+       *
+       * where the motion subspace <tt>S_i</tt> is the joint unit-twist.
+       *
+       * @param u                  the 1-by-1 matrix containing <tt>u_i</tt>. Not modified.
+       * @param qddToPack          the 1-by-1 matrix used to store the joint acceleration. Modified.
+       * @param accelerationToPack the rigid-body acceleration to compute from {@code aPrime}.
+       *                           Modified.
+       */
+      private void computeOneDoFJointAcceleration(DenseMatrix64F u, DenseMatrix64F qddToPack, SpatialAcceleration accelerationToPack)
+      {
+         double UT_aPrime = 0.0;
+         for (int row = 0; row < SpatialVectorReadOnly.SIZE; row++)
+            UT_aPrime += U.data[row] * aPrime.data[row];
+
+         double jointAcceleration = Dinv.data[0] * (u.data[0] - UT_aPrime);
+         qddToPack.data[0] = jointAcceleration;
+
+         TwistReadOnly unitTwist = oneDoFJoint.getUnitJointTwist();
+         accelerationToPack.setIncludingFrame(getBodyFixedFrame(), parent.getBodyFixedFrame(), getFrameAfterJoint(), aPrime);
+         accelerationToPack.getAngularPart().scaleAdd(jointAcceleration, unitTwist.getAngularPart(), accelerationToPack.getAngularPart());
+         accelerationToPack.getLinearPart().scaleAdd(jointAcceleration, unitTwist.getLinearPart(), accelerationToPack.getLinearPart());
+      }
+
       public void setExternalWrenchToZeroRecursive()
       {
          if (externalWrench != null)
@@ -9,6 +9,8 @@ import org.ejml.ops.CommonOps;
 
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.referenceFrame.exceptions.ReferenceFrameMismatchException;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.mecano.frames.FrameStateCache;
 import us.ihmc.mecano.frames.MovingReferenceFrame;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
 import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
@@ -89,6 +91,14 @@ public class GeometricJacobianCalculator
     */
    private final Twist relativeJointTwist = new Twist();
 
+   /**
+    * Optional cache of the poses and velocities of the frames of the system used to speed up the
+    * frame changes.
+    */
+   private FrameStateCache frameStateCache = null;
+   /** Intermediate variable for garbage free operations. */
+   private final RigidBodyTransform transformToJacobianFrame = new RigidBodyTransform();
+
    private boolean isJacobianUpToDate = false;
    private boolean isConvectiveTermUpToDate = false;
 
@@ -238,6 +248,22 @@ public class GeometricJacobianCalculator
       reset();
    }
 
+   /**
+    * Sets the cache to use for retrieving the relative poses and velocities of the frames involved in
+    * the computation of the Jacobian and convective term.
+    * <p>
+    * The cache is expected to be updated by the user every time the frames of the system are updated.
+    * The frames that are not part of the cache are handled as if no cache was provided.
+    * </p>
+    *
+    * @param frameStateCache the cache to use, or {@code null} to not use any.
+    */
+   public void setFrameStateCache(FrameStateCache frameStateCache)
+   {
+      this.frameStateCache = frameStateCache;
+      reset();
+   }
+
    /**
     * Updates the values of the Jacobian matrix.
     * <p>
@@ -269,7 +295,7 @@ public class GeometricJacobianCalculator
             jointUnitTwist.setIncludingFrame(joint.getUnitTwists().get(dofIndex));
             if (isGoingUpstream)
                jointUnitTwist.invert();
-            jointUnitTwist.changeFrame(jacobianFrame);
+            changeFrameOfUnitTwist(jacobianFrame);
             jointUnitTwist.get(0, column++, jacobianMatrix);
          }
 
@@ -279,6 +305,36 @@ public class GeometricJacobianCalculator
       isJacobianUpToDate = true;
    }
 
+   private void changeFrameOfUnitTwist(ReferenceFrame desiredFrame)
+   {
+      ReferenceFrame currentFrame = jointUnitTwist.getReferenceFrame();
+
+      int currentIndex = frameStateCache == null ? -1 : frameStateCache.indexOf(currentFrame);
+      int desiredIndex = currentIndex == -1 ? -1 : frameStateCache.indexOf(desiredFrame);
+
+      if (desiredIndex != -1)
+      {
+         frameStateCache.getTransform(currentIndex, desiredIndex, transformToJacobianFrame);
+         jointUnitTwist.applyTransform(transformToJacobianFrame);
+         jointUnitTwist.setReferenceFrame(desiredFrame);
+      }
+      else
+      {
+         jointUnitTwist.changeFrame(desiredFrame);
+      }
+   }
+
+   private void packTwistRelativeToBase(MovingReferenceFrame bodyFrame, MovingReferenceFrame baseFrame)
+   {
+      int bodyIndex = frameStateCache == null ? -1 : frameStateCache.indexOf(bodyFrame);
+      int baseIndex = bodyIndex == -1 ? -1 : frameStateCache.indexOf(baseFrame);
+
+      if (baseIndex != -1)
+         frameStateCache.getTwistRelativeToOther(bodyIndex, baseIndex, bodyTwistRelativeToBase);
+      else
+         bodyFrame.getTwistRelativeToOther(baseFrame, bodyTwistRelativeToBase);
+   }
+
    /**
     * Computes the convective term C<sub>6x1</sub> = JDot<sub>6xN</sub> * qDot<sub>Nx1</sub>.<br>
     * where N is the number of degrees of freedom between the {@code base} and {@code endEffector},
@@ -338,7 +394,7 @@ public class GeometricJacobianCalculator
          if (isGoingUpstream)
          {
             parentJoint.getSuccessorTwist(relativeJointTwist);
-            currentBodyFrame.getTwistRelativeToOther(baseFrame, bodyTwistRelativeToBase);
+            packTwistRelativeToBase(currentBodyFrame, baseFrame);
             relativeJointTwist.invert();
 
             // By changing the zero-acceleration from body to body until the end-effector, we collect Coriolis and centrifugal accelerations.
@@ -348,7 +404,7 @@ public class GeometricJacobianCalculator
          else
          {
             parentJoint.getPredecessorTwist(relativeJointTwist);
-            predecessorBodyFrame.getTwistRelativeToOther(baseFrame, bodyTwistRelativeToBase);
+            packTwistRelativeToBase(predecessorBodyFrame, baseFrame);
 
             // By changing the zero-acceleration from body to body until the end-effector, we collect Coriolis and centrifugal accelerations.
             endEffectorCoriolisAcceleration.changeFrame(currentBodyFrame, relativeJointTwist, bodyTwistRelativeToBase);
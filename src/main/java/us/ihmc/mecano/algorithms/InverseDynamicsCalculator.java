@@ -7,7 +7,6 @@ import java.util.List;
 import java.util.Map;
 
 import org.ejml.data.DenseMatrix64F;
-import org.ejml.ops.CommonOps;
 
 import us.ihmc.euclid.referenceFrame.exceptions.ReferenceFrameMismatchException;
 import us.ihmc.euclid.referenceFrame.interfaces.FrameTuple3DReadOnly;
@@ -18,6 +17,7 @@ import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointMatrixIndexProvider;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
 import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointReadOnly;
 import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
 import us.ihmc.mecano.spatial.SpatialAcceleration;
 import us.ihmc.mecano.spatial.SpatialForce;
@@ -67,6 +67,11 @@ public class InverseDynamicsCalculator
     * {@link SpatialAccelerationCalculator}.
     */
    private final RigidBodyAccelerationProvider accelerationProvider;
+   /**
+    * Whether the fast path for 1-DoF joints is used, only disabled to test the fast path against the
+    * general path.
+    */
+   private boolean enableOneDoFJointFastPath = true;
 
    /**
     * Creates a calculator for computing the joint efforts for all the descendants of the given
@@ -351,6 +356,20 @@ public class InverseDynamicsCalculator
       getExternalWrench(rigidBody).setMatchingFrame(externalWrench);
    }
 
+   /**
+    * Enables or disables the fast path used for 1-DoF joints, it is enabled by default.
+    * <p>
+    * Both paths give the same result, the general path is only meant to be used as a reference for
+    * testing the fast path.
+    * </p>
+    *
+    * @param enable whether the fast path for 1-DoF joints should be used.
+    */
+   void setOneDoFJointFastPathEnabled(boolean enable)
+   {
+      enableOneDoFJointFastPath = enable;
+   }
+
    /**
     * Computes the joint efforts needed to achieve the desired joint accelerations.
     * <p>
@@ -553,6 +572,17 @@ public class InverseDynamicsCalculator
        * the number of DoFs of the joint.
        */
       private final DenseMatrix64F S;
+      /**
+       * Operations involving the motion subspace <tt>S</tt> specialized for the number of DoFs of the
+       * parent joint.
+       */
+      private final MotionSubspaceKernel motionSubspaceKernel;
+      /**
+       * The parent joint if it is a 1-DoF joint, {@code null} otherwise. Used for a fast path where
+       * <tt>S * qdd</tt> is a scaling of the joint unit-acceleration and <tt>S<sup>T</sup> * f</tt> is
+       * a dot product with the joint unit-twist.
+       */
+      private final OneDoFJointReadOnly oneDoFJoint;
       /**
        * Joint acceleration.
        */
@@ -587,6 +617,8 @@ public class InverseDynamicsCalculator
             jointWrench = null;
             externalWrench = null;
             S = null;
+            motionSubspaceKernel = null;
+            oneDoFJoint = null;
             qdd = null;
             a = null;
             tau = null;
@@ -606,6 +638,8 @@ public class InverseDynamicsCalculator
             tau = new DenseMatrix64F(nDoFs, 1);
             jointWrenchMatrix = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, 1);
             getJoint().getMotionSubspace(S);
+            motionSubspaceKernel = MotionSubspaceKernel.newKernel(S);
+            oneDoFJoint = getJoint() instanceof OneDoFJointReadOnly ? (OneDoFJointReadOnly) getJoint() : null;
          }
       }
 
@@ -657,13 +691,23 @@ public class InverseDynamicsCalculator
 
             if (considerJointAccelerations)
             {
-               int nDoFs = getJoint().getDegreesOfFreedom();
-               CommonOps.extract(jointAccelerationMatrix, jointIndices, nDoFs, qdd);
-               CommonOps.mult(S, qdd, a);
-               localJointAcceleration.setIncludingFrame(getFrameAfterJoint(), getFrameBeforeJoint(), getFrameAfterJoint(), a);
-               localJointAcceleration.changeFrame(getBodyFixedFrame());
-               localJointAcceleration.setBodyFrame(getBodyFixedFrame());
-               localJointAcceleration.setBaseFrame(parent.getBodyFixedFrame());
+               if (oneDoFJoint != null && enableOneDoFJointFastPath)
+               {
+                  // The unit-acceleration is already expressed in the body frame with the proper body and base frames.
+                  localJointAcceleration.setIncludingFrame(oneDoFJoint.getUnitSuccessorAcceleration());
+                  localJointAcceleration.scale(jointAccelerationMatrix.data[jointIndices[0]]);
+               }
+               else
+               {
+                  int nDoFs = getJoint().getDegreesOfFreedom();
+                  for (int dofIndex = 0; dofIndex < nDoFs; dofIndex++)
+                     qdd.data[dofIndex] = jointAccelerationMatrix.data[jointIndices[dofIndex]];
+                  motionSubspaceKernel.multiply(qdd, a);
+                  localJointAcceleration.setIncludingFrame(getFrameAfterJoint(), getFrameBeforeJoint(), getFrameAfterJoint(), a);
+                  localJointAcceleration.changeFrame(getBodyFixedFrame());
+                  localJointAcceleration.setBodyFrame(getBodyFixedFrame());
+                  localJointAcceleration.setBaseFrame(parent.getBodyFixedFrame());
+               }
                rigidBodyAcceleration.add(localJointAcceleration);
             }
             else
@@ -707,8 +751,19 @@ public class InverseDynamicsCalculator
             jointWrench.add(jointForceFromChild);
          }
 
-         jointWrench.get(jointWrenchMatrix);
-         CommonOps.multTransA(S, jointWrenchMatrix, tau);
+         if (oneDoFJoint != null && enableOneDoFJointFastPath)
+         {
+            /*
+             * Computing tau = S^T * f as a dot product with the joint unit-twist. The body frames of the
+             * unit-twist and the wrench differ, so only the expressed-in frame is checked here.
+             */
+            tau.data[0] = oneDoFJoint.getUnitJointTwist().dot((SpatialVectorReadOnly) jointWrench);
+         }
+         else
+         {
+            jointWrench.get(jointWrenchMatrix);
+            motionSubspaceKernel.multiplyTransA(1.0, jointWrenchMatrix, tau);
+         }
 
          for (int dofIndex = 0; dofIndex < getJoint().getDegreesOfFreedom(); dofIndex++)
          {
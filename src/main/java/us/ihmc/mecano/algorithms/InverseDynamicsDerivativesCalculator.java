@@ -0,0 +1,498 @@
+package us.ihmc.mecano.algorithms;
+
+import static us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem.SPATIAL_VECTOR_SIZE;
+import static us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem.TRANSFORM_SIZE;
+
+import java.util.List;
+
+import org.ejml.data.DenseMatrix64F;
+
+import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
+import us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem;
+import us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystemTools;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.spatial.interfaces.SpatialAccelerationReadOnly;
+import us.ihmc.mecano.spatial.interfaces.WrenchReadOnly;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+/**
+ * Computes the partial derivatives of the inverse dynamics, i.e. the joint efforts, with respect to
+ * the joint configurations, velocities, and accelerations.
+ * <p>
+ * The inverse dynamics is first evaluated with a {@link CompiledInverseDynamicsCalculator}, then
+ * for each degree of freedom, the derivatives of the body velocities, accelerations, and wrenches
+ * are propagated through the two passes of the recursive Newton-Euler algorithm. Only the subtree
+ * of the joint and its ancestors are affected by each degree of freedom, such that the overall cost
+ * is <tt>O(n<sup>2</sup>)</tt> in the worst case. The state of the joints is never modified and
+ * their reference frames are not updated.
+ * </p>
+ * <p>
+ * The derivatives with respect to the configuration are computed for a perturbation of the
+ * configuration in the tangent space of each joint, i.e. along its motion subspace:
+ *
+ * <pre>
+ * q' = q &oplus; &delta;q &hArr; H<sub>joint</sub>(q') = H<sub>joint</sub>(q) exp(S &delta;q)
+ * </pre>
+ *
+ * such that all the output matrices are square matrices of size equal to the number of degrees of
+ * freedom of the system. For the revolute and prismatic joints, <tt>&delta;q</tt> is simply a
+ * variation of the joint position. For all the other joints, i.e. spherical, planar, and six-DoF
+ * joints, <tt>&delta;q</tt> is a motion expressed in the joint {@code frameAfterJoint} and is not a
+ * variation of the configuration vector: its angular part is a rotation vector instead of a
+ * variation of the quaternion, reducing to the variation of the angle for planar joints, and its
+ * linear part is a displacement expressed in {@code frameAfterJoint} instead of the parent frame.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class InverseDynamicsDerivativesCalculator
+{
+   /** The calculator used to evaluate the inverse dynamics about which the derivatives are computed. */
+   private final CompiledInverseDynamicsCalculator inverseDynamicsCalculator;
+   /** The compiled multi-body system used with this calculator. */
+   private final CompiledMultiBodySystem system;
+
+   /** For each body, the twist of its parent expressed in the body frame, i.e. <tt>X v<sub>parent</sub></tt>. */
+   private final double[] parentTwists;
+   /** For each body, the acceleration of its parent expressed in the body frame, i.e. <tt>X a<sub>parent</sub></tt>. */
+   private final double[] parentAccelerations;
+   /** For each body, its momentum, i.e. <tt>I v</tt>. */
+   private final double[] momenta;
+   /** For each body, the derivative of its twist with respect to the current degree of freedom. */
+   private final double[] twistDerivatives;
+   /** For each body, the derivative of its acceleration with respect to the current degree of freedom. */
+   private final double[] accelerationDerivatives;
+   /** For each joint, the derivative of its subtree wrench with respect to the current degree of freedom. */
+   private final double[] wrenchDerivatives;
+   /** Intermediate variable for garbage free operations. */
+   private final double[] intermediateMotion = new double[SPATIAL_VECTOR_SIZE];
+   /** Intermediate variable for garbage free operations. */
+   private final double[] ancestorWrenchDerivatives = new double[2 * SPATIAL_VECTOR_SIZE];
+
+   /** The joint configurations used when computing from the state of the joints. */
+   private final DenseMatrix64F jointConfigurationMatrix;
+   /** The joint velocities used when computing from the state of the joints. */
+   private final DenseMatrix64F jointVelocityMatrix;
+   /** The joint accelerations used when computing from the state of the joints. */
+   private final DenseMatrix64F jointAccelerationMatrix;
+
+   /** The partial derivatives of the joint efforts with respect to the joint configurations. */
+   private final DenseMatrix64F tauPartialDerivativesWrtConfiguration;
+   /** The partial derivatives of the joint efforts with respect to the joint velocities. */
+   private final DenseMatrix64F tauPartialDerivativesWrtVelocity;
+   /** The partial derivatives of the joint efforts with respect to the joint accelerations. */
+   private final DenseMatrix64F tauPartialDerivativesWrtAcceleration;
+
+   /**
+    * Creates a calculator for computing the inverse dynamics derivatives for all the descendants of
+    * the given {@code rootBody}.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param rootBody the supporting body of the subtree to be evaluated by this calculator. Not
+    *                 modified.
+    */
+   public InverseDynamicsDerivativesCalculator(RigidBodyReadOnly rootBody)
+   {
+      this(CompiledMultiBodySystem.compile(rootBody));
+   }
+
+   /**
+    * Creates a calculator for computing the inverse dynamics derivatives for system defined by the
+    * given {@code input}.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param input the definition of the system to be evaluated by this calculator.
+    */
+   public InverseDynamicsDerivativesCalculator(MultiBodySystemReadOnly input)
+   {
+      this(CompiledMultiBodySystem.compile(input));
+   }
+
+   /**
+    * Creates a calculator for computing the inverse dynamics derivatives for the given compiled
+    * system.
+    * <p>
+    * Do not forgot to set the gravitational acceleration so this calculator can properly account for
+    * it.
+    * </p>
+    *
+    * @param system the compiled system to be evaluated by this calculator. Not modified.
+    */
+   public InverseDynamicsDerivativesCalculator(CompiledMultiBodySystem system)
+   {
+      this.system = system;
+      inverseDynamicsCalculator = new CompiledInverseDynamicsCalculator(system);
+
+      int numberOfJoints = system.getNumberOfJoints();
+      parentTwists = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      parentAccelerations = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      momenta = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      twistDerivatives = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      accelerationDerivatives = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+      wrenchDerivatives = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+
+      int nDoFs = system.getNumberOfDoFs();
+      jointConfigurationMatrix = new DenseMatrix64F(system.getConfigurationSize(), 1);
+      jointVelocityMatrix = new DenseMatrix64F(nDoFs, 1);
+      jointAccelerationMatrix = new DenseMatrix64F(nDoFs, 1);
+      tauPartialDerivativesWrtConfiguration = new DenseMatrix64F(nDoFs, nDoFs);
+      tauPartialDerivativesWrtVelocity = new DenseMatrix64F(nDoFs, nDoFs);
+      tauPartialDerivativesWrtAcceleration = new DenseMatrix64F(nDoFs, nDoFs);
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following calculation.
+    * <p>
+    * Similar to {@link InverseDynamicsCalculator}, the gravity is assumed to be expressed in the
+    * root body-fixed frame.
+    * </p>
+    *
+    * @param gravity the gravitational acceleration to use. Not modified.
+    */
+   public void setGravitionalAcceleration(Tuple3DReadOnly gravity)
+   {
+      inverseDynamicsCalculator.setGravitionalAcceleration(gravity);
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following calculation.
+    *
+    * @param gravity the gravitational acceleration along the z-axis, it is usually equal to
+    *                {@code -9.81}.
+    */
+   public void setGravitionalAcceleration(double gravity)
+   {
+      inverseDynamicsCalculator.setGravitionalAcceleration(gravity);
+   }
+
+   /**
+    * Changes the gravitational acceleration to account for in the following calculation.
+    *
+    * @param gravityX the gravitational linear acceleration along the x-axis.
+    * @param gravityY the gravitational linear acceleration along the y-axis.
+    * @param gravityZ the gravitational linear acceleration along the z-axis.
+    */
+   public void setGravitionalAcceleration(double gravityX, double gravityY, double gravityZ)
+   {
+      inverseDynamicsCalculator.setGravitionalAcceleration(gravityX, gravityY, gravityZ);
+   }
+
+   /**
+    * Changes the spatial acceleration of the root.
+    *
+    * @param newRootAcceleration the new spatial acceleration of the root, expressed in the root
+    *                            body-fixed frame. Not modified.
+    * @see CompiledInverseDynamicsCalculator#setRootAcceleration(SpatialAccelerationReadOnly)
+    */
+   public void setRootAcceleration(SpatialAccelerationReadOnly newRootAcceleration)
+   {
+      inverseDynamicsCalculator.setRootAcceleration(newRootAcceleration);
+   }
+
+   /**
+    * Resets all the external wrenches that were added to the rigid-bodies.
+    */
+   public void setExternalWrenchesToZero()
+   {
+      inverseDynamicsCalculator.setExternalWrenchesToZero();
+   }
+
+   /**
+    * Sets the external wrench to apply to the given rigid-body.
+    *
+    * @param rigidBody      the rigid-body to apply the wrench to. Not modified.
+    * @param externalWrench the external wrench to apply. Not modified.
+    * @see CompiledInverseDynamicsCalculator#setExternalWrench(RigidBodyReadOnly, WrenchReadOnly)
+    */
+   public void setExternalWrench(RigidBodyReadOnly rigidBody, WrenchReadOnly externalWrench)
+   {
+      inverseDynamicsCalculator.setExternalWrench(rigidBody, externalWrench);
+   }
+
+   /**
+    * Computes the inverse dynamics derivatives about the current state of the joints.
+    */
+   public void compute()
+   {
+      List<? extends JointReadOnly> indexedJoints = system.getInput().getJointMatrixIndexProvider().getIndexedJointsInOrder();
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.CONFIGURATION, jointConfigurationMatrix);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.VELOCITY, jointVelocityMatrix);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.ACCELERATION, jointAccelerationMatrix);
+      compute(jointConfigurationMatrix, jointVelocityMatrix, jointAccelerationMatrix);
+   }
+
+   /**
+    * Computes the inverse dynamics derivatives about the given state.
+    *
+    * @param jointConfigurationMatrix the configuration of the joints ordered as defined by the
+    *                                 {@code JointMatrixIndexProvider}. Not modified.
+    * @param jointVelocityMatrix      the velocity of the joints. Can be {@code null} in which case
+    *                                 the joint velocities are assumed to be zero. Not modified.
+    * @param jointAccelerationMatrix  the acceleration of the joints. Can be {@code null} in which case
+    *                                 the joint accelerations are assumed to be zero. Not modified.
+    */
+   public void compute(DenseMatrix64F jointConfigurationMatrix, DenseMatrix64F jointVelocityMatrix, DenseMatrix64F jointAccelerationMatrix)
+   {
+      compute(jointConfigurationMatrix.getData(),
+              0,
+              jointVelocityMatrix == null ? null : jointVelocityMatrix.getData(),
+              0,
+              jointAccelerationMatrix == null ? null : jointAccelerationMatrix.getData(),
+              0);
+   }
+
+   /**
+    * Computes the inverse dynamics derivatives about the given state.
+    *
+    * @param configuration      the array containing the joint configurations. Not modified.
+    * @param configurationStart the index in {@code configuration} of the first element.
+    * @param velocity           the array containing the joint velocities. Can be {@code null} in
+    *                           which case the joint velocities are assumed to be zero. Not modified.
+    * @param velocityStart      the index in {@code velocity} of the first element.
+    * @param acceleration       the array containing the joint accelerations. Can be {@code null} in
+    *                           which case the joint accelerations are assumed to be zero. Not
+    *                           modified.
+    * @param accelerationStart  the index in {@code acceleration} of the first element.
+    */
+   public void compute(double[] configuration, int configurationStart, double[] velocity, int velocityStart, double[] acceleration, int accelerationStart)
+   {
+      inverseDynamicsCalculator.compute(configuration,
+                                        configurationStart,
+                                        velocity,
+                                        velocityStart,
+                                        acceleration,
+                                        accelerationStart,
+                                        inverseDynamicsCalculator.getJointTauMatrix().getData(),
+                                        0);
+
+      int numberOfJoints = system.getNumberOfJoints();
+      int[] parentIndices = system.getParentIndices();
+      double[] transforms = inverseDynamicsCalculator.getTransforms();
+      double[] bodyTwists = inverseDynamicsCalculator.getBodyTwists();
+      double[] bodyAccelerations = inverseDynamicsCalculator.getBodyAccelerations();
+
+      inverseDynamicsCalculator.getRootAcceleration(intermediateMotion, 0);
+
+      for (int jointIndex = 0; jointIndex < numberOfJoints; jointIndex++)
+      {
+         int parentIndex = parentIndices[jointIndex];
+         int t = TRANSFORM_SIZE * jointIndex;
+         int s = SPATIAL_VECTOR_SIZE * jointIndex;
+
+         if (parentIndex < 0)
+         {
+            for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+               parentTwists[s + i] = 0.0;
+            CompiledMultiBodySystemTools.transformMotionToChild(transforms, t, intermediateMotion, 0, parentAccelerations, s);
+         }
+         else
+         {
+            int p = SPATIAL_VECTOR_SIZE * parentIndex;
+            CompiledMultiBodySystemTools.transformMotionToChild(transforms, t, bodyTwists, p, parentTwists, s);
+            CompiledMultiBodySystemTools.transformMotionToChild(transforms, t, bodyAccelerations, p, parentAccelerations, s);
+         }
+
+         CompiledMultiBodySystemTools.multiplyInertia(system, jointIndex, bodyTwists, s, momenta, s, false);
+      }
+
+      double[] S = system.getMotionSubspaces();
+      double[] jointTwists = inverseDynamicsCalculator.getJointTwists();
+
+      for (int jointIndex = 0; jointIndex < numberOfJoints; jointIndex++)
+      {
+         int s = SPATIAL_VECTOR_SIZE * jointIndex;
+         int dofOffset = system.getDoFOffset(jointIndex);
+
+         for (int dof = dofOffset; dof < dofOffset + system.getJointDoFs(jointIndex); dof++)
+         {
+            int column = SPATIAL_VECTOR_SIZE * dof;
+
+            // Configuration: the joint transform is perturbed, d(X m) = (X m) x S_k.
+            CompiledMultiBodySystemTools.crossMotion(parentTwists, s, S, column, twistDerivatives, s, false);
+            CompiledMultiBodySystemTools.crossMotion(parentAccelerations, s, S, column, accelerationDerivatives, s, false);
+            CompiledMultiBodySystemTools.crossMotion(twistDerivatives, s, jointTwists, s, accelerationDerivatives, s, true);
+            propagateDerivatives(jointIndex, dof, true, tauPartialDerivativesWrtConfiguration);
+
+            // Velocity: dv = S_k, da = S_k x (S qDot) + v x S_k.
+            System.arraycopy(S, column, twistDerivatives, s, SPATIAL_VECTOR_SIZE);
+            CompiledMultiBodySystemTools.crossMotion(S, column, jointTwists, s, accelerationDerivatives, s, false);
+            CompiledMultiBodySystemTools.crossMotion(bodyTwists, s, S, column, accelerationDerivatives, s, true);
+            propagateDerivatives(jointIndex, dof, false, tauPartialDerivativesWrtVelocity);
+
+            // Acceleration: dv = 0, da = S_k.
+            for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+               twistDerivatives[s + i] = 0.0;
+            System.arraycopy(S, column, accelerationDerivatives, s, SPATIAL_VECTOR_SIZE);
+            propagateDerivatives(jointIndex, dof, false, tauPartialDerivativesWrtAcceleration);
+         }
+      }
+   }
+
+   /**
+    * Propagates the derivatives of the twist and acceleration of the body of the given joint to its
+    * subtree, then accumulates the wrench derivatives from the leaves up to the root and projects
+    * them onto the joint motion subspaces.
+    *
+    * @param jointIndex                the index of the joint which degree of freedom is perturbed.
+    * @param dof                       the index of the perturbed degree of freedom.
+    * @param isConfigurationDerivative whether the derivative is with respect to the configuration,
+    *                                  in which case the transform from the joint to its parent is
+    *                                  also perturbed.
+    * @param derivativesToPack         the matrix in which the column {@code dof} is to be stored.
+    *                                  Modified.
+    */
+   private void propagateDerivatives(int jointIndex, int dof, boolean isConfigurationDerivative, DenseMatrix64F derivativesToPack)
+   {
+      int[] parentIndices = system.getParentIndices();
+      int subtreeEndIndex = system.getSubtreeEndIndex(jointIndex);
+      double[] transforms = inverseDynamicsCalculator.getTransforms();
+      double[] bodyTwists = inverseDynamicsCalculator.getBodyTwists();
+      double[] jointTwists = inverseDynamicsCalculator.getJointTwists();
+
+      // Forward pass over the subtree: dv = X dv_parent, da = X da_parent + dv x (S qDot)
+      for (int index = jointIndex; index < subtreeEndIndex; index++)
+      {
+         int s = SPATIAL_VECTOR_SIZE * index;
+
+         if (index != jointIndex)
+         {
+            int t = TRANSFORM_SIZE * index;
+            int p = SPATIAL_VECTOR_SIZE * parentIndices[index];
+            CompiledMultiBodySystemTools.transformMotionToChild(transforms, t, twistDerivatives, p, twistDerivatives, s);
+            CompiledMultiBodySystemTools.transformMotionToChild(transforms, t, accelerationDerivatives, p, accelerationDerivatives, s);
+            CompiledMultiBodySystemTools.crossMotion(twistDerivatives, s, jointTwists, s, accelerationDerivatives, s, true);
+         }
+
+         // df = I da + dv x* (I v) + v x* (I dv)
+         CompiledMultiBodySystemTools.multiplyInertia(system, index, accelerationDerivatives, s, wrenchDerivatives, s, false);
+         CompiledMultiBodySystemTools.crossForce(twistDerivatives, s, momenta, s, wrenchDerivatives, s, true);
+         CompiledMultiBodySystemTools.multiplyInertia(system, index, twistDerivatives, s, intermediateMotion, 0, false);
+         CompiledMultiBodySystemTools.crossForce(bodyTwists, s, intermediateMotion, 0, wrenchDerivatives, s, true);
+      }
+
+      // Backward pass over the subtree.
+      for (int index = subtreeEndIndex - 1; index >= jointIndex; index--)
+      {
+         int s = SPATIAL_VECTOR_SIZE * index;
+         projectOntoMotionSubspace(index, wrenchDerivatives, s, dof, derivativesToPack);
+
+         if (index != jointIndex)
+         {
+            int p = SPATIAL_VECTOR_SIZE * parentIndices[index];
+            CompiledMultiBodySystemTools.addForceTransformedToParent(transforms, TRANSFORM_SIZE * index, wrenchDerivatives, s, wrenchDerivatives, p);
+         }
+      }
+
+      // Backward pass over the ancestors, the wrench derivative is propagated alone.
+      int s = SPATIAL_VECTOR_SIZE * jointIndex;
+      int current = 0;
+      System.arraycopy(wrenchDerivatives, s, ancestorWrenchDerivatives, current, SPATIAL_VECTOR_SIZE);
+
+      if (isConfigurationDerivative)
+      { // d(X^T f) = X^T (df + S_k x* f)
+         double[] jointWrenches = inverseDynamicsCalculator.getJointWrenches();
+         CompiledMultiBodySystemTools.crossForce(system.getMotionSubspaces(), SPATIAL_VECTOR_SIZE * dof, jointWrenches, s, ancestorWrenchDerivatives, current, true);
+      }
+
+      for (int index = jointIndex; parentIndices[index] >= 0; index = parentIndices[index])
+      {
+         int next = SPATIAL_VECTOR_SIZE - current;
+         for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+            ancestorWrenchDerivatives[next + i] = 0.0;
+         CompiledMultiBodySystemTools.addForceTransformedToParent(transforms,
+                                                                  TRANSFORM_SIZE * index,
+                                                                  ancestorWrenchDerivatives,
+                                                                  current,
+                                                                  ancestorWrenchDerivatives,
+                                                                  next);
+         current = next;
+         projectOntoMotionSubspace(parentIndices[index], ancestorWrenchDerivatives, current, dof, derivativesToPack);
+      }
+   }
+
+   private void projectOntoMotionSubspace(int jointIndex, double[] force, int forceOffset, int column, DenseMatrix64F matrixToPack)
+   {
+      double[] S = system.getMotionSubspaces();
+      int dofOffset = system.getDoFOffset(jointIndex);
+
+      for (int row = dofOffset; row < dofOffset + system.getJointDoFs(jointIndex); row++)
+      {
+         int sColumn = SPATIAL_VECTOR_SIZE * row;
+         double value = 0.0;
+
+         for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+            value += S[sColumn + i] * force[forceOffset + i];
+
+         matrixToPack.unsafe_set(row, column, value);
+      }
+   }
+
+   /**
+    * Gets the compiled multi-body system used with this calculator.
+    *
+    * @return the compiled system.
+    */
+   public CompiledMultiBodySystem getSystem()
+   {
+      return system;
+   }
+
+   /**
+    * Gets the joint efforts computed about the state used for the last derivatives computation.
+    *
+    * @return the joint efforts.
+    */
+   public DenseMatrix64F getJointTauMatrix()
+   {
+      return inverseDynamicsCalculator.getJointTauMatrix();
+   }
+
+   /**
+    * Gets the partial derivatives of the joint efforts with respect to the joint configurations:
+    * <tt>&part;&tau;/&part;q</tt>.
+    * <p>
+    * Each column corresponds to a perturbation of the configuration along one degree of freedom, see
+    * this class documentation.
+    * </p>
+    *
+    * @return the <tt>n</tt>-by-<tt>n</tt> matrix of the partial derivatives, where <tt>n</tt> is the
+    *         number of degrees of freedom.
+    */
+   public DenseMatrix64F getTauPartialDerivativesWrtConfiguration()
+   {
+      return tauPartialDerivativesWrtConfiguration;
+   }
+
+   /**
+    * Gets the partial derivatives of the joint efforts with respect to the joint velocities:
+    * <tt>&part;&tau;/&part;q&#775;</tt>.
+    *
+    * @return the <tt>n</tt>-by-<tt>n</tt> matrix of the partial derivatives, where <tt>n</tt> is the
+    *         number of degrees of freedom.
+    */
+   public DenseMatrix64F getTauPartialDerivativesWrtVelocity()
+   {
+      return tauPartialDerivativesWrtVelocity;
+   }
+
+   /**
+    * Gets the partial derivatives of the joint efforts with respect to the joint accelerations:
+    * <tt>&part;&tau;/&part;q&#776;</tt>, which is the mass matrix of the system.
+    *
+    * @return the <tt>n</tt>-by-<tt>n</tt> matrix of the partial derivatives, where <tt>n</tt> is the
+    *         number of degrees of freedom.
+    */
+   public DenseMatrix64F getTauPartialDerivativesWrtAcceleration()
+   {
+      return tauPartialDerivativesWrtAcceleration;
+   }
+}
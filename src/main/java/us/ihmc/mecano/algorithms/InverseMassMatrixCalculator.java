@@ -0,0 +1,573 @@
+package us.ihmc.mecano.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.ejml.alg.dense.misc.UnrolledInverseFromMinor;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolverFactory;
+import org.ejml.interfaces.linsol.LinearSolver;
+import org.ejml.ops.CommonOps;
+
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.mecano.frames.MovingReferenceFrame;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.spatial.SpatialAcceleration;
+import us.ihmc.mecano.spatial.SpatialForce;
+import us.ihmc.mecano.spatial.SpatialInertia;
+import us.ihmc.mecano.spatial.interfaces.SpatialVectorReadOnly;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+/**
+ * Computes the inverse of the mass matrix of a multi-body system, i.e. the matrix that maps from
+ * joint effort space to joint acceleration space, without computing nor factorizing the mass matrix.
+ * <p>
+ * This calculator is based on the articulated-body inertia algorithm as described in Featherstone -
+ * Rigid Body Dynamics Algorithms (2008): <a href=
+ * "https://books.google.com/books?id=GJRGBQAAQBAJ&lpg=PR5&ots=XoFXvnJZLH&dq=rigid%20body%20dynamics%20algorithms&lr&pg=PR1#v=onepage&q=rigid%20body%20dynamics%20algorithms&f=false">link</a>,
+ * and its extension to the computation of the inverse of the mass matrix as presented in
+ * Carpentier, J. - Analytical Inverse of the Joint Space Inertia Matrix (2018). The algorithm
+ * evaluates all the columns of <tt>H<sup>-1</sup></tt> at once in two passes for a cost of
+ * <tt>O(n<sup>2</sup>)</tt>, where <tt>n</tt> is the number of degrees of freedom.
+ * </p>
+ * <p>
+ * The inverse of the mass matrix can be used in the equations of motion for a multi-body system as
+ * follows:
+ * </p>
+ *
+ * <pre>
+ * qDDot = H<sup>-1</sup>(q) ( &tau; - C(q, qDot, f<sub>ext</sub>) )
+ * </pre>
+ *
+ * where <tt>&tau;</tt>, <tt>q</tt>, <tt>qDot</tt>, and <tt>qDDot</tt> are the joint effort,
+ * configuration, velocity, and acceleration vectors, <tt>H</tt> is the joint-space inertia matrix
+ * or also called here mass matrix, and <tt>C</tt> it the joint-space bias force vector resulting
+ * from gravity, Coriolis and centrifugal accelerations, and other external forces if any.
+ *
+ * @author Sylvain Bertrand
+ */
+public class InverseMassMatrixCalculator
+{
+   /** Defines the multi-body system to use with this calculator. */
+   private final MultiBodySystemReadOnly input;
+
+   /** The root of the internal recursive algorithm. */
+   private final InverseMassMatrixRecursionStep initialRecursionStep;
+   /** The number of degrees of freedom of the system. */
+   private final int numberOfDoFs;
+   /**
+    * The inverse of the mass matrix ordered such that each joint comes after its ancestors and before
+    * its descendants. Only the upper-triangular part is computed.
+    */
+   private final DenseMatrix64F treeOrderedInverseMassMatrix;
+   /**
+    * For each degree of freedom in the order of {@link #treeOrderedInverseMassMatrix}, the
+    * corresponding index in {@link #inverseMassMatrix}.
+    */
+   private final int[] matrixIndices;
+   /** The inverse of the mass matrix of the system. */
+   private final DenseMatrix64F inverseMassMatrix;
+
+   /** Intermediate variable for garbage free operations. */
+   private final SpatialForce intermediateForce = new SpatialForce();
+   /** Intermediate variable for garbage free operations. */
+   private final SpatialAcceleration intermediateAcceleration = new SpatialAcceleration();
+
+   /**
+    * Whether the inverse of the mass matrix has been updated since the last call to {@link #reset()}.
+    */
+   private boolean isInverseMassMatrixUpToDate = false;
+
+   /**
+    * Creates a new calculator for the subtree that starts off the given {@code rootBody}.
+    *
+    * @param rootBody the start of subtree for which the inverse of the mass matrix is to be computed.
+    *                 Not modified.
+    */
+   public InverseMassMatrixCalculator(RigidBodyReadOnly rootBody)
+   {
+      this(MultiBodySystemReadOnly.toMultiBodySystemInput(rootBody));
+   }
+
+   /**
+    * Creates a new calculator for the given {@code input}.
+    *
+    * @param input the definition of the system to be evaluated by this calculator.
+    */
+   public InverseMassMatrixCalculator(MultiBodySystemReadOnly input)
+   {
+      this(input, true);
+   }
+
+   /**
+    * Creates a new calculator for the given {@code input}.
+    *
+    * @param input                          the definition of the system to be evaluated by this
+    *                                       calculator.
+    * @param considerIgnoredSubtreesInertia whether the inertia of the ignored part(s) of the given
+    *                                       multi-body system should be considered. When {@code true},
+    *                                       this provides a more accurate inverse of the mass matrix,
+    *                                       while when {@code false}, this calculator may gain slight
+    *                                       performance improvement.
+    */
+   public InverseMassMatrixCalculator(MultiBodySystemReadOnly input, boolean considerIgnoredSubtreesInertia)
+   {
+      this.input = input;
+
+      numberOfDoFs = MultiBodySystemTools.computeDegreesOfFreedom(input.getJointsToConsider());
+      matrixIndices = new int[numberOfDoFs];
+      RigidBodyReadOnly rootBody = input.getRootBody();
+      initialRecursionStep = new InverseMassMatrixRecursionStep(rootBody, null, null, 0);
+      buildMultiBodyTree(initialRecursionStep, input.getJointsToIgnore(), 0);
+      if (considerIgnoredSubtreesInertia)
+         initialRecursionStep.includeIgnoredSubtreeInertia();
+
+      treeOrderedInverseMassMatrix = new DenseMatrix64F(numberOfDoFs, numberOfDoFs);
+      inverseMassMatrix = new DenseMatrix64F(numberOfDoFs, numberOfDoFs);
+   }
+
+   private int buildMultiBodyTree(InverseMassMatrixRecursionStep parent, Collection<? extends JointReadOnly> jointsToIgnore, int startIndex)
+   {
+      for (JointReadOnly childJoint : parent.rigidBody.getChildrenJoints())
+      {
+         if (jointsToIgnore.contains(childJoint))
+            continue;
+
+         RigidBodyReadOnly childBody = childJoint.getSuccessor();
+         if (childBody != null)
+         {
+            int[] jointIndices = input.getJointMatrixIndexProvider().getJointDoFIndices(childJoint);
+            InverseMassMatrixRecursionStep child = new InverseMassMatrixRecursionStep(childBody, parent, jointIndices, startIndex);
+            startIndex = buildMultiBodyTree(child, jointsToIgnore, startIndex + childJoint.getDegreesOfFreedom());
+            child.subtreeEndIndex = startIndex;
+         }
+      }
+
+      return startIndex;
+   }
+
+   /**
+    * Invalidates the internal memory.
+    */
+   public void reset()
+   {
+      isInverseMassMatrixUpToDate = false;
+   }
+
+   private void updateInverseMassMatrix()
+   {
+      if (isInverseMassMatrixUpToDate)
+         return;
+
+      treeOrderedInverseMassMatrix.zero();
+      initialRecursionStep.passOne();
+      initialRecursionStep.passTwo();
+
+      for (int row = 0; row < numberOfDoFs; row++)
+      {
+         for (int column = row; column < numberOfDoFs; column++)
+         {
+            double entry = treeOrderedInverseMassMatrix.get(row, column);
+            inverseMassMatrix.set(matrixIndices[row], matrixIndices[column], entry);
+            inverseMassMatrix.set(matrixIndices[column], matrixIndices[row], entry);
+         }
+      }
+
+      isInverseMassMatrixUpToDate = true;
+   }
+
+   /**
+    * Gets the definition of the multi-body system that was used to create this calculator.
+    *
+    * @return this calculator input.
+    */
+   public MultiBodySystemReadOnly getInput()
+   {
+      return input;
+   }
+
+   /**
+    * Gets the inverse of the mass matrix for this multi-body system.
+    *
+    * @return the inverse of the mass matrix.
+    */
+   public DenseMatrix64F getInverseMassMatrix()
+   {
+      updateInverseMassMatrix();
+      return inverseMassMatrix;
+   }
+
+   /**
+    * Represents a single recursion step for the two passes of the algorithm.
+    *
+    * @author Sylvain Bertrand
+    */
+   private class InverseMassMatrixRecursionStep
+   {
+      /**
+       * The rigid-body for which this recursion is.
+       */
+      private final RigidBodyReadOnly rigidBody;
+      /**
+       * Body inertia: usually equal to {@code rigidBody.getInertial()}. However, if at least one child of
+       * {@code rigidBody} is ignored, it is equal to this rigid-body inertia and the subtree inertia
+       * attached to the ignored joint.
+       */
+      private final SpatialInertia bodyInertia;
+      /**
+       * Intermediate result for faster transformation from body-fixed frame to joint frame.
+       */
+      private final SpatialInertia spatialInertia;
+      /**
+       * Articulated-body inertia for this joint.
+       */
+      private final ArticulatedBodyInertia articulatedInertia;
+      /**
+       * Pre-transformed articulated-body inertia for the parent.
+       */
+      private final ArticulatedBodyInertia articulatedInertiaForParent;
+      /**
+       * <tt>IA</tt> is the 6-by-6 articulated-body inertia for this body.
+       */
+      private final DenseMatrix64F IA;
+      /**
+       * <tt>S</tt> is the 6-by-N matrix representing the motion subspace of the parent joint, where N is
+       * the number of DoFs of the joint.
+       */
+      private final DenseMatrix64F S;
+      /**
+       * Operations involving the motion subspace <tt>S</tt> specialized for the number of DoFs of the
+       * parent joint.
+       */
+      private final MotionSubspaceKernel motionSubspaceKernel;
+      /**
+       * Intermediate result to save operations:
+       *
+       * <pre>
+       * U = I<sup>A</sup> S
+       * </pre>
+       */
+      private final DenseMatrix64F U;
+      /**
+       * Intermediate result to save operations:
+       *
+       * <pre>
+       * D = S<sup>T</sup> I<sup>A</sup> S
+       * </pre>
+       */
+      private final DenseMatrix64F D;
+      /**
+       * Intermediate result to save operations: <tt>D<sup>-1</sup></tt>.
+       */
+      private final DenseMatrix64F Dinv;
+      /**
+       * Intermediate result to save operations: <tt>U D<sup>-1</sup></tt>.
+       */
+      private final DenseMatrix64F U_Dinv;
+      /**
+       * Intermediate result to save operations: <tt>D<sup>-1</sup> U<sup>T</sup></tt>.
+       */
+      private final DenseMatrix64F Dinv_UT;
+      /**
+       * Intermediate result to save operations: <tt>U D<sup>-1</sup> U<sup>T</sup></tt>.
+       */
+      private final DenseMatrix64F U_Dinv_UT;
+      /**
+       * The 6-by-n matrix which columns are the forces resulting from the unit efforts applied on the
+       * joints of the subtree starting at this joint, where n is the number of degrees of freedom of the
+       * system.
+       */
+      private final DenseMatrix64F F;
+      /**
+       * The 6-by-n matrix which columns are the spatial accelerations of this body resulting from unit
+       * efforts applied on each joint, where n is the number of degrees of freedom of the system.
+       */
+      private final DenseMatrix64F P;
+      /**
+       * The N-by-n matrix used to store the rows of the inverse of the mass matrix for this joint, where
+       * N is the number of DoFs of the joint and n the number of DoFs of the system.
+       */
+      private final DenseMatrix64F inverseMassMatrixRows;
+      /**
+       * Intermediate result for garbage-free operation.
+       */
+      private final DenseMatrix64F ST_F;
+      /**
+       * The recursion step holding onto the direct predecessor of this recursion step's rigid-body.
+       */
+      private final InverseMassMatrixRecursionStep parent;
+      /**
+       * The recursion steps holding onto the direct successor of this recursion step's rigid-body.
+       */
+      private final List<InverseMassMatrixRecursionStep> children = new ArrayList<>();
+      /**
+       * Solver for inverting <tt>D</tt>. Only needed for 6-DoF joints.
+       */
+      private final LinearSolver<DenseMatrix64F> inverseSolver;
+      /**
+       * Intermediate variable to save computation. Transform from {@code this.getFrameAfterJoint()} to
+       * {@code parent.getFrameAfterJoint()}.
+       */
+      private final RigidBodyTransform transformToParentJointFrame;
+      /**
+       * Joint indices for storing the coefficients in the main matrix {@code inverseMassMatrix}.
+       */
+      private final int[] jointIndices;
+      /**
+       * Index of the first degree of freedom of this joint in {@code treeOrderedInverseMassMatrix}.
+       */
+      private final int startIndex;
+      /**
+       * Index following the last degree of freedom of the subtree starting at this joint in
+       * {@code treeOrderedInverseMassMatrix}.
+       */
+      private int subtreeEndIndex;
+
+      public InverseMassMatrixRecursionStep(RigidBodyReadOnly rigidBody, InverseMassMatrixRecursionStep parent, int[] jointIndices, int startIndex)
+      {
+         this.rigidBody = rigidBody;
+         this.parent = parent;
+         this.jointIndices = jointIndices;
+         this.startIndex = startIndex;
+
+         if (parent == null)
+         {
+            bodyInertia = null;
+            spatialInertia = null;
+            articulatedInertia = null;
+            articulatedInertiaForParent = null;
+            IA = null;
+            S = null;
+            motionSubspaceKernel = null;
+            U = null;
+            D = null;
+            Dinv = null;
+            U_Dinv = null;
+            Dinv_UT = null;
+            U_Dinv_UT = null;
+            F = null;
+            P = null;
+            inverseMassMatrixRows = null;
+            ST_F = null;
+            inverseSolver = null;
+            transformToParentJointFrame = null;
+         }
+         else
+         {
+            parent.children.add(this);
+            int nDoFs = getJoint().getDegreesOfFreedom();
+
+            bodyInertia = new SpatialInertia(rigidBody.getInertia());
+            spatialInertia = new SpatialInertia();
+            articulatedInertia = new ArticulatedBodyInertia();
+            articulatedInertiaForParent = parent.isRoot() ? null : new ArticulatedBodyInertia();
+
+            IA = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            S = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, nDoFs);
+            U = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, nDoFs);
+            D = new DenseMatrix64F(nDoFs, nDoFs);
+            Dinv = new DenseMatrix64F(nDoFs, nDoFs);
+            U_Dinv = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, nDoFs);
+            Dinv_UT = new DenseMatrix64F(nDoFs, SpatialVectorReadOnly.SIZE);
+            U_Dinv_UT = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            F = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, numberOfDoFs);
+            P = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, numberOfDoFs);
+            inverseMassMatrixRows = new DenseMatrix64F(nDoFs, numberOfDoFs);
+            ST_F = new DenseMatrix64F(nDoFs, numberOfDoFs);
+            inverseSolver = nDoFs == 6 ? LinearSolverFactory.symmPosDef(6) : null;
+            transformToParentJointFrame = new RigidBodyTransform();
+            getJoint().getMotionSubspace(S);
+            motionSubspaceKernel = MotionSubspaceKernel.newKernel(S);
+
+            for (int dofIndex = 0; dofIndex < nDoFs; dofIndex++)
+               matrixIndices[startIndex + dofIndex] = jointIndices[dofIndex];
+         }
+      }
+
+      public void includeIgnoredSubtreeInertia()
+      {
+         if (!isRoot() && children.size() != rigidBody.getChildrenJoints().size())
+         {
+            for (JointReadOnly childJoint : rigidBody.getChildrenJoints())
+            {
+               if (input.getJointsToIgnore().contains(childJoint))
+               {
+                  SpatialInertia subtreeIneria = MultiBodySystemTools.computeSubtreeInertia(childJoint);
+                  subtreeIneria.changeFrame(getBodyFixedFrame());
+                  bodyInertia.add(subtreeIneria);
+               }
+            }
+         }
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).includeIgnoredSubtreeInertia();
+      }
+
+      /**
+       * The first pass calculates the articulated-body inertia of each body and the rows of the inverse
+       * of the mass matrix restricted to the subtree of each joint. The recursion is from the leaves to
+       * the root.
+       */
+      public void passOne()
+      {
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).passOne();
+
+         if (isRoot())
+            return;
+
+         MovingReferenceFrame frameAfterJoint = getFrameAfterJoint();
+         if (parent.isRoot())
+            frameAfterJoint.getTransformToDesiredFrame(transformToParentJointFrame, parent.getBodyFixedFrame());
+         else
+            frameAfterJoint.getTransformToDesiredFrame(transformToParentJointFrame, parent.getFrameAfterJoint());
+
+         spatialInertia.setIncludingFrame(bodyInertia);
+         spatialInertia.changeFrame(frameAfterJoint);
+         articulatedInertia.setIncludingFrame(spatialInertia);
+         F.zero();
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+         {
+            InverseMassMatrixRecursionStep child = children.get(childIndex);
+            child.articulatedInertiaForParent.applyTransform(child.transformToParentJointFrame);
+            child.articulatedInertiaForParent.setReferenceFrame(frameAfterJoint);
+            articulatedInertia.add(child.articulatedInertiaForParent);
+
+            // Computing F_i += X_c^T F_c, only the columns of the child's subtree are non-zero.
+            for (int column = child.startIndex; column < child.subtreeEndIndex; column++)
+            {
+               intermediateForce.set(0, column, child.F);
+               intermediateForce.applyTransform(child.transformToParentJointFrame);
+               for (int row = 0; row < SpatialVectorReadOnly.SIZE; row++)
+                  F.add(row, column, intermediateForce.getElement(row));
+            }
+         }
+
+         // Computing intermediate variables used in later calculation
+         articulatedInertia.get(IA);
+         motionSubspaceKernel.multiplyInertia(IA, U, D);
+
+         int nDoFs = getJoint().getDegreesOfFreedom();
+         if (nDoFs == 1)
+         {
+            Dinv.set(0, 1.0 / D.get(0));
+         }
+         else if (nDoFs == 0)
+         {
+            Dinv.reshape(0, 0);
+         }
+         else if (nDoFs <= 5)
+         {
+            UnrolledInverseFromMinor.inv(D, Dinv);
+         }
+         else
+         {
+            inverseSolver.setA(D);
+            inverseSolver.invert(Dinv);
+         }
+
+         CommonOps.multTransB(Dinv, U, Dinv_UT);
+
+         // Computing H^-1_{i,subtree(i)} = - D_i^-1 S_i^T F_i, then overriding the diagonal block with D_i^-1.
+         CommonOps.multTransA(S, F, ST_F);
+         CommonOps.mult(-1.0, Dinv, ST_F, inverseMassMatrixRows);
+         CommonOps.insert(Dinv, inverseMassMatrixRows, 0, startIndex);
+
+         for (int dofIndex = 0; dofIndex < nDoFs; dofIndex++)
+         {
+            for (int column = startIndex; column < subtreeEndIndex; column++)
+               treeOrderedInverseMassMatrix.set(startIndex + dofIndex, column, inverseMassMatrixRows.get(dofIndex, column));
+         }
+
+         if (!parent.isRoot())
+         {
+            // Computing F_i += U_i H^-1_{i,subtree(i)}
+            CommonOps.multAdd(U, inverseMassMatrixRows, F);
+
+            motionSubspaceKernel.computeSymmetricUpdate(U, Dinv, U_Dinv, U_Dinv_UT);
+
+            // Computing I_i^a = I_i^A - U_i * D_i^-1 * U_i^T
+            articulatedInertiaForParent.setIncludingFrame(articulatedInertia);
+            articulatedInertiaForParent.sub(U_Dinv_UT);
+         }
+      }
+
+      /**
+       * The second pass completes the rows of the inverse of the mass matrix by propagating the
+       * accelerations resulting from the unit efforts. The recursion is from the root to the leaves.
+       */
+      public void passTwo()
+      {
+         if (!isRoot())
+         {
+            int nDoFs = getJoint().getDegreesOfFreedom();
+
+            if (parent.isRoot())
+            {
+               for (int column = startIndex; column < numberOfDoFs; column++)
+               {
+                  for (int row = 0; row < SpatialVectorReadOnly.SIZE; row++)
+                     P.set(row, column, 0.0);
+               }
+            }
+            else
+            {
+               // Computing P_i = X_i P_{lambda(i)}, then H^-1_{i,j} -= D_i^-1 U_i^T P_i for j >= i.
+               for (int column = startIndex; column < numberOfDoFs; column++)
+               {
+                  intermediateAcceleration.set(0, column, parent.P);
+                  intermediateAcceleration.applyInverseTransform(transformToParentJointFrame);
+                  intermediateAcceleration.get(0, column, P);
+
+                  for (int dofIndex = 0; dofIndex < nDoFs; dofIndex++)
+                  {
+                     double value = 0.0;
+                     for (int row = 0; row < SpatialVectorReadOnly.SIZE; row++)
+                        value += Dinv_UT.get(dofIndex, row) * P.get(row, column);
+                     treeOrderedInverseMassMatrix.add(startIndex + dofIndex, column, -value);
+                  }
+               }
+            }
+
+            // Computing P_i += S_i H^-1_{i,j} for j >= i.
+            for (int column = startIndex; column < numberOfDoFs; column++)
+            {
+               for (int row = 0; row < SpatialVectorReadOnly.SIZE; row++)
+               {
+                  double value = 0.0;
+                  for (int dofIndex = 0; dofIndex < nDoFs; dofIndex++)
+                     value += S.get(row, dofIndex) * treeOrderedInverseMassMatrix.get(startIndex + dofIndex, column);
+                  P.add(row, column, value);
+               }
+            }
+         }
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).passTwo();
+      }
+
+      public boolean isRoot()
+      {
+         return parent == null;
+      }
+
+      public MovingReferenceFrame getBodyFixedFrame()
+      {
+         return rigidBody.getBodyFixedFrame();
+      }
+
+      public MovingReferenceFrame getFrameAfterJoint()
+      {
+         return getJoint().getFrameAfterJoint();
+      }
+
+      public JointReadOnly getJoint()
+      {
+         return rigidBody.getParentJoint();
+      }
+   }
+}
@@ -0,0 +1,340 @@
+package us.ihmc.mecano.algorithms;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.ejml.data.DenseMatrix64F;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointMatrixIndexProvider;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+
+/**
+ * Sparse factorization of the mass matrix of a multi-body system exploiting the sparsity induced by
+ * the branches of the kinematic tree.
+ * <p>
+ * This implements the <tt>L<sup>T</sup>DL</tt> factorization as described in Featherstone - Rigid
+ * Body Dynamics Algorithms (2008), Section 6.5:
+ *
+ * <pre>
+ * H = L<sup>T</sup> D L
+ * </pre>
+ *
+ * where <tt>L</tt> is a lower-triangular matrix with unit diagonal and <tt>D</tt> is a diagonal
+ * matrix. The element <tt>H<sub>ij</sub></tt> of the mass matrix is zero whenever the degrees of
+ * freedom <tt>i</tt> and <tt>j</tt> are not on a common path to the root, this factorization
+ * preserves this sparsity pattern in <tt>L</tt>, such that the factorization costs
+ * <tt>O(n d<sup>2</sup>)</tt> and a solve costs <tt>O(n d)</tt>, where <tt>n</tt> is the number of
+ * degrees of freedom and <tt>d</tt> is the depth of the kinematic tree.
+ * </p>
+ * <p>
+ * The mass matrix to factorize, for instance from {@link CompositeRigidBodyMassMatrixCalculator},
+ * is expected to be ordered according to the {@link JointMatrixIndexProvider} of the input used to
+ * create this factorization. Internally, the degrees of freedom are reordered such that each
+ * degree of freedom comes after all of its ancestors.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class MassMatrixLTDLFactorization
+{
+   /** Defines the multi-body system to use with this factorization. */
+   private final MultiBodySystemReadOnly input;
+   /** The number of degrees of freedom of the system. */
+   private final int numberOfDoFs;
+   /**
+    * For each degree of freedom in the internal order, the index of its parent degree of freedom, or
+    * {@code -1} if it has no parent.
+    */
+   private final int[] parentIndices;
+   /**
+    * For each degree of freedom in the internal order, the corresponding index in the matrices
+    * ordered according to the {@link JointMatrixIndexProvider}.
+    */
+   private final int[] externalIndices;
+   /**
+    * The factorization in the internal order: the strictly lower-triangular part contains <tt>L</tt>
+    * while the diagonal contains <tt>D</tt>.
+    */
+   private final DenseMatrix64F factorization;
+   /** Whether the last call to {@link #factorize(DenseMatrix64F)} succeeded. */
+   private boolean isFactorizationValid = false;
+   /** Intermediate variable for garbage free operations. */
+   private final double[] vector;
+
+   /**
+    * Creates a new factorization for the given {@code rootBody}.
+    * <p>
+    * The given {@code rootBody} is used to define the subtree for which the mass matrix is to be
+    * factorized.
+    * </p>
+    *
+    * @param rootBody the support body of the subtree for which the mass matrix is to be factorized.
+    */
+   public MassMatrixLTDLFactorization(RigidBodyReadOnly rootBody)
+   {
+      this(MultiBodySystemReadOnly.toMultiBodySystemInput(rootBody));
+   }
+
+   /**
+    * Creates a new factorization for the multi-body system defined by the given {@code input}.
+    *
+    * @param input the definition of the system for which the mass matrix is to be factorized.
+    */
+   public MassMatrixLTDLFactorization(MultiBodySystemReadOnly input)
+   {
+      this.input = input;
+
+      List<? extends JointReadOnly> jointsToConsider = input.getJointsToConsider();
+      numberOfDoFs = jointsToConsider.stream().mapToInt(JointReadOnly::getDegreesOfFreedom).sum();
+      parentIndices = new int[numberOfDoFs];
+      externalIndices = new int[numberOfDoFs];
+      factorization = new DenseMatrix64F(numberOfDoFs, numberOfDoFs);
+      vector = new double[numberOfDoFs];
+
+      int lastIndex = indexSubtree(input.getRootBody(), new HashSet<>(jointsToConsider), -1, 0);
+
+      if (lastIndex != numberOfDoFs)
+         throw new IllegalArgumentException("The joints to consider do not form a tree, expected " + numberOfDoFs + " degrees of freedom, found " + lastIndex);
+   }
+
+   private int indexSubtree(RigidBodyReadOnly body, Set<JointReadOnly> jointsToConsider, int parentDoF, int nextIndex)
+   {
+      JointMatrixIndexProvider indexProvider = input.getJointMatrixIndexProvider();
+
+      for (JointReadOnly childJoint : body.getChildrenJoints())
+      {
+         if (!jointsToConsider.contains(childJoint) || childJoint.getSuccessor() == null)
+            continue;
+
+         int lastDoF = parentDoF;
+         int[] jointDoFIndices = indexProvider.getJointDoFIndices(childJoint);
+
+         for (int dof = 0; dof < childJoint.getDegreesOfFreedom(); dof++)
+         {
+            parentIndices[nextIndex] = lastDoF;
+            externalIndices[nextIndex] = jointDoFIndices[dof];
+            lastDoF = nextIndex;
+            nextIndex++;
+         }
+
+         nextIndex = indexSubtree(childJoint.getSuccessor(), jointsToConsider, lastDoF, nextIndex);
+      }
+
+      return nextIndex;
+   }
+
+   /**
+    * Computes the <tt>L<sup>T</sup>DL</tt> factorization of the given mass matrix.
+    * <p>
+    * Only the elements of the mass matrix that correspond to pairs of degrees of freedom on a common
+    * path to the root are accessed.
+    * </p>
+    *
+    * @param massMatrix the mass matrix to factorize. Not modified.
+    * @return {@code true} if the factorization succeeded, {@code false} if the matrix is not positive
+    *         definite.
+    */
+   public boolean factorize(DenseMatrix64F massMatrix)
+   {
+      if (massMatrix.getNumRows() != numberOfDoFs || massMatrix.getNumCols() != numberOfDoFs)
+         throw new IllegalArgumentException("Unexpected size for the mass matrix, expected: [" + numberOfDoFs + ", " + numberOfDoFs + "], was: ["
+               + massMatrix.getNumRows() + ", " + massMatrix.getNumCols() + "].");
+
+      for (int k = 0; k < numberOfDoFs; k++)
+      {
+         int kExternal = externalIndices[k];
+
+         for (int i = k; i >= 0; i = parentIndices[i])
+            factorization.unsafe_set(k, i, massMatrix.unsafe_get(kExternal, externalIndices[i]));
+      }
+
+      for (int k = numberOfDoFs - 1; k >= 0; k--)
+      {
+         double Hkk = factorization.unsafe_get(k, k);
+
+         if (!(Hkk > 0.0))
+         {
+            isFactorizationValid = false;
+            return false;
+         }
+
+         for (int i = parentIndices[k]; i >= 0; i = parentIndices[i])
+         {
+            double a = factorization.unsafe_get(k, i) / Hkk;
+
+            for (int j = i; j >= 0; j = parentIndices[j])
+               factorization.unsafe_set(i, j, factorization.unsafe_get(i, j) - a * factorization.unsafe_get(k, j));
+
+            factorization.unsafe_set(k, i, a);
+         }
+      }
+
+      isFactorizationValid = true;
+      return true;
+   }
+
+   /**
+    * Solves for <tt>x</tt>:
+    *
+    * <pre>
+    * H x = b
+    * </pre>
+    *
+    * using the last factorization, i.e. computes <tt>x = H<sup>-1</sup> b</tt>.
+    *
+    * @param b the N-by-M right-hand side matrix, where N is the number of degrees of freedom. Not
+    *          modified.
+    * @param x the matrix used to store the solution. It is reshaped to N-by-M. Modified.
+    */
+   public void solve(DenseMatrix64F b, DenseMatrix64F x)
+   {
+      checkFactorization();
+      x.reshape(numberOfDoFs, b.getNumCols());
+
+      for (int column = 0; column < b.getNumCols(); column++)
+      {
+         for (int i = 0; i < numberOfDoFs; i++)
+            vector[i] = b.unsafe_get(externalIndices[i], column);
+
+         solveLTranspose(vector);
+
+         for (int i = 0; i < numberOfDoFs; i++)
+            vector[i] /= factorization.unsafe_get(i, i);
+
+         solveL(vector);
+
+         for (int i = 0; i < numberOfDoFs; i++)
+            x.unsafe_set(externalIndices[i], column, vector[i]);
+      }
+   }
+
+   /**
+    * Computes the inverse of the mass matrix from the last factorization.
+    *
+    * @param inverseToPack the matrix used to store the inverse of the mass matrix. Modified.
+    */
+   public void invert(DenseMatrix64F inverseToPack)
+   {
+      checkFactorization();
+      inverseToPack.reshape(numberOfDoFs, numberOfDoFs);
+
+      for (int column = 0; column < numberOfDoFs; column++)
+      {
+         for (int i = 0; i < numberOfDoFs; i++)
+            vector[i] = 0.0;
+         vector[column] = 1.0;
+
+         solveLTranspose(vector);
+
+         for (int i = 0; i < numberOfDoFs; i++)
+            vector[i] /= factorization.unsafe_get(i, i);
+
+         solveL(vector);
+
+         int columnExternal = externalIndices[column];
+
+         for (int i = 0; i < numberOfDoFs; i++)
+            inverseToPack.unsafe_set(externalIndices[i], columnExternal, vector[i]);
+      }
+   }
+
+   /**
+    * Computes the product of the given matrix with the factor <tt>F</tt> of the inverse of the mass
+    * matrix:
+    *
+    * <pre>
+    * H<sup>-1</sup> = F<sup>T</sup> F
+    * F = D<sup>-1/2</sup> L<sup>-T</sup>
+    * </pre>
+    * <p>
+    * This is useful for computing products of the form <tt>A H<sup>-1</sup> A<sup>T</sup></tt>, as
+    * for the inverse of the operational-space inertia, as <tt>(F A<sup>T</sup>)<sup>T</sup> (F
+    * A<sup>T</sup>)</tt> which remains symmetric by construction.
+    * </p>
+    *
+    * @param b      the N-by-M matrix to multiply, where N is the number of degrees of freedom. Not
+    *               modified.
+    * @param result the matrix used to store the result <tt>F b</tt>. It is reshaped to N-by-M.
+    *               Modified.
+    */
+   public void multiplyByInverseFactor(DenseMatrix64F b, DenseMatrix64F result)
+   {
+      checkFactorization();
+      result.reshape(numberOfDoFs, b.getNumCols());
+
+      for (int column = 0; column < b.getNumCols(); column++)
+      {
+         for (int i = 0; i < numberOfDoFs; i++)
+            vector[i] = b.unsafe_get(externalIndices[i], column);
+
+         solveLTranspose(vector);
+
+         for (int i = 0; i < numberOfDoFs; i++)
+            result.unsafe_set(externalIndices[i], column, vector[i] / Math.sqrt(factorization.unsafe_get(i, i)));
+      }
+   }
+
+   /**
+    * Solves in place <tt>L<sup>T</sup> y = x</tt> by back-substitution, only the ancestors of each
+    * degree of freedom are visited.
+    */
+   private void solveLTranspose(double[] x)
+   {
+      for (int i = numberOfDoFs - 1; i >= 0; i--)
+      {
+         double xi = x[i];
+
+         if (xi == 0.0)
+            continue;
+
+         for (int j = parentIndices[i]; j >= 0; j = parentIndices[j])
+            x[j] -= factorization.unsafe_get(i, j) * xi;
+      }
+   }
+
+   /**
+    * Solves in place <tt>L y = x</tt> by forward substitution, only the ancestors of each degree of
+    * freedom are visited.
+    */
+   private void solveL(double[] x)
+   {
+      for (int i = 0; i < numberOfDoFs; i++)
+      {
+         double xi = x[i];
+
+         for (int j = parentIndices[i]; j >= 0; j = parentIndices[j])
+            xi -= factorization.unsafe_get(i, j) * x[j];
+
+         x[i] = xi;
+      }
+   }
+
+   private void checkFactorization()
+   {
+      if (!isFactorizationValid)
+         throw new RuntimeException("The mass matrix has to be successfully factorized first.");
+   }
+
+   /**
+    * Gets the definition of the multi-body system that was used to create this factorization.
+    *
+    * @return this factorization input.
+    */
+   public MultiBodySystemReadOnly getInput()
+   {
+      return input;
+   }
+
+   /**
+    * Gets the number of degrees of freedom of the system, i.e. the size of the mass matrix.
+    *
+    * @return the number of degrees of freedom.
+    */
+   public int getNumberOfDoFs()
+   {
+      return numberOfDoFs;
+   }
+}
@@ -0,0 +1,623 @@
+package us.ihmc.mecano.algorithms;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+
+import us.ihmc.mecano.spatial.interfaces.SpatialVectorReadOnly;
+
+/**
+ * This class provides the matrix operations involving the motion subspace of a joint that are
+ * performed at each step of the recursive algorithms.
+ * <p>
+ * The motion subspace <tt>S</tt> of a joint is a 6-by-N matrix where N is the number of degrees of
+ * freedom of the joint. The matrices manipulated in the recursions are tiny and the generic
+ * operations from {@link CommonOps} spend a significant amount of time validating and looping over
+ * dimensions only known at runtime. The kernels created with {@link #newKernel(DenseMatrix64F)} are
+ * hand-specialized for the most common number of degrees of freedom, i.e. 1, 2, 3, and 6, and fall
+ * back to {@link CommonOps} otherwise.
+ * </p>
+ * <p>
+ * The kernels copy the motion subspace at construction, so they should only be used for joints
+ * which motion subspace is constant, as it is assumed by the recursive algorithms. The kernels do
+ * not validate the size of the matrices they are given, it is up to the caller to provide matrices
+ * of the expected size.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public abstract class MotionSubspaceKernel
+{
+   /** A verbose way to refer to the number of rows of the motion subspace. */
+   private static final int SIZE = SpatialVectorReadOnly.SIZE;
+
+   /**
+    * Creates a new kernel for the given motion subspace.
+    *
+    * @param S the 6-by-N motion subspace of the joint. Not modified.
+    * @return the kernel best suited for the number of degrees of freedom of the joint.
+    * @throws IllegalArgumentException if {@code S} does not have 6 rows.
+    */
+   public static MotionSubspaceKernel newKernel(DenseMatrix64F S)
+   {
+      if (S.getNumRows() != SIZE)
+         throw new IllegalArgumentException("The motion subspace must have " + SIZE + " rows, was: " + S.getNumRows());
+
+      switch (S.getNumCols())
+      {
+         case 1:
+            return new OneDoFKernel(S);
+         case 2:
+            return new TwoDoFKernel(S);
+         case 3:
+            return new ThreeDoFKernel(S);
+         case 6:
+            return new SixDoFKernel(S);
+         default:
+            return new GenericKernel(S);
+      }
+   }
+
+   MotionSubspaceKernel()
+   {
+   }
+
+   /**
+    * Gets the number of degrees of freedom, i.e. the number of columns of the motion subspace.
+    *
+    * @return the number of degrees of freedom.
+    */
+   public abstract int getNumberOfDoFs();
+
+   /**
+    * Computes: <tt>result = S * q</tt>
+    *
+    * @param q            the N-by-1 joint vector. Not modified.
+    * @param resultToPack the 6-by-1 matrix used to store the result. Modified.
+    */
+   public abstract void multiply(DenseMatrix64F q, DenseMatrix64F resultToPack);
+
+   /**
+    * Computes: <tt>result = result + S * q</tt>
+    *
+    * @param q            the N-by-1 joint vector. Not modified.
+    * @param resultToPack the 6-by-1 matrix to which the result is added. Modified.
+    */
+   public abstract void multiplyAdd(DenseMatrix64F q, DenseMatrix64F resultToPack);
+
+   /**
+    * Computes: <tt>result = &alpha; * S<sup>T</sup> * f</tt>
+    * <p>
+    * This is typically used to project a spatial force onto the joint motion subspace.
+    * </p>
+    *
+    * @param alpha        the scaling factor.
+    * @param f            the 6-by-1 spatial vector. Not modified.
+    * @param resultToPack the N-by-1 matrix used to store the result. Modified.
+    */
+   public abstract void multiplyTransA(double alpha, DenseMatrix64F f, DenseMatrix64F resultToPack);
+
+   /**
+    * Computes: <tt>U = I * S</tt> and <tt>D = S<sup>T</sup> * U</tt>
+    *
+    * @param inertia the 6-by-6 inertia matrix. Not modified.
+    * @param UToPack the 6-by-N matrix used to store <tt>U</tt>. Modified.
+    * @param DToPack the N-by-N matrix used to store <tt>D</tt>. Modified.
+    */
+   public abstract void multiplyInertia(DenseMatrix64F inertia, DenseMatrix64F UToPack, DenseMatrix64F DToPack);
+
+   /**
+    * Computes: <tt>U * D<sup>-1</sup></tt> and the symmetric 6-by-6 update
+    * <tt>U * D<sup>-1</sup> * U<sup>T</sup></tt>
+    * <p>
+    * Only the upper triangular part of the update is computed and then copied to the lower part.
+    * </p>
+    *
+    * @param U               the 6-by-N matrix <tt>U</tt>. Not modified.
+    * @param Dinv            the N-by-N symmetric matrix <tt>D<sup>-1</sup></tt>. Not modified.
+    * @param U_DinvToPack    the 6-by-N matrix used to store <tt>U * D<sup>-1</sup></tt>. Modified.
+    * @param U_Dinv_UTToPack the 6-by-6 matrix used to store the symmetric update. Modified.
+    */
+   public abstract void computeSymmetricUpdate(DenseMatrix64F U, DenseMatrix64F Dinv, DenseMatrix64F U_DinvToPack, DenseMatrix64F U_Dinv_UTToPack);
+
+   private static void copyUpperToLower(double[] matrix)
+   {
+      for (int row = 1; row < SIZE; row++)
+      {
+         for (int col = 0; col < row; col++)
+            matrix[row * SIZE + col] = matrix[col * SIZE + row];
+      }
+   }
+
+   private static final class OneDoFKernel extends MotionSubspaceKernel
+   {
+      private final double s0, s1, s2, s3, s4, s5;
+
+      private OneDoFKernel(DenseMatrix64F S)
+      {
+         s0 = S.get(0, 0);
+         s1 = S.get(1, 0);
+         s2 = S.get(2, 0);
+         s3 = S.get(3, 0);
+         s4 = S.get(4, 0);
+         s5 = S.get(5, 0);
+      }
+
+      @Override
+      public int getNumberOfDoFs()
+      {
+         return 1;
+      }
+
+      @Override
+      public void multiply(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         double q0 = q.data[0];
+         double[] r = resultToPack.data;
+         r[0] = s0 * q0;
+         r[1] = s1 * q0;
+         r[2] = s2 * q0;
+         r[3] = s3 * q0;
+         r[4] = s4 * q0;
+         r[5] = s5 * q0;
+      }
+
+      @Override
+      public void multiplyAdd(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         double q0 = q.data[0];
+         double[] r = resultToPack.data;
+         r[0] += s0 * q0;
+         r[1] += s1 * q0;
+         r[2] += s2 * q0;
+         r[3] += s3 * q0;
+         r[4] += s4 * q0;
+         r[5] += s5 * q0;
+      }
+
+      @Override
+      public void multiplyTransA(double alpha, DenseMatrix64F f, DenseMatrix64F resultToPack)
+      {
+         double[] v = f.data;
+         resultToPack.data[0] = alpha * (s0 * v[0] + s1 * v[1] + s2 * v[2] + s3 * v[3] + s4 * v[4] + s5 * v[5]);
+      }
+
+      @Override
+      public void multiplyInertia(DenseMatrix64F inertia, DenseMatrix64F UToPack, DenseMatrix64F DToPack)
+      {
+         double[] I = inertia.data;
+         double[] U = UToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            int offset = row * SIZE;
+            U[row] = I[offset] * s0 + I[offset + 1] * s1 + I[offset + 2] * s2 + I[offset + 3] * s3 + I[offset + 4] * s4 + I[offset + 5] * s5;
+         }
+
+         DToPack.data[0] = s0 * U[0] + s1 * U[1] + s2 * U[2] + s3 * U[3] + s4 * U[4] + s5 * U[5];
+      }
+
+      @Override
+      public void computeSymmetricUpdate(DenseMatrix64F U, DenseMatrix64F Dinv, DenseMatrix64F U_DinvToPack, DenseMatrix64F U_Dinv_UTToPack)
+      {
+         double[] u = U.data;
+         double[] uDinv = U_DinvToPack.data;
+         double[] update = U_Dinv_UTToPack.data;
+         double dinv = Dinv.data[0];
+
+         for (int row = 0; row < SIZE; row++)
+            uDinv[row] = u[row] * dinv;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            double uDinvRow = uDinv[row];
+            for (int col = row; col < SIZE; col++)
+               update[row * SIZE + col] = uDinvRow * u[col];
+         }
+
+         copyUpperToLower(update);
+      }
+   }
+
+   private static final class TwoDoFKernel extends MotionSubspaceKernel
+   {
+      /** The motion subspace stored row-major. */
+      private final double[] s = new double[SIZE * 2];
+
+      private TwoDoFKernel(DenseMatrix64F S)
+      {
+         System.arraycopy(S.data, 0, s, 0, s.length);
+      }
+
+      @Override
+      public int getNumberOfDoFs()
+      {
+         return 2;
+      }
+
+      @Override
+      public void multiply(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         double q0 = q.data[0], q1 = q.data[1];
+         double[] r = resultToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+            r[row] = s[2 * row] * q0 + s[2 * row + 1] * q1;
+      }
+
+      @Override
+      public void multiplyAdd(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         double q0 = q.data[0], q1 = q.data[1];
+         double[] r = resultToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+            r[row] += s[2 * row] * q0 + s[2 * row + 1] * q1;
+      }
+
+      @Override
+      public void multiplyTransA(double alpha, DenseMatrix64F f, DenseMatrix64F resultToPack)
+      {
+         double[] v = f.data;
+         double r0 = 0.0, r1 = 0.0;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            r0 += s[2 * row] * v[row];
+            r1 += s[2 * row + 1] * v[row];
+         }
+
+         resultToPack.data[0] = alpha * r0;
+         resultToPack.data[1] = alpha * r1;
+      }
+
+      @Override
+      public void multiplyInertia(DenseMatrix64F inertia, DenseMatrix64F UToPack, DenseMatrix64F DToPack)
+      {
+         double[] I = inertia.data;
+         double[] U = UToPack.data;
+         double d00 = 0.0, d01 = 0.0, d11 = 0.0;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            double u0 = 0.0, u1 = 0.0;
+
+            for (int k = 0; k < SIZE; k++)
+            {
+               double i = I[row * SIZE + k];
+               u0 += i * s[2 * k];
+               u1 += i * s[2 * k + 1];
+            }
+
+            U[2 * row] = u0;
+            U[2 * row + 1] = u1;
+            d00 += s[2 * row] * u0;
+            d01 += s[2 * row] * u1;
+            d11 += s[2 * row + 1] * u1;
+         }
+
+         double[] D = DToPack.data;
+         D[0] = d00;
+         D[1] = d01;
+         D[2] = d01;
+         D[3] = d11;
+      }
+
+      @Override
+      public void computeSymmetricUpdate(DenseMatrix64F U, DenseMatrix64F Dinv, DenseMatrix64F U_DinvToPack, DenseMatrix64F U_Dinv_UTToPack)
+      {
+         double[] u = U.data;
+         double[] dinv = Dinv.data;
+         double[] uDinv = U_DinvToPack.data;
+         double[] update = U_Dinv_UTToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            double u0 = u[2 * row], u1 = u[2 * row + 1];
+            uDinv[2 * row] = u0 * dinv[0] + u1 * dinv[2];
+            uDinv[2 * row + 1] = u0 * dinv[1] + u1 * dinv[3];
+         }
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            double a0 = uDinv[2 * row], a1 = uDinv[2 * row + 1];
+            for (int col = row; col < SIZE; col++)
+               update[row * SIZE + col] = a0 * u[2 * col] + a1 * u[2 * col + 1];
+         }
+
+         copyUpperToLower(update);
+      }
+   }
+
+   private static final class ThreeDoFKernel extends MotionSubspaceKernel
+   {
+      /** The motion subspace stored row-major. */
+      private final double[] s = new double[SIZE * 3];
+
+      private ThreeDoFKernel(DenseMatrix64F S)
+      {
+         System.arraycopy(S.data, 0, s, 0, s.length);
+      }
+
+      @Override
+      public int getNumberOfDoFs()
+      {
+         return 3;
+      }
+
+      @Override
+      public void multiply(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         double q0 = q.data[0], q1 = q.data[1], q2 = q.data[2];
+         double[] r = resultToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+            r[row] = s[3 * row] * q0 + s[3 * row + 1] * q1 + s[3 * row + 2] * q2;
+      }
+
+      @Override
+      public void multiplyAdd(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         double q0 = q.data[0], q1 = q.data[1], q2 = q.data[2];
+         double[] r = resultToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+            r[row] += s[3 * row] * q0 + s[3 * row + 1] * q1 + s[3 * row + 2] * q2;
+      }
+
+      @Override
+      public void multiplyTransA(double alpha, DenseMatrix64F f, DenseMatrix64F resultToPack)
+      {
+         double[] v = f.data;
+         double r0 = 0.0, r1 = 0.0, r2 = 0.0;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            r0 += s[3 * row] * v[row];
+            r1 += s[3 * row + 1] * v[row];
+            r2 += s[3 * row + 2] * v[row];
+         }
+
+         resultToPack.data[0] = alpha * r0;
+         resultToPack.data[1] = alpha * r1;
+         resultToPack.data[2] = alpha * r2;
+      }
+
+      @Override
+      public void multiplyInertia(DenseMatrix64F inertia, DenseMatrix64F UToPack, DenseMatrix64F DToPack)
+      {
+         double[] I = inertia.data;
+         double[] U = UToPack.data;
+         double d00 = 0.0, d01 = 0.0, d02 = 0.0, d11 = 0.0, d12 = 0.0, d22 = 0.0;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            double u0 = 0.0, u1 = 0.0, u2 = 0.0;
+
+            for (int k = 0; k < SIZE; k++)
+            {
+               double i = I[row * SIZE + k];
+               u0 += i * s[3 * k];
+               u1 += i * s[3 * k + 1];
+               u2 += i * s[3 * k + 2];
+            }
+
+            U[3 * row] = u0;
+            U[3 * row + 1] = u1;
+            U[3 * row + 2] = u2;
+
+            double s0 = s[3 * row], s1 = s[3 * row + 1], s2 = s[3 * row + 2];
+            d00 += s0 * u0;
+            d01 += s0 * u1;
+            d02 += s0 * u2;
+            d11 += s1 * u1;
+            d12 += s1 * u2;
+            d22 += s2 * u2;
+         }
+
+         double[] D = DToPack.data;
+         D[0] = d00;
+         D[1] = d01;
+         D[2] = d02;
+         D[3] = d01;
+         D[4] = d11;
+         D[5] = d12;
+         D[6] = d02;
+         D[7] = d12;
+         D[8] = d22;
+      }
+
+      @Override
+      public void computeSymmetricUpdate(DenseMatrix64F U, DenseMatrix64F Dinv, DenseMatrix64F U_DinvToPack, DenseMatrix64F U_Dinv_UTToPack)
+      {
+         double[] u = U.data;
+         double[] dinv = Dinv.data;
+         double[] uDinv = U_DinvToPack.data;
+         double[] update = U_Dinv_UTToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            double u0 = u[3 * row], u1 = u[3 * row + 1], u2 = u[3 * row + 2];
+            uDinv[3 * row] = u0 * dinv[0] + u1 * dinv[3] + u2 * dinv[6];
+            uDinv[3 * row + 1] = u0 * dinv[1] + u1 * dinv[4] + u2 * dinv[7];
+            uDinv[3 * row + 2] = u0 * dinv[2] + u1 * dinv[5] + u2 * dinv[8];
+         }
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            double a0 = uDinv[3 * row], a1 = uDinv[3 * row + 1], a2 = uDinv[3 * row + 2];
+            for (int col = row; col < SIZE; col++)
+               update[row * SIZE + col] = a0 * u[3 * col] + a1 * u[3 * col + 1] + a2 * u[3 * col + 2];
+         }
+
+         copyUpperToLower(update);
+      }
+   }
+
+   private static final class SixDoFKernel extends MotionSubspaceKernel
+   {
+      /** The motion subspace stored row-major. */
+      private final double[] s = new double[SIZE * SIZE];
+
+      private SixDoFKernel(DenseMatrix64F S)
+      {
+         System.arraycopy(S.data, 0, s, 0, s.length);
+      }
+
+      @Override
+      public int getNumberOfDoFs()
+      {
+         return SIZE;
+      }
+
+      @Override
+      public void multiply(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         double[] v = q.data;
+         double[] r = resultToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            int offset = row * SIZE;
+            r[row] = s[offset] * v[0] + s[offset + 1] * v[1] + s[offset + 2] * v[2] + s[offset + 3] * v[3] + s[offset + 4] * v[4] + s[offset + 5] * v[5];
+         }
+      }
+
+      @Override
+      public void multiplyAdd(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         double[] v = q.data;
+         double[] r = resultToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            int offset = row * SIZE;
+            r[row] += s[offset] * v[0] + s[offset + 1] * v[1] + s[offset + 2] * v[2] + s[offset + 3] * v[3] + s[offset + 4] * v[4] + s[offset + 5] * v[5];
+         }
+      }
+
+      @Override
+      public void multiplyTransA(double alpha, DenseMatrix64F f, DenseMatrix64F resultToPack)
+      {
+         double[] v = f.data;
+         double[] r = resultToPack.data;
+
+         for (int col = 0; col < SIZE; col++)
+         {
+            r[col] = alpha * (s[col] * v[0] + s[SIZE + col] * v[1] + s[2 * SIZE + col] * v[2] + s[3 * SIZE + col] * v[3] + s[4 * SIZE + col] * v[4]
+                  + s[5 * SIZE + col] * v[5]);
+         }
+      }
+
+      @Override
+      public void multiplyInertia(DenseMatrix64F inertia, DenseMatrix64F UToPack, DenseMatrix64F DToPack)
+      {
+         double[] I = inertia.data;
+         double[] U = UToPack.data;
+         double[] D = DToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            int offset = row * SIZE;
+
+            for (int col = 0; col < SIZE; col++)
+            {
+               U[offset + col] = I[offset] * s[col] + I[offset + 1] * s[SIZE + col] + I[offset + 2] * s[2 * SIZE + col] + I[offset + 3] * s[3 * SIZE + col]
+                     + I[offset + 4] * s[4 * SIZE + col] + I[offset + 5] * s[5 * SIZE + col];
+            }
+         }
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            for (int col = row; col < SIZE; col++)
+            {
+               D[row * SIZE + col] = s[row] * U[col] + s[SIZE + row] * U[SIZE + col] + s[2 * SIZE + row] * U[2 * SIZE + col]
+                     + s[3 * SIZE + row] * U[3 * SIZE + col] + s[4 * SIZE + row] * U[4 * SIZE + col] + s[5 * SIZE + row] * U[5 * SIZE + col];
+            }
+         }
+
+         copyUpperToLower(D);
+      }
+
+      @Override
+      public void computeSymmetricUpdate(DenseMatrix64F U, DenseMatrix64F Dinv, DenseMatrix64F U_DinvToPack, DenseMatrix64F U_Dinv_UTToPack)
+      {
+         double[] u = U.data;
+         double[] dinv = Dinv.data;
+         double[] uDinv = U_DinvToPack.data;
+         double[] update = U_Dinv_UTToPack.data;
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            int offset = row * SIZE;
+
+            for (int col = 0; col < SIZE; col++)
+            {
+               uDinv[offset + col] = u[offset] * dinv[col] + u[offset + 1] * dinv[SIZE + col] + u[offset + 2] * dinv[2 * SIZE + col]
+                     + u[offset + 3] * dinv[3 * SIZE + col] + u[offset + 4] * dinv[4 * SIZE + col] + u[offset + 5] * dinv[5 * SIZE + col];
+            }
+         }
+
+         for (int row = 0; row < SIZE; row++)
+         {
+            int rowOffset = row * SIZE;
+
+            for (int col = row; col < SIZE; col++)
+            {
+               int colOffset = col * SIZE;
+               update[rowOffset + col] = uDinv[rowOffset] * u[colOffset] + uDinv[rowOffset + 1] * u[colOffset + 1] + uDinv[rowOffset + 2] * u[colOffset + 2]
+                     + uDinv[rowOffset + 3] * u[colOffset + 3] + uDinv[rowOffset + 4] * u[colOffset + 4] + uDinv[rowOffset + 5] * u[colOffset + 5];
+            }
+         }
+
+         copyUpperToLower(update);
+      }
+   }
+
+   private static final class GenericKernel extends MotionSubspaceKernel
+   {
+      private final DenseMatrix64F S;
+
+      private GenericKernel(DenseMatrix64F S)
+      {
+         this.S = new DenseMatrix64F(S);
+      }
+
+      @Override
+      public int getNumberOfDoFs()
+      {
+         return S.getNumCols();
+      }
+
+      @Override
+      public void multiply(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         CommonOps.mult(S, q, resultToPack);
+      }
+
+      @Override
+      public void multiplyAdd(DenseMatrix64F q, DenseMatrix64F resultToPack)
+      {
+         CommonOps.multAdd(S, q, resultToPack);
+      }
+
+      @Override
+      public void multiplyTransA(double alpha, DenseMatrix64F f, DenseMatrix64F resultToPack)
+      {
+         CommonOps.multTransA(alpha, S, f, resultToPack);
+      }
+
+      @Override
+      public void multiplyInertia(DenseMatrix64F inertia, DenseMatrix64F UToPack, DenseMatrix64F DToPack)
+      {
+         CommonOps.mult(inertia, S, UToPack);
+         CommonOps.multTransA(S, UToPack, DToPack);
+      }
+
+      @Override
+      public void computeSymmetricUpdate(DenseMatrix64F U, DenseMatrix64F Dinv, DenseMatrix64F U_DinvToPack, DenseMatrix64F U_Dinv_UTToPack)
+      {
+         CommonOps.mult(U, Dinv, U_DinvToPack);
+         CommonOps.multTransB(U_DinvToPack, U, U_Dinv_UTToPack);
+      }
+   }
+}
@@ -0,0 +1,739 @@
+package us.ihmc.mecano.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ejml.alg.dense.misc.UnrolledInverseFromMinor;
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.factory.LinearSolverFactory;
+import org.ejml.interfaces.linsol.LinearSolver;
+import org.ejml.ops.CommonOps;
+
+import us.ihmc.euclid.referenceFrame.FramePoint3D;
+import us.ihmc.euclid.referenceFrame.FrameVector3D;
+import us.ihmc.euclid.referenceFrame.interfaces.FramePoint3DReadOnly;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.mecano.frames.MovingReferenceFrame;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.spatial.SpatialAcceleration;
+import us.ihmc.mecano.spatial.SpatialInertia;
+import us.ihmc.mecano.spatial.Twist;
+import us.ihmc.mecano.spatial.interfaces.SpatialVectorReadOnly;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+/**
+ * Computes the inverse of the operational-space inertia, also called Delassus matrix, for a set of
+ * contact points attached to the rigid-bodies of a multi-body system:
+ *
+ * <pre>
+ * &Lambda;<sup>-1</sup> = J H<sup>-1</sup> J<sup>T</sup>
+ * </pre>
+ *
+ * where <tt>H</tt> is the mass matrix of the system and <tt>J</tt> is the 3m-by-n Jacobian that maps
+ * from joint velocity space to the linear velocities of the m contact points. The 3-by-3 blocks
+ * coupling the contact points are included such that the result can directly be used by a contact
+ * solver.
+ * <p>
+ * This calculator extends the articulated-body inertia algorithm as described in Wensing, P. M.,
+ * Featherstone, R., and Orin, D. E. - A Reduced-Order Recursive Algorithm for the Computation of the
+ * Operational-Space Inertia Matrix (2012). The response of each body to a spatial force applied to
+ * itself is computed in a single forward pass for all the bodies, then each contact point is
+ * projected onto its ancestors, such that the overall cost is <tt>O(n + m d)</tt>, where <tt>d</tt>
+ * is the depth of the kinematic tree, plus a constant cost for each pair of contact points.
+ * </p>
+ * <p>
+ * The root body of the system is assumed to be fixed, floating systems should be defined with a
+ * floating joint attached to the root body.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class OperationalSpaceInertiaCalculator
+{
+   /** Defines the multi-body system to use with this calculator. */
+   private final MultiBodySystemReadOnly input;
+
+   /** The root of the internal recursive algorithm. */
+   private final OperationalSpaceRecursionStep initialRecursionStep;
+   /** Map to quickly retrieve information for each rigid-body. */
+   private final Map<RigidBodyReadOnly, OperationalSpaceRecursionStep> rigidBodyToRecursionStepMap = new HashMap<>();
+
+   /** The contact points for which the operational-space inertia is to be computed. */
+   private final List<ContactPoint> contactPoints = new ArrayList<>();
+   /** The number of contact points currently registered. */
+   private int numberOfContactPoints = 0;
+
+   /** The inverse of the operational-space inertia, i.e. the Delassus matrix. */
+   private final DenseMatrix64F inverseOperationalSpaceInertia = new DenseMatrix64F(0, 0);
+   /** The operational-space inertia. */
+   private final DenseMatrix64F operationalSpaceInertia = new DenseMatrix64F(0, 0);
+   /** Solver used to compute the operational-space inertia which can be singular. */
+   private final LinearSolver<DenseMatrix64F> pseudoInverseSolver = LinearSolverFactory.pseudoInverse(true);
+
+   /** Intermediate variable for garbage free operations. */
+   private final SpatialAcceleration intermediateAcceleration = new SpatialAcceleration();
+   /** Intermediate variable for garbage free operations. */
+   private final Twist unitTwist = new Twist();
+   /** Intermediate variable for garbage free operations. */
+   private final FramePoint3D contactPointInJointFrame = new FramePoint3D();
+   /** Intermediate variable for garbage free operations. */
+   private final FrameVector3D contactPointVelocity = new FrameVector3D();
+   /** Intermediate variable for garbage free operations. */
+   private final DenseMatrix64F projectedResponse = new DenseMatrix64F(3, SpatialVectorReadOnly.SIZE);
+   /** Intermediate variable for garbage free operations. */
+   private final DenseMatrix64F block = new DenseMatrix64F(3, 3);
+
+   /**
+    * Whether the inverse of the operational-space inertia has been updated since the last call to
+    * {@link #reset()}.
+    */
+   private boolean isInverseOperationalSpaceInertiaUpToDate = false;
+   /**
+    * Whether the operational-space inertia has been updated since the last call to {@link #reset()}.
+    */
+   private boolean isOperationalSpaceInertiaUpToDate = false;
+
+   /**
+    * Creates a new calculator for the subtree that starts off the given {@code rootBody}.
+    *
+    * @param rootBody the start of subtree for which the operational-space inertia is to be computed.
+    *                 Not modified.
+    */
+   public OperationalSpaceInertiaCalculator(RigidBodyReadOnly rootBody)
+   {
+      this(MultiBodySystemReadOnly.toMultiBodySystemInput(rootBody));
+   }
+
+   /**
+    * Creates a new calculator for the given {@code input}.
+    *
+    * @param input the definition of the system to be evaluated by this calculator.
+    */
+   public OperationalSpaceInertiaCalculator(MultiBodySystemReadOnly input)
+   {
+      this(input, true);
+   }
+
+   /**
+    * Creates a new calculator for the given {@code input}.
+    *
+    * @param input                          the definition of the system to be evaluated by this
+    *                                       calculator.
+    * @param considerIgnoredSubtreesInertia whether the inertia of the ignored part(s) of the given
+    *                                       multi-body system should be considered. When {@code true},
+    *                                       this provides a more accurate operational-space inertia,
+    *                                       while when {@code false}, this calculator may gain slight
+    *                                       performance improvement.
+    */
+   public OperationalSpaceInertiaCalculator(MultiBodySystemReadOnly input, boolean considerIgnoredSubtreesInertia)
+   {
+      this.input = input;
+
+      RigidBodyReadOnly rootBody = input.getRootBody();
+      initialRecursionStep = new OperationalSpaceRecursionStep(rootBody, null);
+      rigidBodyToRecursionStepMap.put(rootBody, initialRecursionStep);
+      buildMultiBodyTree(initialRecursionStep, input.getJointsToIgnore());
+      if (considerIgnoredSubtreesInertia)
+         initialRecursionStep.includeIgnoredSubtreeInertia();
+   }
+
+   private void buildMultiBodyTree(OperationalSpaceRecursionStep parent, Collection<? extends JointReadOnly> jointsToIgnore)
+   {
+      for (JointReadOnly childJoint : parent.rigidBody.getChildrenJoints())
+      {
+         if (jointsToIgnore.contains(childJoint))
+            continue;
+
+         RigidBodyReadOnly childBody = childJoint.getSuccessor();
+         if (childBody != null)
+         {
+            OperationalSpaceRecursionStep child = new OperationalSpaceRecursionStep(childBody, parent);
+            rigidBodyToRecursionStepMap.put(childBody, child);
+            buildMultiBodyTree(child, jointsToIgnore);
+         }
+      }
+   }
+
+   /**
+    * Invalidates the internal memory.
+    * <p>
+    * This method should be called whenever the state of the multi-body system has changed.
+    * </p>
+    */
+   public void reset()
+   {
+      isInverseOperationalSpaceInertiaUpToDate = false;
+      isOperationalSpaceInertiaUpToDate = false;
+   }
+
+   /**
+    * Removes all the contact points previously registered.
+    */
+   public void clearContactPoints()
+   {
+      numberOfContactPoints = 0;
+      reset();
+   }
+
+   /**
+    * Registers a new contact point.
+    * <p>
+    * The contact point is stored as is such that it is interpreted in its reference frame at the
+    * moment the operational-space inertia is computed. The rows and columns associated to the new
+    * contact point are expressed in the frame of the given point and start at
+    * {@code 3 * getNumberOfContactPoints()} before this call.
+    * </p>
+    *
+    * @param rigidBody the rigid-body to which the contact point is attached. Not modified.
+    * @param point     the location of the contact point. Not modified.
+    * @return the index of the new contact point.
+    * @throws IllegalArgumentException if the rigid-body is not part of the system considered by this
+    *                                  calculator.
+    */
+   public int addContactPoint(RigidBodyReadOnly rigidBody, FramePoint3DReadOnly point)
+   {
+      OperationalSpaceRecursionStep recursionStep = rigidBodyToRecursionStepMap.get(rigidBody);
+
+      if (recursionStep == null)
+         throw new IllegalArgumentException("The rigid-body " + rigidBody + " is not part of the system.");
+
+      if (numberOfContactPoints == contactPoints.size())
+         contactPoints.add(new ContactPoint());
+
+      ContactPoint contactPoint = contactPoints.get(numberOfContactPoints);
+      contactPoint.recursionStep = recursionStep;
+      contactPoint.point.setIncludingFrame(point);
+      reset();
+      return numberOfContactPoints++;
+   }
+
+   private void updateInverseOperationalSpaceInertia()
+   {
+      if (isInverseOperationalSpaceInertiaUpToDate)
+         return;
+
+      initialRecursionStep.passOne();
+      initialRecursionStep.passTwo();
+
+      for (int contactIndex = 0; contactIndex < numberOfContactPoints; contactIndex++)
+         contactPoints.get(contactIndex).computeProjections();
+
+      inverseOperationalSpaceInertia.reshape(3 * numberOfContactPoints, 3 * numberOfContactPoints);
+
+      for (int contactIndex = 0; contactIndex < numberOfContactPoints; contactIndex++)
+      {
+         ContactPoint contactPoint = contactPoints.get(contactIndex);
+
+         for (int otherIndex = contactIndex; otherIndex < numberOfContactPoints; otherIndex++)
+         {
+            computeCouplingBlock(contactPoint, contactPoints.get(otherIndex), block);
+            CommonOps.insert(block, inverseOperationalSpaceInertia, 3 * contactIndex, 3 * otherIndex);
+
+            if (otherIndex != contactIndex)
+            {
+               CommonOps.transpose(block);
+               CommonOps.insert(block, inverseOperationalSpaceInertia, 3 * otherIndex, 3 * contactIndex);
+            }
+         }
+      }
+
+      isInverseOperationalSpaceInertiaUpToDate = true;
+   }
+
+   /**
+    * Computes the 3-by-3 block of the inverse of the operational-space inertia coupling the two given
+    * contact points.
+    * <p>
+    * The acceleration of the first contact point resulting from a force applied at the second one
+    * only depends on the response of their nearest common ancestor:
+    *
+    * <pre>
+    * &Lambda;<sup>-1</sup><sub>kl</sub> = &Psi;<sub>k</sub><sup>c</sup> &Omega;<sub>c</sub> &Psi;<sub>l</sub><sup>c</sup><sup>T</sup>
+    * </pre>
+    *
+    * where <tt>c</tt> is the nearest common ancestor, <tt>&Omega;<sub>c</sub></tt> its response to a
+    * spatial force applied to itself, and <tt>&Psi;<sub>k</sub><sup>c</sup></tt> maps the
+    * acceleration of <tt>c</tt> to the acceleration of the contact point <tt>k</tt>.
+    * </p>
+    */
+   private void computeCouplingBlock(ContactPoint first, ContactPoint second, DenseMatrix64F blockToPack)
+   {
+      OperationalSpaceRecursionStep firstAncestor = first.recursionStep;
+      OperationalSpaceRecursionStep secondAncestor = second.recursionStep;
+      int firstProjectionIndex = 0;
+      int secondProjectionIndex = 0;
+
+      while (firstAncestor.depth > secondAncestor.depth)
+      {
+         firstAncestor = firstAncestor.parent;
+         firstProjectionIndex++;
+      }
+
+      while (secondAncestor.depth > firstAncestor.depth)
+      {
+         secondAncestor = secondAncestor.parent;
+         secondProjectionIndex++;
+      }
+
+      while (firstAncestor != secondAncestor)
+      {
+         firstAncestor = firstAncestor.parent;
+         firstProjectionIndex++;
+         secondAncestor = secondAncestor.parent;
+         secondProjectionIndex++;
+      }
+
+      if (firstAncestor.isRoot())
+      {
+         blockToPack.zero();
+         return;
+      }
+
+      CommonOps.mult(first.projections.get(firstProjectionIndex), firstAncestor.Omega, projectedResponse);
+      CommonOps.multTransB(projectedResponse, second.projections.get(secondProjectionIndex), blockToPack);
+   }
+
+   private void updateOperationalSpaceInertia()
+   {
+      if (isOperationalSpaceInertiaUpToDate)
+         return;
+
+      updateInverseOperationalSpaceInertia();
+      operationalSpaceInertia.reshape(inverseOperationalSpaceInertia.getNumRows(), inverseOperationalSpaceInertia.getNumCols());
+
+      if (pseudoInverseSolver.setA(inverseOperationalSpaceInertia))
+         pseudoInverseSolver.invert(operationalSpaceInertia);
+      else
+         CommonOps.fill(operationalSpaceInertia, Double.NaN);
+
+      isOperationalSpaceInertiaUpToDate = true;
+   }
+
+   /**
+    * Gets the definition of the multi-body system that was used to create this calculator.
+    *
+    * @return this calculator input.
+    */
+   public MultiBodySystemReadOnly getInput()
+   {
+      return input;
+   }
+
+   /**
+    * Gets the number of contact points currently registered.
+    *
+    * @return the number of contact points.
+    */
+   public int getNumberOfContactPoints()
+   {
+      return numberOfContactPoints;
+   }
+
+   /**
+    * Gets the 3m-by-3m inverse of the operational-space inertia, also called Delassus matrix, where m
+    * is the number of contact points.
+    * <p>
+    * The block (k, l) maps a force applied at the l<sup>th</sup> contact point to the resulting
+    * linear acceleration of the k<sup>th</sup> contact point. Each block row and column is expressed
+    * in the frame of the corresponding contact point.
+    * </p>
+    *
+    * @return the inverse of the operational-space inertia.
+    */
+   public DenseMatrix64F getInverseOperationalSpaceInertia()
+   {
+      updateInverseOperationalSpaceInertia();
+      return inverseOperationalSpaceInertia;
+   }
+
+   /**
+    * Gets the 3m-by-3m operational-space inertia, where m is the number of contact points.
+    * <p>
+    * When the contact points are redundant, the inverse of the operational-space inertia is singular
+    * and the pseudo-inverse is used instead.
+    * </p>
+    *
+    * @return the operational-space inertia.
+    */
+   public DenseMatrix64F getOperationalSpaceInertia()
+   {
+      updateOperationalSpaceInertia();
+      return operationalSpaceInertia;
+   }
+
+   /**
+    * Holds onto a contact point and the matrices mapping the acceleration of each of its ancestors to
+    * the linear acceleration of the contact point.
+    */
+   private class ContactPoint
+   {
+      /** The recursion step of the rigid-body to which the contact point is attached. */
+      private OperationalSpaceRecursionStep recursionStep;
+      /** The location of the contact point. */
+      private final FramePoint3D point = new FramePoint3D();
+      /**
+       * The 3-by-6 matrices <tt>&Psi;</tt> for the rigid-body and each of its ancestors, starting with
+       * the rigid-body itself.
+       */
+      private final List<DenseMatrix64F> projections = new ArrayList<>();
+
+      private void computeProjections()
+      {
+         // The root is fixed, a contact point attached to it is not affected by any force.
+         if (recursionStep.isRoot())
+            return;
+
+         while (projections.size() < recursionStep.depth)
+            projections.add(new DenseMatrix64F(3, SpatialVectorReadOnly.SIZE));
+
+         // The Jacobian of the contact point w.r.t. the spatial acceleration of the body.
+         MovingReferenceFrame frameAfterJoint = recursionStep.getFrameAfterJoint();
+         contactPointInJointFrame.setIncludingFrame(point);
+         contactPointInJointFrame.changeFrame(frameAfterJoint);
+         DenseMatrix64F projection = projections.get(0);
+
+         for (int column = 0; column < SpatialVectorReadOnly.SIZE; column++)
+         {
+            unitTwist.setToZero(frameAfterJoint, input.getInertialFrame(), frameAfterJoint);
+            unitTwist.setElement(column, 1.0);
+            unitTwist.getLinearVelocityAt(contactPointInJointFrame, contactPointVelocity);
+            contactPointVelocity.changeFrame(point.getReferenceFrame());
+            projection.set(0, column, contactPointVelocity.getX());
+            projection.set(1, column, contactPointVelocity.getY());
+            projection.set(2, column, contactPointVelocity.getZ());
+         }
+
+         // Computing Psi^{lambda(i)} = Psi^i C_i up to the root.
+         OperationalSpaceRecursionStep ancestor = recursionStep;
+
+         for (int index = 1; index < recursionStep.depth; index++)
+         {
+            CommonOps.mult(projections.get(index - 1), ancestor.C, projections.get(index));
+            ancestor = ancestor.parent;
+         }
+      }
+   }
+
+   /**
+    * Represents a single recursion step with all the intermediate variables needed.
+    *
+    * @author Sylvain Bertrand
+    */
+   private class OperationalSpaceRecursionStep
+   {
+      /**
+       * The rigid-body for which this recursion is.
+       */
+      private final RigidBodyReadOnly rigidBody;
+      /**
+       * Body inertia: usually equal to {@code rigidBody.getInertial()}. However, if at least one child of
+       * {@code rigidBody} is ignored, it is equal to this rigid-body inertia and the subtree inertia
+       * attached to the ignored joint.
+       */
+      private final SpatialInertia bodyInertia;
+      /**
+       * Intermediate result for faster transformation from body-fixed frame to joint frame.
+       */
+      private final SpatialInertia spatialInertia;
+      /**
+       * Articulated-body inertia for this joint.
+       */
+      private final ArticulatedBodyInertia articulatedInertia;
+      /**
+       * Pre-transformed articulated-body inertia for the parent.
+       */
+      private final ArticulatedBodyInertia articulatedInertiaForParent;
+      /**
+       * <tt>IA</tt> is the 6-by-6 articulated-body inertia for this body.
+       */
+      private final DenseMatrix64F IA;
+      /**
+       * <tt>S</tt> is the 6-by-N matrix representing the motion subspace of the parent joint, where N is
+       * the number of DoFs of the joint.
+       */
+      private final DenseMatrix64F S;
+      /**
+       * Intermediate result to save operations: <tt>U = I<sup>A</sup> S</tt>.
+       */
+      private final DenseMatrix64F U;
+      /**
+       * Intermediate result to save operations: <tt>D = S<sup>T</sup> I<sup>A</sup> S</tt>.
+       */
+      private final DenseMatrix64F D;
+      /**
+       * Intermediate result to save operations: <tt>D<sup>-1</sup></tt>.
+       */
+      private final DenseMatrix64F Dinv;
+      /**
+       * Intermediate result to save operations: <tt>U D<sup>-1</sup></tt>.
+       */
+      private final DenseMatrix64F U_Dinv;
+      /**
+       * Intermediate result to save operations: <tt>U D<sup>-1</sup> U<sup>T</sup></tt>.
+       */
+      private final DenseMatrix64F U_Dinv_UT;
+      /**
+       * Intermediate result to save operations: <tt>S D<sup>-1</sup></tt>.
+       */
+      private final DenseMatrix64F S_Dinv;
+      /**
+       * Intermediate result to save operations: <tt>S D<sup>-1</sup> U<sup>T</sup></tt>.
+       */
+      private final DenseMatrix64F S_Dinv_UT;
+      /**
+       * The 6-by-6 matrix transforming a spatial motion from the parent joint frame to this joint frame.
+       */
+      private final DenseMatrix64F X;
+      /**
+       * The 6-by-6 matrix mapping the acceleration of the parent to the acceleration of this body when no
+       * force is applied to this subtree:
+       *
+       * <pre>
+       * C = ( 1 - S D<sup>-1</sup> U<sup>T</sup> ) X
+       * </pre>
+       *
+       * Its transpose maps a spatial force applied to this body to the force transmitted to the parent.
+       */
+      private final DenseMatrix64F C;
+      /**
+       * The 6-by-6 response of this body, i.e. the spatial acceleration of this body resulting from a
+       * spatial force applied to it:
+       *
+       * <pre>
+       * &Omega; = S D<sup>-1</sup> S<sup>T</sup> + C &Omega;<sub>parent</sub> C<sup>T</sup>
+       * </pre>
+       */
+      private final DenseMatrix64F Omega;
+      /**
+       * Intermediate result for garbage-free operation.
+       */
+      private final DenseMatrix64F C_OmegaParent;
+      /**
+       * The recursion step holding onto the direct predecessor of this recursion step's rigid-body.
+       */
+      private final OperationalSpaceRecursionStep parent;
+      /**
+       * The recursion steps holding onto the direct successor of this recursion step's rigid-body.
+       */
+      private final List<OperationalSpaceRecursionStep> children = new ArrayList<>();
+      /**
+       * Solver for inverting <tt>D</tt>. Only needed for 6-DoF joints.
+       */
+      private final LinearSolver<DenseMatrix64F> inverseSolver;
+      /**
+       * Intermediate variable to save computation. Transform from {@code this.getFrameAfterJoint()} to
+       * {@code parent.getFrameAfterJoint()}.
+       */
+      private final RigidBodyTransform transformToParentJointFrame;
+      /**
+       * The number of recursion steps between this and the root, the root having a depth of zero.
+       */
+      private final int depth;
+
+      public OperationalSpaceRecursionStep(RigidBodyReadOnly rigidBody, OperationalSpaceRecursionStep parent)
+      {
+         this.rigidBody = rigidBody;
+         this.parent = parent;
+
+         if (parent == null)
+         {
+            depth = 0;
+            bodyInertia = null;
+            spatialInertia = null;
+            articulatedInertia = null;
+            articulatedInertiaForParent = null;
+            IA = null;
+            S = null;
+            U = null;
+            D = null;
+            Dinv = null;
+            U_Dinv = null;
+            U_Dinv_UT = null;
+            S_Dinv = null;
+            S_Dinv_UT = null;
+            X = null;
+            C = null;
+            Omega = null;
+            C_OmegaParent = null;
+            inverseSolver = null;
+            transformToParentJointFrame = null;
+         }
+         else
+         {
+            parent.children.add(this);
+            depth = parent.depth + 1;
+            int nDoFs = getJoint().getDegreesOfFreedom();
+
+            bodyInertia = new SpatialInertia(rigidBody.getInertia());
+            spatialInertia = new SpatialInertia();
+            articulatedInertia = new ArticulatedBodyInertia();
+            articulatedInertiaForParent = parent.isRoot() ? null : new ArticulatedBodyInertia();
+
+            IA = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            S = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, nDoFs);
+            U = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, nDoFs);
+            D = new DenseMatrix64F(nDoFs, nDoFs);
+            Dinv = new DenseMatrix64F(nDoFs, nDoFs);
+            U_Dinv = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, nDoFs);
+            U_Dinv_UT = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            S_Dinv = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, nDoFs);
+            S_Dinv_UT = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            X = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            C = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            Omega = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            C_OmegaParent = new DenseMatrix64F(SpatialVectorReadOnly.SIZE, SpatialVectorReadOnly.SIZE);
+            inverseSolver = nDoFs == 6 ? LinearSolverFactory.symmPosDef(6) : null;
+            transformToParentJointFrame = new RigidBodyTransform();
+            getJoint().getMotionSubspace(S);
+         }
+      }
+
+      public void includeIgnoredSubtreeInertia()
+      {
+         if (!isRoot() && children.size() != rigidBody.getChildrenJoints().size())
+         {
+            for (JointReadOnly childJoint : rigidBody.getChildrenJoints())
+            {
+               if (input.getJointsToIgnore().contains(childJoint))
+               {
+                  SpatialInertia subtreeIneria = MultiBodySystemTools.computeSubtreeInertia(childJoint);
+                  subtreeIneria.changeFrame(getBodyFixedFrame());
+                  bodyInertia.add(subtreeIneria);
+               }
+            }
+         }
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).includeIgnoredSubtreeInertia();
+      }
+
+      /**
+       * The first pass calculates the articulated-body inertia of each body and the matrices
+       * transmitting accelerations and forces across each joint. The recursion is from the leaves to
+       * the root.
+       */
+      public void passOne()
+      {
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).passOne();
+
+         if (isRoot())
+            return;
+
+         MovingReferenceFrame frameAfterJoint = getFrameAfterJoint();
+         if (parent.isRoot())
+            frameAfterJoint.getTransformToDesiredFrame(transformToParentJointFrame, parent.getBodyFixedFrame());
+         else
+            frameAfterJoint.getTransformToDesiredFrame(transformToParentJointFrame, parent.getFrameAfterJoint());
+
+         spatialInertia.setIncludingFrame(bodyInertia);
+         spatialInertia.changeFrame(frameAfterJoint);
+         articulatedInertia.setIncludingFrame(spatialInertia);
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+         {
+            OperationalSpaceRecursionStep child = children.get(childIndex);
+            child.articulatedInertiaForParent.applyTransform(child.transformToParentJointFrame);
+            child.articulatedInertiaForParent.setReferenceFrame(frameAfterJoint);
+            articulatedInertia.add(child.articulatedInertiaForParent);
+         }
+
+         // Computing intermediate variables used in later calculation
+         articulatedInertia.get(IA);
+         CommonOps.mult(IA, S, U);
+         CommonOps.multTransA(S, U, D);
+
+         int nDoFs = getJoint().getDegreesOfFreedom();
+         if (nDoFs == 1)
+         {
+            Dinv.set(0, 1.0 / D.get(0));
+         }
+         else if (nDoFs == 0)
+         {
+            Dinv.reshape(0, 0);
+         }
+         else if (nDoFs <= 5)
+         {
+            UnrolledInverseFromMinor.inv(D, Dinv);
+         }
+         else
+         {
+            inverseSolver.setA(D);
+            inverseSolver.invert(Dinv);
+         }
+
+         CommonOps.mult(S, Dinv, S_Dinv);
+
+         if (!parent.isRoot())
+         {
+            CommonOps.mult(U, Dinv, U_Dinv);
+            CommonOps.multTransB(U_Dinv, U, U_Dinv_UT);
+
+            // Computing I_i^a = I_i^A - U_i * D_i^-1 * U_i^T
+            articulatedInertiaForParent.setIncludingFrame(articulatedInertia);
+            articulatedInertiaForParent.sub(U_Dinv_UT);
+
+            // Computing X_i column by column by transforming the unit spatial motions.
+            for (int column = 0; column < SpatialVectorReadOnly.SIZE; column++)
+            {
+               intermediateAcceleration.setToZero();
+               intermediateAcceleration.setElement(column, 1.0);
+               intermediateAcceleration.applyInverseTransform(transformToParentJointFrame);
+               intermediateAcceleration.get(0, column, X);
+            }
+
+            // Computing C_i = ( 1 - S_i * D_i^-1 * U_i^T ) * X_i
+            CommonOps.multTransB(S_Dinv, U, S_Dinv_UT);
+            C.set(X);
+            CommonOps.multAdd(-1.0, S_Dinv_UT, X, C);
+         }
+      }
+
+      /**
+       * The second pass calculates the response of each body to a spatial force applied to itself. The
+       * recursion is from the root to the leaves.
+       */
+      public void passTwo()
+      {
+         if (!isRoot())
+         {
+            // Computing Omega_i = S_i * D_i^-1 * S_i^T + C_i * Omega_{lambda(i)} * C_i^T
+            CommonOps.multTransB(S_Dinv, S, Omega);
+
+            if (!parent.isRoot())
+            {
+               CommonOps.mult(C, parent.Omega, C_OmegaParent);
+               CommonOps.multAddTransB(C_OmegaParent, C, Omega);
+            }
+         }
+
+         for (int childIndex = 0; childIndex < children.size(); childIndex++)
+            children.get(childIndex).passTwo();
+      }
+
+      public boolean isRoot()
+      {
+         return parent == null;
+      }
+
+      public MovingReferenceFrame getBodyFixedFrame()
+      {
+         return rigidBody.getBodyFixedFrame();
+      }
+
+      public MovingReferenceFrame getFrameAfterJoint()
+      {
+         return getJoint().getFrameAfterJoint();
+      }
+
+      public JointReadOnly getJoint()
+      {
+         return rigidBody.getParentJoint();
+      }
+   }
+}
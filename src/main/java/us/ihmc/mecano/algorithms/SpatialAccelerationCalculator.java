@@ -10,14 +10,17 @@ import us.ihmc.euclid.referenceFrame.exceptions.ReferenceFrameMismatchException;
 import us.ihmc.euclid.referenceFrame.interfaces.FramePoint3DReadOnly;
 import us.ihmc.euclid.referenceFrame.interfaces.FrameTuple3DReadOnly;
 import us.ihmc.euclid.referenceFrame.interfaces.FrameVector3DReadOnly;
+import us.ihmc.euclid.transform.RigidBodyTransform;
 import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
 import us.ihmc.mecano.algorithms.interfaces.RigidBodyAccelerationProvider;
+import us.ihmc.mecano.frames.FrameStateCache;
 import us.ihmc.mecano.frames.MovingReferenceFrame;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
 import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
 import us.ihmc.mecano.spatial.SpatialAcceleration;
 import us.ihmc.mecano.spatial.Twist;
 import us.ihmc.mecano.spatial.interfaces.SpatialAccelerationReadOnly;
+import us.ihmc.mecano.spatial.interfaces.TwistReadOnly;
 import us.ihmc.mecano.tools.MultiBodySystemTools;
 
 /**
@@ -87,6 +90,20 @@ public class SpatialAccelerationCalculator implements RigidBodyAccelerationProvi
    private final ReferenceFrame inertialFrame;
    private final RigidBodyAccelerationProvider accelerationProvider;
 
+   /**
+    * Optional cache of the poses and velocities of the frames of the system used to speed up the
+    * computation of relative accelerations.
+    */
+   private FrameStateCache frameStateCache = null;
+   /** Intermediate variable for garbage free operations. */
+   private final SpatialAcceleration relativeAcceleration = new SpatialAcceleration();
+   /** Intermediate variable for garbage free operations. */
+   private final SpatialAcceleration baseAcceleration = new SpatialAcceleration();
+   /** Intermediate variable for garbage free operations. */
+   private final Twist deltaTwist = new Twist();
+   /** Intermediate variable for garbage free operations. */
+   private final RigidBodyTransform transformToBodyFrame = new RigidBodyTransform();
+
    /**
     * Creates a new {@code SpatialAccelerationCalculator} that will compute all the spatial
     * accelerations of all the rigid-bodies of the system to which {@code body} belongs.
@@ -263,10 +280,59 @@ public class SpatialAccelerationCalculator implements RigidBodyAccelerationProvi
       return computeOrGetAccelerationOfBody(body);
    }
 
+   /**
+    * Sets the cache to use for retrieving the relative poses and velocities of the rigid-bodies when
+    * computing relative accelerations.
+    * <p>
+    * The cache is expected to be updated by the user every time the frames of the system are updated.
+    * The rigid-bodies which frames are not part of the cache are handled as if no cache was provided.
+    * </p>
+    *
+    * @param frameStateCache the cache to use, or {@code null} to not use any.
+    */
+   public void setFrameStateCache(FrameStateCache frameStateCache)
+   {
+      this.frameStateCache = frameStateCache;
+   }
+
    @Override
    public SpatialAccelerationReadOnly getRelativeAcceleration(RigidBodyReadOnly base, RigidBodyReadOnly body)
    {
-      return accelerationProvider.getRelativeAcceleration(base, body);
+      if (frameStateCache == null)
+         return accelerationProvider.getRelativeAcceleration(base, body);
+
+      MovingReferenceFrame baseFrame = base.getBodyFixedFrame();
+      MovingReferenceFrame bodyFrame = body.getBodyFixedFrame();
+
+      int baseIndex = frameStateCache.indexOf(baseFrame);
+      int bodyIndex = frameStateCache.indexOf(bodyFrame);
+
+      if (baseIndex == -1 || bodyIndex == -1)
+         return accelerationProvider.getRelativeAcceleration(base, body);
+
+      baseAcceleration.setIncludingFrame(getAccelerationOfBody(base));
+      relativeAcceleration.setIncludingFrame(getAccelerationOfBody(body));
+
+      /*
+       * Equivalent to baseAcceleration.changeFrame(bodyFrame, deltaTwist, baseTwist) using the cache for
+       * both the relative twist and the transform.
+       */
+      if (doVelocityTerms)
+      {
+         frameStateCache.getTwistRelativeToOther(baseIndex, bodyIndex, deltaTwist);
+         TwistReadOnly baseTwist = baseFrame.getTwistOfFrame();
+         baseAcceleration.addCrossToLinearPart(deltaTwist.getLinearPart(), baseTwist.getAngularPart());
+         baseAcceleration.addCrossToLinearPart(deltaTwist.getAngularPart(), baseTwist.getLinearPart());
+         baseAcceleration.addCrossToAngularPart(deltaTwist.getAngularPart(), baseTwist.getAngularPart());
+      }
+
+      frameStateCache.getTransform(baseIndex, bodyIndex, transformToBodyFrame);
+      baseAcceleration.applyTransform(transformToBodyFrame);
+      baseAcceleration.setReferenceFrame(bodyFrame);
+
+      relativeAcceleration.sub(baseAcceleration);
+
+      return relativeAcceleration;
    }
 
    @Override
@@ -0,0 +1,517 @@
+package us.ihmc.mecano.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.mecano.frames.MovingReferenceFrame;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.spatial.SpatialAcceleration;
+import us.ihmc.mecano.spatial.Twist;
+import us.ihmc.mecano.spatial.interfaces.SpatialAccelerationReadOnly;
+import us.ihmc.mecano.spatial.interfaces.SpatialVectorReadOnly;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+/**
+ * Computes the geometric Jacobians and convective terms for several end-effectors of the same
+ * multi-body system at once.
+ * <p>
+ * While the {@link GeometricJacobianCalculator} handles a single kinematic chain at a time, this
+ * calculator is meant for whole-body controllers that need the Jacobians of several end-effectors,
+ * e.g. feet, hands, head, and pelvis, which share most of their support joints. The work that only
+ * depends on the multi-body system is done once for all the end-effectors:
+ * <ul>
+ * <li>the unit-twists of each joint involved in at least one task are expressed in the root frame
+ * only once per update.
+ * <li>the Coriolis and centrifugal accelerations of each rigid-body with respect to the root body
+ * are computed once per update in a single forward pass.
+ * </ul>
+ * Then the unit-twists are transformed into each task Jacobian frame using a single transform per
+ * task.
+ * </p>
+ * <p>
+ * The base of every Jacobian is the root body of the system. The Jacobians are stacked in a single
+ * matrix with 6 rows per task, the columns are ordered according to the
+ * {@link MultiBodySystemReadOnly#getJointMatrixIndexProvider()} of the input, such that the columns
+ * corresponding to joints that are not between the root body and an end-effector are always zero.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class WholeBodyJacobianCalculator
+{
+   /** Defines the multi-body system to use with this calculator. */
+   private final MultiBodySystemReadOnly input;
+   /** The root frame in which the unit-twists are computed once for all the tasks. */
+   private final ReferenceFrame rootFrame;
+   /** The root of the internal recursive algorithm. */
+   private final RecursionStep initialRecursionStep;
+   /**
+    * The recursion steps ordered such that each parent comes before its children, allowing the
+    * forward pass to be iterative.
+    */
+   private final RecursionStep[] recursionSteps;
+   /** Map to quickly retrieve information for each rigid-body. */
+   private final Map<RigidBodyReadOnly, RecursionStep> rigidBodyToRecursionStepMap = new LinkedHashMap<>();
+   /** The number of degrees of freedom of the multi-body system. */
+   private final int numberOfDegreesOfFreedom;
+
+   /** The tasks for which the Jacobian is to be computed. */
+   private final List<JacobianTask> tasks = new ArrayList<>();
+
+   /** The Jacobian matrices of all the tasks stacked on top of each other. */
+   private final DenseMatrix64F jacobianMatrix;
+   /** The convective terms of all the tasks stacked on top of each other. */
+   private final DenseMatrix64F convectiveTermMatrix = new DenseMatrix64F(0, 1);
+
+   /** Intermediate variable for garbage free operations. */
+   private final RigidBodyTransform transformFromRootFrame = new RigidBodyTransform();
+   /** Intermediate variable to store a joint unit-twist. */
+   private final Twist jointUnitTwist = new Twist();
+   /**
+    * Intermediate variable store the twist of the predecessor of a joint with respect to the root
+    * body. Used for computing the Coriolis and centrifugal accelerations.
+    */
+   private final Twist bodyTwistRelativeToRoot = new Twist();
+   /**
+    * Intermediate variable store the successor with respect to the predecessor of a joint. Used for
+    * computing the Coriolis and centrifugal accelerations.
+    */
+   private final Twist relativeJointTwist = new Twist();
+
+   /** Whether the Jacobian matrix has been updated since the last call to {@link #reset()}. */
+   private boolean isJacobianUpToDate = false;
+   /** Whether the convective term has been updated since the last call to {@link #reset()}. */
+   private boolean isConvectiveTermUpToDate = false;
+
+   /**
+    * Creates a new calculator for the subtree that starts off the given {@code rootBody}.
+    *
+    * @param rootBody the start of subtree for which the Jacobians are to be computed. Not modified.
+    */
+   public WholeBodyJacobianCalculator(RigidBodyReadOnly rootBody)
+   {
+      this(MultiBodySystemReadOnly.toMultiBodySystemInput(rootBody));
+   }
+
+   /**
+    * Creates a new calculator for the given {@code input}.
+    *
+    * @param input the definition of the system to be evaluated by this calculator.
+    */
+   public WholeBodyJacobianCalculator(MultiBodySystemReadOnly input)
+   {
+      this.input = input;
+
+      RigidBodyReadOnly rootBody = input.getRootBody();
+      rootFrame = rootBody.getBodyFixedFrame().getRootFrame();
+      initialRecursionStep = new RecursionStep(rootBody, null, null);
+      rigidBodyToRecursionStepMap.put(rootBody, initialRecursionStep);
+      List<RecursionStep> recursionStepList = new ArrayList<>();
+      recursionStepList.add(initialRecursionStep);
+      buildMultiBodyTree(initialRecursionStep, input.getJointsToIgnore(), recursionStepList);
+      recursionSteps = recursionStepList.toArray(new RecursionStep[0]);
+
+      numberOfDegreesOfFreedom = MultiBodySystemTools.computeDegreesOfFreedom(input.getJointsToConsider());
+      jacobianMatrix = new DenseMatrix64F(0, numberOfDegreesOfFreedom);
+   }
+
+   private void buildMultiBodyTree(RecursionStep parent, Collection<? extends JointReadOnly> jointsToIgnore, List<RecursionStep> recursionStepList)
+   {
+      for (JointReadOnly childJoint : parent.rigidBody.getChildrenJoints())
+      {
+         if (jointsToIgnore.contains(childJoint))
+            continue;
+
+         RigidBodyReadOnly childBody = childJoint.getSuccessor();
+         if (childBody != null)
+         {
+            int[] jointIndices = input.getJointMatrixIndexProvider().getJointDoFIndices(childJoint);
+            RecursionStep child = new RecursionStep(childBody, parent, jointIndices);
+            rigidBodyToRecursionStepMap.put(childBody, child);
+            recursionStepList.add(child);
+            buildMultiBodyTree(child, jointsToIgnore, recursionStepList);
+         }
+      }
+   }
+
+   /**
+    * Invalidates the internal memory.
+    * <p>
+    * This method should be called whenever the state of the multi-body system has changed.
+    * </p>
+    */
+   public void reset()
+   {
+      isJacobianUpToDate = false;
+      isConvectiveTermUpToDate = false;
+   }
+
+   /**
+    * Removes all the tasks previously registered.
+    */
+   public void clearTasks()
+   {
+      tasks.clear();
+
+      for (RecursionStep recursionStep : recursionSteps)
+         recursionStep.isInvolvedInTask = false;
+
+      jacobianMatrix.reshape(0, numberOfDegreesOfFreedom);
+      convectiveTermMatrix.reshape(0, 1);
+      reset();
+   }
+
+   /**
+    * Registers a new task for which the Jacobian from the root body to the given end-effector is to
+    * be computed.
+    * <p>
+    * The rows associated to the new task start at {@code 6 * getNumberOfTasks()} before this call.
+    * </p>
+    * <p>
+    * <b>WARNING: For computing the convective term, the {@code jacobianFrame} is assumed to be rigidly
+    * attached to the end-effector.</b>
+    * </p>
+    *
+    * @param endEffector   the end-effector of the new task. Not modified.
+    * @param jacobianFrame the frame in which the Jacobian and convective term of the new task are to
+    *                      be expressed.
+    * @return the index of the new task.
+    * @throws IllegalArgumentException if the end-effector is not part of the system considered by
+    *                                  this calculator.
+    */
+   public int addTask(RigidBodyReadOnly endEffector, ReferenceFrame jacobianFrame)
+   {
+      RecursionStep endEffectorStep = rigidBodyToRecursionStepMap.get(endEffector);
+
+      if (endEffectorStep == null)
+         throw new IllegalArgumentException("The end-effector " + endEffector.getName() + " is not part of the system considered by this calculator.");
+
+      JacobianTask task = new JacobianTask(endEffectorStep, jacobianFrame);
+      tasks.add(task);
+
+      jacobianMatrix.reshape(SpatialVectorReadOnly.SIZE * tasks.size(), numberOfDegreesOfFreedom);
+      jacobianMatrix.zero();
+      convectiveTermMatrix.reshape(SpatialVectorReadOnly.SIZE * tasks.size(), 1);
+      reset();
+
+      return tasks.size() - 1;
+   }
+
+   private void updateJacobianMatrix()
+   {
+      if (isJacobianUpToDate)
+         return;
+
+      for (int i = 1; i < recursionSteps.length; i++)
+      {
+         RecursionStep recursionStep = recursionSteps[i];
+         if (recursionStep.isInvolvedInTask)
+            recursionStep.updateUnitTwists();
+      }
+
+      for (int taskIndex = 0; taskIndex < tasks.size(); taskIndex++)
+         tasks.get(taskIndex).updateJacobian(SpatialVectorReadOnly.SIZE * taskIndex);
+
+      isJacobianUpToDate = true;
+   }
+
+   private void updateConvectiveTerm()
+   {
+      if (isConvectiveTermUpToDate)
+         return;
+
+      initialRecursionStep.coriolisAcceleration.setToZero(initialRecursionStep.getBodyFixedFrame(),
+                                                          initialRecursionStep.getBodyFixedFrame(),
+                                                          initialRecursionStep.getBodyFixedFrame());
+
+      for (int i = 1; i < recursionSteps.length; i++)
+      {
+         RecursionStep recursionStep = recursionSteps[i];
+         if (recursionStep.isInvolvedInTask)
+            recursionStep.updateCoriolisAcceleration();
+      }
+
+      for (int taskIndex = 0; taskIndex < tasks.size(); taskIndex++)
+         tasks.get(taskIndex).updateConvectiveTerm(SpatialVectorReadOnly.SIZE * taskIndex);
+
+      isConvectiveTermUpToDate = true;
+   }
+
+   /**
+    * Gets the definition of the multi-body system that was used to create this calculator.
+    *
+    * @return this calculator input.
+    */
+   public MultiBodySystemReadOnly getInput()
+   {
+      return input;
+   }
+
+   /**
+    * Gets the number of tasks currently registered.
+    *
+    * @return the number of tasks.
+    */
+   public int getNumberOfTasks()
+   {
+      return tasks.size();
+   }
+
+   /**
+    * Gets the end-effector of the given task.
+    *
+    * @param taskIndex the index of the task as returned by
+    *                  {@link #addTask(RigidBodyReadOnly, ReferenceFrame)}.
+    * @return the end-effector of the task.
+    */
+   public RigidBodyReadOnly getEndEffector(int taskIndex)
+   {
+      return tasks.get(taskIndex).endEffectorStep.rigidBody;
+   }
+
+   /**
+    * Gets the frame in which the Jacobian and convective term of the given task are expressed.
+    *
+    * @param taskIndex the index of the task as returned by
+    *                  {@link #addTask(RigidBodyReadOnly, ReferenceFrame)}.
+    * @return the Jacobian frame of the task.
+    */
+   public ReferenceFrame getJacobianFrame(int taskIndex)
+   {
+      return tasks.get(taskIndex).jacobianFrame;
+   }
+
+   /**
+    * Gets the Jacobian matrices of all the tasks stacked on top of each other.
+    * <p>
+    * The Jacobian of the task {@code i} is the 6-by-N block starting at the row {@code 6 * i}, where N
+    * is the number of degrees of freedom of the multi-body system.
+    * </p>
+    *
+    * @return the stacked Jacobian matrices.
+    */
+   public DenseMatrix64F getJacobianMatrix()
+   {
+      updateJacobianMatrix();
+      return jacobianMatrix;
+   }
+
+   /**
+    * Packs the 6-by-N Jacobian matrix of the given task, where N is the number of degrees of freedom
+    * of the multi-body system.
+    *
+    * @param taskIndex            the index of the task as returned by
+    *                             {@link #addTask(RigidBodyReadOnly, ReferenceFrame)}.
+    * @param jacobianMatrixToPack the matrix used to store the Jacobian of the task. Modified.
+    */
+   public void getJacobianMatrix(int taskIndex, DenseMatrix64F jacobianMatrixToPack)
+   {
+      int startRow = SpatialVectorReadOnly.SIZE * taskIndex;
+      jacobianMatrixToPack.reshape(SpatialVectorReadOnly.SIZE, numberOfDegreesOfFreedom);
+      CommonOps.extract(getJacobianMatrix(), startRow, startRow + SpatialVectorReadOnly.SIZE, 0, numberOfDegreesOfFreedom, jacobianMatrixToPack, 0, 0);
+   }
+
+   /**
+    * Gets the convective terms of all the tasks stacked on top of each other.
+    * <p>
+    * The convective term of the task {@code i} is the 6-by-1 block starting at the row {@code 6 * i}.
+    * </p>
+    *
+    * @return the stacked convective terms.
+    */
+   public DenseMatrix64F getConvectiveTermMatrix()
+   {
+      updateConvectiveTerm();
+      return convectiveTermMatrix;
+   }
+
+   /**
+    * Gets the convective term of the given task: JDot * qDot.
+    * <p>
+    * It represents the Coriolis acceleration of the end-effector relative to the root body expressed
+    * in the Jacobian frame of the task.
+    * </p>
+    *
+    * @param taskIndex the index of the task as returned by
+    *                  {@link #addTask(RigidBodyReadOnly, ReferenceFrame)}.
+    * @return the convective term of the task.
+    */
+   public SpatialAccelerationReadOnly getConvectiveTerm(int taskIndex)
+   {
+      updateConvectiveTerm();
+      return tasks.get(taskIndex).convectiveTerm;
+   }
+
+   /**
+    * Represents a single Jacobian to be computed, from the root body to an end-effector.
+    *
+    * @author Sylvain Bertrand
+    */
+   private final class JacobianTask
+   {
+      /** The recursion step of the end-effector. */
+      private final RecursionStep endEffectorStep;
+      /** The frame in which the Jacobian and convective term are expressed. */
+      private final ReferenceFrame jacobianFrame;
+      /** The recursion steps from the end-effector to the first joint after the root body. */
+      private final RecursionStep[] path;
+      /** The convective term for this task. */
+      private final SpatialAcceleration convectiveTerm = new SpatialAcceleration();
+
+      public JacobianTask(RecursionStep endEffectorStep, ReferenceFrame jacobianFrame)
+      {
+         this.endEffectorStep = endEffectorStep;
+         this.jacobianFrame = jacobianFrame;
+
+         List<RecursionStep> pathList = new ArrayList<>();
+
+         for (RecursionStep step = endEffectorStep; !step.isRoot(); step = step.parent)
+         {
+            step.isInvolvedInTask = true;
+            pathList.add(step);
+         }
+
+         path = pathList.toArray(new RecursionStep[0]);
+      }
+
+      /**
+       * Transforms the unit-twists of the joints along the path into the Jacobian frame and stores them
+       * in the rows of this task.
+       *
+       * @param startRow the first row of this task in the stacked Jacobian matrix.
+       */
+      public void updateJacobian(int startRow)
+      {
+         rootFrame.getTransformToDesiredFrame(transformFromRootFrame, jacobianFrame);
+
+         for (RecursionStep step : path)
+         {
+            for (int dofIndex = 0; dofIndex < step.getNumberOfDoFs(); dofIndex++)
+            {
+               jointUnitTwist.setIncludingFrame(step.unitTwistsInRootFrame[dofIndex]);
+               jointUnitTwist.applyTransform(transformFromRootFrame);
+               jointUnitTwist.setReferenceFrame(jacobianFrame);
+               jointUnitTwist.get(startRow, step.jointIndices[dofIndex], jacobianMatrix);
+            }
+         }
+      }
+
+      /**
+       * Expresses the Coriolis acceleration of the end-effector in the Jacobian frame and stores it in
+       * the rows of this task.
+       *
+       * @param startRow the first row of this task in the stacked convective term matrix.
+       */
+      public void updateConvectiveTerm(int startRow)
+      {
+         convectiveTerm.setIncludingFrame(endEffectorStep.coriolisAcceleration);
+         // The following line is where the jacobianFrame is assumed to be rigidly attached to the end-effector.
+         convectiveTerm.changeFrame(jacobianFrame);
+         convectiveTerm.get(startRow, convectiveTermMatrix);
+      }
+   }
+
+   /**
+    * Represents a single recursion step with all the intermediate variables needed.
+    *
+    * @author Sylvain Bertrand
+    */
+   private final class RecursionStep
+   {
+      /** The rigid-body for which this recursion is. */
+      private final RigidBodyReadOnly rigidBody;
+      /** The recursion step holding onto the direct predecessor of this recursion step's rigid-body. */
+      private final RecursionStep parent;
+      /** Joint indices for storing the unit-twists of this step's parent joint in the Jacobians. */
+      private final int[] jointIndices;
+      /** The unit-twists of this step's parent joint expressed in {@link #rootFrame}. */
+      private final Twist[] unitTwistsInRootFrame;
+      /**
+       * The Coriolis and centrifugal accelerations of this rigid-body with respect to the root body.
+       */
+      private final SpatialAcceleration coriolisAcceleration = new SpatialAcceleration();
+      /** Whether this rigid-body is between the root body and the end-effector of at least one task. */
+      private boolean isInvolvedInTask = false;
+
+      public RecursionStep(RigidBodyReadOnly rigidBody, RecursionStep parent, int[] jointIndices)
+      {
+         this.rigidBody = rigidBody;
+         this.parent = parent;
+         this.jointIndices = jointIndices;
+
+         if (isRoot())
+         {
+            unitTwistsInRootFrame = null;
+         }
+         else
+         {
+            unitTwistsInRootFrame = new Twist[getNumberOfDoFs()];
+            for (int i = 0; i < getNumberOfDoFs(); i++)
+               unitTwistsInRootFrame[i] = new Twist();
+         }
+      }
+
+      /**
+       * Expresses the unit-twists of this step's parent joint in {@link #rootFrame}.
+       */
+      public void updateUnitTwists()
+      {
+         for (int dofIndex = 0; dofIndex < getNumberOfDoFs(); dofIndex++)
+         {
+            Twist unitTwist = unitTwistsInRootFrame[dofIndex];
+            unitTwist.setIncludingFrame(getJoint().getUnitTwists().get(dofIndex));
+            unitTwist.changeFrame(rootFrame);
+         }
+      }
+
+      /**
+       * Propagates the Coriolis and centrifugal accelerations from the parent to this rigid-body.
+       * <p>
+       * By changing the zero-acceleration from body to body, the Coriolis and centrifugal accelerations
+       * are collected.
+       * </p>
+       */
+      public void updateCoriolisAcceleration()
+      {
+         MovingReferenceFrame bodyFixedFrame = getBodyFixedFrame();
+         MovingReferenceFrame parentBodyFixedFrame = parent.getBodyFixedFrame();
+
+         getJoint().getPredecessorTwist(relativeJointTwist);
+         parentBodyFixedFrame.getTwistRelativeToOther(initialRecursionStep.getBodyFixedFrame(), bodyTwistRelativeToRoot);
+
+         coriolisAcceleration.setIncludingFrame(parent.coriolisAcceleration);
+         coriolisAcceleration.changeFrame(bodyFixedFrame, relativeJointTwist, bodyTwistRelativeToRoot);
+         coriolisAcceleration.setBodyFrame(bodyFixedFrame);
+      }
+
+      public boolean isRoot()
+      {
+         return parent == null;
+      }
+
+      public MovingReferenceFrame getBodyFixedFrame()
+      {
+         return rigidBody.getBodyFixedFrame();
+      }
+
+      public JointReadOnly getJoint()
+      {
+         return rigidBody.getParentJoint();
+      }
+
+      public int getNumberOfDoFs()
+      {
+         return getJoint().getDegreesOfFreedom();
+      }
+   }
+}
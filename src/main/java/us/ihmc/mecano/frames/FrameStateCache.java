@@ -0,0 +1,330 @@
+package us.ihmc.mecano.frames;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.transform.interfaces.RigidBodyTransformReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.spatial.Twist;
+import us.ihmc.mecano.spatial.interfaces.TwistReadOnly;
+
+/**
+ * Explicit cache of the pose and velocity of all the reference frames of a multi-body subtree with
+ * respect to the root frame.
+ * <p>
+ * Once per update, i.e. after the frames of the subtree have been updated, {@link #update()}
+ * computes for each frame its transform to root and its twist with respect to root expressed in the
+ * root frame. The frames are processed in parent-before-child order such that each quantity is
+ * composed from the value just computed for the parent frame.
+ * </p>
+ * <p>
+ * The relative transform or twist between any two frames of the subtree is then computed from the
+ * two cached root quantities, without walking the frame tree. Callers querying the cache in a loop
+ * can retrieve the index of a frame once with {@link #indexOf(ReferenceFrame)} and use the
+ * index-based queries.
+ * </p>
+ * <p>
+ * The cache has to be re-created whenever the structure of the subtree changes.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class FrameStateCache
+{
+   /** The root frame of the subtree, the cached quantities are expressed in this frame. */
+   private final ReferenceFrame rootFrame;
+   /** The frames of the subtree ordered such that parents come before children. */
+   private final MovingReferenceFrame[] frames;
+   /** For each frame, the index of its parent frame or {@code -1} if the parent is not cached. */
+   private final int[] parentIndices;
+   /**
+    * Open-addressing hash table compared by identity, used to retrieve the index of a frame with a
+    * single lookup and without boxing. Its length is a power of two with at least one empty slot.
+    */
+   private final ReferenceFrame[] tableFrames;
+   /** For each slot of {@link #tableFrames}, the index of the frame in {@link #frames}. */
+   private final int[] tableIndices;
+
+   /** The transform of each frame to the root frame. */
+   private final RigidBodyTransform[] transformsToRoot;
+   /** The twist of each frame with respect to the root frame expressed in the root frame. */
+   private final Twist[] twistsInRoot;
+
+   /** Intermediate variable for garbage free operations. */
+   private final RigidBodyTransform transformToParent = new RigidBodyTransform();
+   /** Intermediate variable for garbage free operations. */
+   private final Twist relativeTwist = new Twist();
+
+   /**
+    * Creates a new cache for all the reference frames of the subtree starting off the given
+    * {@code rootBody}, including the body-fixed frame of the root body.
+    *
+    * @param rootBody the root of the subtree. Not modified.
+    */
+   public FrameStateCache(RigidBodyReadOnly rootBody)
+   {
+      rootFrame = rootBody.getBodyFixedFrame().getRootFrame();
+
+      List<MovingReferenceFrame> frameList = new ArrayList<>();
+      Set<ReferenceFrame> addedFrames = Collections.newSetFromMap(new IdentityHashMap<>());
+      addFrame(rootBody.getBodyFixedFrame(), frameList, addedFrames);
+
+      // Breadth-first traversal which guarantees that the parent frames are added first.
+      List<RigidBodyReadOnly> bodiesToVisit = new ArrayList<>();
+      bodiesToVisit.add(rootBody);
+
+      for (int bodyIndex = 0; bodyIndex < bodiesToVisit.size(); bodyIndex++)
+      {
+         List<? extends JointReadOnly> childrenJoints = bodiesToVisit.get(bodyIndex).getChildrenJoints();
+
+         for (int childIndex = 0; childIndex < childrenJoints.size(); childIndex++)
+         {
+            JointReadOnly childJoint = childrenJoints.get(childIndex);
+            addFrame(childJoint.getFrameBeforeJoint(), frameList, addedFrames);
+            addFrame(childJoint.getFrameAfterJoint(), frameList, addedFrames);
+
+            RigidBodyReadOnly successor = childJoint.getSuccessor();
+
+            if (successor != null)
+            {
+               addFrame(successor.getBodyFixedFrame(), frameList, addedFrames);
+               bodiesToVisit.add(successor);
+            }
+         }
+      }
+
+      frames = frameList.toArray(new MovingReferenceFrame[0]);
+      parentIndices = new int[frames.length];
+      transformsToRoot = new RigidBodyTransform[frames.length];
+      twistsInRoot = new Twist[frames.length];
+
+      int tableLength = Integer.highestOneBit(2 * frames.length) << 1;
+      tableFrames = new ReferenceFrame[tableLength];
+      tableIndices = new int[tableLength];
+
+      for (int frameIndex = 0; frameIndex < frames.length; frameIndex++)
+      {
+         int slot = slotOf(frames[frameIndex]);
+         while (tableFrames[slot] != null)
+            slot = (slot + 1) & (tableLength - 1);
+         tableFrames[slot] = frames[frameIndex];
+         tableIndices[slot] = frameIndex;
+      }
+
+      for (int frameIndex = 0; frameIndex < frames.length; frameIndex++)
+      {
+         parentIndices[frameIndex] = indexOf(frames[frameIndex].getParent());
+         transformsToRoot[frameIndex] = new RigidBodyTransform();
+         twistsInRoot[frameIndex] = new Twist(frames[frameIndex], rootFrame, rootFrame);
+      }
+   }
+
+   private static void addFrame(MovingReferenceFrame frame, List<MovingReferenceFrame> frameList, Set<ReferenceFrame> addedFrames)
+   {
+      // The frame before the root joint can be the body-fixed frame of the root body.
+      if (addedFrames.add(frame))
+         frameList.add(frame);
+   }
+
+   /**
+    * Updates the cached transforms and twists.
+    * <p>
+    * This method has to be called every time the frames of the subtree have been updated.
+    * </p>
+    */
+   public void update()
+   {
+      for (int frameIndex = 0; frameIndex < frames.length; frameIndex++)
+      {
+         MovingReferenceFrame frame = frames[frameIndex];
+         RigidBodyTransform transformToRoot = transformsToRoot[frameIndex];
+         Twist twistInRoot = twistsInRoot[frameIndex];
+         int parentIndex = parentIndices[frameIndex];
+
+         if (parentIndex == -1)
+         {
+            transformToRoot.set(frame.getTransformToRoot());
+            twistInRoot.setIncludingFrame(frame.getTwistOfFrame());
+            twistInRoot.applyTransform(transformToRoot);
+            twistInRoot.setBaseFrame(rootFrame);
+            twistInRoot.setReferenceFrame(rootFrame);
+         }
+         else
+         {
+            frame.getTransformToParent(transformToParent);
+            transformToRoot.set(transformsToRoot[parentIndex]);
+            transformToRoot.multiply(transformToParent);
+
+            twistInRoot.setIncludingFrame(twistsInRoot[parentIndex]);
+            twistInRoot.setBodyFrame(frame);
+            TwistReadOnly twistRelativeToParent = frame.getTwistRelativeToParent();
+
+            if (twistRelativeToParent != null)
+            {
+               relativeTwist.setIncludingFrame(twistRelativeToParent);
+               relativeTwist.applyTransform(transformToRoot);
+               twistInRoot.getAngularPart().add(relativeTwist.getAngularPart());
+               twistInRoot.getLinearPart().add(relativeTwist.getLinearPart());
+            }
+         }
+      }
+   }
+
+   /**
+    * Tests whether the given frame is cached.
+    *
+    * @param frame the query. Not modified.
+    * @return {@code true} if the frame belongs to the subtree of this cache, {@code false} otherwise.
+    */
+   public boolean contains(ReferenceFrame frame)
+   {
+      return indexOf(frame) != -1;
+   }
+
+   /**
+    * Gets the index of the given frame in this cache, to be used with the index-based queries.
+    *
+    * @param frame the query. Not modified.
+    * @return the index of the frame, or {@code -1} if the frame is not cached.
+    */
+   public int indexOf(ReferenceFrame frame)
+   {
+      if (frame == null)
+         return -1;
+
+      for (int slot = slotOf(frame);; slot = (slot + 1) & (tableFrames.length - 1))
+      {
+         ReferenceFrame candidate = tableFrames[slot];
+
+         if (candidate == frame)
+            return tableIndices[slot];
+         if (candidate == null)
+            return -1;
+      }
+   }
+
+   private int slotOf(ReferenceFrame frame)
+   {
+      int hash = System.identityHashCode(frame);
+      return (hash ^ (hash >>> 16)) & (tableFrames.length - 1);
+   }
+
+   private int checkedIndexOf(ReferenceFrame frame)
+   {
+      int index = indexOf(frame);
+      if (index == -1)
+         throw new IllegalArgumentException("The frame " + frame.getName() + " is not part of this cache.");
+      return index;
+   }
+
+   /**
+    * Gets the root frame in which the cached quantities are expressed.
+    *
+    * @return the root frame.
+    */
+   public ReferenceFrame getRootFrame()
+   {
+      return rootFrame;
+   }
+
+   /**
+    * Gets the cached transform from the given frame to the root frame.
+    *
+    * @param frame the frame of interest. Not modified.
+    * @return the transform to root.
+    * @throws IllegalArgumentException if the frame is not cached.
+    */
+   public RigidBodyTransformReadOnly getTransformToRoot(ReferenceFrame frame)
+   {
+      return transformsToRoot[checkedIndexOf(frame)];
+   }
+
+   /**
+    * Gets the cached twist of the given frame with respect to the root frame, expressed in the root
+    * frame.
+    *
+    * @param frame the frame of interest. Not modified.
+    * @return the twist with respect to root.
+    * @throws IllegalArgumentException if the frame is not cached.
+    */
+   public TwistReadOnly getTwistInRoot(ReferenceFrame frame)
+   {
+      return twistsInRoot[checkedIndexOf(frame)];
+   }
+
+   /**
+    * Computes the transform from {@code from} to {@code to} using the cached transforms to root.
+    *
+    * @param from            the frame in which the geometry to transform is currently expressed. Not
+    *                        modified.
+    * @param to              the frame in which the geometry is to be expressed. Not modified.
+    * @param transformToPack the transform from {@code from} to {@code to}. Modified.
+    * @throws IllegalArgumentException if any of the two frames is not cached.
+    */
+   public void getTransform(ReferenceFrame from, ReferenceFrame to, RigidBodyTransform transformToPack)
+   {
+      getTransform(checkedIndexOf(from), checkedIndexOf(to), transformToPack);
+   }
+
+   /**
+    * Computes the transform from the frame at {@code fromIndex} to the frame at {@code toIndex} using
+    * the cached transforms to root.
+    *
+    * @param fromIndex       the index, see {@link #indexOf(ReferenceFrame)}, of the frame in which the
+    *                        geometry to transform is currently expressed.
+    * @param toIndex         the index of the frame in which the geometry is to be expressed.
+    * @param transformToPack the transform between the two frames. Modified.
+    */
+   public void getTransform(int fromIndex, int toIndex, RigidBodyTransform transformToPack)
+   {
+      transformToPack.set(transformsToRoot[toIndex]);
+      transformToPack.invert();
+      transformToPack.multiply(transformsToRoot[fromIndex]);
+   }
+
+   /**
+    * Computes the twist of {@code bodyFrame} with respect to {@code baseFrame} using the cached twists.
+    * <p>
+    * The resulting twist is expressed in {@code bodyFrame}.
+    * </p>
+    *
+    * @param bodyFrame   the frame which twist is to be computed. Not modified.
+    * @param baseFrame   the frame with respect to which the twist is to be computed. Not modified.
+    * @param twistToPack the twist of {@code bodyFrame} with respect to {@code baseFrame}. Modified.
+    * @throws IllegalArgumentException if any of the two frames is not cached.
+    */
+   public void getTwistRelativeToOther(ReferenceFrame bodyFrame, ReferenceFrame baseFrame, Twist twistToPack)
+   {
+      getTwistRelativeToOther(checkedIndexOf(bodyFrame), checkedIndexOf(baseFrame), twistToPack);
+   }
+
+   /**
+    * Computes the twist of the frame at {@code bodyIndex} with respect to the frame at
+    * {@code baseIndex} using the cached twists.
+    * <p>
+    * The resulting twist is expressed in the body frame.
+    * </p>
+    *
+    * @param bodyIndex   the index, see {@link #indexOf(ReferenceFrame)}, of the frame which twist is to
+    *                    be computed.
+    * @param baseIndex   the index of the frame with respect to which the twist is to be computed.
+    * @param twistToPack the twist of the body frame with respect to the base frame. Modified.
+    */
+   public void getTwistRelativeToOther(int bodyIndex, int baseIndex, Twist twistToPack)
+   {
+      TwistReadOnly baseTwist = twistsInRoot[baseIndex];
+
+      twistToPack.setIncludingFrame(twistsInRoot[bodyIndex]);
+      twistToPack.getAngularPart().sub(baseTwist.getAngularPart());
+      twistToPack.getLinearPart().sub(baseTwist.getLinearPart());
+      twistToPack.applyInverseTransform(transformsToRoot[bodyIndex]);
+      twistToPack.setBaseFrame(frames[baseIndex]);
+      twistToPack.setReferenceFrame(frames[bodyIndex]);
+   }
+}
@@ -0,0 +1,154 @@
+package us.ihmc.mecano.frames;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+
+/**
+ * Precomputed plan for updating all the reference frames of a multi-body subtree in a single loop.
+ * <p>
+ * The frames of the subtree are collected once at construction in an array ordered such that a
+ * parent frame always comes before its children. Calling {@link #update()} then updates the frames
+ * in that order without any recursion, and eagerly computes for each frame its transform to root
+ * and its twist from the values just computed for its parent. After an update, the pose and twist of
+ * any frame of the subtree are readily available.
+ * </p>
+ * <p>
+ * As for {@link RigidBodyBasics#updateFramesRecursively()}, the frames of a joint are updated only
+ * if {@link JointBasics#isFrameUpdateRequired()}.
+ * </p>
+ * <p>
+ * The plan has to be re-created whenever the structure of the subtree changes.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class FrameUpdatePlan
+{
+   /** The root body of the subtree this plan is for. */
+   private final RigidBodyBasics rootBody;
+   /** The frames of the subtree ordered such that parents come before children. */
+   private final MovingReferenceFrame[] frames;
+   /**
+    * For each frame, the joint which state drives it, or {@code null} if the frame has to be updated
+    * every time.
+    */
+   private final JointBasics[] frameJoints;
+   /** The joints of the subtree ordered such that parents come before children. */
+   private final JointBasics[] joints;
+
+   /**
+    * Creates a new plan for updating all the reference frames of the subtree starting off the given
+    * {@code rootBody}, including the body-fixed frame of the root body.
+    *
+    * @param rootBody the root of the subtree to be updated. Not modified.
+    */
+   public FrameUpdatePlan(RigidBodyBasics rootBody)
+   {
+      this.rootBody = rootBody;
+
+      List<MovingReferenceFrame> frameList = new ArrayList<>();
+      List<JointBasics> frameJointList = new ArrayList<>();
+      List<JointBasics> jointList = new ArrayList<>();
+
+      addFrame(rootBody.getBodyFixedFrame(), null, frameList, frameJointList);
+
+      // Breadth-first traversal which guarantees that the parent frames are added first.
+      List<RigidBodyBasics> bodiesToVisit = new ArrayList<>();
+      bodiesToVisit.add(rootBody);
+
+      for (int bodyIndex = 0; bodyIndex < bodiesToVisit.size(); bodyIndex++)
+      {
+         List<? extends JointBasics> childrenJoints = bodiesToVisit.get(bodyIndex).getChildrenJoints();
+
+         for (int childIndex = 0; childIndex < childrenJoints.size(); childIndex++)
+         {
+            JointBasics childJoint = childrenJoints.get(childIndex);
+            jointList.add(childJoint);
+            addFrame(childJoint.getFrameBeforeJoint(), childJoint, frameList, frameJointList);
+            addFrame(childJoint.getFrameAfterJoint(), childJoint, frameList, frameJointList);
+
+            RigidBodyBasics successor = childJoint.getSuccessor();
+
+            if (successor != null)
+            {
+               addFrame(successor.getBodyFixedFrame(), childJoint, frameList, frameJointList);
+               bodiesToVisit.add(successor);
+            }
+         }
+      }
+
+      frames = frameList.toArray(new MovingReferenceFrame[0]);
+      frameJoints = frameJointList.toArray(new JointBasics[0]);
+      joints = jointList.toArray(new JointBasics[0]);
+   }
+
+   private static void addFrame(MovingReferenceFrame frame, JointBasics joint, List<MovingReferenceFrame> frameList, List<JointBasics> frameJointList)
+   {
+      // The frame before the root joint can be the body-fixed frame of the root body.
+      if (frameList.contains(frame))
+         return;
+
+      frameList.add(frame);
+      frameJointList.add(joint);
+   }
+
+   /**
+    * Updates all the reference frames of the subtree.
+    * <p>
+    * This is equivalent to calling {@link RigidBodyBasics#updateFramesRecursively()} on the root body
+    * in addition to computing eagerly the transform to root and the twist of each frame.
+    * </p>
+    */
+   public void update()
+   {
+      for (int frameIndex = 0; frameIndex < frames.length; frameIndex++)
+      {
+         MovingReferenceFrame frame = frames[frameIndex];
+         JointBasics joint = frameJoints[frameIndex];
+
+         if (joint == null || joint.isFrameUpdateRequired())
+            frame.update();
+
+         // The parent has already been processed, so only this frame is actually computed.
+         frame.getTransformToRoot();
+         frame.getTwistOfFrame();
+      }
+
+      for (int jointIndex = 0; jointIndex < joints.length; jointIndex++)
+         joints[jointIndex].setFrameUpdateRequired(false);
+   }
+
+   /**
+    * Gets the root body of the subtree this plan is for.
+    *
+    * @return the root body.
+    */
+   public RigidBodyBasics getRootBody()
+   {
+      return rootBody;
+   }
+
+   /**
+    * Gets the number of reference frames updated by this plan.
+    *
+    * @return the number of frames.
+    */
+   public int getNumberOfFrames()
+   {
+      return frames.length;
+   }
+
+   /**
+    * Gets the {@code index}<sup>th</sup> reference frame updated by this plan.
+    *
+    * @param index the index of the frame, parents have lower indices than their children.
+    * @return the frame.
+    */
+   public MovingReferenceFrame getFrame(int index)
+   {
+      return frames[index];
+   }
+}
@@ -24,7 +24,9 @@ public abstract class MovingReferenceFrame extends ReferenceFrame
 {
    /**
     * Dirty bit used to mark {@link #twistOfFrame} as out-of-date or up-to-date and allow to save some
-    * computation. The twist is marked as out-of-date upon calling {@link #update()}.
+    * computation. The twist of this frame and of all its descendants is marked as out-of-date upon
+    * calling {@link #update()}, such that this frame can be considered as up-to-date without checking
+    * its ancestors.
     */
    private boolean isTwistOfFrameUpToDate = false;
    /**
@@ -252,7 +254,27 @@ public abstract class MovingReferenceFrame extends ReferenceFrame
          twistRelativeToParent.checkReferenceFrameMatch(this, getParent(), this);
       }
 
+      invalidateTwistOfFrame();
+   }
+
+   /**
+    * Marks the twist of this frame and of all its descendants as out-of-date.
+    * <p>
+    * The recursion stops at the frames which twist is already out-of-date: the twist of a frame can
+    * only be up-to-date when the twist of its parent is, such that the descendants of an out-of-date
+    * frame are already out-of-date. As a result, updating all the frames of a tree costs a single
+    * invalidation per frame.
+    * </p>
+    */
+   private void invalidateTwistOfFrame()
+   {
+      if (!isTwistOfFrameUpToDate)
+         return;
+
       isTwistOfFrameUpToDate = false;
+
+      for (int i = 0; i < childrenMovingFrames.size(); i++)
+         childrenMovingFrames.get(i).invalidateTwistOfFrame();
    }
 
    /**
@@ -275,7 +297,7 @@ public abstract class MovingReferenceFrame extends ReferenceFrame
 
    private void updateTwistOfFrame()
    {
-      if (isTwistOfFrameUpToDateRecursive())
+      if (isTwistOfFrameUpToDate)
          return;
 
       if (parentMovingFrame == null)
@@ -297,14 +319,6 @@ public abstract class MovingReferenceFrame extends ReferenceFrame
       }
 
       isTwistOfFrameUpToDate = true;
-
-      for (int i = 0; i < childrenMovingFrames.size(); i++)
-         childrenMovingFrames.get(i).isTwistOfFrameUpToDate = false;
-   }
-
-   private boolean isTwistOfFrameUpToDateRecursive()
-   {
-      return isTwistOfFrameUpToDate && (parentMovingFrame == null || parentMovingFrame.isTwistOfFrameUpToDateRecursive());
    }
 
    /**
@@ -0,0 +1,189 @@
+package us.ihmc.mecano.frames;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+
+/**
+ * Updates the reference frames of a multi-body subtree by distributing the independent branches
+ * over a {@link ForkJoinPool}.
+ * <p>
+ * The result is equivalent to calling {@link RigidBodyBasics#updateFramesRecursively()} on the root
+ * body. Below a rigid-body with several children joints, the subtrees are independent and are
+ * updated in parallel as long as the subtree of the rigid-body contains at least
+ * {@code parallelThreshold} joints. Smaller subtrees are updated sequentially in the thread
+ * reaching them, such that small systems stay single-threaded.
+ * </p>
+ * <p>
+ * This is safe with respect to the caches of the reference frames: updating a frame only modifies
+ * the frame itself and invalidates the twist of its descendants, which all belong to the same
+ * branch. The twists of the frames are not computed during the update, they are computed lazily in
+ * the thread that needs them once {@link #update()} has returned. The tasks are preallocated and
+ * re-initialized at each update such that this updater is garbage free.
+ * </p>
+ * <p>
+ * The updater has to be re-created whenever the structure of the subtree changes.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class ParallelFrameUpdater
+{
+   /** Default minimum number of joints a subtree has to contain for its branches to be forked. */
+   public static final int DEFAULT_PARALLEL_THRESHOLD = 32;
+
+   /** The pool in which the independent subtrees are updated. */
+   private final ForkJoinPool forkJoinPool;
+   /** The task updating the root body and its descendants. */
+   private final SubtreeUpdateTask rootTask;
+
+   /**
+    * Creates a new updater for the subtree starting off the given {@code rootBody} that uses the
+    * common {@code ForkJoinPool} and the default threshold {@value #DEFAULT_PARALLEL_THRESHOLD}.
+    *
+    * @param rootBody the root of the subtree to be updated. Not modified.
+    */
+   public ParallelFrameUpdater(RigidBodyBasics rootBody)
+   {
+      this(rootBody, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+   }
+
+   /**
+    * Creates a new updater for the subtree starting off the given {@code rootBody}.
+    *
+    * @param rootBody          the root of the subtree to be updated. Not modified.
+    * @param forkJoinPool      the pool in which the independent subtrees are to be updated.
+    * @param parallelThreshold the minimum number of joints a subtree has to contain for its branches
+    *                          to be updated in parallel.
+    * @throws IllegalArgumentException if {@code parallelThreshold} is less than 1.
+    */
+   public ParallelFrameUpdater(RigidBodyBasics rootBody, ForkJoinPool forkJoinPool, int parallelThreshold)
+   {
+      if (parallelThreshold < 1)
+         throw new IllegalArgumentException("The parallel threshold has to be at least 1, was: " + parallelThreshold);
+
+      this.forkJoinPool = forkJoinPool;
+      rootTask = new SubtreeUpdateTask(rootBody, null, parallelThreshold);
+   }
+
+   /**
+    * Updates all the reference frames of the subtree.
+    * <p>
+    * This method blocks until all the frames have been updated.
+    * </p>
+    */
+   public void update()
+   {
+      rootTask.reinitialize();
+      forkJoinPool.invoke(rootTask);
+   }
+
+   /**
+    * Task updating the frames of a rigid-body, its parent joint, and all its descendants.
+    *
+    * @author Sylvain Bertrand
+    */
+   @SuppressWarnings("serial")
+   private static final class SubtreeUpdateTask extends RecursiveAction
+   {
+      /** The rigid-body this task is for. */
+      private final RigidBodyBasics rigidBody;
+      /** The parent joint of the rigid-body, {@code null} for the root of the subtree. */
+      private final JointBasics parentJoint;
+      /** The tasks for the children of the rigid-body. */
+      private final SubtreeUpdateTask[] children;
+      /** The number of joints in the subtree of this task, including the parent joint. */
+      private final int subtreeSize;
+      /** Whether the children of this task are to be updated in parallel. */
+      private final boolean forkChildren;
+      /** Whether this subtree is small enough to be updated sequentially. */
+      private final boolean isSequential;
+
+      public SubtreeUpdateTask(RigidBodyBasics rigidBody, JointBasics parentJoint, int parallelThreshold)
+      {
+         this.rigidBody = rigidBody;
+         this.parentJoint = parentJoint;
+
+         List<? extends JointBasics> childrenJoints = rigidBody.getChildrenJoints();
+         int numberOfChildren = 0;
+
+         for (int childIndex = 0; childIndex < childrenJoints.size(); childIndex++)
+         {
+            if (childrenJoints.get(childIndex).getSuccessor() != null)
+               numberOfChildren++;
+         }
+
+         children = new SubtreeUpdateTask[numberOfChildren];
+         int size = parentJoint == null ? 0 : 1;
+         int index = 0;
+
+         for (int childIndex = 0; childIndex < childrenJoints.size(); childIndex++)
+         {
+            JointBasics childJoint = childrenJoints.get(childIndex);
+
+            if (childJoint.getSuccessor() == null)
+            {
+               size++;
+               continue;
+            }
+
+            SubtreeUpdateTask child = new SubtreeUpdateTask(childJoint.getSuccessor(), childJoint, parallelThreshold);
+            children[index++] = child;
+            size += child.subtreeSize;
+         }
+
+         subtreeSize = size;
+         forkChildren = subtreeSize >= parallelThreshold && children.length > 1;
+         isSequential = subtreeSize < parallelThreshold;
+      }
+
+      @Override
+      protected void compute()
+      {
+         if (isSequential)
+         {
+            if (parentJoint == null)
+               rigidBody.updateFramesRecursively();
+            else
+               parentJoint.updateFramesRecursively();
+            return;
+         }
+
+         if (parentJoint == null)
+         {
+            rigidBody.getBodyFixedFrame().update();
+         }
+         else if (parentJoint.isFrameUpdateRequired())
+         {
+            parentJoint.getFrameBeforeJoint().update();
+            parentJoint.getFrameAfterJoint().update();
+            parentJoint.setFrameUpdateRequired(false);
+            rigidBody.getBodyFixedFrame().update();
+         }
+
+         List<? extends JointBasics> childrenJoints = rigidBody.getChildrenJoints();
+
+         for (int childIndex = 0; childIndex < childrenJoints.size(); childIndex++)
+         { // Joints without successor only have their own frames to update.
+            JointBasics childJoint = childrenJoints.get(childIndex);
+            if (childJoint.getSuccessor() == null)
+               childJoint.updateFramesRecursively();
+         }
+
+         if (forkChildren)
+         {
+            for (SubtreeUpdateTask child : children)
+               child.reinitialize();
+            invokeAll(children);
+         }
+         else
+         {
+            for (SubtreeUpdateTask child : children)
+               child.compute();
+         }
+      }
+   }
+}
@@ -53,6 +53,11 @@ public class FixedJoint implements FixedJointBasics
    private final SpatialAccelerationReadOnly jointAcceleration;
    /** The wrench of this joint, it is always set to zero. */
    private WrenchReadOnly jointWrench;
+   /**
+    * Whether the reference frame of this joint has to be updated. As the joint frame is fixed, it only
+    * has to be updated once.
+    */
+   private boolean isFrameUpdateRequired = true;
 
    /**
     * Creates a new fixed joint.
@@ -146,6 +151,20 @@ public class FixedJoint implements FixedJointBasics
       jointWrench = new Wrench(successorFrame, jointFrame);
    }
 
+   /** {@inheritDoc} */
+   @Override
+   public boolean isFrameUpdateRequired()
+   {
+      return isFrameUpdateRequired;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void setFrameUpdateRequired(boolean frameUpdateRequired)
+   {
+      isFrameUpdateRequired = frameUpdateRequired;
+   }
+
    /** {@inheritDoc} */
    @Override
    public TwistReadOnly getJointTwist()
@@ -87,6 +87,11 @@ public abstract class OneDoFJoint extends Joint implements OneDoFJointBasics
    private double qdd;
    /** This joint current force/torque. */
    private double tau;
+   /**
+    * Whether {@link #q} or {@link #qd} has changed since the last update of this joint's reference
+    * frames.
+    */
+   private boolean isFrameUpdateRequired = true;
 
    /**
     * The minimum value {@link #q} can have:
@@ -229,6 +234,7 @@ public abstract class OneDoFJoint extends Joint implements OneDoFJointBasics
    public void setQ(double q)
    {
       this.q = q;
+      isFrameUpdateRequired = true;
    }
 
    /** {@inheritDoc} */
@@ -236,6 +242,21 @@ public abstract class OneDoFJoint extends Joint implements OneDoFJointBasics
    public void setQd(double qd)
    {
       this.qd = qd;
+      isFrameUpdateRequired = true;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public boolean isFrameUpdateRequired()
+   {
+      return isFrameUpdateRequired;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void setFrameUpdateRequired(boolean frameUpdateRequired)
+   {
+      isFrameUpdateRequired = frameUpdateRequired;
    }
 
    /** {@inheritDoc} */
@@ -0,0 +1,937 @@
+package us.ihmc.mecano.multiBodySystem.compiled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ejml.data.DenseMatrix64F;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
+import us.ihmc.mecano.frames.MovingReferenceFrame;
+import us.ihmc.mecano.multiBodySystem.interfaces.FixedJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointMatrixIndexProvider;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.PlanarJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.PrismaticJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RevoluteJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.SixDoFJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.SphericalJointReadOnly;
+import us.ihmc.mecano.spatial.SpatialInertia;
+import us.ihmc.mecano.spatial.interfaces.SpatialVectorReadOnly;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+/**
+ * Immutable and flattened representation of a multi-body system.
+ * <p>
+ * For performance, the arrays returned by the getters such as {@link #getMotionSubspaces()} are the
+ * internal storage of this class and are not copied. They are read-only views that should never be
+ * modified, which is what allows a compiled system to be shared between threads.
+ * </p>
+ * <p>
+ * A {@code CompiledMultiBodySystem} is created once from a {@link MultiBodySystemReadOnly} and
+ * stores all the information that does not depend on the system state in contiguous arrays:
+ * <ul>
+ * <li>the joints are indexed in depth-first order such that the parent of a joint always has a
+ * lower index. The parent of each joint is given by {@link #getParentIndex(int)}, {@code -1}
+ * indicating that the joint is attached to the root body.
+ * <li>the offset of each joint, i.e. the transform from its {@code frameBeforeJoint} to the
+ * {@code frameAfterJoint} of its parent joint, is stored as a 3-by-3 rotation matrix in row-major
+ * order followed by the translation, see {@link #TRANSFORM_SIZE}.
+ * <li>the inertia of each body, expressed in its parent joint {@code frameAfterJoint}, is stored in
+ * structure-of-arrays: mass, center of mass offset, and moment of inertia around the frame origin.
+ * <li>the motion subspace of each joint, expressed in its {@code frameAfterJoint}, is stored one
+ * column after the other such that the column associated to the DoF of index {@code k} in the
+ * joint velocity vector starts at the index {@code 6 * k}.
+ * <li>the index of the first DoF and first configuration entry of each joint in the matrices as
+ * defined by the {@link JointMatrixIndexProvider} of the input.
+ * <li>the position, velocity, and effort limits of the 1-DoF joints, see
+ * {@link #getJointLimitLower(int)}.
+ * </ul>
+ * </p>
+ * <p>
+ * With this representation, recursive algorithms can be implemented as a forward and a backward
+ * loop over the joint indices. In addition, this class provides the joint kinematics, i.e. the
+ * transform of a joint computed from its configuration, such that the algorithms do not depend on
+ * the state of the original joints nor on their reference frames. The compiled system can then be
+ * shared between threads, each thread using its own workspace.
+ * </p>
+ * <p>
+ * The spatial vectors handled in conjunction with this class are stored as 6 consecutive doubles:
+ * first the angular part and then the linear part, similar to the other spatial vectors in mecano.
+ * </p>
+ * <p>
+ * Important note: the root body of the system is assumed to be stationary. The inertia of the
+ * ignored subtrees, when considered, is evaluated at the time the system is compiled.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class CompiledMultiBodySystem
+{
+   /** Number of elements used to store a transform: 9 for the rotation and 3 for the translation. */
+   public static final int TRANSFORM_SIZE = 12;
+   /** Number of elements used to store a spatial vector. */
+   public static final int SPATIAL_VECTOR_SIZE = SpatialVectorReadOnly.SIZE;
+
+   /** The supported joint types. */
+   public enum JointType
+   {
+      FIXED, REVOLUTE, PRISMATIC, SPHERICAL, PLANAR, SIX_DOF
+   }
+
+   /** The input used to create this compiled system. */
+   private final MultiBodySystemReadOnly input;
+   /** The joints in depth-first order. */
+   private final JointReadOnly[] joints;
+   /** Map to quickly retrieve the index of a joint. Only used outside of the algorithms. */
+   private final Map<JointReadOnly, Integer> jointIndexMap;
+
+   private final int numberOfJoints;
+   private final int numberOfDoFs;
+   private final int configurationSize;
+
+   /** For each joint, the index of its parent joint, or {@code -1} if attached to the root body. */
+   private final int[] parentIndices;
+   /** For each joint, the index after the last joint of its subtree. */
+   private final int[] subtreeEndIndices;
+   private final JointType[] jointTypes;
+   private final int[] jointDoFs;
+   private final int[] dofOffsets;
+   private final int[] configurationOffsets;
+
+   /** The joint axes for the 1-DoF joints, 3 elements per joint. */
+   private final double[] jointAxes;
+   /** The transforms from {@code frameBeforeJoint} to the parent frame, 12 elements per joint. */
+   private final double[] jointOffsets;
+   /** The columns of the motion subspaces, 6 elements per DoF. */
+   private final double[] motionSubspaces;
+
+   /** For each joint, the lower position limit, {@code -Infinity} if not a 1-DoF joint. */
+   private final double[] jointLimitLower;
+   /** For each joint, the upper position limit, {@code +Infinity} if not a 1-DoF joint. */
+   private final double[] jointLimitUpper;
+   /** For each joint, the lower velocity limit, {@code -Infinity} if not a 1-DoF joint. */
+   private final double[] velocityLimitLower;
+   /** For each joint, the upper velocity limit, {@code +Infinity} if not a 1-DoF joint. */
+   private final double[] velocityLimitUpper;
+   /** For each joint, the lower effort limit, {@code -Infinity} if not a 1-DoF joint. */
+   private final double[] effortLimitLower;
+   /** For each joint, the upper effort limit, {@code +Infinity} if not a 1-DoF joint. */
+   private final double[] effortLimitUpper;
+
+   private final double[] mass;
+   private final double[] centerOfMassX, centerOfMassY, centerOfMassZ;
+   private final double[] inertiaXX, inertiaYY, inertiaZZ, inertiaXY, inertiaXZ, inertiaYZ;
+
+   /**
+    * Compiles the multi-body system defined by the given {@code input}.
+    * <p>
+    * The inertia of the ignored subtrees is considered.
+    * </p>
+    *
+    * @param input the definition of the system to compile. Not modified.
+    * @return the compiled system.
+    * @throws UnsupportedOperationException if the system contains a joint type that is not supported.
+    */
+   public static CompiledMultiBodySystem compile(MultiBodySystemReadOnly input)
+   {
+      return compile(input, true);
+   }
+
+   /**
+    * Compiles the multi-body system defined by the given {@code input}.
+    *
+    * @param input                          the definition of the system to compile. Not modified.
+    * @param considerIgnoredSubtreesInertia whether the inertia of the ignored part(s) of the given
+    *                                       multi-body system should be added to the inertia of their
+    *                                       supporting body. The frames of the system should be up to
+    *                                       date when {@code true}.
+    * @return the compiled system.
+    * @throws UnsupportedOperationException if the system contains a joint type that is not supported.
+    */
+   public static CompiledMultiBodySystem compile(MultiBodySystemReadOnly input, boolean considerIgnoredSubtreesInertia)
+   {
+      return new CompiledMultiBodySystem(input, considerIgnoredSubtreesInertia);
+   }
+
+   /**
+    * Compiles the subtree that starts off the given {@code rootBody}.
+    *
+    * @param rootBody the support body of the subtree to compile. Not modified.
+    * @return the compiled system.
+    * @throws UnsupportedOperationException if the system contains a joint type that is not supported.
+    */
+   public static CompiledMultiBodySystem compile(RigidBodyReadOnly rootBody)
+   {
+      return compile(MultiBodySystemReadOnly.toMultiBodySystemInput(rootBody));
+   }
+
+   private CompiledMultiBodySystem(MultiBodySystemReadOnly input, boolean considerIgnoredSubtreesInertia)
+   {
+      this.input = input;
+
+      List<JointReadOnly> jointList = new ArrayList<>();
+      collectJointsDepthFirst(input.getRootBody(), input.getJointsToIgnore(), jointList);
+
+      numberOfJoints = jointList.size();
+      joints = jointList.toArray(new JointReadOnly[numberOfJoints]);
+      jointIndexMap = new HashMap<>(2 * numberOfJoints);
+      for (int jointIndex = 0; jointIndex < numberOfJoints; jointIndex++)
+         jointIndexMap.put(joints[jointIndex], jointIndex);
+
+      parentIndices = new int[numberOfJoints];
+      subtreeEndIndices = new int[numberOfJoints];
+      jointTypes = new JointType[numberOfJoints];
+      jointDoFs = new int[numberOfJoints];
+      dofOffsets = new int[numberOfJoints];
+      configurationOffsets = new int[numberOfJoints];
+      jointAxes = new double[3 * numberOfJoints];
+      jointOffsets = new double[TRANSFORM_SIZE * numberOfJoints];
+      jointLimitLower = new double[numberOfJoints];
+      jointLimitUpper = new double[numberOfJoints];
+      velocityLimitLower = new double[numberOfJoints];
+      velocityLimitUpper = new double[numberOfJoints];
+      effortLimitLower = new double[numberOfJoints];
+      effortLimitUpper = new double[numberOfJoints];
+      Arrays.fill(jointLimitLower, Double.NEGATIVE_INFINITY);
+      Arrays.fill(jointLimitUpper, Double.POSITIVE_INFINITY);
+      Arrays.fill(velocityLimitLower, Double.NEGATIVE_INFINITY);
+      Arrays.fill(velocityLimitUpper, Double.POSITIVE_INFINITY);
+      Arrays.fill(effortLimitLower, Double.NEGATIVE_INFINITY);
+      Arrays.fill(effortLimitUpper, Double.POSITIVE_INFINITY);
+
+      mass = new double[numberOfJoints];
+      centerOfMassX = new double[numberOfJoints];
+      centerOfMassY = new double[numberOfJoints];
+      centerOfMassZ = new double[numberOfJoints];
+      inertiaXX = new double[numberOfJoints];
+      inertiaYY = new double[numberOfJoints];
+      inertiaZZ = new double[numberOfJoints];
+      inertiaXY = new double[numberOfJoints];
+      inertiaXZ = new double[numberOfJoints];
+      inertiaYZ = new double[numberOfJoints];
+
+      JointMatrixIndexProvider indexProvider = input.getJointMatrixIndexProvider();
+      int dofCount = 0;
+      int configurationCount = 0;
+      RigidBodyTransform transform = new RigidBodyTransform();
+      DenseMatrix64F motionSubspace = new DenseMatrix64F(SPATIAL_VECTOR_SIZE, JointReadOnly.MAX_NUMBER_OF_DOFS);
+
+      for (int jointIndex = 0; jointIndex < numberOfJoints; jointIndex++)
+      {
+         JointReadOnly joint = joints[jointIndex];
+         RigidBodyReadOnly predecessor = joint.getPredecessor();
+
+         parentIndices[jointIndex] = predecessor.isRootBody() ? -1 : jointIndexMap.get(predecessor.getParentJoint());
+         jointTypes[jointIndex] = toJointType(joint);
+         jointDoFs[jointIndex] = joint.getDegreesOfFreedom();
+         dofCount += joint.getDegreesOfFreedom();
+         configurationCount += joint.getConfigurationMatrixSize();
+
+         if (joint.getDegreesOfFreedom() > 0)
+            dofOffsets[jointIndex] = indexProvider.getJointDoFIndices(joint)[0];
+         if (joint.getConfigurationMatrixSize() > 0)
+            configurationOffsets[jointIndex] = indexProvider.getJointConfigurationIndices(joint)[0];
+
+         if (jointTypes[jointIndex] == JointType.REVOLUTE || jointTypes[jointIndex] == JointType.PRISMATIC)
+         {
+            Vector3DReadOnly jointAxis = jointTypes[jointIndex] == JointType.REVOLUTE ? ((RevoluteJointReadOnly) joint).getJointAxis()
+                  : ((PrismaticJointReadOnly) joint).getJointAxis();
+            jointAxes[3 * jointIndex + 0] = jointAxis.getX();
+            jointAxes[3 * jointIndex + 1] = jointAxis.getY();
+            jointAxes[3 * jointIndex + 2] = jointAxis.getZ();
+         }
+
+         if (joint instanceof OneDoFJointReadOnly)
+         {
+            OneDoFJointReadOnly oneDoFJoint = (OneDoFJointReadOnly) joint;
+            jointLimitLower[jointIndex] = oneDoFJoint.getJointLimitLower();
+            jointLimitUpper[jointIndex] = oneDoFJoint.getJointLimitUpper();
+            velocityLimitLower[jointIndex] = oneDoFJoint.getVelocityLimitLower();
+            velocityLimitUpper[jointIndex] = oneDoFJoint.getVelocityLimitUpper();
+            effortLimitLower[jointIndex] = oneDoFJoint.getEffortLimitLower();
+            effortLimitUpper[jointIndex] = oneDoFJoint.getEffortLimitUpper();
+         }
+
+         // The joint offset.
+         MovingReferenceFrame frameBeforeJoint = joint.getFrameBeforeJoint();
+         ReferenceFrame parentFrame = predecessor.isRootBody() ? predecessor.getBodyFixedFrame() : predecessor.getParentJoint().getFrameAfterJoint();
+
+         if (frameBeforeJoint == parentFrame)
+            transform.setIdentity();
+         else if (frameBeforeJoint.getParent() == parentFrame)
+            transform.set(frameBeforeJoint.getTransformToParent());
+         else
+            frameBeforeJoint.getTransformToDesiredFrame(transform, parentFrame);
+         packTransform(transform, jointOffsets, TRANSFORM_SIZE * jointIndex);
+
+         // The body inertia.
+         RigidBodyReadOnly successor = joint.getSuccessor();
+         SpatialInertia bodyInertia = new SpatialInertia(successor.getInertia());
+         MovingReferenceFrame bodyFixedFrame = successor.getBodyFixedFrame();
+
+         if (bodyFixedFrame != joint.getFrameAfterJoint())
+         {
+            if (bodyFixedFrame.getParent() == joint.getFrameAfterJoint())
+               transform.set(bodyFixedFrame.getTransformToParent());
+            else
+               bodyFixedFrame.getTransformToDesiredFrame(transform, joint.getFrameAfterJoint());
+            bodyInertia.applyTransform(transform);
+         }
+         addInertia(bodyInertia, jointIndex);
+
+         if (considerIgnoredSubtreesInertia)
+         {
+            Collection<? extends JointReadOnly> jointsToIgnore = input.getJointsToIgnore();
+
+            for (JointReadOnly childJoint : successor.getChildrenJoints())
+            {
+               if (jointsToIgnore.contains(childJoint))
+               {
+                  SpatialInertia subtreeInertia = MultiBodySystemTools.computeSubtreeInertia(childJoint);
+                  subtreeInertia.getReferenceFrame().getTransformToDesiredFrame(transform, joint.getFrameAfterJoint());
+                  subtreeInertia.applyTransform(transform);
+                  addInertia(subtreeInertia, jointIndex);
+               }
+            }
+         }
+      }
+
+      numberOfDoFs = dofCount;
+      configurationSize = configurationCount;
+
+      motionSubspaces = new double[SPATIAL_VECTOR_SIZE * numberOfDoFs];
+
+      for (int jointIndex = 0; jointIndex < numberOfJoints; jointIndex++)
+      {
+         joints[jointIndex].getMotionSubspace(motionSubspace);
+
+         for (int dof = 0; dof < jointDoFs[jointIndex]; dof++)
+         {
+            int start = SPATIAL_VECTOR_SIZE * (dofOffsets[jointIndex] + dof);
+
+            for (int row = 0; row < SPATIAL_VECTOR_SIZE; row++)
+               motionSubspaces[start + row] = motionSubspace.get(row, dof);
+         }
+      }
+
+      for (int jointIndex = numberOfJoints - 1; jointIndex >= 0; jointIndex--)
+      {
+         int subtreeEnd = jointIndex + 1;
+         while (subtreeEnd < numberOfJoints && isAncestor(jointIndex, subtreeEnd))
+            subtreeEnd = subtreeEndIndices[subtreeEnd];
+         subtreeEndIndices[jointIndex] = subtreeEnd;
+      }
+   }
+
+   private static void collectJointsDepthFirst(RigidBodyReadOnly body, Collection<? extends JointReadOnly> jointsToIgnore, List<JointReadOnly> jointsToPack)
+   {
+      for (JointReadOnly childJoint : body.getChildrenJoints())
+      {
+         if (jointsToIgnore.contains(childJoint) || childJoint.getSuccessor() == null)
+            continue;
+
+         jointsToPack.add(childJoint);
+         collectJointsDepthFirst(childJoint.getSuccessor(), jointsToIgnore, jointsToPack);
+      }
+   }
+
+   private static JointType toJointType(JointReadOnly joint)
+   {
+      if (joint instanceof RevoluteJointReadOnly)
+         return JointType.REVOLUTE;
+      if (joint instanceof PrismaticJointReadOnly)
+         return JointType.PRISMATIC;
+      if (joint instanceof SixDoFJointReadOnly)
+         return JointType.SIX_DOF;
+      if (joint instanceof SphericalJointReadOnly)
+         return JointType.SPHERICAL;
+      if (joint instanceof PlanarJointReadOnly)
+         return JointType.PLANAR;
+      if (joint instanceof FixedJointReadOnly)
+         return JointType.FIXED;
+      throw new UnsupportedOperationException("Unsupported joint type: " + joint.getClass().getSimpleName());
+   }
+
+   private void addInertia(SpatialInertia inertia, int jointIndex)
+   {
+      mass[jointIndex] += inertia.getMass();
+      double newMass = mass[jointIndex];
+      double previousMass = newMass - inertia.getMass();
+      double invNewMass = newMass > 0.0 ? 1.0 / newMass : 0.0;
+      centerOfMassX[jointIndex] = (previousMass * centerOfMassX[jointIndex] + inertia.getMass() * inertia.getCenterOfMassOffset().getX()) * invNewMass;
+      centerOfMassY[jointIndex] = (previousMass * centerOfMassY[jointIndex] + inertia.getMass() * inertia.getCenterOfMassOffset().getY()) * invNewMass;
+      centerOfMassZ[jointIndex] = (previousMass * centerOfMassZ[jointIndex] + inertia.getMass() * inertia.getCenterOfMassOffset().getZ()) * invNewMass;
+      inertiaXX[jointIndex] += inertia.getMomentOfInertia().getM00();
+      inertiaYY[jointIndex] += inertia.getMomentOfInertia().getM11();
+      inertiaZZ[jointIndex] += inertia.getMomentOfInertia().getM22();
+      inertiaXY[jointIndex] += inertia.getMomentOfInertia().getM01();
+      inertiaXZ[jointIndex] += inertia.getMomentOfInertia().getM02();
+      inertiaYZ[jointIndex] += inertia.getMomentOfInertia().getM12();
+   }
+
+   /**
+    * Packs the given transform into the given array starting at {@code offset}.
+    *
+    * @param transform   the transform to pack. Not modified.
+    * @param arrayToPack the array in which the transform is stored. Modified.
+    * @param offset      the index of the first element to write.
+    */
+   public static void packTransform(RigidBodyTransform transform, double[] arrayToPack, int offset)
+   {
+      arrayToPack[offset + 0] = transform.getM00();
+      arrayToPack[offset + 1] = transform.getM01();
+      arrayToPack[offset + 2] = transform.getM02();
+      arrayToPack[offset + 3] = transform.getM10();
+      arrayToPack[offset + 4] = transform.getM11();
+      arrayToPack[offset + 5] = transform.getM12();
+      arrayToPack[offset + 6] = transform.getM20();
+      arrayToPack[offset + 7] = transform.getM21();
+      arrayToPack[offset + 8] = transform.getM22();
+      arrayToPack[offset + 9] = transform.getM03();
+      arrayToPack[offset + 10] = transform.getM13();
+      arrayToPack[offset + 11] = transform.getM23();
+   }
+
+   /**
+    * Computes the transform from the {@code frameAfterJoint} of the joint to the {@code frameAfterJoint}
+    * of its parent joint, or to the root body-fixed frame if the joint is attached to the root body.
+    * <p>
+    * The transform is computed from the given configuration vector and the joint offset.
+    * </p>
+    *
+    * @param jointIndex               the index of the joint.
+    * @param configuration            the array containing the configuration of all the joints
+    *                                 ordered as defined by the {@link JointMatrixIndexProvider}. Not
+    *                                 modified.
+    * @param configurationStart       the index in {@code configuration} of the first element of the
+    *                                 configuration vector.
+    * @param transformToPack          the array used to store the transform. Modified.
+    * @param transformToPackOffset    the index of the first element to write.
+    */
+   public void computeTransformToParent(int jointIndex, double[] configuration, int configurationStart, double[] transformToPack, int transformToPackOffset)
+   {
+      int q = configurationStart + configurationOffsets[jointIndex];
+      int t = transformToPackOffset;
+      // Joint transform: rotation (r00 ... r22) and translation (px, py, pz)
+      double r00 = 1.0, r01 = 0.0, r02 = 0.0;
+      double r10 = 0.0, r11 = 1.0, r12 = 0.0;
+      double r20 = 0.0, r21 = 0.0, r22 = 1.0;
+      double px = 0.0, py = 0.0, pz = 0.0;
+
+      switch (jointTypes[jointIndex])
+      {
+         case REVOLUTE:
+         {
+            double ux = jointAxes[3 * jointIndex + 0];
+            double uy = jointAxes[3 * jointIndex + 1];
+            double uz = jointAxes[3 * jointIndex + 2];
+            double norm = Math.sqrt(ux * ux + uy * uy + uz * uz);
+            ux /= norm;
+            uy /= norm;
+            uz /= norm;
+            double angle = configuration[q];
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double t1 = 1.0 - cos;
+            r00 = t1 * ux * ux + cos;
+            r01 = t1 * ux * uy - sin * uz;
+            r02 = t1 * ux * uz + sin * uy;
+            r10 = t1 * ux * uy + sin * uz;
+            r11 = t1 * uy * uy + cos;
+            r12 = t1 * uy * uz - sin * ux;
+            r20 = t1 * ux * uz - sin * uy;
+            r21 = t1 * uy * uz + sin * ux;
+            r22 = t1 * uz * uz + cos;
+            break;
+         }
+         case PRISMATIC:
+         {
+            double d = configuration[q];
+            px = d * jointAxes[3 * jointIndex + 0];
+            py = d * jointAxes[3 * jointIndex + 1];
+            pz = d * jointAxes[3 * jointIndex + 2];
+            break;
+         }
+         case SPHERICAL:
+         case SIX_DOF:
+         {
+            double qx = configuration[q + 0];
+            double qy = configuration[q + 1];
+            double qz = configuration[q + 2];
+            double qs = configuration[q + 3];
+            double normSquared = qx * qx + qy * qy + qz * qz + qs * qs;
+
+            if (normSquared > 0.0)
+            {
+               double yy2 = 2.0 * qy * qy / normSquared;
+               double zz2 = 2.0 * qz * qz / normSquared;
+               double xx2 = 2.0 * qx * qx / normSquared;
+               double xy2 = 2.0 * qx * qy / normSquared;
+               double xz2 = 2.0 * qx * qz / normSquared;
+               double xs2 = 2.0 * qx * qs / normSquared;
+               double yz2 = 2.0 * qy * qz / normSquared;
+               double ys2 = 2.0 * qy * qs / normSquared;
+               double zs2 = 2.0 * qz * qs / normSquared;
+               r00 = 1.0 - yy2 - zz2;
+               r01 = xy2 - zs2;
+               r02 = xz2 + ys2;
+               r10 = xy2 + zs2;
+               r11 = 1.0 - xx2 - zz2;
+               r12 = yz2 - xs2;
+               r20 = xz2 - ys2;
+               r21 = yz2 + xs2;
+               r22 = 1.0 - xx2 - yy2;
+            }
+
+            if (jointTypes[jointIndex] == JointType.SIX_DOF)
+            {
+               px = configuration[q + 4];
+               py = configuration[q + 5];
+               pz = configuration[q + 6];
+            }
+            break;
+         }
+         case PLANAR:
+         {
+            double cos = Math.cos(configuration[q]);
+            double sin = Math.sin(configuration[q]);
+            r00 = cos;
+            r02 = sin;
+            r20 = -sin;
+            r22 = cos;
+            px = configuration[q + 1];
+            pz = configuration[q + 2];
+            break;
+         }
+         case FIXED:
+            break;
+         default:
+            throw new IllegalStateException("Unexpected joint type: " + jointTypes[jointIndex]);
+      }
+
+      // Composing with the joint offset: T = T_offset * T_joint
+      int o = TRANSFORM_SIZE * jointIndex;
+      double[] offset = jointOffsets;
+      transformToPack[t + 0] = offset[o + 0] * r00 + offset[o + 1] * r10 + offset[o + 2] * r20;
+      transformToPack[t + 1] = offset[o + 0] * r01 + offset[o + 1] * r11 + offset[o + 2] * r21;
+      transformToPack[t + 2] = offset[o + 0] * r02 + offset[o + 1] * r12 + offset[o + 2] * r22;
+      transformToPack[t + 3] = offset[o + 3] * r00 + offset[o + 4] * r10 + offset[o + 5] * r20;
+      transformToPack[t + 4] = offset[o + 3] * r01 + offset[o + 4] * r11 + offset[o + 5] * r21;
+      transformToPack[t + 5] = offset[o + 3] * r02 + offset[o + 4] * r12 + offset[o + 5] * r22;
+      transformToPack[t + 6] = offset[o + 6] * r00 + offset[o + 7] * r10 + offset[o + 8] * r20;
+      transformToPack[t + 7] = offset[o + 6] * r01 + offset[o + 7] * r11 + offset[o + 8] * r21;
+      transformToPack[t + 8] = offset[o + 6] * r02 + offset[o + 7] * r12 + offset[o + 8] * r22;
+      transformToPack[t + 9] = offset[o + 0] * px + offset[o + 1] * py + offset[o + 2] * pz + offset[o + 9];
+      transformToPack[t + 10] = offset[o + 3] * px + offset[o + 4] * py + offset[o + 5] * pz + offset[o + 10];
+      transformToPack[t + 11] = offset[o + 6] * px + offset[o + 7] * py + offset[o + 8] * pz + offset[o + 11];
+   }
+
+   /**
+    * Tests whether the joint {@code ancestorIndex} is an ancestor of the joint
+    * {@code descendantIndex}. A joint is considered to be its own ancestor.
+    *
+    * @param ancestorIndex   the index of the potential ancestor.
+    * @param descendantIndex the index of the potential descendant.
+    * @return {@code true} if the first joint is an ancestor of the second, {@code false} otherwise.
+    */
+   public boolean isAncestor(int ancestorIndex, int descendantIndex)
+   {
+      int index = descendantIndex;
+
+      while (index > ancestorIndex)
+         index = parentIndices[index];
+
+      return index == ancestorIndex;
+   }
+
+   /**
+    * Gets the definition of the multi-body system that was used to create this compiled system.
+    *
+    * @return the input.
+    */
+   public MultiBodySystemReadOnly getInput()
+   {
+      return input;
+   }
+
+   /**
+    * Gets the number of joints in this system.
+    *
+    * @return the number of joints.
+    */
+   public int getNumberOfJoints()
+   {
+      return numberOfJoints;
+   }
+
+   /**
+    * Gets the total number of degrees of freedom of this system.
+    *
+    * @return the number of degrees of freedom.
+    */
+   public int getNumberOfDoFs()
+   {
+      return numberOfDoFs;
+   }
+
+   /**
+    * Gets the size of the configuration vector of this system.
+    *
+    * @return the configuration size.
+    */
+   public int getConfigurationSize()
+   {
+      return configurationSize;
+   }
+
+   /**
+    * Gets the joint at the given index.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the joint.
+    */
+   public JointReadOnly getJoint(int jointIndex)
+   {
+      return joints[jointIndex];
+   }
+
+   /**
+    * Gets the index of the given joint in this compiled system.
+    *
+    * @param joint the joint to get the index of.
+    * @return the index of the joint, or {@code -1} if the joint is not part of this system.
+    */
+   public int getJointIndex(JointReadOnly joint)
+   {
+      Integer index = jointIndexMap.get(joint);
+      return index == null ? -1 : index.intValue();
+   }
+
+   /**
+    * Gets the index of the parent joint of the given body.
+    *
+    * @param body the body to get the index of.
+    * @return the index of the body parent joint, or {@code -1} if the body is the root body or is not
+    *         part of this system.
+    */
+   public int getBodyIndex(RigidBodyReadOnly body)
+   {
+      return body.isRootBody() ? -1 : getJointIndex(body.getParentJoint());
+   }
+
+   /**
+    * Gets the index of the parent joint of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the index of the parent joint, or {@code -1} if the joint is attached to the root body.
+    */
+   public int getParentIndex(int jointIndex)
+   {
+      return parentIndices[jointIndex];
+   }
+
+   /**
+    * Gets the index after the last joint of the subtree starting at the given joint, such that the
+    * subtree is composed of the joints with an index in {@code [jointIndex, subtreeEndIndex[}.
+    *
+    * @param jointIndex the index of the subtree first joint.
+    * @return the index after the last joint of the subtree.
+    */
+   public int getSubtreeEndIndex(int jointIndex)
+   {
+      return subtreeEndIndices[jointIndex];
+   }
+
+   /**
+    * Gets the type of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the joint type.
+    */
+   public JointType getJointType(int jointIndex)
+   {
+      return jointTypes[jointIndex];
+   }
+
+   /**
+    * Gets the number of degrees of freedom of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the number of DoFs of the joint.
+    */
+   public int getJointDoFs(int jointIndex)
+   {
+      return jointDoFs[jointIndex];
+   }
+
+   /**
+    * Gets the index of the first DoF of the given joint in the velocity vector of this system.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the index of the joint first DoF.
+    */
+   public int getDoFOffset(int jointIndex)
+   {
+      return dofOffsets[jointIndex];
+   }
+
+   /**
+    * Gets the index of the first configuration entry of the given joint in the configuration vector
+    * of this system.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the index of the joint first configuration entry.
+    */
+   public int getConfigurationOffset(int jointIndex)
+   {
+      return configurationOffsets[jointIndex];
+   }
+
+   /**
+    * Gets the lower position limit of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the lower position limit of the joint, or {@code -Infinity} if the joint is not a 1-DoF joint.
+    */
+   public double getJointLimitLower(int jointIndex)
+   {
+      return jointLimitLower[jointIndex];
+   }
+
+   /**
+    * Gets the upper position limit of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the upper position limit of the joint, or {@code +Infinity} if the joint is not a 1-DoF joint.
+    */
+   public double getJointLimitUpper(int jointIndex)
+   {
+      return jointLimitUpper[jointIndex];
+   }
+
+   /**
+    * Gets the lower velocity limit of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the lower velocity limit of the joint, or {@code -Infinity} if the joint is not a 1-DoF joint.
+    */
+   public double getVelocityLimitLower(int jointIndex)
+   {
+      return velocityLimitLower[jointIndex];
+   }
+
+   /**
+    * Gets the upper velocity limit of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the upper velocity limit of the joint, or {@code +Infinity} if the joint is not a 1-DoF joint.
+    */
+   public double getVelocityLimitUpper(int jointIndex)
+   {
+      return velocityLimitUpper[jointIndex];
+   }
+
+   /**
+    * Gets the lower effort limit of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the lower effort limit of the joint, or {@code -Infinity} if the joint is not a 1-DoF joint.
+    */
+   public double getEffortLimitLower(int jointIndex)
+   {
+      return effortLimitLower[jointIndex];
+   }
+
+   /**
+    * Gets the upper effort limit of the given joint.
+    *
+    * @param jointIndex the index of the joint.
+    * @return the upper effort limit of the joint, or {@code +Infinity} if the joint is not a 1-DoF joint.
+    */
+   public double getEffortLimitUpper(int jointIndex)
+   {
+      return effortLimitUpper[jointIndex];
+   }
+
+   /**
+    * Gets the index of the parent joint for each joint, see {@link #getParentIndex(int)}.
+    *
+    * @return the parent indices, one element per joint.
+    */
+   public int[] getParentIndices()
+   {
+      return parentIndices;
+   }
+
+   /**
+    * Gets the number of degrees of freedom for each joint, see {@link #getJointDoFs(int)}.
+    *
+    * @return the number of DoFs, one element per joint.
+    */
+   public int[] getJointDoFs()
+   {
+      return jointDoFs;
+   }
+
+   /**
+    * Gets the index of the first DoF for each joint, see {@link #getDoFOffset(int)}.
+    *
+    * @return the DoF offsets, one element per joint.
+    */
+   public int[] getDoFOffsets()
+   {
+      return dofOffsets;
+   }
+
+   /**
+    * Gets the axes of the 1-DoF joints expressed in the joint frames, stored as 3 elements per joint
+    * starting at {@code 3 * jointIndex} and set to zero for the other joints.
+    *
+    * @return the joint axes.
+    */
+   public double[] getJointAxes()
+   {
+      return jointAxes;
+   }
+
+   /**
+    * Gets the transform from {@code frameBeforeJoint} to the {@code frameAfterJoint} of the parent joint
+    * for each joint, stored as {@value #TRANSFORM_SIZE} elements per joint starting at
+    * {@code TRANSFORM_SIZE * jointIndex}.
+    *
+    * @return the joint offsets.
+    */
+   public double[] getJointOffsets()
+   {
+      return jointOffsets;
+   }
+
+   /**
+    * Gets the columns of the motion subspaces of the joints expressed in their {@code frameAfterJoint},
+    * stored as 6 elements per DoF starting at {@code 6 * dofIndex}.
+    *
+    * @return the motion subspaces.
+    */
+   public double[] getMotionSubspaces()
+   {
+      return motionSubspaces;
+   }
+
+   /**
+    * Gets the mass of the successor of each joint.
+    *
+    * @return the masses, one element per joint.
+    */
+   public double[] getMass()
+   {
+      return mass;
+   }
+
+   /**
+    * Gets the x-coordinate of the center of mass of the successor of each joint, expressed in the
+    * joint {@code frameAfterJoint}.
+    *
+    * @return the center of mass x-coordinates, one element per joint.
+    */
+   public double[] getCenterOfMassX()
+   {
+      return centerOfMassX;
+   }
+
+   /**
+    * Gets the y-coordinate of the center of mass of the successor of each joint, expressed in the
+    * joint {@code frameAfterJoint}.
+    *
+    * @return the center of mass y-coordinates, one element per joint.
+    */
+   public double[] getCenterOfMassY()
+   {
+      return centerOfMassY;
+   }
+
+   /**
+    * Gets the z-coordinate of the center of mass of the successor of each joint, expressed in the
+    * joint {@code frameAfterJoint}.
+    *
+    * @return the center of mass z-coordinates, one element per joint.
+    */
+   public double[] getCenterOfMassZ()
+   {
+      return centerOfMassZ;
+   }
+
+   /**
+    * Gets the xx-component of the moment of inertia of the successor of each joint around the origin
+    * of the joint {@code frameAfterJoint}.
+    *
+    * @return the xx-components of the moments of inertia, one element per joint.
+    */
+   public double[] getInertiaXX()
+   {
+      return inertiaXX;
+   }
+
+   /**
+    * Gets the yy-component of the moment of inertia of the successor of each joint around the origin
+    * of the joint {@code frameAfterJoint}.
+    *
+    * @return the yy-components of the moments of inertia, one element per joint.
+    */
+   public double[] getInertiaYY()
+   {
+      return inertiaYY;
+   }
+
+   /**
+    * Gets the zz-component of the moment of inertia of the successor of each joint around the origin
+    * of the joint {@code frameAfterJoint}.
+    *
+    * @return the zz-components of the moments of inertia, one element per joint.
+    */
+   public double[] getInertiaZZ()
+   {
+      return inertiaZZ;
+   }
+
+   /**
+    * Gets the xy-component of the moment of inertia of the successor of each joint around the origin
+    * of the joint {@code frameAfterJoint}.
+    *
+    * @return the xy-components of the moments of inertia, one element per joint.
+    */
+   public double[] getInertiaXY()
+   {
+      return inertiaXY;
+   }
+
+   /**
+    * Gets the xz-component of the moment of inertia of the successor of each joint around the origin
+    * of the joint {@code frameAfterJoint}.
+    *
+    * @return the xz-components of the moments of inertia, one element per joint.
+    */
+   public double[] getInertiaXZ()
+   {
+      return inertiaXZ;
+   }
+
+   /**
+    * Gets the yz-component of the moment of inertia of the successor of each joint around the origin
+    * of the joint {@code frameAfterJoint}.
+    *
+    * @return the yz-components of the moments of inertia, one element per joint.
+    */
+   public double[] getInertiaYZ()
+   {
+      return inertiaYZ;
+   }
+}
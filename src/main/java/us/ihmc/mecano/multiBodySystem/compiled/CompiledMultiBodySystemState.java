@@ -0,0 +1,308 @@
+package us.ihmc.mecano.multiBodySystem.compiled;
+
+import static us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem.SPATIAL_VECTOR_SIZE;
+import static us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem.TRANSFORM_SIZE;
+
+import java.util.List;
+
+import org.ejml.data.DenseMatrix64F;
+
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+/**
+ * Lightweight mutable state of a multi-body system described by a {@link CompiledMultiBodySystem}.
+ * <p>
+ * The compiled system holds everything that does not depend on the state, i.e. the topology, the
+ * inertias, the joint offsets and axes, and is immutable. This class only holds the joint
+ * configurations, velocities, accelerations, and efforts, as well as a cache of the body poses and
+ * twists computed from the configurations and velocities. Many instances of this class can then share
+ * the same compiled system, for instance one per rollout when simulating many copies of the same
+ * robot in parallel, without cloning the rigid-bodies, joints, and reference frames.
+ * </p>
+ * <p>
+ * The joint quantities are stored in arrays ordered as defined by the
+ * {@code JointMatrixIndexProvider} of the input of the compiled system, such that they can directly
+ * be used with the calculators operating on a {@link CompiledMultiBodySystem}. The states can also be
+ * transferred from and to a regular multi-body system with {@link #readJointStates(JointStateType)}
+ * and {@link #writeJointStates(JointStateType, List)}.
+ * </p>
+ * <p>
+ * The body poses and twists are updated lazily. After modifying the joint configurations or
+ * velocities via the arrays, {@link #reset()} has to be called to notify this state that the cache
+ * is outdated.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class CompiledMultiBodySystemState
+{
+   /** The shared description of the multi-body system. */
+   private final CompiledMultiBodySystem model;
+
+   /** The joint configurations. */
+   private final double[] configuration;
+   /** The joint velocities. */
+   private final double[] velocity;
+   /** The joint accelerations. */
+   private final double[] acceleration;
+   /** The joint efforts. */
+   private final double[] effort;
+   /** Matrices wrapping the joint quantities for transferring the state from and to joints. */
+   private final DenseMatrix64F configurationMatrix, velocityMatrix, accelerationMatrix, effortMatrix;
+
+   /** For each joint, the transform from its {@code frameAfterJoint} to its parent frame. */
+   private final double[] transformsToParent;
+   /** For each joint, the transform from its {@code frameAfterJoint} to the root body-fixed frame. */
+   private final double[] transformsToRoot;
+   /** For each body, its twist with respect to the root expressed in its parent joint {@code frameAfterJoint}. */
+   private final double[] bodyTwists;
+   /** Intermediate variable for garbage free operations. */
+   private final double[] jointTwist = new double[SPATIAL_VECTOR_SIZE];
+
+   /** Whether the body poses and twists are up-to-date with the joint state. */
+   private boolean areFramesUpToDate = false;
+
+   /**
+    * Creates a new state for the given compiled system, all the joint quantities are initialized to
+    * zero.
+    *
+    * @param model the compiled system this state is for. Not modified.
+    */
+   public CompiledMultiBodySystemState(CompiledMultiBodySystem model)
+   {
+      this.model = model;
+
+      int numberOfJoints = model.getNumberOfJoints();
+      int numberOfDoFs = model.getNumberOfDoFs();
+      configuration = new double[model.getConfigurationSize()];
+      velocity = new double[numberOfDoFs];
+      acceleration = new double[numberOfDoFs];
+      effort = new double[numberOfDoFs];
+      configurationMatrix = DenseMatrix64F.wrap(configuration.length, 1, configuration);
+      velocityMatrix = DenseMatrix64F.wrap(numberOfDoFs, 1, velocity);
+      accelerationMatrix = DenseMatrix64F.wrap(numberOfDoFs, 1, acceleration);
+      effortMatrix = DenseMatrix64F.wrap(numberOfDoFs, 1, effort);
+
+      transformsToParent = new double[TRANSFORM_SIZE * numberOfJoints];
+      transformsToRoot = new double[TRANSFORM_SIZE * numberOfJoints];
+      bodyTwists = new double[SPATIAL_VECTOR_SIZE * numberOfJoints];
+   }
+
+   /**
+    * Notifies that the joint configurations or velocities have changed such that the body poses and
+    * twists are recomputed the next time they are requested.
+    */
+   public void reset()
+   {
+      areFramesUpToDate = false;
+   }
+
+   /**
+    * Copies the joint state of {@code other} into this.
+    *
+    * @param other the other state to copy. Not modified.
+    * @throws IllegalArgumentException if {@code other} is not for the same compiled system.
+    */
+   public void set(CompiledMultiBodySystemState other)
+   {
+      if (other.model != model)
+         throw new IllegalArgumentException("Inconsistent compiled systems.");
+
+      System.arraycopy(other.configuration, 0, configuration, 0, configuration.length);
+      System.arraycopy(other.velocity, 0, velocity, 0, velocity.length);
+      System.arraycopy(other.acceleration, 0, acceleration, 0, acceleration.length);
+      System.arraycopy(other.effort, 0, effort, 0, effort.length);
+      reset();
+   }
+
+   /**
+    * Reads the requested state from the joints of the input of the compiled system.
+    *
+    * @param stateSelection the state to read.
+    */
+   public void readJointStates(JointStateType stateSelection)
+   {
+      List<? extends JointReadOnly> indexedJoints = model.getInput().getJointMatrixIndexProvider().getIndexedJointsInOrder();
+      MultiBodySystemTools.extractJointsState(indexedJoints, stateSelection, getStateMatrix(stateSelection));
+
+      if (stateSelection == JointStateType.CONFIGURATION || stateSelection == JointStateType.VELOCITY)
+         reset();
+   }
+
+   /**
+    * Writes the requested state into the given joints.
+    * <p>
+    * The joints are expected to be ordered as the indexed joints of the input of the compiled system,
+    * they are typically the joints of a multi-body system structurally identical to the input and
+    * used by the current thread to evaluate this state.
+    * </p>
+    *
+    * @param stateSelection the state to write.
+    * @param joints         the joints to write the state into. Modified.
+    */
+   public void writeJointStates(JointStateType stateSelection, List<? extends JointBasics> joints)
+   {
+      MultiBodySystemTools.insertJointsState(joints, stateSelection, getStateMatrix(stateSelection));
+   }
+
+   private DenseMatrix64F getStateMatrix(JointStateType stateSelection)
+   {
+      switch (stateSelection)
+      {
+         case CONFIGURATION:
+            return configurationMatrix;
+         case VELOCITY:
+            return velocityMatrix;
+         case ACCELERATION:
+            return accelerationMatrix;
+         case EFFORT:
+            return effortMatrix;
+         default:
+            throw new IllegalArgumentException("Unexpected state selection: " + stateSelection);
+      }
+   }
+
+   private void updateFrames()
+   {
+      if (areFramesUpToDate)
+         return;
+
+      int[] parentIndices = model.getParentIndices();
+
+      for (int jointIndex = 0; jointIndex < model.getNumberOfJoints(); jointIndex++)
+      {
+         int parentIndex = parentIndices[jointIndex];
+         int t = TRANSFORM_SIZE * jointIndex;
+         int s = SPATIAL_VECTOR_SIZE * jointIndex;
+
+         model.computeTransformToParent(jointIndex, configuration, 0, transformsToParent, t);
+
+         if (parentIndex < 0)
+         {
+            System.arraycopy(transformsToParent, t, transformsToRoot, t, TRANSFORM_SIZE);
+
+            for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+               bodyTwists[s + i] = 0.0;
+         }
+         else
+         {
+            CompiledMultiBodySystemTools.multiplyTransforms(transformsToRoot, TRANSFORM_SIZE * parentIndex, transformsToParent, t, transformsToRoot, t);
+            CompiledMultiBodySystemTools.transformMotionToChild(transformsToParent, t, bodyTwists, SPATIAL_VECTOR_SIZE * parentIndex, bodyTwists, s);
+         }
+
+         CompiledMultiBodySystemTools.multiplyMotionSubspace(model, jointIndex, velocity, 0, jointTwist, 0, false);
+
+         for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+            bodyTwists[s + i] += jointTwist[i];
+      }
+
+      areFramesUpToDate = true;
+   }
+
+   /**
+    * Gets the compiled system this state is for.
+    *
+    * @return the compiled system.
+    */
+   public CompiledMultiBodySystem getModel()
+   {
+      return model;
+   }
+
+   /**
+    * Gets the array storing the joint configurations.
+    * <p>
+    * Call {@link #reset()} after modifying the array.
+    * </p>
+    *
+    * @return the joint configurations.
+    */
+   public double[] getConfiguration()
+   {
+      return configuration;
+   }
+
+   /**
+    * Gets the array storing the joint velocities.
+    * <p>
+    * Call {@link #reset()} after modifying the array.
+    * </p>
+    *
+    * @return the joint velocities.
+    */
+   public double[] getVelocity()
+   {
+      return velocity;
+   }
+
+   /**
+    * Gets the array storing the joint accelerations.
+    *
+    * @return the joint accelerations.
+    */
+   public double[] getAcceleration()
+   {
+      return acceleration;
+   }
+
+   /**
+    * Gets the array storing the joint efforts.
+    *
+    * @return the joint efforts.
+    */
+   public double[] getEffort()
+   {
+      return effort;
+   }
+
+   /**
+    * Packs the transform from the {@code frameAfterJoint} of the given joint to the root body-fixed
+    * frame.
+    *
+    * @param jointIndex      the index of the joint in the compiled system.
+    * @param transformToPack the transform in which the result is stored. Modified.
+    */
+   public void getTransformToRoot(int jointIndex, RigidBodyTransform transformToPack)
+   {
+      updateFrames();
+      int t = TRANSFORM_SIZE * jointIndex;
+      double[] T = transformsToRoot;
+      transformToPack.set(T[t + 0], T[t + 1], T[t + 2], T[t + 9], T[t + 3], T[t + 4], T[t + 5], T[t + 10], T[t + 6], T[t + 7], T[t + 8], T[t + 11]);
+   }
+
+   /**
+    * Gets the transforms from the {@code frameAfterJoint} of each joint to the root body-fixed
+    * frame.
+    * <p>
+    * The transform of the joint of index {@code i} starts at the index {@code 12 * i}, see
+    * {@link CompiledMultiBodySystem#TRANSFORM_SIZE}. The returned array should not be modified.
+    * </p>
+    *
+    * @return the transforms to root.
+    */
+   public double[] getTransformsToRoot()
+   {
+      updateFrames();
+      return transformsToRoot;
+   }
+
+   /**
+    * Gets the twists of the bodies with respect to the root, each expressed in the
+    * {@code frameAfterJoint} of its parent joint.
+    * <p>
+    * The twist of the successor of the joint of index {@code i} starts at the index {@code 6 * i},
+    * angular part first. The returned array should not be modified.
+    * </p>
+    *
+    * @return the body twists.
+    */
+   public double[] getBodyTwists()
+   {
+      updateFrames();
+      return bodyTwists;
+   }
+}
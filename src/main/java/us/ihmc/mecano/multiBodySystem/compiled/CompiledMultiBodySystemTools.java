@@ -0,0 +1,427 @@
+package us.ihmc.mecano.multiBodySystem.compiled;
+
+import static us.ihmc.mecano.multiBodySystem.compiled.CompiledMultiBodySystem.SPATIAL_VECTOR_SIZE;
+
+/**
+ * This class provides the spatial algebra operations used by the algorithms operating on a
+ * {@link CompiledMultiBodySystem}.
+ * <p>
+ * All the operations work directly on arrays, each quantity being identified by an offset in its
+ * array. Spatial vectors are stored as 6 consecutive elements: angular part first and then linear
+ * part. Transforms are stored as 12 consecutive elements: the rotation matrix in row-major order
+ * and then the translation, see {@link CompiledMultiBodySystem#TRANSFORM_SIZE}.
+ * </p>
+ * <p>
+ * Unless specified otherwise, the input and output of an operation can share the same array
+ * region.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class CompiledMultiBodySystemTools
+{
+   private CompiledMultiBodySystemTools()
+   {
+      // Suppresses default constructor, ensuring non-instantiability.
+   }
+
+   /**
+    * Transforms a spatial motion vector, e.g. a twist or a spatial acceleration, from the parent frame
+    * to the child frame.
+    * <p>
+    * The transform is the one from the child frame to the parent frame, i.e. the transform is applied
+    * inversely to the motion vector:
+    *
+    * <pre>
+    * &omega;<sub>child</sub> = R<sup>T</sup> &omega;<sub>parent</sub>
+    * v<sub>child</sub> = R<sup>T</sup> (v<sub>parent</sub> + &omega;<sub>parent</sub> &times; p)
+    * </pre>
+    * </p>
+    *
+    * @param transform       the array containing the transform from child to parent. Not modified.
+    * @param transformOffset the index of the first element of the transform.
+    * @param motion          the array containing the motion vector to transform. Not modified.
+    * @param motionOffset    the index of the first element of the motion vector.
+    * @param result          the array used to store the result. Modified.
+    * @param resultOffset    the index of the first element of the result.
+    */
+   public static void transformMotionToChild(double[] transform, int transformOffset, double[] motion, int motionOffset, double[] result,
+                                             int resultOffset)
+   {
+      int t = transformOffset;
+      double wx = motion[motionOffset + 0];
+      double wy = motion[motionOffset + 1];
+      double wz = motion[motionOffset + 2];
+      double vx = motion[motionOffset + 3] + wy * transform[t + 11] - wz * transform[t + 10];
+      double vy = motion[motionOffset + 4] + wz * transform[t + 9] - wx * transform[t + 11];
+      double vz = motion[motionOffset + 5] + wx * transform[t + 10] - wy * transform[t + 9];
+
+      result[resultOffset + 0] = transform[t + 0] * wx + transform[t + 3] * wy + transform[t + 6] * wz;
+      result[resultOffset + 1] = transform[t + 1] * wx + transform[t + 4] * wy + transform[t + 7] * wz;
+      result[resultOffset + 2] = transform[t + 2] * wx + transform[t + 5] * wy + transform[t + 8] * wz;
+      result[resultOffset + 3] = transform[t + 0] * vx + transform[t + 3] * vy + transform[t + 6] * vz;
+      result[resultOffset + 4] = transform[t + 1] * vx + transform[t + 4] * vy + transform[t + 7] * vz;
+      result[resultOffset + 5] = transform[t + 2] * vx + transform[t + 5] * vy + transform[t + 8] * vz;
+   }
+
+   /**
+    * Transforms a spatial motion vector from the child frame to the parent frame.
+    *
+    * <pre>
+    * &omega;<sub>parent</sub> = R &omega;<sub>child</sub>
+    * v<sub>parent</sub> = R v<sub>child</sub> + p &times; &omega;<sub>parent</sub>
+    * </pre>
+    *
+    * @param transform       the array containing the transform from child to parent. Not modified.
+    * @param transformOffset the index of the first element of the transform.
+    * @param motion          the array containing the motion vector to transform. Not modified.
+    * @param motionOffset    the index of the first element of the motion vector.
+    * @param result          the array used to store the result. Modified.
+    * @param resultOffset    the index of the first element of the result.
+    */
+   public static void transformMotionToParent(double[] transform, int transformOffset, double[] motion, int motionOffset, double[] result,
+                                              int resultOffset)
+   {
+      int t = transformOffset;
+      double wx = motion[motionOffset + 0];
+      double wy = motion[motionOffset + 1];
+      double wz = motion[motionOffset + 2];
+      double vx = motion[motionOffset + 3];
+      double vy = motion[motionOffset + 4];
+      double vz = motion[motionOffset + 5];
+
+      double wpx = transform[t + 0] * wx + transform[t + 1] * wy + transform[t + 2] * wz;
+      double wpy = transform[t + 3] * wx + transform[t + 4] * wy + transform[t + 5] * wz;
+      double wpz = transform[t + 6] * wx + transform[t + 7] * wy + transform[t + 8] * wz;
+      double px = transform[t + 9];
+      double py = transform[t + 10];
+      double pz = transform[t + 11];
+
+      result[resultOffset + 0] = wpx;
+      result[resultOffset + 1] = wpy;
+      result[resultOffset + 2] = wpz;
+      result[resultOffset + 3] = transform[t + 0] * vx + transform[t + 1] * vy + transform[t + 2] * vz + py * wpz - pz * wpy;
+      result[resultOffset + 4] = transform[t + 3] * vx + transform[t + 4] * vy + transform[t + 5] * vz + pz * wpx - px * wpz;
+      result[resultOffset + 5] = transform[t + 6] * vx + transform[t + 7] * vy + transform[t + 8] * vz + px * wpy - py * wpx;
+   }
+
+   /**
+    * Composes two transforms: <tt>result = transform1 * transform2</tt>.
+    * <p>
+    * When {@code transform1} is the transform from a frame {@code B} to a frame {@code A} and
+    * {@code transform2} the transform from a frame {@code C} to {@code B}, the result is the
+    * transform from {@code C} to {@code A}.
+    * </p>
+    *
+    * @param transform1       the array containing the first transform. Not modified.
+    * @param transform1Offset the index of the first element of the first transform.
+    * @param transform2       the array containing the second transform. Not modified.
+    * @param transform2Offset the index of the first element of the second transform.
+    * @param result           the array used to store the result. Modified.
+    * @param resultOffset     the index of the first element of the result.
+    */
+   public static void multiplyTransforms(double[] transform1, int transform1Offset, double[] transform2, int transform2Offset, double[] result,
+                                         int resultOffset)
+   {
+      int a = transform1Offset;
+      int b = transform2Offset;
+
+      double a00 = transform1[a + 0], a01 = transform1[a + 1], a02 = transform1[a + 2];
+      double a10 = transform1[a + 3], a11 = transform1[a + 4], a12 = transform1[a + 5];
+      double a20 = transform1[a + 6], a21 = transform1[a + 7], a22 = transform1[a + 8];
+      double ax = transform1[a + 9], ay = transform1[a + 10], az = transform1[a + 11];
+
+      double b00 = transform2[b + 0], b01 = transform2[b + 1], b02 = transform2[b + 2];
+      double b10 = transform2[b + 3], b11 = transform2[b + 4], b12 = transform2[b + 5];
+      double b20 = transform2[b + 6], b21 = transform2[b + 7], b22 = transform2[b + 8];
+      double bx = transform2[b + 9], by = transform2[b + 10], bz = transform2[b + 11];
+
+      int r = resultOffset;
+      result[r + 0] = a00 * b00 + a01 * b10 + a02 * b20;
+      result[r + 1] = a00 * b01 + a01 * b11 + a02 * b21;
+      result[r + 2] = a00 * b02 + a01 * b12 + a02 * b22;
+      result[r + 3] = a10 * b00 + a11 * b10 + a12 * b20;
+      result[r + 4] = a10 * b01 + a11 * b11 + a12 * b21;
+      result[r + 5] = a10 * b02 + a11 * b12 + a12 * b22;
+      result[r + 6] = a20 * b00 + a21 * b10 + a22 * b20;
+      result[r + 7] = a20 * b01 + a21 * b11 + a22 * b21;
+      result[r + 8] = a20 * b02 + a21 * b12 + a22 * b22;
+      result[r + 9] = a00 * bx + a01 * by + a02 * bz + ax;
+      result[r + 10] = a10 * bx + a11 * by + a12 * bz + ay;
+      result[r + 11] = a20 * bx + a21 * by + a22 * bz + az;
+   }
+
+   /**
+    * Transforms a spatial force vector, e.g. a wrench, from the child frame to the parent frame and
+    * adds it to {@code result}.
+    *
+    * <pre>
+    * f<sub>parent</sub> = R f<sub>child</sub>
+    * &tau;<sub>parent</sub> = R &tau;<sub>child</sub> + p &times; f<sub>parent</sub>
+    * </pre>
+    * <p>
+    * The input and output cannot share the same array region.
+    * </p>
+    *
+    * @param transform       the array containing the transform from child to parent. Not modified.
+    * @param transformOffset the index of the first element of the transform.
+    * @param force           the array containing the force vector to transform. Not modified.
+    * @param forceOffset     the index of the first element of the force vector.
+    * @param result          the array to which the transformed force is added. Modified.
+    * @param resultOffset    the index of the first element of the result.
+    */
+   public static void addForceTransformedToParent(double[] transform, int transformOffset, double[] force, int forceOffset, double[] result,
+                                                  int resultOffset)
+   {
+      int t = transformOffset;
+      double nx = force[forceOffset + 0];
+      double ny = force[forceOffset + 1];
+      double nz = force[forceOffset + 2];
+      double fx = force[forceOffset + 3];
+      double fy = force[forceOffset + 4];
+      double fz = force[forceOffset + 5];
+
+      double fpx = transform[t + 0] * fx + transform[t + 1] * fy + transform[t + 2] * fz;
+      double fpy = transform[t + 3] * fx + transform[t + 4] * fy + transform[t + 5] * fz;
+      double fpz = transform[t + 6] * fx + transform[t + 7] * fy + transform[t + 8] * fz;
+      double px = transform[t + 9];
+      double py = transform[t + 10];
+      double pz = transform[t + 11];
+
+      result[resultOffset + 0] += transform[t + 0] * nx + transform[t + 1] * ny + transform[t + 2] * nz + py * fpz - pz * fpy;
+      result[resultOffset + 1] += transform[t + 3] * nx + transform[t + 4] * ny + transform[t + 5] * nz + pz * fpx - px * fpz;
+      result[resultOffset + 2] += transform[t + 6] * nx + transform[t + 7] * ny + transform[t + 8] * nz + px * fpy - py * fpx;
+      result[resultOffset + 3] += fpx;
+      result[resultOffset + 4] += fpy;
+      result[resultOffset + 5] += fpz;
+   }
+
+   /**
+    * Computes the cross product of two spatial motion vectors:
+    *
+    * <pre>
+    * / &omega;<sub>1</sub> \   / &omega;<sub>2</sub> \   /           &omega;<sub>1</sub> &times; &omega;<sub>2</sub>          \
+    * |    | &times; |    | = |                            |
+    * \ v<sub>1</sub> /   \ v<sub>2</sub> /   \ &omega;<sub>1</sub> &times; v<sub>2</sub> + v<sub>1</sub> &times; &omega;<sub>2</sub> /
+    * </pre>
+    *
+    * @param motion1       the array containing the first motion vector. Not modified.
+    * @param motion1Offset the index of the first element of the first motion vector.
+    * @param motion2       the array containing the second motion vector. Not modified.
+    * @param motion2Offset the index of the first element of the second motion vector.
+    * @param result        the array used to store the result. Modified.
+    * @param resultOffset  the index of the first element of the result.
+    * @param add           whether to add the cross product to {@code result} or to overwrite it.
+    */
+   public static void crossMotion(double[] motion1, int motion1Offset, double[] motion2, int motion2Offset, double[] result, int resultOffset, boolean add)
+   {
+      double w1x = motion1[motion1Offset + 0], w1y = motion1[motion1Offset + 1], w1z = motion1[motion1Offset + 2];
+      double v1x = motion1[motion1Offset + 3], v1y = motion1[motion1Offset + 4], v1z = motion1[motion1Offset + 5];
+      double w2x = motion2[motion2Offset + 0], w2y = motion2[motion2Offset + 1], w2z = motion2[motion2Offset + 2];
+      double v2x = motion2[motion2Offset + 3], v2y = motion2[motion2Offset + 4], v2z = motion2[motion2Offset + 5];
+
+      double rwx = w1y * w2z - w1z * w2y;
+      double rwy = w1z * w2x - w1x * w2z;
+      double rwz = w1x * w2y - w1y * w2x;
+      double rvx = w1y * v2z - w1z * v2y + v1y * w2z - v1z * w2y;
+      double rvy = w1z * v2x - w1x * v2z + v1z * w2x - v1x * w2z;
+      double rvz = w1x * v2y - w1y * v2x + v1x * w2y - v1y * w2x;
+
+      if (add)
+      {
+         result[resultOffset + 0] += rwx;
+         result[resultOffset + 1] += rwy;
+         result[resultOffset + 2] += rwz;
+         result[resultOffset + 3] += rvx;
+         result[resultOffset + 4] += rvy;
+         result[resultOffset + 5] += rvz;
+      }
+      else
+      {
+         result[resultOffset + 0] = rwx;
+         result[resultOffset + 1] = rwy;
+         result[resultOffset + 2] = rwz;
+         result[resultOffset + 3] = rvx;
+         result[resultOffset + 4] = rvy;
+         result[resultOffset + 5] = rvz;
+      }
+   }
+
+   /**
+    * Computes the cross product of a spatial motion vector with a spatial force vector:
+    *
+    * <pre>
+    * / &omega; \    / &tau; \   / &omega; &times; &tau; + v &times; f \
+    * |   | &times;* |   | = |               |
+    * \ v /    \ f /   \     &omega; &times; f     /
+    * </pre>
+    *
+    * @param motion       the array containing the motion vector. Not modified.
+    * @param motionOffset the index of the first element of the motion vector.
+    * @param force        the array containing the force vector. Not modified.
+    * @param forceOffset  the index of the first element of the force vector.
+    * @param result       the array used to store the result. Modified.
+    * @param resultOffset the index of the first element of the result.
+    * @param add          whether to add the cross product to {@code result} or to overwrite it.
+    */
+   public static void crossForce(double[] motion, int motionOffset, double[] force, int forceOffset, double[] result, int resultOffset, boolean add)
+   {
+      double wx = motion[motionOffset + 0], wy = motion[motionOffset + 1], wz = motion[motionOffset + 2];
+      double vx = motion[motionOffset + 3], vy = motion[motionOffset + 4], vz = motion[motionOffset + 5];
+      double nx = force[forceOffset + 0], ny = force[forceOffset + 1], nz = force[forceOffset + 2];
+      double fx = force[forceOffset + 3], fy = force[forceOffset + 4], fz = force[forceOffset + 5];
+
+      double rnx = wy * nz - wz * ny + vy * fz - vz * fy;
+      double rny = wz * nx - wx * nz + vz * fx - vx * fz;
+      double rnz = wx * ny - wy * nx + vx * fy - vy * fx;
+      double rfx = wy * fz - wz * fy;
+      double rfy = wz * fx - wx * fz;
+      double rfz = wx * fy - wy * fx;
+
+      if (add)
+      {
+         result[resultOffset + 0] += rnx;
+         result[resultOffset + 1] += rny;
+         result[resultOffset + 2] += rnz;
+         result[resultOffset + 3] += rfx;
+         result[resultOffset + 4] += rfy;
+         result[resultOffset + 5] += rfz;
+      }
+      else
+      {
+         result[resultOffset + 0] = rnx;
+         result[resultOffset + 1] = rny;
+         result[resultOffset + 2] = rnz;
+         result[resultOffset + 3] = rfx;
+         result[resultOffset + 4] = rfy;
+         result[resultOffset + 5] = rfz;
+      }
+   }
+
+   /**
+    * Multiplies the spatial inertia of a body with a spatial motion vector:
+    *
+    * <pre>
+    * / &tau; \   /     I &omega; + m c &times; v     \
+    * |   | = |                      |
+    * \ f /   \ m v - m c &times; &omega; /
+    * </pre>
+    *
+    * where <tt>m</tt>, <tt>c</tt>, and <tt>I</tt> are the body mass, center of mass offset, and
+    * moment of inertia around the origin of the parent joint {@code frameAfterJoint}.
+    *
+    * @param system       the compiled system providing the body inertia. Not modified.
+    * @param jointIndex   the index of the parent joint of the body.
+    * @param motion       the array containing the motion vector. Not modified.
+    * @param motionOffset the index of the first element of the motion vector.
+    * @param result       the array used to store the result. Modified.
+    * @param resultOffset the index of the first element of the result.
+    * @param add          whether to add the product to {@code result} or to overwrite it.
+    */
+   public static void multiplyInertia(CompiledMultiBodySystem system, int jointIndex, double[] motion, int motionOffset, double[] result, int resultOffset,
+                                      boolean add)
+   {
+      double m = system.getMass()[jointIndex];
+      double mcx = m * system.getCenterOfMassX()[jointIndex];
+      double mcy = m * system.getCenterOfMassY()[jointIndex];
+      double mcz = m * system.getCenterOfMassZ()[jointIndex];
+      double ixx = system.getInertiaXX()[jointIndex];
+      double iyy = system.getInertiaYY()[jointIndex];
+      double izz = system.getInertiaZZ()[jointIndex];
+      double ixy = system.getInertiaXY()[jointIndex];
+      double ixz = system.getInertiaXZ()[jointIndex];
+      double iyz = system.getInertiaYZ()[jointIndex];
+
+      double wx = motion[motionOffset + 0], wy = motion[motionOffset + 1], wz = motion[motionOffset + 2];
+      double vx = motion[motionOffset + 3], vy = motion[motionOffset + 4], vz = motion[motionOffset + 5];
+
+      double nx = ixx * wx + ixy * wy + ixz * wz + mcy * vz - mcz * vy;
+      double ny = ixy * wx + iyy * wy + iyz * wz + mcz * vx - mcx * vz;
+      double nz = ixz * wx + iyz * wy + izz * wz + mcx * vy - mcy * vx;
+      double fx = m * vx - (mcy * wz - mcz * wy);
+      double fy = m * vy - (mcz * wx - mcx * wz);
+      double fz = m * vz - (mcx * wy - mcy * wx);
+
+      if (add)
+      {
+         result[resultOffset + 0] += nx;
+         result[resultOffset + 1] += ny;
+         result[resultOffset + 2] += nz;
+         result[resultOffset + 3] += fx;
+         result[resultOffset + 4] += fy;
+         result[resultOffset + 5] += fz;
+      }
+      else
+      {
+         result[resultOffset + 0] = nx;
+         result[resultOffset + 1] = ny;
+         result[resultOffset + 2] = nz;
+         result[resultOffset + 3] = fx;
+         result[resultOffset + 4] = fy;
+         result[resultOffset + 5] = fz;
+      }
+   }
+
+   /**
+    * Computes the spatial motion of a joint given its velocity or acceleration: <tt>S * qDot</tt>.
+    *
+    * @param system       the compiled system providing the motion subspace. Not modified.
+    * @param jointIndex   the index of the joint.
+    * @param jointVector  the array containing the velocity or acceleration vector for all the joints
+    *                     of the system. Not modified.
+    * @param jointStart   the index in {@code jointVector} of the first element of the vector.
+    * @param result       the array used to store the result. Modified.
+    * @param resultOffset the index of the first element of the result.
+    * @param add          whether to add the product to {@code result} or to overwrite it.
+    */
+   public static void multiplyMotionSubspace(CompiledMultiBodySystem system, int jointIndex, double[] jointVector, int jointStart, double[] result,
+                                             int resultOffset, boolean add)
+   {
+      if (!add)
+      {
+         for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+            result[resultOffset + i] = 0.0;
+      }
+
+      double[] S = system.getMotionSubspaces();
+      int dofOffset = system.getDoFOffset(jointIndex);
+
+      for (int dof = dofOffset; dof < dofOffset + system.getJointDoFs(jointIndex); dof++)
+      {
+         double value = jointVector[jointStart + dof];
+         int column = SPATIAL_VECTOR_SIZE * dof;
+
+         for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+            result[resultOffset + i] += S[column + i] * value;
+      }
+   }
+
+   /**
+    * Projects a spatial force onto the motion subspace of a joint: <tt>S<sup>T</sup> * f</tt>.
+    *
+    * @param system      the compiled system providing the motion subspace. Not modified.
+    * @param jointIndex  the index of the joint.
+    * @param force       the array containing the force vector. Not modified.
+    * @param forceOffset the index of the first element of the force vector.
+    * @param result      the array containing the effort vector for all the joints of the system, only
+    *                    the elements of the given joint are modified. Modified.
+    * @param resultStart the index in {@code result} of the first element of the effort vector.
+    */
+   public static void multiplyMotionSubspaceTransposed(CompiledMultiBodySystem system, int jointIndex, double[] force, int forceOffset, double[] result,
+                                                       int resultStart)
+   {
+      double[] S = system.getMotionSubspaces();
+      int dofOffset = system.getDoFOffset(jointIndex);
+
+      for (int dof = dofOffset; dof < dofOffset + system.getJointDoFs(jointIndex); dof++)
+      {
+         int column = SPATIAL_VECTOR_SIZE * dof;
+         double value = 0.0;
+
+         for (int i = 0; i < SPATIAL_VECTOR_SIZE; i++)
+            value += S[column + i] * force[forceOffset + i];
+
+         result[resultStart + dof] = value;
+      }
+   }
+}
@@ -19,6 +19,7 @@ import us.ihmc.mecano.multiBodySystem.iterators.SubtreeStreams;
 import us.ihmc.mecano.spatial.interfaces.SpatialAccelerationReadOnly;
 import us.ihmc.mecano.spatial.interfaces.TwistReadOnly;
 import us.ihmc.mecano.spatial.interfaces.WrenchReadOnly;
+import us.ihmc.mecano.tools.MecanoSettings;
 
 /**
  * Write and read interface for any joint that gathers all the common information that a joint can
@@ -377,7 +378,8 @@ public interface JointBasics extends JointReadOnly
     */
    default void setJointAngularVelocity(FrameVector3DReadOnly jointAngularVelocity)
    {
-      jointAngularVelocity.checkReferenceFrameMatch(getFrameAfterJoint());
+      if (MecanoSettings.FRAME_CHECKS_ENABLED)
+         jointAngularVelocity.checkReferenceFrameMatch(getFrameAfterJoint());
       setJointAngularVelocity((Vector3DReadOnly) jointAngularVelocity);
    }
 
@@ -408,7 +410,8 @@ public interface JointBasics extends JointReadOnly
     */
    default void setJointLinearVelocity(FrameVector3DReadOnly jointLinearVelocity)
    {
-      jointLinearVelocity.checkReferenceFrameMatch(getFrameAfterJoint());
+      if (MecanoSettings.FRAME_CHECKS_ENABLED)
+         jointLinearVelocity.checkReferenceFrameMatch(getFrameAfterJoint());
       setJointLinearVelocity((Vector3DReadOnly) jointLinearVelocity);
    }
 
@@ -507,7 +510,8 @@ public interface JointBasics extends JointReadOnly
     */
    default void setJointAngularAcceleration(FrameVector3DReadOnly jointAngularAcceleration)
    {
-      jointAngularAcceleration.checkReferenceFrameMatch(getFrameAfterJoint());
+      if (MecanoSettings.FRAME_CHECKS_ENABLED)
+         jointAngularAcceleration.checkReferenceFrameMatch(getFrameAfterJoint());
       setJointAngularAcceleration((Vector3DReadOnly) jointAngularAcceleration);
    }
 
@@ -533,7 +537,8 @@ public interface JointBasics extends JointReadOnly
     */
    default void setJointLinearAcceleration(FrameVector3DReadOnly jointLinearAcceleration)
    {
-      jointLinearAcceleration.checkReferenceFrameMatch(getFrameAfterJoint());
+      if (MecanoSettings.FRAME_CHECKS_ENABLED)
+         jointLinearAcceleration.checkReferenceFrameMatch(getFrameAfterJoint());
       setJointLinearAcceleration((Vector3DReadOnly) jointLinearAcceleration);
    }
 
@@ -625,7 +630,8 @@ public interface JointBasics extends JointReadOnly
     */
    default void setJointTorque(FrameVector3DReadOnly jointTorque)
    {
-      jointTorque.checkReferenceFrameMatch(getFrameAfterJoint());
+      if (MecanoSettings.FRAME_CHECKS_ENABLED)
+         jointTorque.checkReferenceFrameMatch(getFrameAfterJoint());
       setJointTorque((Vector3DReadOnly) jointTorque);
    }
 
@@ -648,7 +654,8 @@ public interface JointBasics extends JointReadOnly
     */
    default void setJointForce(FrameVector3DReadOnly jointForce)
    {
-      jointForce.checkReferenceFrameMatch(getFrameAfterJoint());
+      if (MecanoSettings.FRAME_CHECKS_ENABLED)
+         jointForce.checkReferenceFrameMatch(getFrameAfterJoint());
       setJointForce((Vector3DReadOnly) jointForce);
    }
 
@@ -727,6 +734,41 @@ public interface JointBasics extends JointReadOnly
       return subtreeStream().toArray(JointBasics[]::new);
    }
 
+   /**
+    * Whether the reference frames of this joint have to be updated, i.e. the configuration or velocity
+    * of this joint may have changed since the last call to {@link #updateFramesRecursively()}.
+    * <p>
+    * Implementations that do not track changes of their state should always return {@code true},
+    * which is the default behavior.
+    * </p>
+    *
+    * @return {@code true} if this joint's frames have to be updated, {@code false} if they are known to
+    *         be up-to-date.
+    */
+   default boolean isFrameUpdateRequired()
+   {
+      return true;
+   }
+
+   /**
+    * Sets whether the reference frames of this joint have to be updated.
+    * <p>
+    * This is automatically set to {@code true} when changing the configuration or velocity of this
+    * joint through its setters, and set to {@code false} by {@link #updateFramesRecursively()}. It
+    * should be set to {@code true} by the user when modifying the state of this joint by other means.
+    * </p>
+    * <p>
+    * Implementations that do not track changes of their state can ignore this call, which is the
+    * default behavior.
+    * </p>
+    *
+    * @param frameUpdateRequired whether this joint's frames have to be updated.
+    */
+   default void setFrameUpdateRequired(boolean frameUpdateRequired)
+   {
+      // The default implementation does not track changes, the frames are updated every time.
+   }
+
    /**
     * Updates {@code afterJointFrame} of this joint to take into consideration the new joint
     * configuration. Then calls {@link RigidBody#updateFramesRecursively()} which in its turn updates
@@ -740,15 +782,34 @@ public interface JointBasics extends JointReadOnly
     * In addition to updating their respective poses, the reference frame also updates their velocity
     * based on the joint velocities.
     * </p>
+    * <p>
+    * When this joint has not changed since the last update, see {@link #isFrameUpdateRequired()}, its
+    * frames and the body-fixed frame of its successor are not updated and the recursion continues with
+    * the children joints. This is sufficient as the reference frames lazily account for the changes
+    * of their ancestors when computing their pose and twist.
+    * </p>
     */
    default void updateFramesRecursively()
    {
-      getFrameBeforeJoint().update();
-      getFrameAfterJoint().update();
-
-      if (getSuccessor() != null)
+      if (isFrameUpdateRequired())
       {
-         getSuccessor().updateFramesRecursively();
+         getFrameBeforeJoint().update();
+         getFrameAfterJoint().update();
+         setFrameUpdateRequired(false);
+
+         if (getSuccessor() != null)
+         {
+            getSuccessor().updateFramesRecursively();
+         }
+      }
+      else if (getSuccessor() != null)
+      {
+         List<? extends JointBasics> childrenJoints = getSuccessor().getChildrenJoints();
+
+         for (int childIndex = 0; childIndex < childrenJoints.size(); childIndex++)
+         {
+            childrenJoints.get(childIndex).updateFramesRecursively();
+         }
       }
    }
 }
@@ -0,0 +1,492 @@
+package us.ihmc.mecano.spatial;
+
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple3D.interfaces.Vector3DBasics;
+import us.ihmc.mecano.spatial.interfaces.SpatialVectorReadOnly;
+
+/**
+ * Fixed-size collection of spatial vectors stored in structure-of-arrays.
+ * <p>
+ * All the components are stored in a single array of size {@code 6 * size()} ordered component by
+ * component: first the angular x-component of every vector, then the angular y-component of every
+ * vector, and so on until the linear z-component. The component {@code c}, see
+ * {@link #ANGULAR_X} to {@link #LINEAR_Z}, of the vector of index {@code i} is stored at the index
+ * {@code c * size() + i}.
+ * </p>
+ * <p>
+ * This layout is intended for batch operations over many spatial vectors, e.g. one per rigid-body:
+ * the bulk operations provided here are simple loops over contiguous memory that the JIT can
+ * vectorize. Unlike {@link SpatialVector}, this class does not hold any reference frame
+ * information, it is up to the user to make sure that the operations are performed on vectors
+ * expressed in consistent frames.
+ * </p>
+ * <p>
+ * Similarly, the per-vector transforms used by {@link #applyTransformAsMotion(double[])} and
+ * {@link #applyTransformAsForce(double[])} are stored in structure-of-arrays in a single array of
+ * size {@code 12 * size()}: the 9 elements of the rotation matrix in row-major order followed by the
+ * 3 elements of the translation, see {@link #setTransform(double[], int, int, RigidBodyTransform)}.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class SpatialVectorArray
+{
+   /** Index of the angular x-component. */
+   public static final int ANGULAR_X = 0;
+   /** Index of the angular y-component. */
+   public static final int ANGULAR_Y = 1;
+   /** Index of the angular z-component. */
+   public static final int ANGULAR_Z = 2;
+   /** Index of the linear x-component. */
+   public static final int LINEAR_X = 3;
+   /** Index of the linear y-component. */
+   public static final int LINEAR_Y = 4;
+   /** Index of the linear z-component. */
+   public static final int LINEAR_Z = 5;
+   /** Number of components used to store a transform. */
+   public static final int TRANSFORM_SIZE = 12;
+
+   /** The number of spatial vectors. */
+   private final int size;
+   /** The components of all the spatial vectors. */
+   private final double[] data;
+
+   /**
+    * Creates a new array of {@code size} spatial vectors all initialized to zero.
+    *
+    * @param size the number of spatial vectors.
+    */
+   public SpatialVectorArray(int size)
+   {
+      this.size = size;
+      data = new double[SpatialVectorReadOnly.SIZE * size];
+   }
+
+   /**
+    * Sets all the components of all the vectors to zero.
+    */
+   public void setToZero()
+   {
+      for (int i = 0; i < data.length; i++)
+         data[i] = 0.0;
+   }
+
+   /**
+    * Copies the components of {@code other} into this.
+    *
+    * @param other the other array to copy. Not modified.
+    * @throws IllegalArgumentException if the two arrays have different sizes.
+    */
+   public void set(SpatialVectorArray other)
+   {
+      checkSize(other);
+      System.arraycopy(other.data, 0, data, 0, data.length);
+   }
+
+   /**
+    * Sets the components of the vector of index {@code index}.
+    * <p>
+    * The reference frame of the given vector is ignored.
+    * </p>
+    *
+    * @param index  the index of the vector to set.
+    * @param vector the spatial vector to copy the components of. Not modified.
+    */
+   public void set(int index, SpatialVectorReadOnly vector)
+   {
+      set(index, vector.getAngularPart().getX(), vector.getAngularPart().getY(), vector.getAngularPart().getZ(), vector.getLinearPart().getX(),
+          vector.getLinearPart().getY(), vector.getLinearPart().getZ());
+   }
+
+   /**
+    * Sets the components of the vector of index {@code index}.
+    *
+    * @param index    the index of the vector to set.
+    * @param angularX the new angular x-component.
+    * @param angularY the new angular y-component.
+    * @param angularZ the new angular z-component.
+    * @param linearX  the new linear x-component.
+    * @param linearY  the new linear y-component.
+    * @param linearZ  the new linear z-component.
+    */
+   public void set(int index, double angularX, double angularY, double angularZ, double linearX, double linearY, double linearZ)
+   {
+      data[ANGULAR_X * size + index] = angularX;
+      data[ANGULAR_Y * size + index] = angularY;
+      data[ANGULAR_Z * size + index] = angularZ;
+      data[LINEAR_X * size + index] = linearX;
+      data[LINEAR_Y * size + index] = linearY;
+      data[LINEAR_Z * size + index] = linearZ;
+   }
+
+   /**
+    * Packs the components of the vector of index {@code index}.
+    *
+    * @param index             the index of the vector to get.
+    * @param angularPartToPack the vector in which the angular part is stored. Modified.
+    * @param linearPartToPack  the vector in which the linear part is stored. Modified.
+    */
+   public void get(int index, Vector3DBasics angularPartToPack, Vector3DBasics linearPartToPack)
+   {
+      angularPartToPack.set(data[ANGULAR_X * size + index], data[ANGULAR_Y * size + index], data[ANGULAR_Z * size + index]);
+      linearPartToPack.set(data[LINEAR_X * size + index], data[LINEAR_Y * size + index], data[LINEAR_Z * size + index]);
+   }
+
+   /**
+    * Gets one component of one vector.
+    *
+    * @param component the component to get, see {@link #ANGULAR_X} to {@link #LINEAR_Z}.
+    * @param index     the index of the vector.
+    * @return the value of the component.
+    */
+   public double getElement(int component, int index)
+   {
+      return data[component * size + index];
+   }
+
+   /**
+    * Sets one component of one vector.
+    *
+    * @param component the component to set, see {@link #ANGULAR_X} to {@link #LINEAR_Z}.
+    * @param index     the index of the vector.
+    * @param value     the new value of the component.
+    */
+   public void setElement(int component, int index, double value)
+   {
+      data[component * size + index] = value;
+   }
+
+   /**
+    * Performs a component-wise addition: {@code this[i] += other[i]}.
+    *
+    * @param other the other array to add. Not modified.
+    * @throws IllegalArgumentException if the two arrays have different sizes.
+    */
+   public void add(SpatialVectorArray other)
+   {
+      checkSize(other);
+      double[] otherData = other.data;
+
+      for (int i = 0; i < data.length; i++)
+         data[i] += otherData[i];
+   }
+
+   /**
+    * Performs a component-wise subtraction: {@code this[i] -= other[i]}.
+    *
+    * @param other the other array to subtract. Not modified.
+    * @throws IllegalArgumentException if the two arrays have different sizes.
+    */
+   public void sub(SpatialVectorArray other)
+   {
+      checkSize(other);
+      double[] otherData = other.data;
+
+      for (int i = 0; i < data.length; i++)
+         data[i] -= otherData[i];
+   }
+
+   /**
+    * Scales all the vectors: {@code this[i] *= scale}.
+    *
+    * @param scale the scale factor.
+    */
+   public void scale(double scale)
+   {
+      for (int i = 0; i < data.length; i++)
+         data[i] *= scale;
+   }
+
+   /**
+    * Computes the sum of all the vectors.
+    * <p>
+    * The vectors are assumed to be expressed in the same frame.
+    * </p>
+    *
+    * @param angularPartToPack the vector in which the angular part of the sum is stored. Modified.
+    * @param linearPartToPack  the vector in which the linear part of the sum is stored. Modified.
+    */
+   public void sum(Vector3DBasics angularPartToPack, Vector3DBasics linearPartToPack)
+   {
+      angularPartToPack.set(sumComponent(ANGULAR_X), sumComponent(ANGULAR_Y), sumComponent(ANGULAR_Z));
+      linearPartToPack.set(sumComponent(LINEAR_X), sumComponent(LINEAR_Y), sumComponent(LINEAR_Z));
+   }
+
+   private double sumComponent(int component)
+   {
+      double sum = 0.0;
+      int end = (component + 1) * size;
+
+      for (int i = component * size; i < end; i++)
+         sum += data[i];
+
+      return sum;
+   }
+
+   /**
+    * Computes the cross product of spatial motion vectors, e.g. twists:
+    * <tt>this[i] = motion1[i] &times; motion2[i]</tt>, such that:
+    *
+    * <pre>
+    * &omega; = &omega;<sub>1</sub> &times; &omega;<sub>2</sub>
+    * v = &omega;<sub>1</sub> &times; v<sub>2</sub> + v<sub>1</sub> &times; &omega;<sub>2</sub>
+    * </pre>
+    *
+    * @param motion1 the first array of motion vectors. Not modified.
+    * @param motion2 the second array of motion vectors. Not modified.
+    * @throws IllegalArgumentException if the arrays have different sizes.
+    */
+   public void crossMotion(SpatialVectorArray motion1, SpatialVectorArray motion2)
+   {
+      checkSize(motion1);
+      checkSize(motion2);
+      double[] m1 = motion1.data;
+      double[] m2 = motion2.data;
+      int n = size;
+
+      for (int i = 0; i < n; i++)
+      {
+         double w1x = m1[i], w1y = m1[n + i], w1z = m1[2 * n + i];
+         double v1x = m1[3 * n + i], v1y = m1[4 * n + i], v1z = m1[5 * n + i];
+         double w2x = m2[i], w2y = m2[n + i], w2z = m2[2 * n + i];
+         double v2x = m2[3 * n + i], v2y = m2[4 * n + i], v2z = m2[5 * n + i];
+
+         data[i] = w1y * w2z - w1z * w2y;
+         data[n + i] = w1z * w2x - w1x * w2z;
+         data[2 * n + i] = w1x * w2y - w1y * w2x;
+         data[3 * n + i] = w1y * v2z - w1z * v2y + v1y * w2z - v1z * w2y;
+         data[4 * n + i] = w1z * v2x - w1x * v2z + v1z * w2x - v1x * w2z;
+         data[5 * n + i] = w1x * v2y - w1y * v2x + v1x * w2y - v1y * w2x;
+      }
+   }
+
+   /**
+    * Computes the cross product of spatial motion vectors with spatial force vectors:
+    * <tt>this[i] = motion[i] &times;* force[i]</tt>, such that:
+    *
+    * <pre>
+    * &tau;<sub>new</sub> = &omega; &times; &tau; + v &times; f
+    * f<sub>new</sub> = &omega; &times; f
+    * </pre>
+    *
+    * where <tt>[&omega;; v]</tt> is the motion vector and <tt>[&tau;; f]</tt> the force vector.
+    *
+    * @param motion the array of motion vectors, e.g. twists. Not modified.
+    * @param force  the array of force vectors, e.g. momenta. Not modified.
+    * @throws IllegalArgumentException if the arrays have different sizes.
+    */
+   public void crossForce(SpatialVectorArray motion, SpatialVectorArray force)
+   {
+      checkSize(motion);
+      checkSize(force);
+      double[] m = motion.data;
+      double[] f = force.data;
+      int n = size;
+
+      for (int i = 0; i < n; i++)
+      {
+         double wx = m[i], wy = m[n + i], wz = m[2 * n + i];
+         double vx = m[3 * n + i], vy = m[4 * n + i], vz = m[5 * n + i];
+         double nx = f[i], ny = f[n + i], nz = f[2 * n + i];
+         double fx = f[3 * n + i], fy = f[4 * n + i], fz = f[5 * n + i];
+
+         data[i] = wy * nz - wz * ny + vy * fz - vz * fy;
+         data[n + i] = wz * nx - wx * nz + vz * fx - vx * fz;
+         data[2 * n + i] = wx * ny - wy * nx + vx * fy - vy * fx;
+         data[3 * n + i] = wy * fz - wz * fy;
+         data[4 * n + i] = wz * fx - wx * fz;
+         data[5 * n + i] = wx * fy - wy * fx;
+      }
+   }
+
+   /**
+    * Multiplies spatial inertias with spatial motion vectors: <tt>this[i] = I[i] * motion[i]</tt>,
+    * such that:
+    *
+    * <pre>
+    * &tau; = I &omega; + m c &times; v
+    * f = m v - m c &times; &omega;
+    * </pre>
+    *
+    * where <tt>m</tt>, <tt>c</tt>, and <tt>I</tt> are the mass, center of mass offset, and moment of
+    * inertia around the origin of the frame in which the motion vector is expressed. The inertia
+    * properties are given in arrays of size {@code size()}, one element per vector.
+    *
+    * @param mass          the masses. Not modified.
+    * @param centerOfMassX the x-coordinates of the centers of mass. Not modified.
+    * @param centerOfMassY the y-coordinates of the centers of mass. Not modified.
+    * @param centerOfMassZ the z-coordinates of the centers of mass. Not modified.
+    * @param inertiaXX     the xx-elements of the moments of inertia. Not modified.
+    * @param inertiaYY     the yy-elements of the moments of inertia. Not modified.
+    * @param inertiaZZ     the zz-elements of the moments of inertia. Not modified.
+    * @param inertiaXY     the xy-elements of the moments of inertia. Not modified.
+    * @param inertiaXZ     the xz-elements of the moments of inertia. Not modified.
+    * @param inertiaYZ     the yz-elements of the moments of inertia. Not modified.
+    * @param motion        the array of motion vectors, e.g. twists. Not modified.
+    * @throws IllegalArgumentException if the arrays have different sizes.
+    */
+   public void multiplyInertia(double[] mass, double[] centerOfMassX, double[] centerOfMassY, double[] centerOfMassZ, double[] inertiaXX, double[] inertiaYY,
+                               double[] inertiaZZ, double[] inertiaXY, double[] inertiaXZ, double[] inertiaYZ, SpatialVectorArray motion)
+   {
+      checkSize(motion);
+      double[] v = motion.data;
+      int n = size;
+
+      for (int i = 0; i < n; i++)
+      {
+         double m = mass[i];
+         double mcx = m * centerOfMassX[i], mcy = m * centerOfMassY[i], mcz = m * centerOfMassZ[i];
+         double wx = v[i], wy = v[n + i], wz = v[2 * n + i];
+         double vx = v[3 * n + i], vy = v[4 * n + i], vz = v[5 * n + i];
+
+         data[i] = inertiaXX[i] * wx + inertiaXY[i] * wy + inertiaXZ[i] * wz + mcy * vz - mcz * vy;
+         data[n + i] = inertiaXY[i] * wx + inertiaYY[i] * wy + inertiaYZ[i] * wz + mcz * vx - mcx * vz;
+         data[2 * n + i] = inertiaXZ[i] * wx + inertiaYZ[i] * wy + inertiaZZ[i] * wz + mcx * vy - mcy * vx;
+         data[3 * n + i] = m * vx - (mcy * wz - mcz * wy);
+         data[4 * n + i] = m * vy - (mcz * wx - mcx * wz);
+         data[5 * n + i] = m * vz - (mcx * wy - mcy * wx);
+      }
+   }
+
+   /**
+    * Transforms each vector, considered as a spatial motion vector such as a twist, by its own
+    * transform.
+    * <p>
+    * This is equivalent to {@code SpatialMotionBasics.applyTransform(RigidBodyTransformReadOnly)}:
+    *
+    * <pre>
+    * &omega;<sub>new</sub> = R &omega;
+    * v<sub>new</sub> = R v + P &times; &omega;<sub>new</sub>
+    * </pre>
+    * </p>
+    *
+    * @param transforms the array of size {@code 12 * size()} containing the transforms, see
+    *                   {@link #setTransform(double[], int, int, RigidBodyTransform)}. Not modified.
+    * @throws IllegalArgumentException if the array of transforms is too small.
+    */
+   public void applyTransformAsMotion(double[] transforms)
+   {
+      applyTransform(transforms, true);
+   }
+
+   /**
+    * Transforms each vector, considered as a spatial force vector such as a wrench, by its own
+    * transform.
+    * <p>
+    * This is equivalent to {@code SpatialForceBasics.applyTransform(RigidBodyTransformReadOnly)}:
+    *
+    * <pre>
+    * f<sub>new</sub> = R f
+    * &tau;<sub>new</sub> = R &tau; + P &times; f<sub>new</sub>
+    * </pre>
+    * </p>
+    *
+    * @param transforms the array of size {@code 12 * size()} containing the transforms, see
+    *                   {@link #setTransform(double[], int, int, RigidBodyTransform)}. Not modified.
+    * @throws IllegalArgumentException if the array of transforms is too small.
+    */
+   public void applyTransformAsForce(double[] transforms)
+   {
+      applyTransform(transforms, false);
+   }
+
+   private void applyTransform(double[] transforms, boolean isMotion)
+   {
+      if (transforms.length < TRANSFORM_SIZE * size)
+         throw new IllegalArgumentException("The array of transforms is too small, expected at least " + TRANSFORM_SIZE * size + " but was "
+               + transforms.length);
+
+      double[] T = transforms;
+      int n = size;
+
+      for (int i = 0; i < n; i++)
+      {
+         double r00 = T[i], r01 = T[n + i], r02 = T[2 * n + i];
+         double r10 = T[3 * n + i], r11 = T[4 * n + i], r12 = T[5 * n + i];
+         double r20 = T[6 * n + i], r21 = T[7 * n + i], r22 = T[8 * n + i];
+         double px = T[9 * n + i], py = T[10 * n + i], pz = T[11 * n + i];
+
+         double ax = data[i], ay = data[n + i], az = data[2 * n + i];
+         double lx = data[3 * n + i], ly = data[4 * n + i], lz = data[5 * n + i];
+
+         double newAx = r00 * ax + r01 * ay + r02 * az;
+         double newAy = r10 * ax + r11 * ay + r12 * az;
+         double newAz = r20 * ax + r21 * ay + r22 * az;
+         double newLx = r00 * lx + r01 * ly + r02 * lz;
+         double newLy = r10 * lx + r11 * ly + r12 * lz;
+         double newLz = r20 * lx + r21 * ly + r22 * lz;
+
+         if (isMotion)
+         {
+            newLx += py * newAz - pz * newAy;
+            newLy += pz * newAx - px * newAz;
+            newLz += px * newAy - py * newAx;
+         }
+         else
+         {
+            newAx += py * newLz - pz * newLy;
+            newAy += pz * newLx - px * newLz;
+            newAz += px * newLy - py * newLx;
+         }
+
+         data[i] = newAx;
+         data[n + i] = newAy;
+         data[2 * n + i] = newAz;
+         data[3 * n + i] = newLx;
+         data[4 * n + i] = newLy;
+         data[5 * n + i] = newLz;
+      }
+   }
+
+   /**
+    * Stores the given transform at the given index in an array of transforms laid out in
+    * structure-of-arrays.
+    *
+    * @param transformsToPack the array of size {@code 12 * size} in which the transform is stored.
+    *                         Modified.
+    * @param size             the number of transforms stored in the array.
+    * @param index            the index of the transform to set.
+    * @param transform        the transform to store. Not modified.
+    */
+   public static void setTransform(double[] transformsToPack, int size, int index, RigidBodyTransform transform)
+   {
+      transformsToPack[index] = transform.getM00();
+      transformsToPack[size + index] = transform.getM01();
+      transformsToPack[2 * size + index] = transform.getM02();
+      transformsToPack[3 * size + index] = transform.getM10();
+      transformsToPack[4 * size + index] = transform.getM11();
+      transformsToPack[5 * size + index] = transform.getM12();
+      transformsToPack[6 * size + index] = transform.getM20();
+      transformsToPack[7 * size + index] = transform.getM21();
+      transformsToPack[8 * size + index] = transform.getM22();
+      transformsToPack[9 * size + index] = transform.getM03();
+      transformsToPack[10 * size + index] = transform.getM13();
+      transformsToPack[11 * size + index] = transform.getM23();
+   }
+
+   private void checkSize(SpatialVectorArray other)
+   {
+      if (other.size != size)
+         throw new IllegalArgumentException("Size mismatch: expected " + size + " but was " + other.size);
+   }
+
+   /**
+    * Gets the number of spatial vectors in this array.
+    *
+    * @return the number of vectors.
+    */
+   public int size()
+   {
+      return size;
+   }
+
+   /**
+    * Gets the internal array storing the components of all the vectors.
+    *
+    * @return the internal data.
+    */
+   public double[] getData()
+   {
+      return data;
+   }
+}
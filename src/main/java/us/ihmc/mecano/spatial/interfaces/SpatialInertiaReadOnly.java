@@ -10,6 +10,7 @@ import us.ihmc.euclid.referenceFrame.interfaces.ReferenceFrameHolder;
 import us.ihmc.euclid.tools.EuclidCoreTools;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DBasics;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
+import us.ihmc.mecano.tools.MecanoSettings;
 import us.ihmc.mecano.tools.MecanoTools;
 
 /**
@@ -85,6 +86,25 @@ public interface SpatialInertiaReadOnly extends ReferenceFrameHolder
     */
    ReferenceFrame getBodyFrame();
 
+   /**
+    * Checks if the reference frame in which this spatial inertia matrix is expressed matches the query
+    * {@code referenceFrame}.
+    * <p>
+    * The check is skipped when {@link MecanoSettings#FRAME_CHECKS_ENABLED} is {@code false}.
+    * </p>
+    *
+    * @param referenceFrame the query to compare against the reference frame held by {@code this}. Not
+    *                       modified.
+    * @throws ReferenceFrameMismatchException if the two reference frames are not the same:
+    *                                         {@code this.getReferenceFrame() != referenceFrame}.
+    */
+   @Override
+   default void checkReferenceFrameMatch(ReferenceFrame referenceFrame) throws ReferenceFrameMismatchException
+   {
+      if (MecanoSettings.FRAME_CHECKS_ENABLED)
+         ReferenceFrameHolder.super.checkReferenceFrameMatch(referenceFrame);
+   }
+
    /**
     * Tests whether any component of this spatial inertia matrix is equal to {@link Double#NaN}.
     * 
@@ -134,7 +154,7 @@ public interface SpatialInertiaReadOnly extends ReferenceFrameHolder
     */
    default void checkReferenceFrameMatch(ReferenceFrame bodyFrame, ReferenceFrame expressedInFrame)
    {
-      ReferenceFrameHolder.super.checkReferenceFrameMatch(expressedInFrame);
+      checkReferenceFrameMatch(expressedInFrame);
       checkBodyFrameMatch(bodyFrame);
    }
 
@@ -147,7 +167,7 @@ public interface SpatialInertiaReadOnly extends ReferenceFrameHolder
     */
    default void checkBodyFrameMatch(ReferenceFrame bodyFrame)
    {
-      if (getBodyFrame() != bodyFrame)
+      if (MecanoSettings.FRAME_CHECKS_ENABLED && getBodyFrame() != bodyFrame)
          throw new ReferenceFrameMismatchException("bodyFrame mismatch: this.bodyFrame = " + getBodyFrame() + ", other bodyFrame = " + bodyFrame);
    }
 
@@ -4,6 +4,7 @@ import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.referenceFrame.exceptions.ReferenceFrameMismatchException;
 import us.ihmc.mecano.spatial.SpatialAcceleration;
 import us.ihmc.mecano.spatial.Twist;
+import us.ihmc.mecano.tools.MecanoSettings;
 
 /**
  * Read-only interface for a spatial motion vector.
@@ -119,7 +120,7 @@ public interface SpatialMotionReadOnly extends SpatialVectorReadOnly
     */
    default void checkBodyFrameMatch(ReferenceFrame bodyFrame)
    {
-      if (getBodyFrame() != bodyFrame)
+      if (MecanoSettings.FRAME_CHECKS_ENABLED && getBodyFrame() != bodyFrame)
          throw new ReferenceFrameMismatchException("bodyFrame mismatch: this.bodyFrame = " + getBodyFrame() + ", other bodyFrame = " + bodyFrame);
    }
 
@@ -132,7 +133,7 @@ public interface SpatialMotionReadOnly extends SpatialVectorReadOnly
     */
    default void checkBaseFrameMatch(ReferenceFrame baseFrame)
    {
-      if (getBaseFrame() != baseFrame)
+      if (MecanoSettings.FRAME_CHECKS_ENABLED && getBaseFrame() != baseFrame)
          throw new ReferenceFrameMismatchException("baseFrame mismatch: this.baseFrame = " + getBaseFrame() + ", other baseFrame = " + baseFrame);
    }
 
@@ -147,7 +148,7 @@ public interface SpatialMotionReadOnly extends SpatialVectorReadOnly
     */
    default void checkExpressedInFrameMatch(ReferenceFrame expressedInFrame)
    {
-      if (getReferenceFrame() != expressedInFrame)
+      if (MecanoSettings.FRAME_CHECKS_ENABLED && getReferenceFrame() != expressedInFrame)
          throw new ReferenceFrameMismatchException("expressedInFrame mismatch: this.expressedInFrame = " + getReferenceFrame() + ", other expressedInFrame = "
                + expressedInFrame);
    }
@@ -3,8 +3,10 @@ package us.ihmc.mecano.spatial.interfaces;
 import org.ejml.data.DenseMatrix64F;
 
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.referenceFrame.exceptions.ReferenceFrameMismatchException;
 import us.ihmc.euclid.referenceFrame.interfaces.FrameVector3DReadOnly;
 import us.ihmc.euclid.referenceFrame.interfaces.ReferenceFrameHolder;
+import us.ihmc.mecano.tools.MecanoSettings;
 
 /**
  * Read-only interface for a spatial vector.
@@ -60,6 +62,25 @@ public interface SpatialVectorReadOnly extends ReferenceFrameHolder
    @Override
    ReferenceFrame getReferenceFrame();
 
+   /**
+    * Checks if the reference frame in which this vector is expressed matches the query
+    * {@code referenceFrame}.
+    * <p>
+    * The check is skipped when {@link MecanoSettings#FRAME_CHECKS_ENABLED} is {@code false}.
+    * </p>
+    *
+    * @param referenceFrame the query to compare against the reference frame held by {@code this}. Not
+    *                       modified.
+    * @throws ReferenceFrameMismatchException if the two reference frames are not the same:
+    *                                         {@code this.getReferenceFrame() != referenceFrame}.
+    */
+   @Override
+   default void checkReferenceFrameMatch(ReferenceFrame referenceFrame) throws ReferenceFrameMismatchException
+   {
+      if (MecanoSettings.FRAME_CHECKS_ENABLED)
+         ReferenceFrameHolder.super.checkReferenceFrameMatch(referenceFrame);
+   }
+
    /**
     * Tests if this vector contains a {@link Double#NaN}.
     *
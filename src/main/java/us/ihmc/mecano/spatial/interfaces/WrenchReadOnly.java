@@ -4,6 +4,7 @@ import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.referenceFrame.exceptions.ReferenceFrameMismatchException;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
 import us.ihmc.mecano.spatial.Wrench;
+import us.ihmc.mecano.tools.MecanoSettings;
 
 /**
  * Read-only interface for a wrench.
@@ -115,7 +116,7 @@ public interface WrenchReadOnly extends SpatialForceReadOnly
     */
    default void checkBodyFrameMatch(ReferenceFrame bodyFrame)
    {
-      if (getBodyFrame() != bodyFrame)
+      if (MecanoSettings.FRAME_CHECKS_ENABLED && getBodyFrame() != bodyFrame)
          throw new ReferenceFrameMismatchException("bodyFrame mismatch: this.bodyFrame = " + getBodyFrame() + ", other bodyFrame = " + bodyFrame);
    }
 
@@ -130,7 +131,7 @@ public interface WrenchReadOnly extends SpatialForceReadOnly
     */
    default void checkExpressedInFrameMatch(ReferenceFrame expressedInFrame)
    {
-      if (getReferenceFrame() != expressedInFrame)
+      if (MecanoSettings.FRAME_CHECKS_ENABLED && getReferenceFrame() != expressedInFrame)
          throw new ReferenceFrameMismatchException("expressedInFrame mismatch: this.expressedInFrame = " + getReferenceFrame() + ", other expressedInFrame = "
                + expressedInFrame);
    }
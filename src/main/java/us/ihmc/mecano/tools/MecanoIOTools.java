@@ -2,11 +2,15 @@ package us.ihmc.mecano.tools;
 
 import static us.ihmc.euclid.tools.EuclidCoreIOTools.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 import org.ejml.data.DenseMatrix64F;
 
 import us.ihmc.euclid.matrix.interfaces.Matrix3DReadOnly;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.tools.EuclidCoreIOTools;
+import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
 import us.ihmc.mecano.spatial.interfaces.MomentumReadOnly;
 import us.ihmc.mecano.spatial.interfaces.SpatialAccelerationReadOnly;
@@ -23,11 +27,33 @@ import us.ihmc.mecano.spatial.interfaces.WrenchReadOnly;
  * At this time, only a few print tools are offered, additional features will come in future
  * releases.
  * </p>
+ * <p>
+ * The {@code append...} methods are garbage free alternatives to the {@code get...String} methods
+ * intended for logging from real-time threads: they write into a caller-supplied
+ * {@link Appendable}, such as a {@link StringBuilder} or a {@link java.nio.CharBuffer}, and format
+ * numbers with a fixed precision without using {@link java.util.Formatter}.
+ * </p>
  *
  * @author Sylvain Bertrand
  */
 public class MecanoIOTools
 {
+   /**
+    * The number of decimals used by default in the {@code append...} methods, matching
+    * {@link EuclidCoreIOTools#DEFAULT_FORMAT}.
+    */
+   public static final int DEFAULT_PRECISION = 3;
+   /** The largest precision supported by {@link #appendDouble(Appendable, double, int)}. */
+   public static final int MAX_PRECISION = 15;
+
+   private static final long[] POWERS_OF_TEN = new long[19];
+   static
+   {
+      POWERS_OF_TEN[0] = 1L;
+      for (int i = 1; i < POWERS_OF_TEN.length; i++)
+         POWERS_OF_TEN[i] = 10L * POWERS_OF_TEN[i - 1];
+   }
+
    /**
     * Gets a representative {@code String} of {@code spatialVector} as follows:
     *
@@ -579,4 +605,541 @@ public class MecanoIOTools
 
       return ret;
    }
+
+   /**
+    * Appends a representative {@code String} of {@code spatialVector} to {@code output} as follows:
+    *
+    * <pre>
+    * Spatial Vector: [angular = ( 0.174,  0.732, -0.222 ), linear = ( 0.174,  0.732, -0.222 )] - expressedInFrame
+    * </pre>
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output        the destination of the characters. Modified.
+    * @param spatialVector the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendSpatialVectorString(Appendable output, SpatialVectorReadOnly spatialVector)
+   {
+      appendSpatialVectorString(output, DEFAULT_PRECISION, spatialVector);
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code spatialVector} to {@code output} given the
+    * number of decimals to use.
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output        the destination of the characters. Modified.
+    * @param precision     the number of decimals to use for each number.
+    * @param spatialVector the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendSpatialVectorString(Appendable output, int precision, SpatialVectorReadOnly spatialVector)
+   {
+      if (spatialVector == null)
+      {
+         append(output, "null");
+      }
+      else
+      {
+         append(output, "Spatial Vector: ");
+         appendSpatialVectorParts(output, precision, spatialVector.getReferenceFrame(), spatialVector.getAngularPart(), spatialVector.getLinearPart());
+      }
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code wrench} to {@code output} as follows:
+    *
+    * <pre>
+    * Wrench exerted on bodyFrame: [angular = ( 0.174,  0.732, -0.222 ), linear = ( 0.174,  0.732, -0.222 )] - expressedInFrame
+    * </pre>
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output the destination of the characters. Modified.
+    * @param wrench the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendWrenchString(Appendable output, WrenchReadOnly wrench)
+   {
+      appendWrenchString(output, DEFAULT_PRECISION, wrench);
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code wrench} to {@code output} given the number of
+    * decimals to use.
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output    the destination of the characters. Modified.
+    * @param precision the number of decimals to use for each number.
+    * @param wrench    the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendWrenchString(Appendable output, int precision, WrenchReadOnly wrench)
+   {
+      if (wrench == null)
+      {
+         append(output, "null");
+      }
+      else
+      {
+         append(output, "Wrench exerted on ");
+         append(output, String.valueOf(wrench.getBodyFrame()));
+         append(output, ": ");
+         appendSpatialVectorParts(output, precision, wrench.getReferenceFrame(), wrench.getAngularPart(), wrench.getLinearPart());
+      }
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code twist} to {@code output} as follows:
+    *
+    * <pre>
+    * Twist of bodyFrame, with respect to baseFrame: [angular = ( 0.174,  0.732, -0.222 ), linear = ( 0.174,  0.732, -0.222 )] - expressedInFrame
+    * </pre>
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output the destination of the characters. Modified.
+    * @param twist  the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendTwistString(Appendable output, TwistReadOnly twist)
+   {
+      appendTwistString(output, DEFAULT_PRECISION, twist);
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code twist} to {@code output} given the number of
+    * decimals to use.
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output    the destination of the characters. Modified.
+    * @param precision the number of decimals to use for each number.
+    * @param twist     the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendTwistString(Appendable output, int precision, TwistReadOnly twist)
+   {
+      if (twist == null)
+      {
+         append(output, "null");
+      }
+      else
+      {
+         append(output, "Twist of ");
+         append(output, String.valueOf(twist.getBodyFrame()));
+         append(output, ", with respect to ");
+         append(output, String.valueOf(twist.getBaseFrame()));
+         append(output, ": ");
+         appendSpatialVectorParts(output, precision, twist.getReferenceFrame(), twist.getAngularPart(), twist.getLinearPart());
+      }
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code spatialAcceleration} to {@code output} as
+    * follows:
+    *
+    * <pre>
+    * Spatial acceleration of bodyFrame, with respect to baseFrame: [angular = ( 0.174,  0.732, -0.222 ), linear = ( 0.174,  0.732, -0.222 )] - expressedInFrame
+    * </pre>
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output              the destination of the characters. Modified.
+    * @param spatialAcceleration the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendSpatialAccelerationString(Appendable output, SpatialAccelerationReadOnly spatialAcceleration)
+   {
+      appendSpatialAccelerationString(output, DEFAULT_PRECISION, spatialAcceleration);
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code spatialAcceleration} to {@code output} given
+    * the number of decimals to use.
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output              the destination of the characters. Modified.
+    * @param precision           the number of decimals to use for each number.
+    * @param spatialAcceleration the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendSpatialAccelerationString(Appendable output, int precision, SpatialAccelerationReadOnly spatialAcceleration)
+   {
+      if (spatialAcceleration == null)
+      {
+         append(output, "null");
+      }
+      else
+      {
+         append(output, "Spatial acceleration of ");
+         append(output, String.valueOf(spatialAcceleration.getBodyFrame()));
+         append(output, ", with respect to ");
+         append(output, String.valueOf(spatialAcceleration.getBaseFrame()));
+         append(output, ": ");
+         appendSpatialVectorParts(output,
+                                  precision,
+                                  spatialAcceleration.getReferenceFrame(),
+                                  spatialAcceleration.getAngularPart(),
+                                  spatialAcceleration.getLinearPart());
+      }
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code spatialInertia} to {@code output} as follows:
+    *
+    * <pre>
+    * Spatial inertia of bodyFrame expressed in World:
+    * / 0.253,  0.000,  0.000,  0.000,  0.554, -0.247 \
+    * | 0.000,  0.994,  0.000, -0.554,  0.000,  0.387 |
+    * | 0.000,  0.000,  0.084,  0.247, -0.387,  0.000 |
+    * | 0.000, -0.554,  0.247,  0.773,  0.000,  0.000 |
+    * | 0.554,  0.000, -0.387,  0.000,  0.773,  0.000 |
+    * \-0.247,  0.387,  0.000,  0.000,  0.000,  0.773 /
+    * </pre>
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output         the destination of the characters. Modified.
+    * @param spatialInertia the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendSpatialInertiaString(Appendable output, SpatialInertiaReadOnly spatialInertia)
+   {
+      appendSpatialInertiaString(output, DEFAULT_PRECISION, spatialInertia);
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code spatialInertia} to {@code output} given the
+    * number of decimals to use.
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output         the destination of the characters. Modified.
+    * @param precision      the number of decimals to use for each number.
+    * @param spatialInertia the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendSpatialInertiaString(Appendable output, int precision, SpatialInertiaReadOnly spatialInertia)
+   {
+      if (spatialInertia == null)
+      {
+         append(output, "null");
+      }
+      else
+      {
+         appendSpatialInertiaString(output,
+                                    precision,
+                                    spatialInertia.getBodyFrame(),
+                                    spatialInertia.getReferenceFrame(),
+                                    spatialInertia.getMass(),
+                                    spatialInertia.getCenterOfMassOffset(),
+                                    spatialInertia.getMomentOfInertia());
+      }
+   }
+
+   /**
+    * Appends a representative {@code String} of a spatial inertia to {@code output} given the number
+    * of decimals to use.
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output              the destination of the characters. Modified.
+    * @param precision           the number of decimals to use for each number.
+    * @param bodyFrame           what we are specifying the inertia of.
+    * @param expressedInFrame    the reference frame in which the inertia is expressed.
+    * @param mass                the mass part of the spatial inertia.
+    * @param centerOfMassOffset  the offset from the frame's origin of the center of mass. Not
+    *                            modified.
+    * @param massMomentOfInertia the mass moment of inertia part. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendSpatialInertiaString(Appendable output, int precision, ReferenceFrame bodyFrame, ReferenceFrame expressedInFrame, double mass,
+                                                 Tuple3DReadOnly centerOfMassOffset, Matrix3DReadOnly massMomentOfInertia)
+   {
+      append(output, "Spatial inertia of ");
+      append(output, String.valueOf(bodyFrame));
+      append(output, " expressed in ");
+      append(output, String.valueOf(expressedInFrame));
+      append(output, ":\n");
+
+      for (int row = 0; row < 6; row++)
+      {
+         appendMatrixRowPrefix(output, row, 6);
+
+         for (int col = 0; col < 6; col++)
+         {
+            if (col > 0)
+               append(output, ", ");
+
+            double value;
+
+            if (row < 3 && col < 3)
+               value = massMomentOfInertia.getElement(row, col);
+            else if (row < 3)
+               value = mass * getTildeElement(centerOfMassOffset, row, col - 3);
+            else if (col < 3)
+               value = mass * getTildeElement(centerOfMassOffset, col, row - 3);
+            else
+               value = row == col ? mass : 0.0;
+
+            appendDouble(output, value, precision);
+         }
+
+         appendMatrixRowSuffix(output, row, 6);
+      }
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code denseMatrix64F} to {@code output} as follows:
+    *
+    * <pre>
+    * / 0.253,  0.000,  0.000,  0.000,  0.554, -0.247 \
+    * | 0.000,  0.994,  0.000, -0.554,  0.000,  0.387 |
+    * | 0.000,  0.000,  0.084,  0.247, -0.387,  0.000 |
+    * | 0.000, -0.554,  0.247,  0.773,  0.000,  0.000 |
+    * | 0.554,  0.000, -0.387,  0.000,  0.773,  0.000 |
+    * \-0.247,  0.387,  0.000,  0.000,  0.000,  0.773 /
+    * </pre>
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output         the destination of the characters. Modified.
+    * @param denseMatrix64F the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendDenseMatrix64FString(Appendable output, DenseMatrix64F denseMatrix64F)
+   {
+      appendDenseMatrix64FString(output, DEFAULT_PRECISION, denseMatrix64F);
+   }
+
+   /**
+    * Appends a representative {@code String} of {@code denseMatrix64F} to {@code output} given the
+    * number of decimals to use.
+    * <p>
+    * This method is garbage free when {@code output} is a {@link StringBuilder} or a
+    * {@link java.nio.CharBuffer} with enough capacity.
+    * </p>
+    *
+    * @param output         the destination of the characters. Modified.
+    * @param precision      the number of decimals to use for each number.
+    * @param denseMatrix64F the object to append the {@code String} of. Not modified.
+    * @throws UncheckedIOException if {@code output} throws an {@link IOException}.
+    */
+   public static void appendDenseMatrix64FString(Appendable output, int precision, DenseMatrix64F denseMatrix64F)
+   {
+      int numRows = denseMatrix64F.getNumRows();
+      int numCols = denseMatrix64F.getNumCols();
+
+      for (int row = 0; row < numRows; row++)
+      {
+         appendMatrixRowPrefix(output, row, numRows);
+
+         for (int col = 0; col < numCols; col++)
+         {
+            if (col > 0)
+               append(output, ", ");
+            appendDouble(output, denseMatrix64F.unsafe_get(row, col), precision);
+         }
+
+         appendMatrixRowSuffix(output, row, numRows);
+      }
+   }
+
+   /**
+    * Appends the given {@code value} to {@code output} with a fixed number of decimals.
+    * <p>
+    * The output is equivalent to {@code String.format("%" + (precision + 3) + "." + precision + "f", value)},
+    * e.g. {@code " 0.174"} or {@code "-0.222"} for a precision of 3, but is garbage free. The last
+    * digit may differ from {@link java.util.Formatter} when the value is almost exactly halfway between
+    * two decimals. Values too large to be scaled by {@code 10^precision} into a {@code long} are
+    * formatted with {@link java.util.Formatter}.
+    * </p>
+    *
+    * @param output    the destination of the characters. Modified.
+    * @param value     the value to append.
+    * @param precision the number of decimals, in [0, {@link #MAX_PRECISION}].
+    * @throws IllegalArgumentException if {@code precision} is not in [0, {@link #MAX_PRECISION}].
+    * @throws UncheckedIOException     if {@code output} throws an {@link IOException}.
+    */
+   public static void appendDouble(Appendable output, double value, int precision)
+   {
+      if (precision < 0 || precision > MAX_PRECISION)
+         throw new IllegalArgumentException("The precision must be in [0, " + MAX_PRECISION + "], was: " + precision);
+
+      int width = precision + 3;
+
+      if (Double.isNaN(value))
+      {
+         appendPadded(output, "NaN", width);
+         return;
+      }
+      if (Double.isInfinite(value))
+      {
+         appendPadded(output, value > 0.0 ? "Infinity" : "-Infinity", width);
+         return;
+      }
+
+      boolean isNegative = Double.doubleToRawLongBits(value) < 0L;
+      long scale = POWERS_OF_TEN[precision];
+      double scaledValue = Math.abs(value) * scale;
+
+      if (scaledValue >= 1.0e18)
+      {
+         append(output, String.format("%" + width + "." + precision + "f", value));
+         return;
+      }
+
+      long scaledLong = Math.round(scaledValue);
+      long integerPart = scaledLong / scale;
+      long fractionalPart = scaledLong % scale;
+
+      int integerLength = 1;
+      while (integerLength < POWERS_OF_TEN.length && integerPart >= POWERS_OF_TEN[integerLength])
+         integerLength++;
+
+      int length = integerLength + (precision > 0 ? precision + 1 : 0) + (isNegative ? 1 : 0);
+
+      for (int i = length; i < width; i++)
+         append(output, ' ');
+      if (isNegative)
+         append(output, '-');
+
+      for (int i = integerLength - 1; i >= 0; i--)
+         append(output, (char) ('0' + (integerPart / POWERS_OF_TEN[i]) % 10L));
+
+      if (precision > 0)
+      {
+         append(output, '.');
+
+         for (int i = precision - 1; i >= 0; i--)
+            append(output, (char) ('0' + (fractionalPart / POWERS_OF_TEN[i]) % 10L));
+      }
+   }
+
+   private static void appendSpatialVectorParts(Appendable output, int precision, ReferenceFrame expressedInFrame, Tuple3DReadOnly angularPart,
+                                                Tuple3DReadOnly linearPart)
+   {
+      append(output, "[angular = ");
+      appendTuple3D(output, precision, angularPart);
+      append(output, ", linear = ");
+      appendTuple3D(output, precision, linearPart);
+      append(output, "] - ");
+      append(output, String.valueOf(expressedInFrame));
+   }
+
+   private static void appendTuple3D(Appendable output, int precision, Tuple3DReadOnly tuple)
+   {
+      if (tuple == null)
+      {
+         append(output, "null");
+      }
+      else
+      {
+         append(output, '(');
+         appendDouble(output, tuple.getX(), precision);
+         append(output, ", ");
+         appendDouble(output, tuple.getY(), precision);
+         append(output, ", ");
+         appendDouble(output, tuple.getZ(), precision);
+         append(output, " )");
+      }
+   }
+
+   private static void appendMatrixRowPrefix(Appendable output, int row, int numRows)
+   {
+      if (row == 0)
+         append(output, '/');
+      else if (row == numRows - 1)
+         append(output, '\\');
+      else
+         append(output, '|');
+   }
+
+   private static void appendMatrixRowSuffix(Appendable output, int row, int numRows)
+   {
+      if (row == 0)
+         append(output, " \\\n");
+      else if (row == numRows - 1)
+         append(output, " /");
+      else
+         append(output, " |\n");
+   }
+
+   private static void appendPadded(Appendable output, String value, int width)
+   {
+      for (int i = value.length(); i < width; i++)
+         append(output, ' ');
+      append(output, value);
+   }
+
+   /**
+    * Gets the element of the tilde form of {@code tuple}:
+    *
+    * <pre>
+    *     /  0 -z  y \
+    * M = |  z  0 -x |
+    *     \ -y  x  0 /
+    * </pre>
+    */
+   private static double getTildeElement(Tuple3DReadOnly tuple, int row, int column)
+   {
+      if (row == column)
+         return 0.0;
+
+      double element = tuple.getElement(3 - row - column);
+      return (column - row + 3) % 3 == 2 ? element : -element;
+   }
+
+   private static void append(Appendable output, CharSequence value)
+   {
+      try
+      {
+         output.append(value);
+      }
+      catch (IOException e)
+      {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   private static void append(Appendable output, char value)
+   {
+      try
+      {
+         output.append(value);
+      }
+      catch (IOException e)
+      {
+         throw new UncheckedIOException(e);
+      }
+   }
 }
@@ -0,0 +1,41 @@
+package us.ihmc.mecano.tools;
+
+/**
+ * This class gathers the global settings of this library.
+ * <p>
+ * The settings are read once from the system properties when this class is loaded and cannot be
+ * changed afterwards. Being {@code static final}, they are treated as constants by the JIT compiler
+ * which can then entirely remove the code they disable.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public final class MecanoSettings
+{
+   /**
+    * Name of the system property used to disable the reference frame consistency checks, e.g.
+    * {@code -Dmecano.disableFrameChecks=true}.
+    */
+   public static final String DISABLE_FRAME_CHECKS_PROPERTY = "mecano.disableFrameChecks";
+
+   /**
+    * Whether the reference frame consistency checks performed by the spatial vectors, spatial inertia
+    * matrices, and joints of this library are enabled.
+    * <p>
+    * The checks are enabled by default. When disabled, operating on objects with mismatching frames
+    * does not throw a {@code ReferenceFrameMismatchException} anymore and silently produces wrong
+    * results. The checks should only be disabled in hot loops of code that has been validated with
+    * the checks enabled.
+    * </p>
+    * <p>
+    * Note that the checks performed internally by the frame geometry objects from Euclid are not
+    * affected by this setting.
+    * </p>
+    */
+   public static final boolean FRAME_CHECKS_ENABLED = !Boolean.getBoolean(DISABLE_FRAME_CHECKS_PROPERTY);
+
+   private MecanoSettings()
+   {
+      // Suppresses default constructor, ensuring non-instantiability.
+   }
+}
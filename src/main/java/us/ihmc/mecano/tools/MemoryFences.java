@@ -0,0 +1,37 @@
+package us.ihmc.mecano.tools;
+
+/**
+ * Memory fence used to order the accesses to memory shared with other processes, such as a
+ * {@link java.nio.MappedByteBuffer}, for which the Java memory model does not provide any ordering
+ * guarantee.
+ * <p>
+ * Java 8 does not provide a public API for fences, the fence is emitted with a write followed by a
+ * read of a volatile field: the accesses before the fence cannot be moved after the volatile write,
+ * the accesses after the fence cannot be moved before the volatile read, and the volatile write and
+ * read cannot be reordered with each other.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+final class MemoryFences
+{
+   /** Volatile field written then read by each fence. */
+   private static volatile int fence;
+
+   private MemoryFences()
+   {
+      // Suppresses default constructor, ensuring non-instantiability.
+   }
+
+   /**
+    * Ensures that the loads and stores before this fence are not reordered with the loads and stores
+    * after it.
+    */
+   static void fullFence()
+   {
+      fence = 0;
+      // The value is not needed, only the volatile read matters.
+      @SuppressWarnings("unused")
+      int value = fence;
+   }
+}
@@ -0,0 +1,460 @@
+package us.ihmc.mecano.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import us.ihmc.euclid.matrix.Matrix3D;
+import us.ihmc.euclid.matrix.interfaces.Matrix3DReadOnly;
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.euclid.tuple3D.interfaces.Tuple3DReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.FixedJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.PlanarJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.PrismaticJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RevoluteJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.SixDoFJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.SphericalJointReadOnly;
+import us.ihmc.mecano.spatial.interfaces.SpatialInertiaReadOnly;
+import us.ihmc.mecano.tools.MultiBodySystemFactories.JointBuilder;
+import us.ihmc.mecano.tools.MultiBodySystemFactories.RigidBodyBuilder;
+
+/**
+ * This class provides tools to save and load the description of a multi-body system using a compact
+ * binary format.
+ * <p>
+ * The description includes for each joint its type, name, offset with respect to its predecessor,
+ * axis and limits for 1-DoF joints, and for each rigid-body its name, inertia pose, and spatial
+ * inertia. The state of the joints is not saved, see {@link MultiBodySystemStateCodec} for that
+ * purpose.
+ * </p>
+ * <p>
+ * The format is designed to be loaded in a single pass: the number of joints is written first such
+ * that the collections used when loading are presized, the number of rigid-bodies being the number
+ * of joints plus one for the root body, and the joints are written such that the predecessor of a
+ * joint is always loaded before the joint. The multi-body system is rebuilt using the
+ * {@link JointBuilder} and {@link RigidBodyBuilder} interfaces such that custom implementations can
+ * be used.
+ * </p>
+ * <p>
+ * The description is laid out as follows, using the encoding of {@link DataOutput}:
+ *
+ * <pre>
+ * | magic number (int) | version (int) | number of joints (int) |
+ * | root body name (UTF) | root body transform |
+ * then for each joint in depth-first order:
+ * | joint type (byte) | predecessor index (int) | joint name (UTF) | has offset (boolean) | [offset transform] |
+ * | [axis (3 doubles) | position, velocity, and effort limits (6 doubles)] for 1-DoF joints only |
+ * | successor name (UTF) | successor transform | mass (double) | moment of inertia (9 doubles) | center of mass (3 doubles) |
+ * </pre>
+ *
+ * where a transform is stored as the first 3 rows of its 4-by-4 matrix in row-major order, i.e. 12
+ * doubles, the predecessor index is 0 for the root body and {@code i + 1} for the successor of the
+ * {@code i}<sup>th</sup> joint, and the joint type is one of the joint type tags of this class.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class MultiBodySystemModelIOTools
+{
+   /** Identifies a model description. */
+   public static final int MAGIC_NUMBER = 0x4D45434D;
+   /** The version of the format. */
+   public static final int VERSION = 1;
+
+   /*
+    * The joint type tags are part of the format: their values must not be changed and new joint types
+    * should be given new values.
+    */
+   /** Joint type tag of a {@link FixedJointReadOnly}. */
+   static final byte FIXED_JOINT = 0;
+   /** Joint type tag of a {@link RevoluteJointReadOnly}. */
+   static final byte REVOLUTE_JOINT = 1;
+   /** Joint type tag of a {@link PrismaticJointReadOnly}. */
+   static final byte PRISMATIC_JOINT = 2;
+   /** Joint type tag of a {@link SphericalJointReadOnly}. */
+   static final byte SPHERICAL_JOINT = 3;
+   /** Joint type tag of a {@link PlanarJointReadOnly}. */
+   static final byte PLANAR_JOINT = 4;
+   /** Joint type tag of a {@link SixDoFJointReadOnly}. */
+   static final byte SIX_DOF_JOINT = 5;
+
+   private MultiBodySystemModelIOTools()
+   {
+      // Suppresses default constructor, ensuring non-instantiability.
+   }
+
+   /**
+    * Saves the description of the multi-body system starting off the given root body into a new
+    * array of bytes.
+    *
+    * @param rootBody the root of the multi-body system to save. Not modified.
+    * @return the description of the multi-body system.
+    * @throws IllegalArgumentException      if {@code rootBody} is not the root body of its system.
+    * @throws UnsupportedOperationException if the system contains a joint of an unhandled type.
+    */
+   public static byte[] writeModel(RigidBodyReadOnly rootBody)
+   {
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+      try
+      {
+         writeModel(rootBody, new DataOutputStream(byteArrayOutputStream));
+      }
+      catch (IOException e)
+      {
+         throw new UncheckedIOException(e);
+      }
+
+      return byteArrayOutputStream.toByteArray();
+   }
+
+   /**
+    * Saves the description of the multi-body system starting off the given root body into a file.
+    *
+    * @param rootBody the root of the multi-body system to save. Not modified.
+    * @param file     the path to the file to write, any existing file is replaced.
+    * @throws IOException                   if an I/O error occurs.
+    * @throws IllegalArgumentException      if {@code rootBody} is not the root body of its system.
+    * @throws UnsupportedOperationException if the system contains a joint of an unhandled type.
+    */
+   public static void writeModel(RigidBodyReadOnly rootBody, Path file) throws IOException
+   {
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+      {
+         writeModel(rootBody, output);
+      }
+   }
+
+   /**
+    * Saves the description of the multi-body system starting off the given root body.
+    *
+    * @param rootBody the root of the multi-body system to save. Not modified.
+    * @param output   the destination of the description. Modified.
+    * @throws IOException                   if an I/O error occurs.
+    * @throws IllegalArgumentException      if {@code rootBody} is not the root body of its system.
+    * @throws UnsupportedOperationException if the system contains a joint of an unhandled type.
+    */
+   public static void writeModel(RigidBodyReadOnly rootBody, DataOutput output) throws IOException
+   {
+      if (!rootBody.isRootBody())
+         throw new IllegalArgumentException("The given rigid-body is not the root-body of its multi-body system: " + rootBody.getName());
+
+      List<JointReadOnly> joints = new ArrayList<>();
+      for (JointReadOnly joint : rootBody.childrenSubtreeIterable())
+         joints.add(joint);
+
+      Map<RigidBodyReadOnly, Integer> bodyIndices = new HashMap<>();
+      bodyIndices.put(rootBody, 0);
+
+      output.writeInt(MAGIC_NUMBER);
+      output.writeInt(VERSION);
+      output.writeInt(joints.size());
+
+      output.writeUTF(rootBody.getName());
+      writeTransform(rootBody.getBodyFixedFrame().getTransformToParent(), output);
+
+      for (int jointIndex = 0; jointIndex < joints.size(); jointIndex++)
+      {
+         JointReadOnly joint = joints.get(jointIndex);
+         RigidBodyReadOnly predecessor = joint.getPredecessor();
+         RigidBodyReadOnly successor = joint.getSuccessor();
+
+         output.writeByte(getJointType(joint));
+         output.writeInt(bodyIndices.get(predecessor));
+         output.writeUTF(joint.getName());
+
+         // Same convention as when cloning: no offset means the frame before joint is the body-fixed frame of the predecessor.
+         if (joint.getFrameBeforeJoint() == predecessor.getBodyFixedFrame())
+         {
+            output.writeBoolean(false);
+         }
+         else
+         {
+            output.writeBoolean(true);
+            writeTransform(joint.getFrameBeforeJoint().getTransformToParent(), output);
+         }
+
+         if (joint instanceof OneDoFJointReadOnly)
+         {
+            OneDoFJointReadOnly oneDoFJoint = (OneDoFJointReadOnly) joint;
+            writeTuple3D(oneDoFJoint.getJointAxis(), output);
+            output.writeDouble(oneDoFJoint.getJointLimitLower());
+            output.writeDouble(oneDoFJoint.getJointLimitUpper());
+            output.writeDouble(oneDoFJoint.getVelocityLimitLower());
+            output.writeDouble(oneDoFJoint.getVelocityLimitUpper());
+            output.writeDouble(oneDoFJoint.getEffortLimitLower());
+            output.writeDouble(oneDoFJoint.getEffortLimitUpper());
+         }
+
+         SpatialInertiaReadOnly inertia = successor.getInertia();
+         output.writeUTF(successor.getName());
+         writeTransform(successor.getBodyFixedFrame().getTransformToParent(), output);
+         output.writeDouble(inertia.getMass());
+         writeMatrix3D(inertia.getMomentOfInertia(), output);
+         writeTuple3D(inertia.getCenterOfMassOffset(), output);
+
+         bodyIndices.put(successor, jointIndex + 1);
+      }
+   }
+
+   /**
+    * Loads a multi-body system from the given description using the default builders.
+    *
+    * @param model           the description of the multi-body system. Not modified.
+    * @param stationaryFrame the reference frame to which the loaded system is attached to. The given
+    *                        frame is expected to be stationary.
+    * @return the root body of the new multi-body system.
+    * @throws IllegalArgumentException if {@code model} is not a valid description.
+    */
+   public static RigidBodyBasics readModel(byte[] model, ReferenceFrame stationaryFrame)
+   {
+      return readModel(model, stationaryFrame, null, null);
+   }
+
+   /**
+    * Loads a multi-body system from the given description.
+    *
+    * @param model            the description of the multi-body system. Not modified.
+    * @param stationaryFrame  the reference frame to which the loaded system is attached to. The given
+    *                         frame is expected to be stationary.
+    * @param rigidBodyBuilder the builder to use for creating rigid-bodies. If {@code null},
+    *                         {@link MultiBodySystemFactories#DEFAULT_RIGID_BODY_BUILDER} is used.
+    * @param jointBuilder     the builder to use for creating joints. If {@code null},
+    *                         {@link MultiBodySystemFactories#DEFAULT_JOINT_BUILDER} is used.
+    * @return the root body of the new multi-body system.
+    * @throws IllegalArgumentException if {@code model} is not a valid description.
+    */
+   public static RigidBodyBasics readModel(byte[] model, ReferenceFrame stationaryFrame, RigidBodyBuilder rigidBodyBuilder, JointBuilder jointBuilder)
+   {
+      try
+      {
+         return readModel(new DataInputStream(new ByteArrayInputStream(model)), stationaryFrame, rigidBodyBuilder, jointBuilder);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalArgumentException("Invalid model description", e);
+      }
+   }
+
+   /**
+    * Loads a multi-body system from the description saved in the given file.
+    *
+    * @param file             the path to the file to read.
+    * @param stationaryFrame  the reference frame to which the loaded system is attached to. The given
+    *                         frame is expected to be stationary.
+    * @param rigidBodyBuilder the builder to use for creating rigid-bodies. If {@code null},
+    *                         {@link MultiBodySystemFactories#DEFAULT_RIGID_BODY_BUILDER} is used.
+    * @param jointBuilder     the builder to use for creating joints. If {@code null},
+    *                         {@link MultiBodySystemFactories#DEFAULT_JOINT_BUILDER} is used.
+    * @return the root body of the new multi-body system.
+    * @throws IOException              if an I/O error occurs.
+    * @throws IllegalArgumentException if the file is not a valid description.
+    */
+   public static RigidBodyBasics readModel(Path file, ReferenceFrame stationaryFrame, RigidBodyBuilder rigidBodyBuilder, JointBuilder jointBuilder)
+         throws IOException
+   {
+      try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+      {
+         return readModel(input, stationaryFrame, rigidBodyBuilder, jointBuilder);
+      }
+   }
+
+   /**
+    * Loads a multi-body system from the given description.
+    *
+    * @param input            the source of the description. Modified.
+    * @param stationaryFrame  the reference frame to which the loaded system is attached to. The given
+    *                         frame is expected to be stationary.
+    * @param rigidBodyBuilder the builder to use for creating rigid-bodies. If {@code null},
+    *                         {@link MultiBodySystemFactories#DEFAULT_RIGID_BODY_BUILDER} is used.
+    * @param jointBuilder     the builder to use for creating joints. If {@code null},
+    *                         {@link MultiBodySystemFactories#DEFAULT_JOINT_BUILDER} is used.
+    * @return the root body of the new multi-body system.
+    * @throws IOException              if an I/O error occurs.
+    * @throws IllegalArgumentException if the input is not a valid description.
+    */
+   public static RigidBodyBasics readModel(DataInput input, ReferenceFrame stationaryFrame, RigidBodyBuilder rigidBodyBuilder, JointBuilder jointBuilder)
+         throws IOException
+   {
+      if (rigidBodyBuilder == null)
+         rigidBodyBuilder = MultiBodySystemFactories.DEFAULT_RIGID_BODY_BUILDER;
+      if (jointBuilder == null)
+         jointBuilder = MultiBodySystemFactories.DEFAULT_JOINT_BUILDER;
+
+      int magicNumber = input.readInt();
+      if (magicNumber != MAGIC_NUMBER)
+         throw new IllegalArgumentException("Not a model description, unexpected magic number: " + Integer.toHexString(magicNumber));
+      int version = input.readInt();
+      if (version != VERSION)
+         throw new IllegalArgumentException("Unsupported version: " + version + ", expected: " + VERSION);
+      int numberOfJoints = input.readInt();
+      if (numberOfJoints < 0)
+         throw new IllegalArgumentException("Invalid number of joints: " + numberOfJoints);
+
+      // Intermediate variables used for building the system, the builders are expected to copy them.
+      RigidBodyTransform transform = new RigidBodyTransform();
+      Vector3D vector = new Vector3D();
+      Matrix3D momentOfInertia = new Matrix3D();
+
+      RigidBodyBasics[] bodies = new RigidBodyBasics[numberOfJoints + 1];
+
+      String rootBodyName = input.readUTF();
+      readTransform(input, transform);
+      bodies[0] = rigidBodyBuilder.buildRoot(rootBodyName, transform, stationaryFrame);
+
+      for (int jointIndex = 0; jointIndex < numberOfJoints; jointIndex++)
+      {
+         byte jointType = input.readByte();
+         int predecessorIndex = input.readInt();
+         if (predecessorIndex < 0 || predecessorIndex > jointIndex)
+            throw new IllegalArgumentException("Invalid predecessor index: " + predecessorIndex + " for the joint " + jointIndex);
+         RigidBodyBasics predecessor = bodies[predecessorIndex];
+         String jointName = input.readUTF();
+         RigidBodyTransform transformToParent = input.readBoolean() ? readTransform(input, transform) : null;
+
+         JointBasics joint;
+
+         switch (jointType)
+         {
+            case FIXED_JOINT:
+               joint = jointBuilder.buildFixedJoint(jointName, predecessor, transformToParent);
+               break;
+            case REVOLUTE_JOINT:
+               joint = jointBuilder.buildRevoluteJoint(jointName, predecessor, transformToParent, readTuple3D(input, vector));
+               readJointLimits(input, (OneDoFJointBasics) joint);
+               break;
+            case PRISMATIC_JOINT:
+               joint = jointBuilder.buildPrismaticJoint(jointName, predecessor, transformToParent, readTuple3D(input, vector));
+               readJointLimits(input, (OneDoFJointBasics) joint);
+               break;
+            case SPHERICAL_JOINT:
+               joint = jointBuilder.buildSphericalJoint(jointName, predecessor, transformToParent);
+               break;
+            case PLANAR_JOINT:
+               joint = jointBuilder.buildPlanarJoint(jointName, predecessor, transformToParent);
+               break;
+            case SIX_DOF_JOINT:
+               joint = jointBuilder.buildSixDoFJoint(jointName, predecessor, transformToParent);
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown joint type: " + jointType);
+         }
+
+         String bodyName = input.readUTF();
+         readTransform(input, transform);
+         double mass = input.readDouble();
+         readMatrix3D(input, momentOfInertia);
+         RigidBodyBasics successor = rigidBodyBuilder.build(bodyName, joint, momentOfInertia, mass, transform);
+         successor.getInertia().getCenterOfMassOffset().set((Tuple3DReadOnly) readTuple3D(input, vector));
+         bodies[jointIndex + 1] = successor;
+      }
+
+      return bodies[0];
+   }
+
+   private static byte getJointType(JointReadOnly joint)
+   {
+      if (joint instanceof RevoluteJointReadOnly)
+         return REVOLUTE_JOINT;
+      else if (joint instanceof PrismaticJointReadOnly)
+         return PRISMATIC_JOINT;
+      else if (joint instanceof SixDoFJointReadOnly)
+         return SIX_DOF_JOINT;
+      else if (joint instanceof PlanarJointReadOnly)
+         return PLANAR_JOINT;
+      else if (joint instanceof SphericalJointReadOnly)
+         return SPHERICAL_JOINT;
+      else if (joint instanceof FixedJointReadOnly)
+         return FIXED_JOINT;
+      else
+         throw new UnsupportedOperationException("Unhandled joint type: " + joint.getClass().getName());
+   }
+
+   private static void readJointLimits(DataInput input, OneDoFJointBasics joint) throws IOException
+   {
+      joint.setJointLimits(input.readDouble(), input.readDouble());
+      joint.setVelocityLimits(input.readDouble(), input.readDouble());
+      joint.setEffortLimits(input.readDouble(), input.readDouble());
+   }
+
+   private static void writeTransform(RigidBodyTransform transform, DataOutput output) throws IOException
+   {
+      for (int row = 0; row < 3; row++)
+      {
+         for (int col = 0; col < 4; col++)
+            output.writeDouble(transform.getElement(row, col));
+      }
+   }
+
+   private static RigidBodyTransform readTransform(DataInput input, RigidBodyTransform transformToPack) throws IOException
+   {
+      double m00 = input.readDouble();
+      double m01 = input.readDouble();
+      double m02 = input.readDouble();
+      double m03 = input.readDouble();
+      double m10 = input.readDouble();
+      double m11 = input.readDouble();
+      double m12 = input.readDouble();
+      double m13 = input.readDouble();
+      double m20 = input.readDouble();
+      double m21 = input.readDouble();
+      double m22 = input.readDouble();
+      double m23 = input.readDouble();
+      transformToPack.set(m00, m01, m02, m03, m10, m11, m12, m13, m20, m21, m22, m23);
+      return transformToPack;
+   }
+
+   private static void writeMatrix3D(Matrix3DReadOnly matrix, DataOutput output) throws IOException
+   {
+      for (int row = 0; row < 3; row++)
+      {
+         for (int col = 0; col < 3; col++)
+            output.writeDouble(matrix.getElement(row, col));
+      }
+   }
+
+   private static void readMatrix3D(DataInput input, Matrix3D matrixToPack) throws IOException
+   {
+      for (int row = 0; row < 3; row++)
+      {
+         for (int col = 0; col < 3; col++)
+            matrixToPack.setElement(row, col, input.readDouble());
+      }
+   }
+
+   private static void writeTuple3D(Tuple3DReadOnly tuple, DataOutput output) throws IOException
+   {
+      output.writeDouble(tuple.getX());
+      output.writeDouble(tuple.getY());
+      output.writeDouble(tuple.getZ());
+   }
+
+   private static Vector3D readTuple3D(DataInput input, Vector3D tupleToPack) throws IOException
+   {
+      tupleToPack.setX(input.readDouble());
+      tupleToPack.setY(input.readDouble());
+      tupleToPack.setZ(input.readDouble());
+      return tupleToPack;
+   }
+}
@@ -8,9 +8,12 @@ import java.util.stream.Collectors;
 import us.ihmc.euclid.matrix.Matrix3D;
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.tools.EuclidCoreTestTools;
 import us.ihmc.euclid.transform.RigidBodyTransform;
 import us.ihmc.euclid.tuple3D.Vector3D;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
+import us.ihmc.mecano.frames.FrameUpdatePlan;
+import us.ihmc.mecano.frames.MovingReferenceFrame;
 import us.ihmc.mecano.multiBodySystem.FixedJoint;
 import us.ihmc.mecano.multiBodySystem.Joint;
 import us.ihmc.mecano.multiBodySystem.OneDoFJoint;
@@ -24,6 +27,7 @@ import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
 import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointBasics;
 import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
 import us.ihmc.mecano.multiBodySystem.iterators.SubtreeStreams;
+import us.ihmc.mecano.spatial.interfaces.TwistReadOnly;
 
 /**
  * This class provides random generators to create and/or randomize multi-body systems.
@@ -1438,4 +1442,115 @@ public class MultiBodySystemRandomTools
             return rootJoint.getSuccessor();
       }
    }
+
+   /**
+    * Two identical random joint trees, named with the prefixes {@code "A"} and {@code "B"}, used to
+    * test an update of the reference frames of the tree A against the full recursive update of the
+    * reference frames of the tree B.
+    */
+   public static class RandomTwinJointTrees
+   {
+      private final List<JointBasics> jointsA;
+      private final List<JointBasics> jointsB;
+      private final RigidBodyBasics rootBodyA;
+      private final RigidBodyBasics rootBodyB;
+      private final FrameUpdatePlan planA;
+      private final FrameUpdatePlan planB;
+
+      /**
+       * Creates two new identical random joint trees.
+       * 
+       * @param random         the random generator to use.
+       * @param numberOfJoints how many joints each tree should be composed of.
+       */
+      public RandomTwinJointTrees(Random random, int numberOfJoints)
+      {
+         long seed = random.nextLong();
+         jointsA = nextJointTree(new Random(seed), "A", numberOfJoints);
+         jointsB = nextJointTree(new Random(seed), "B", numberOfJoints);
+         rootBodyA = MultiBodySystemTools.getRootBody(jointsA.get(0).getPredecessor());
+         rootBodyB = MultiBodySystemTools.getRootBody(jointsB.get(0).getPredecessor());
+         planA = new FrameUpdatePlan(rootBodyA);
+         planB = new FrameUpdatePlan(rootBodyB);
+      }
+
+      /**
+       * Copies the configuration and velocity of each joint of the tree A into the tree B and fully
+       * updates the reference frames of the tree B.
+       */
+      public void updateTreeBFromTreeA()
+      {
+         for (int jointIndex = 0; jointIndex < jointsA.size(); jointIndex++)
+         {
+            JointBasics jointB = jointsB.get(jointIndex);
+            jointB.setJointConfiguration(jointsA.get(jointIndex));
+            jointB.setJointTwist(jointsA.get(jointIndex));
+            jointB.setFrameUpdateRequired(true);
+         }
+
+         rootBodyB.updateFramesRecursively();
+      }
+
+      /**
+       * Asserts that the transform to root and the twist of each reference frame of the tree A are
+       * equal to the ones of the corresponding frame of the tree B.
+       * 
+       * @param epsilon the tolerance to use.
+       * @throws AssertionError if any pair of frames differ.
+       */
+      public void assertFramesEqual(double epsilon)
+      {
+         for (int frameIndex = 0; frameIndex < planA.getNumberOfFrames(); frameIndex++)
+         {
+            MovingReferenceFrame frameA = planA.getFrame(frameIndex);
+            MovingReferenceFrame frameB = planB.getFrame(frameIndex);
+            EuclidCoreTestTools.assertRigidBodyTransformEquals(frameB.getTransformToRoot(), frameA.getTransformToRoot(), epsilon);
+
+            TwistReadOnly twistA = frameA.getTwistOfFrame();
+            TwistReadOnly twistB = frameB.getTwistOfFrame();
+            EuclidCoreTestTools.assertTuple3DEquals(twistB.getAngularPart(), twistA.getAngularPart(), epsilon);
+            EuclidCoreTestTools.assertTuple3DEquals(twistB.getLinearPart(), twistA.getLinearPart(), epsilon);
+         }
+      }
+
+      /**
+       * Gets the joints of the tree A.
+       * 
+       * @return the joints of the tree A.
+       */
+      public List<JointBasics> getJointsA()
+      {
+         return jointsA;
+      }
+
+      /**
+       * Gets the root body of the tree A.
+       * 
+       * @return the root body of the tree A.
+       */
+      public RigidBodyBasics getRootBodyA()
+      {
+         return rootBodyA;
+      }
+
+      /**
+       * Gets the plan listing the reference frames of the tree A in update order.
+       * 
+       * @return the frame update plan of the tree A.
+       */
+      public FrameUpdatePlan getPlanA()
+      {
+         return planA;
+      }
+
+      /**
+       * Gets the plan listing the reference frames of the tree B in update order.
+       * 
+       * @return the frame update plan of the tree B.
+       */
+      public FrameUpdatePlan getPlanB()
+      {
+         return planB;
+      }
+   }
 }
@@ -0,0 +1,352 @@
+package us.ihmc.mecano.tools;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.ejml.data.DenseMatrix64F;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointReadOnly;
+
+/**
+ * Binary codec for the state of a multi-body system.
+ * <p>
+ * A record holds the configuration, velocity, acceleration, and effort of all the joints of a
+ * multi-body system and is written in a single pass over the joints into a {@link ByteBuffer},
+ * either heap or direct. The joints are ordered as given by
+ * {@link MultiBodySystemReadOnly#getJointMatrixIndexProvider()} and the record is laid out as the
+ * matrices used in {@link MultiBodySystemTools#extractJointsState(List, JointStateType, DenseMatrix64F)}
+ * as follows:
+ *
+ * <pre>
+ * | q (configuration size) | qd (number of DoFs) | qdd (number of DoFs) | tau (number of DoFs) |
+ * </pre>
+ *
+ * where each element is a {@code double}.
+ * </p>
+ * <p>
+ * The header describes the schema of the records, i.e. the number of joints, the size of the
+ * configuration, the number of DoFs, and a hash of the joint names and sizes. It is meant to be
+ * written once at the beginning of a stream or file and verified when reading it back.
+ * </p>
+ * <p>
+ * Writing and reading records is garbage free. The byte order of the buffer is used as is, the
+ * header verification will fail if the reader does not use the same byte order as the writer.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class MultiBodySystemStateCodec
+{
+   /** Identifies the beginning of a header. */
+   public static final int MAGIC_NUMBER = 0x4D45434E;
+   /** The version of the format. */
+   public static final int VERSION = 1;
+   /**
+    * The size in bytes of the header: magic number, version, schema hash, number of joints,
+    * configuration size, and number of DoFs.
+    */
+   public static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+   /** The joints in the order they are stored in a record. */
+   private final JointReadOnly[] joints;
+   /** Same as {@link #joints} cast to 1-DoF joints, or {@code null} for the other joints. */
+   private final OneDoFJointReadOnly[] oneDoFJoints;
+   /** For each joint, the index of its first configuration element in the record. */
+   private final int[] configurationIndices;
+   /** For each joint, the index of its first DoF in the velocity, acceleration, and effort blocks. */
+   private final int[] dofIndices;
+   /** The number of elements in the configuration block of a record. */
+   private final int configurationSize;
+   /** The number of elements in each of the velocity, acceleration, and effort blocks of a record. */
+   private final int numberOfDoFs;
+   /** Hash of the joint names and sizes, used to verify that a header matches the joints. */
+   private final int schemaHash;
+   /** The size in bytes of a record. */
+   private final int recordSize;
+
+   /** Intermediate variable for garbage free operations. */
+   private final DenseMatrix64F jointState;
+
+   /**
+    * Creates a new codec for the given multi-body system.
+    *
+    * @param input the definition of the system to encode the state of. Not modified.
+    */
+   public MultiBodySystemStateCodec(MultiBodySystemReadOnly input)
+   {
+      this(input.getJointMatrixIndexProvider().getIndexedJointsInOrder());
+   }
+
+   /**
+    * Creates a new codec for the given joints.
+    *
+    * @param joints the joints to encode the state of, in the order they are to be stored. Not
+    *               modified.
+    */
+   public MultiBodySystemStateCodec(List<? extends JointReadOnly> joints)
+   {
+      this.joints = joints.toArray(new JointReadOnly[joints.size()]);
+      oneDoFJoints = new OneDoFJointReadOnly[this.joints.length];
+      configurationIndices = new int[this.joints.length];
+      dofIndices = new int[this.joints.length];
+
+      int configurationSize = 0;
+      int numberOfDoFs = 0;
+      int maximumJointStateSize = 0;
+      int schemaHash = 1;
+
+      for (int jointIndex = 0; jointIndex < this.joints.length; jointIndex++)
+      {
+         JointReadOnly joint = this.joints[jointIndex];
+
+         if (joint instanceof OneDoFJointReadOnly)
+            oneDoFJoints[jointIndex] = (OneDoFJointReadOnly) joint;
+
+         configurationIndices[jointIndex] = configurationSize;
+         dofIndices[jointIndex] = numberOfDoFs;
+         configurationSize += joint.getConfigurationMatrixSize();
+         numberOfDoFs += joint.getDegreesOfFreedom();
+         maximumJointStateSize = Math.max(maximumJointStateSize, Math.max(joint.getConfigurationMatrixSize(), joint.getDegreesOfFreedom()));
+
+         schemaHash = 31 * schemaHash + joint.getName().hashCode();
+         schemaHash = 31 * schemaHash + joint.getConfigurationMatrixSize();
+         schemaHash = 31 * schemaHash + joint.getDegreesOfFreedom();
+      }
+
+      this.configurationSize = configurationSize;
+      this.numberOfDoFs = numberOfDoFs;
+      this.schemaHash = schemaHash;
+      recordSize = Double.BYTES * (configurationSize + 3 * numberOfDoFs);
+      jointState = new DenseMatrix64F(maximumJointStateSize, 1);
+   }
+
+   /**
+    * Writes the header describing the records of this codec at the current position of the buffer
+    * and advances its position.
+    *
+    * @param buffer the buffer to write the header into. Modified.
+    * @throws BufferOverflowException if the buffer does not have enough space remaining.
+    */
+   public void writeHeader(ByteBuffer buffer)
+   {
+      if (buffer.remaining() < HEADER_SIZE)
+         throw new BufferOverflowException();
+
+      buffer.putInt(MAGIC_NUMBER);
+      buffer.putInt(VERSION);
+      buffer.putInt(schemaHash);
+      buffer.putInt(joints.length);
+      buffer.putInt(configurationSize);
+      buffer.putInt(numberOfDoFs);
+   }
+
+   /**
+    * Reads a header at the current position of the buffer, advances its position, and verifies that
+    * it matches this codec.
+    *
+    * @param buffer the buffer to read the header from. Modified.
+    * @throws BufferUnderflowException if the buffer does not have enough bytes remaining.
+    * @throws IllegalArgumentException if the header is not valid or describes records of a different
+    *                                  multi-body system.
+    */
+   public void readHeader(ByteBuffer buffer)
+   {
+      if (buffer.remaining() < HEADER_SIZE)
+         throw new BufferUnderflowException();
+
+      int magicNumber = buffer.getInt();
+      if (magicNumber != MAGIC_NUMBER)
+         throw new IllegalArgumentException("Invalid header, unexpected magic number: " + Integer.toHexString(magicNumber));
+      int version = buffer.getInt();
+      if (version != VERSION)
+         throw new IllegalArgumentException("Unsupported version: " + version + ", expected: " + VERSION);
+
+      int otherSchemaHash = buffer.getInt();
+      int otherNumberOfJoints = buffer.getInt();
+      int otherConfigurationSize = buffer.getInt();
+      int otherNumberOfDoFs = buffer.getInt();
+
+      if (otherSchemaHash != schemaHash || otherNumberOfJoints != joints.length || otherConfigurationSize != configurationSize
+            || otherNumberOfDoFs != numberOfDoFs)
+      {
+         throw new IllegalArgumentException("Schema mismatch: expected [joints = " + joints.length + ", configuration size = " + configurationSize + ", DoFs = "
+               + numberOfDoFs + "], was [joints = " + otherNumberOfJoints + ", configuration size = " + otherConfigurationSize + ", DoFs = "
+               + otherNumberOfDoFs + "]");
+      }
+   }
+
+   /**
+    * Writes the current state of the joints as a record at the current position of the buffer and
+    * advances its position by {@link #getRecordSize()}.
+    *
+    * @param buffer the buffer to write the record into. Modified.
+    * @throws BufferOverflowException if the buffer does not have enough space remaining.
+    */
+   public void write(ByteBuffer buffer)
+   {
+      if (buffer.remaining() < recordSize)
+         throw new BufferOverflowException();
+
+      int position = buffer.position();
+      int velocityStart = position + Double.BYTES * configurationSize;
+      int accelerationStart = velocityStart + Double.BYTES * numberOfDoFs;
+      int effortStart = accelerationStart + Double.BYTES * numberOfDoFs;
+
+      for (int jointIndex = 0; jointIndex < joints.length; jointIndex++)
+      {
+         int configurationOffset = position + Double.BYTES * configurationIndices[jointIndex];
+         int dofOffset = Double.BYTES * dofIndices[jointIndex];
+         OneDoFJointReadOnly oneDoFJoint = oneDoFJoints[jointIndex];
+
+         if (oneDoFJoint != null)
+         {
+            buffer.putDouble(configurationOffset, oneDoFJoint.getQ());
+            buffer.putDouble(velocityStart + dofOffset, oneDoFJoint.getQd());
+            buffer.putDouble(accelerationStart + dofOffset, oneDoFJoint.getQdd());
+            buffer.putDouble(effortStart + dofOffset, oneDoFJoint.getTau());
+         }
+         else
+         {
+            JointReadOnly joint = joints[jointIndex];
+            int nDoFs = joint.getDegreesOfFreedom();
+
+            int jointConfigurationSize = joint.getJointConfiguration(0, jointState);
+            for (int i = 0; i < jointConfigurationSize; i++)
+               buffer.putDouble(configurationOffset + Double.BYTES * i, jointState.data[i]);
+
+            joint.getJointVelocity(0, jointState);
+            for (int i = 0; i < nDoFs; i++)
+               buffer.putDouble(velocityStart + dofOffset + Double.BYTES * i, jointState.data[i]);
+
+            joint.getJointAcceleration(0, jointState);
+            for (int i = 0; i < nDoFs; i++)
+               buffer.putDouble(accelerationStart + dofOffset + Double.BYTES * i, jointState.data[i]);
+
+            joint.getJointTau(0, jointState);
+            for (int i = 0; i < nDoFs; i++)
+               buffer.putDouble(effortStart + dofOffset + Double.BYTES * i, jointState.data[i]);
+         }
+      }
+
+      buffer.position(position + recordSize);
+   }
+
+   /**
+    * Reads a record at the current position of the buffer, updates the state of the joints, and
+    * advances the buffer position by {@link #getRecordSize()}.
+    * <p>
+    * Note that the frames of the multi-body system are not updated by this method.
+    * </p>
+    *
+    * @param buffer the buffer to read the record from. Modified.
+    * @throws BufferUnderflowException if the buffer does not have enough bytes remaining.
+    * @throws ClassCastException       if the joints of this codec cannot be modified, i.e. are not
+    *                                  {@link JointBasics}.
+    */
+   public void read(ByteBuffer buffer)
+   {
+      if (buffer.remaining() < recordSize)
+         throw new BufferUnderflowException();
+
+      int position = buffer.position();
+      int velocityStart = position + Double.BYTES * configurationSize;
+      int accelerationStart = velocityStart + Double.BYTES * numberOfDoFs;
+      int effortStart = accelerationStart + Double.BYTES * numberOfDoFs;
+
+      for (int jointIndex = 0; jointIndex < joints.length; jointIndex++)
+      {
+         int configurationOffset = position + Double.BYTES * configurationIndices[jointIndex];
+         int dofOffset = Double.BYTES * dofIndices[jointIndex];
+
+         if (oneDoFJoints[jointIndex] != null)
+         {
+            OneDoFJointBasics oneDoFJoint = (OneDoFJointBasics) oneDoFJoints[jointIndex];
+            oneDoFJoint.setQ(buffer.getDouble(configurationOffset));
+            oneDoFJoint.setQd(buffer.getDouble(velocityStart + dofOffset));
+            oneDoFJoint.setQdd(buffer.getDouble(accelerationStart + dofOffset));
+            oneDoFJoint.setTau(buffer.getDouble(effortStart + dofOffset));
+         }
+         else
+         {
+            JointBasics joint = (JointBasics) joints[jointIndex];
+            int nDoFs = joint.getDegreesOfFreedom();
+
+            int jointConfigurationSize = joint.getConfigurationMatrixSize();
+            for (int i = 0; i < jointConfigurationSize; i++)
+               jointState.data[i] = buffer.getDouble(configurationOffset + Double.BYTES * i);
+            joint.setJointConfiguration(0, jointState);
+
+            for (int i = 0; i < nDoFs; i++)
+               jointState.data[i] = buffer.getDouble(velocityStart + dofOffset + Double.BYTES * i);
+            joint.setJointVelocity(0, jointState);
+
+            for (int i = 0; i < nDoFs; i++)
+               jointState.data[i] = buffer.getDouble(accelerationStart + dofOffset + Double.BYTES * i);
+            joint.setJointAcceleration(0, jointState);
+
+            for (int i = 0; i < nDoFs; i++)
+               jointState.data[i] = buffer.getDouble(effortStart + dofOffset + Double.BYTES * i);
+            joint.setJointTau(0, jointState);
+         }
+      }
+
+      buffer.position(position + recordSize);
+   }
+
+   /**
+    * Gets the joints which state is encoded by this codec, in the order they are stored.
+    *
+    * @return the joints.
+    */
+   public JointReadOnly[] getJoints()
+   {
+      return joints;
+   }
+
+   /**
+    * Gets the size in bytes of a single record.
+    *
+    * @return the record size.
+    */
+   public int getRecordSize()
+   {
+      return recordSize;
+   }
+
+   /**
+    * Gets the number of elements in the configuration block of a record.
+    *
+    * @return the configuration size.
+    */
+   public int getConfigurationSize()
+   {
+      return configurationSize;
+   }
+
+   /**
+    * Gets the number of elements in each of the velocity, acceleration, and effort blocks of a
+    * record.
+    *
+    * @return the number of DoFs.
+    */
+   public int getNumberOfDoFs()
+   {
+      return numberOfDoFs;
+   }
+
+   /**
+    * Gets the hash of the joint names and sizes identifying the schema of the records.
+    *
+    * @return the schema hash.
+    */
+   public int getSchemaHash()
+   {
+      return schemaHash;
+   }
+}
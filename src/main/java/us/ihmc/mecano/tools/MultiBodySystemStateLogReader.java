@@ -0,0 +1,231 @@
+package us.ihmc.mecano.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongConsumer;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+
+/**
+ * Reads a file created with {@link MultiBodySystemStateLogWriter} with random access to the
+ * records.
+ * <p>
+ * The file is mapped in memory when opening it such that loading the state of a record into the
+ * joints does not involve any parsing and is garbage free. Only the records present when the file is
+ * opened are accessible.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class MultiBodySystemStateLogReader implements Closeable
+{
+   /** The root of the multi-body system into which the states are loaded. */
+   private final RigidBodyBasics rootBody;
+   /** The codec used to decode the state of the joints from each record. */
+   private final MultiBodySystemStateCodec codec;
+   /** The channel to the log file. */
+   private final FileChannel channel;
+   /** The regions of the file mapped in memory covering all the records. */
+   private final MappedByteBuffer[] chunks;
+   /** The size in bytes of a record, i.e. the timestamp and the codec record. */
+   private final int recordStride;
+   /** The number of records held by each region of the file mapped in memory. */
+   private final int recordsPerChunk;
+   /** The number of records present in the file when it was opened. */
+   private final long numberOfRecords;
+
+   /**
+    * Opens a log file for the multi-body system starting off the given root body.
+    *
+    * @param file     the path to the file to read. Not modified.
+    * @param rootBody the root of the multi-body system to load the states into. The system should be
+    *                 identical to the one used when writing the file.
+    * @throws IOException              if the file could not be opened or mapped.
+    * @throws IllegalArgumentException if the file is not a valid log file or was written for a
+    *                                  different multi-body system.
+    */
+   public MultiBodySystemStateLogReader(Path file, RigidBodyBasics rootBody) throws IOException
+   {
+      this(file, rootBody, MultiBodySystemStateLogWriter.CHUNK_SIZE);
+   }
+
+   /**
+    * Opens a log file mapping it in regions of the given size.
+    * <p>
+    * The records being contiguous in the file, the size of the regions does not have to match the one
+    * used when writing the file.
+    * </p>
+    *
+    * @param file      the path to the file to read. Not modified.
+    * @param rootBody  the root of the multi-body system to load the states into.
+    * @param chunkSize the target size in bytes of each region of the file mapped in memory.
+    * @throws IOException if the file could not be opened or mapped.
+    */
+   MultiBodySystemStateLogReader(Path file, RigidBodyBasics rootBody, int chunkSize) throws IOException
+   {
+      this.rootBody = rootBody;
+      codec = new MultiBodySystemStateCodec(MultiBodySystemBasics.toMultiBodySystemBasics(rootBody));
+      recordStride = MultiBodySystemStateLogWriter.computeRecordStride(codec);
+      recordsPerChunk = MultiBodySystemStateLogWriter.computeRecordsPerChunk(recordStride, chunkSize);
+
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+
+      try
+      {
+         if (channel.size() < MultiBodySystemStateLogWriter.FILE_HEADER_SIZE)
+            throw new IllegalArgumentException("The file is too small to be a state log: " + file);
+
+         MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, MultiBodySystemStateLogWriter.FILE_HEADER_SIZE);
+         header.order(MultiBodySystemStateLogWriter.BYTE_ORDER);
+
+         int magicNumber = header.getInt();
+         if (magicNumber != MultiBodySystemStateLogWriter.MAGIC_NUMBER)
+            throw new IllegalArgumentException("Not a state log file, unexpected magic number: " + Integer.toHexString(magicNumber));
+         int version = header.getInt();
+         if (version != MultiBodySystemStateLogWriter.VERSION)
+            throw new IllegalArgumentException("Unsupported version: " + version + ", expected: " + MultiBodySystemStateLogWriter.VERSION);
+         numberOfRecords = header.getLong();
+         // Pairs with the fence in the writer such that the records counted are fully written.
+         MemoryFences.fullFence();
+         codec.readHeader(header);
+
+         int numberOfChunks = (int) ((numberOfRecords + recordsPerChunk - 1) / recordsPerChunk);
+         chunks = new MappedByteBuffer[numberOfChunks];
+         long chunkSize = (long) recordsPerChunk * recordStride;
+
+         for (int chunkIndex = 0; chunkIndex < numberOfChunks; chunkIndex++)
+         {
+            long numberOfRecordsInChunk = Math.min(recordsPerChunk, numberOfRecords - chunkIndex * (long) recordsPerChunk);
+            chunks[chunkIndex] = channel.map(MapMode.READ_ONLY,
+                                             MultiBodySystemStateLogWriter.FILE_HEADER_SIZE + chunkIndex * chunkSize,
+                                             numberOfRecordsInChunk * recordStride);
+            chunks[chunkIndex].order(MultiBodySystemStateLogWriter.BYTE_ORDER);
+         }
+      }
+      catch (IOException | RuntimeException e)
+      {
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Gets the timestamp of the given record.
+    *
+    * @param tick the index of the record.
+    * @return the timestamp of the record.
+    * @throws IndexOutOfBoundsException if {@code tick} is not in [0, {@link #getNumberOfRecords()}[.
+    */
+   public long getTimestamp(long tick)
+   {
+      checkTick(tick);
+      return getChunk(tick).getLong(getOffsetInChunk(tick));
+   }
+
+   /**
+    * Loads the state of the given record into the joints of the multi-body system.
+    * <p>
+    * Note that the frames of the multi-body system are not updated by this method.
+    * </p>
+    *
+    * @param tick the index of the record.
+    * @return the timestamp of the record.
+    * @throws IndexOutOfBoundsException if {@code tick} is not in [0, {@link #getNumberOfRecords()}[.
+    */
+   public long read(long tick)
+   {
+      checkTick(tick);
+      MappedByteBuffer chunk = getChunk(tick);
+      int offset = getOffsetInChunk(tick);
+      chunk.position(offset + Long.BYTES);
+      codec.read(chunk);
+      return chunk.getLong(offset);
+   }
+
+   /**
+    * Replays the records in [{@code fromTick}, {@code toTick}[: for each record the state of the
+    * joints is loaded, the frames of the multi-body system are updated, and {@code listener} is
+    * notified.
+    *
+    * @param fromTick the index of the first record to replay, inclusive.
+    * @param toTick   the index of the last record to replay, exclusive.
+    * @param listener the listener notified with the index of each record once loaded, can be
+    *                 {@code null}.
+    * @throws IndexOutOfBoundsException if the range is not within the records of the file.
+    */
+   public void replay(long fromTick, long toTick, LongConsumer listener)
+   {
+      if (fromTick > toTick)
+         throw new IndexOutOfBoundsException("Invalid range: [" + fromTick + ", " + toTick + "[");
+      if (fromTick == toTick)
+         return;
+
+      checkTick(fromTick);
+      checkTick(toTick - 1);
+
+      for (long tick = fromTick; tick < toTick; tick++)
+      {
+         read(tick);
+         rootBody.updateFramesRecursively();
+
+         if (listener != null)
+            listener.accept(tick);
+      }
+   }
+
+   private void checkTick(long tick)
+   {
+      if (tick < 0 || tick >= numberOfRecords)
+         throw new IndexOutOfBoundsException("Tick " + tick + " is out of bounds [0, " + numberOfRecords + "[");
+   }
+
+   private MappedByteBuffer getChunk(long tick)
+   {
+      return chunks[(int) (tick / recordsPerChunk)];
+   }
+
+   private int getOffsetInChunk(long tick)
+   {
+      return (int) (tick % recordsPerChunk) * recordStride;
+   }
+
+   /**
+    * Gets the number of records that were present in the file when it was opened.
+    *
+    * @return the number of records.
+    */
+   public long getNumberOfRecords()
+   {
+      return numberOfRecords;
+   }
+
+   /**
+    * Gets the codec used to decode the state of the joints.
+    *
+    * @return the codec.
+    */
+   public MultiBodySystemStateCodec getCodec()
+   {
+      return codec;
+   }
+
+   /**
+    * Closes the file.
+    *
+    * @throws IOException if an I/O error occurs.
+    */
+   @Override
+   public void close() throws IOException
+   {
+      channel.close();
+   }
+}
@@ -0,0 +1,218 @@
+package us.ihmc.mecano.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+
+/**
+ * Writes the state of a multi-body system over time to a memory-mapped file.
+ * <p>
+ * Each call to {@link #append(long)} adds a record with a fixed stride holding a timestamp and the
+ * state of all the joints encoded with a {@link MultiBodySystemStateCodec}. The file can be read back
+ * with random access using {@link MultiBodySystemStateLogReader}.
+ * </p>
+ * <p>
+ * The file is laid out as follows, all values are little-endian:
+ *
+ * <pre>
+ * | magic number (int) | version (int) | number of records (long) | codec header | record 0 | record 1 | ...
+ * </pre>
+ *
+ * where each record is the timestamp as a {@code long} followed by a record of the codec. The
+ * number of records is updated after each append, once the record is fully written, such that the
+ * file can be read while being written. While the file is open, it is mapped in chunks of several
+ * records and its size is rounded up to the next chunk, the number of records in the header is
+ * hence the only reliable information on the amount of data. The file is trimmed to its actual
+ * content when closed.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class MultiBodySystemStateLogWriter implements Closeable
+{
+   /** Identifies a state log file. */
+   public static final int MAGIC_NUMBER = 0x4D45434C;
+   /** The version of the file format. */
+   public static final int VERSION = 1;
+   /** The byte order used in the file. */
+   public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+   /** Position in the file of the number of records. */
+   static final int NUMBER_OF_RECORDS_POSITION = 2 * Integer.BYTES;
+   /** The size in bytes of the file header including the header of the codec. */
+   public static final int FILE_HEADER_SIZE = NUMBER_OF_RECORDS_POSITION + Long.BYTES + MultiBodySystemStateCodec.HEADER_SIZE;
+   /** The default target size in bytes of each region of the file mapped in memory. */
+   static final int CHUNK_SIZE = 1 << 26;
+
+   /** The codec used to encode the state of the joints into each record. */
+   private final MultiBodySystemStateCodec codec;
+   /** The channel to the log file. */
+   private final FileChannel channel;
+   /** The region of the file holding the file header, used to update the number of records. */
+   private final MappedByteBuffer header;
+   /** The size in bytes of a record, i.e. the timestamp and the codec record. */
+   private final int recordStride;
+   /** The number of records held by each region of the file mapped in memory. */
+   private final int recordsPerChunk;
+
+   /** The region of the file mapped in memory in which the next record is to be written. */
+   private MappedByteBuffer currentChunk;
+   /** The number of records appended so far. */
+   private long numberOfRecords = 0;
+
+   /**
+    * Creates a new log file for the given multi-body system, replacing any existing file.
+    *
+    * @param file  the path to the file to create. Not modified.
+    * @param input the definition of the system to log the state of. Not modified.
+    * @throws IOException if the file could not be created or mapped.
+    */
+   public MultiBodySystemStateLogWriter(Path file, MultiBodySystemReadOnly input) throws IOException
+   {
+      this(file, new MultiBodySystemStateCodec(input));
+   }
+
+   /**
+    * Creates a new log file using the given codec, replacing any existing file.
+    *
+    * @param file  the path to the file to create. Not modified.
+    * @param codec the codec used to encode the state of the joints.
+    * @throws IOException if the file could not be created or mapped.
+    */
+   public MultiBodySystemStateLogWriter(Path file, MultiBodySystemStateCodec codec) throws IOException
+   {
+      this(file, codec, CHUNK_SIZE);
+   }
+
+   /**
+    * Creates a new log file using the given codec and mapping the file in regions of the given size.
+    *
+    * @param file      the path to the file to create. Not modified.
+    * @param codec     the codec used to encode the state of the joints.
+    * @param chunkSize the target size in bytes of each region of the file mapped in memory.
+    * @throws IOException if the file could not be created or mapped.
+    */
+   MultiBodySystemStateLogWriter(Path file, MultiBodySystemStateCodec codec, int chunkSize) throws IOException
+   {
+      this.codec = codec;
+      recordStride = computeRecordStride(codec);
+      recordsPerChunk = computeRecordsPerChunk(recordStride, chunkSize);
+
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+      try
+      {
+         header = channel.map(MapMode.READ_WRITE, 0, FILE_HEADER_SIZE);
+         header.order(BYTE_ORDER);
+         header.putInt(MAGIC_NUMBER);
+         header.putInt(VERSION);
+         header.putLong(numberOfRecords);
+         codec.writeHeader(header);
+      }
+      catch (IOException | RuntimeException e)
+      {
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Appends a new record with the current state of the joints.
+    *
+    * @param timestamp the timestamp to associate with the record, typically in nanoseconds.
+    * @throws IOException if the file could not be extended.
+    */
+   public void append(long timestamp) throws IOException
+   {
+      if (currentChunk == null || !currentChunk.hasRemaining())
+      {
+         long chunkIndex = numberOfRecords / recordsPerChunk;
+         long chunkSize = (long) recordsPerChunk * recordStride;
+         currentChunk = channel.map(MapMode.READ_WRITE, FILE_HEADER_SIZE + chunkIndex * chunkSize, chunkSize);
+         currentChunk.order(BYTE_ORDER);
+      }
+
+      currentChunk.putLong(timestamp);
+      codec.write(currentChunk);
+      // The record has to be visible to a concurrent reader before the updated number of records.
+      MemoryFences.fullFence();
+      numberOfRecords++;
+      header.putLong(NUMBER_OF_RECORDS_POSITION, numberOfRecords);
+   }
+
+   /**
+    * Gets the number of records appended so far.
+    *
+    * @return the number of records.
+    */
+   public long getNumberOfRecords()
+   {
+      return numberOfRecords;
+   }
+
+   /**
+    * Gets the codec used to encode the state of the joints.
+    *
+    * @return the codec.
+    */
+   public MultiBodySystemStateCodec getCodec()
+   {
+      return codec;
+   }
+
+   /**
+    * Flushes the records to the storage device, trims the file to the records appended, and closes
+    * the file.
+    *
+    * @throws IOException if an I/O error occurs.
+    */
+   @Override
+   public void close() throws IOException
+   {
+      try
+      {
+         if (currentChunk != null)
+            currentChunk.force();
+         header.force();
+         currentChunk = null;
+         channel.truncate(FILE_HEADER_SIZE + numberOfRecords * recordStride);
+      }
+      finally
+      {
+         channel.close();
+      }
+   }
+
+   /**
+    * Computes the size in bytes of a record in the log file, i.e. the timestamp and the codec record.
+    *
+    * @param codec the codec used to encode the state of the joints.
+    * @return the stride of the records.
+    */
+   static int computeRecordStride(MultiBodySystemStateCodec codec)
+   {
+      return Long.BYTES + codec.getRecordSize();
+   }
+
+   /**
+    * Computes the number of records in each region of the file mapped in memory such that records do
+    * not overlap two regions.
+    *
+    * @param recordStride the size in bytes of a record.
+    * @param chunkSize    the target size in bytes of each region.
+    * @return the number of records per region.
+    */
+   static int computeRecordsPerChunk(int recordStride, int chunkSize)
+   {
+      return Math.max(1, chunkSize / recordStride);
+   }
+}
@@ -0,0 +1,170 @@
+package us.ihmc.mecano.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointMatrixIndexProvider;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+
+/**
+ * Publishes the state of a multi-body system to another process through shared memory.
+ * <p>
+ * The state is written into a memory-mapped file using a {@link MultiBodySystemStateCodec}, i.e.
+ * laid out in the order of the {@link JointMatrixIndexProvider}, and can be read by another process
+ * with a {@link MultiBodySystemStateSubscriber}. The file only holds the latest state, publishing
+ * overwrites the previous state in place.
+ * </p>
+ * <p>
+ * The exchange is guarded by a sequence lock: the sequence number is odd while the state is being
+ * written and even otherwise. The subscriber reads the sequence before and after reading the state
+ * and retries if it changed, such that neither side ever blocks the other.
+ * </p>
+ * <p>
+ * The file is laid out as follows, all values are in the native byte order:
+ *
+ * <pre>
+ * | magic number (int) | version (int) | codec header | sequence (long) | codec record |
+ * </pre>
+ * </p>
+ * <p>
+ * There should be only one publisher per file. This class is not thread-safe.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class MultiBodySystemStatePublisher implements Closeable
+{
+   /** Identifies a shared state file. */
+   public static final int MAGIC_NUMBER = 0x4D454353;
+   /** The version of the file format. */
+   public static final int VERSION = 1;
+   /**
+    * The byte order used in the file, the file is meant to be shared by processes on the same machine.
+    */
+   public static final ByteOrder BYTE_ORDER = ByteOrder.nativeOrder();
+   /** Position in the file of the sequence number, aligned on 8 bytes. */
+   static final int SEQUENCE_POSITION = align(2 * Integer.BYTES + MultiBodySystemStateCodec.HEADER_SIZE);
+   /** Position in the file of the state, aligned on 8 bytes. */
+   static final int RECORD_POSITION = SEQUENCE_POSITION + Long.BYTES;
+
+   /** The codec used to encode the state of the joints. */
+   private final MultiBodySystemStateCodec codec;
+   /** The channel to the shared file. */
+   private final FileChannel channel;
+   /** The shared file mapped in memory. */
+   private final MappedByteBuffer buffer;
+
+   /** The current sequence number, odd while a state is being written. */
+   private long sequence = 0;
+
+   /**
+    * Creates the shared file for publishing the state of the given multi-body system, overwriting the
+    * content of any existing file.
+    * <p>
+    * An existing file is resized in place rather than truncated to zero such that a subscriber still
+    * mapping the file is not left with a mapping beyond the end of the file.
+    * </p>
+    *
+    * @param file  the path to the file to create, typically on a memory-backed file system such as
+    *              {@code /dev/shm}. Not modified.
+    * @param input the definition of the system to publish the state of. Not modified.
+    * @throws IOException if the file could not be created or mapped.
+    */
+   public MultiBodySystemStatePublisher(Path file, MultiBodySystemReadOnly input) throws IOException
+   {
+      codec = new MultiBodySystemStateCodec(input);
+
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+      try
+      {
+         int fileSize = computeFileSize(codec);
+         // Mapping extends the file if it is too small, the file is then trimmed if it is too large.
+         buffer = channel.map(MapMode.READ_WRITE, 0, fileSize);
+         if (channel.size() > fileSize)
+            channel.truncate(fileSize);
+
+         buffer.order(BYTE_ORDER);
+         buffer.putInt(MAGIC_NUMBER);
+         buffer.putInt(VERSION);
+         codec.writeHeader(buffer);
+         buffer.putLong(SEQUENCE_POSITION, sequence);
+      }
+      catch (IOException | RuntimeException e)
+      {
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Publishes the current state of the joints.
+    * <p>
+    * This method is garbage free and does not block.
+    * </p>
+    */
+   public void publish()
+   {
+      buffer.putLong(SEQUENCE_POSITION, ++sequence);
+      // The odd sequence has to be visible before any change to the state.
+      MemoryFences.fullFence();
+      buffer.position(RECORD_POSITION);
+      codec.write(buffer);
+      // The state has to be fully visible before the even sequence.
+      MemoryFences.fullFence();
+      buffer.putLong(SEQUENCE_POSITION, ++sequence);
+   }
+
+   /**
+    * Gets the number of states published so far.
+    *
+    * @return the number of states published.
+    */
+   public long getNumberOfPublications()
+   {
+      return sequence / 2;
+   }
+
+   /**
+    * Gets the codec used to encode the state of the joints.
+    *
+    * @return the codec.
+    */
+   public MultiBodySystemStateCodec getCodec()
+   {
+      return codec;
+   }
+
+   /**
+    * Closes the file, the subscribers can still read the last state published.
+    *
+    * @throws IOException if an I/O error occurs.
+    */
+   @Override
+   public void close() throws IOException
+   {
+      channel.close();
+   }
+
+   /**
+    * Computes the size in bytes of the shared file.
+    *
+    * @param codec the codec used to encode the state of the joints.
+    * @return the size of the file.
+    */
+   static int computeFileSize(MultiBodySystemStateCodec codec)
+   {
+      return RECORD_POSITION + codec.getRecordSize();
+   }
+
+   private static int align(int position)
+   {
+      return (position + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+   }
+}
@@ -0,0 +1,185 @@
+package us.ihmc.mecano.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemBasics;
+
+/**
+ * Reads the state of a multi-body system published by another process with a
+ * {@link MultiBodySystemStatePublisher}.
+ * <p>
+ * The state is read without locking: the record is copied from the shared memory with a single
+ * bulk copy into a preallocated buffer, and decoded into the joints only once the sequence lock
+ * confirms that the publisher did not modify it during the copy. When the publisher writes a new
+ * state while it is being read, the copy is discarded and attempted again. The joints are hence
+ * only ever loaded with a consistent state.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ *
+ * @author Sylvain Bertrand
+ */
+public class MultiBodySystemStateSubscriber implements Closeable
+{
+   /** The number of attempts used by default in {@link #read()}. */
+   public static final int DEFAULT_MAX_NUMBER_OF_ATTEMPTS = 100;
+
+   /** The codec used to decode the state of the joints. */
+   private final MultiBodySystemStateCodec codec;
+   /** The channel to the shared file. */
+   private final FileChannel channel;
+   /** The shared file mapped in memory. */
+   private final MappedByteBuffer buffer;
+   /** Holds a copy of the record until it is known to be consistent. */
+   private final ByteBuffer recordCopy;
+
+   /** The sequence number of the last state successfully read, 0 if none. */
+   private long lastSequence = 0;
+
+   /**
+    * Opens the shared file for reading the state of the given multi-body system.
+    *
+    * @param file  the path to the file created by the publisher. Not modified.
+    * @param input the definition of the system to load the state into. The system should be identical
+    *              to the one used by the publisher.
+    * @throws IOException              if the file could not be opened or mapped.
+    * @throws IllegalArgumentException if the file is not a valid shared state file or is for a
+    *                                  different multi-body system.
+    */
+   public MultiBodySystemStateSubscriber(Path file, MultiBodySystemBasics input) throws IOException
+   {
+      codec = new MultiBodySystemStateCodec(input);
+      recordCopy = ByteBuffer.allocate(codec.getRecordSize());
+      recordCopy.order(MultiBodySystemStatePublisher.BYTE_ORDER);
+
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+
+      try
+      {
+         int fileSize = MultiBodySystemStatePublisher.computeFileSize(codec);
+         if (channel.size() != fileSize)
+            throw new IllegalArgumentException("Unexpected file size: " + channel.size() + ", expected: " + fileSize);
+
+         buffer = channel.map(MapMode.READ_ONLY, 0, fileSize);
+         buffer.order(MultiBodySystemStatePublisher.BYTE_ORDER);
+
+         int magicNumber = buffer.getInt();
+         if (magicNumber != MultiBodySystemStatePublisher.MAGIC_NUMBER)
+            throw new IllegalArgumentException("Not a shared state file, unexpected magic number: " + Integer.toHexString(magicNumber));
+         int version = buffer.getInt();
+         if (version != MultiBodySystemStatePublisher.VERSION)
+            throw new IllegalArgumentException("Unsupported version: " + version + ", expected: " + MultiBodySystemStatePublisher.VERSION);
+         codec.readHeader(buffer);
+      }
+      catch (IOException | RuntimeException e)
+      {
+         channel.close();
+         throw e;
+      }
+   }
+
+   /**
+    * Attempts to load the latest published state into the joints using
+    * {@link #DEFAULT_MAX_NUMBER_OF_ATTEMPTS}.
+    *
+    * @return {@code true} if a consistent state was loaded, {@code false} otherwise.
+    * @see #read(int)
+    */
+   public boolean read()
+   {
+      return read(DEFAULT_MAX_NUMBER_OF_ATTEMPTS);
+   }
+
+   /**
+    * Attempts to load the latest published state into the joints.
+    * <p>
+    * This method is garbage free and does not block, it gives up after {@code maxNumberOfAttempts}
+    * inconsistent reads. The joints are modified only when a consistent state was read, i.e. when
+    * this method returns {@code true}.
+    * </p>
+    *
+    * @param maxNumberOfAttempts the maximum number of times the state is read before giving up.
+    * @return {@code true} if a consistent state was loaded, {@code false} if no state has been
+    *         published yet or if all the attempts failed.
+    */
+   public boolean read(int maxNumberOfAttempts)
+   {
+      for (int attempt = 0; attempt < maxNumberOfAttempts; attempt++)
+      {
+         long sequenceBefore = buffer.getLong(MultiBodySystemStatePublisher.SEQUENCE_POSITION);
+
+         if (sequenceBefore == 0L)
+            return false;
+         if ((sequenceBefore & 1L) != 0L)
+            continue; // The publisher is writing.
+
+         // The record cannot be read before the sequence.
+         MemoryFences.fullFence();
+         buffer.position(MultiBodySystemStatePublisher.RECORD_POSITION);
+         recordCopy.clear();
+         recordCopy.put(buffer);
+         // The sequence cannot be read again before the record is fully read.
+         MemoryFences.fullFence();
+
+         if (buffer.getLong(MultiBodySystemStatePublisher.SEQUENCE_POSITION) == sequenceBefore)
+         {
+            recordCopy.flip();
+            codec.read(recordCopy);
+            lastSequence = sequenceBefore;
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Tests whether a new state has been published since the last successful read.
+    *
+    * @return {@code true} if a new state is available, {@code false} otherwise.
+    */
+   public boolean hasNewState()
+   {
+      long sequence = buffer.getLong(MultiBodySystemStatePublisher.SEQUENCE_POSITION);
+      return sequence != 0L && sequence != lastSequence;
+   }
+
+   /**
+    * Gets the index of the publication that was loaded during the last successful read.
+    *
+    * @return the index of the last publication read, or 0 if nothing has been read yet.
+    */
+   public long getLastPublicationRead()
+   {
+      return lastSequence / 2;
+   }
+
+   /**
+    * Gets the codec used to decode the state of the joints.
+    *
+    * @return the codec.
+    */
+   public MultiBodySystemStateCodec getCodec()
+   {
+      return codec;
+   }
+
+   /**
+    * Closes the file.
+    *
+    * @throws IOException if an I/O error occurs.
+    */
+   @Override
+   public void close() throws IOException
+   {
+      channel.close();
+   }
+}
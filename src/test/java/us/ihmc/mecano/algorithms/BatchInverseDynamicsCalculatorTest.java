@@ -0,0 +1,106 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+public class BatchInverseDynamicsCalculatorTest
+{
+   private static final int ITERATIONS = 50;
+   private static final int BATCH_SIZE = 100;
+   private static final double EPSILON = 1.0e-8;
+
+   @Test
+   public void testSequentialBatch() throws Exception
+   {
+      Random random = new Random(4363);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(20) + 1);
+         compareAgainstInverseDynamicsCalculator(random, i, joints, null);
+      }
+   }
+
+   @Test
+   public void testParallelBatch() throws Exception
+   {
+      Random random = new Random(4363);
+      ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+      try
+      {
+         for (int i = 0; i < ITERATIONS; i++)
+         {
+            List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(20) + 1);
+            compareAgainstInverseDynamicsCalculator(random, i, joints, forkJoinPool);
+         }
+      }
+      finally
+      {
+         forkJoinPool.shutdown();
+      }
+   }
+
+   private static void compareAgainstInverseDynamicsCalculator(Random random, int iteration, List<JointBasics> joints, ForkJoinPool forkJoinPool)
+   {
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+      double gravity = -9.81;
+
+      InverseDynamicsCalculator expectedCalculator = new InverseDynamicsCalculator(rootBody);
+      expectedCalculator.setGravitionalAcceleration(gravity);
+      BatchInverseDynamicsCalculator batchCalculator = new BatchInverseDynamicsCalculator(rootBody);
+      batchCalculator.setGravitionalAcceleration(gravity);
+      batchCalculator.setForkJoinPool(forkJoinPool);
+
+      int configurationSize = batchCalculator.getSystem().getConfigurationSize();
+      int nDoFs = batchCalculator.getSystem().getNumberOfDoFs();
+
+      DenseMatrix64F configurations = new DenseMatrix64F(BATCH_SIZE, configurationSize);
+      DenseMatrix64F velocities = new DenseMatrix64F(BATCH_SIZE, nDoFs);
+      DenseMatrix64F accelerations = new DenseMatrix64F(BATCH_SIZE, nDoFs);
+      DenseMatrix64F expectedTau = new DenseMatrix64F(BATCH_SIZE, nDoFs);
+
+      List<? extends JointReadOnly> indexedJoints = batchCalculator.getSystem().getInput().getJointMatrixIndexProvider().getIndexedJointsInOrder();
+      DenseMatrix64F jointConfiguration = new DenseMatrix64F(configurationSize, 1);
+      DenseMatrix64F jointVelocity = new DenseMatrix64F(nDoFs, 1);
+      DenseMatrix64F jointAcceleration = new DenseMatrix64F(nDoFs, 1);
+
+      for (int row = 0; row < BATCH_SIZE; row++)
+      {
+         for (JointStateType stateType : JointStateType.values())
+            MultiBodySystemRandomTools.nextState(random, stateType, joints);
+         rootBody.updateFramesRecursively();
+
+         MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.CONFIGURATION, jointConfiguration);
+         MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.VELOCITY, jointVelocity);
+         MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.ACCELERATION, jointAcceleration);
+         System.arraycopy(jointConfiguration.getData(), 0, configurations.getData(), row * configurationSize, configurationSize);
+         System.arraycopy(jointVelocity.getData(), 0, velocities.getData(), row * nDoFs, nDoFs);
+         System.arraycopy(jointAcceleration.getData(), 0, accelerations.getData(), row * nDoFs, nDoFs);
+
+         expectedCalculator.compute();
+         System.arraycopy(expectedCalculator.getJointTauMatrix().getData(), 0, expectedTau.getData(), row * nDoFs, nDoFs);
+      }
+
+      batchCalculator.compute(configurations, velocities, accelerations);
+      DenseMatrix64F actualTau = batchCalculator.getJointTauMatrix();
+
+      assertTrue(MatrixFeatures.isEquals(expectedTau, actualTau, EPSILON * Math.max(1.0, CommonOps.elementMaxAbs(expectedTau))),
+                 "Iteration: " + iteration + "\nexpected:\n" + expectedTau + "actual:\n" + actualTau);
+   }
+}
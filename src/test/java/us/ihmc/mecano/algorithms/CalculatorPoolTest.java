@@ -0,0 +1,126 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+
+public class CalculatorPoolTest
+{
+   @Test
+   public void testHitsAndMisses()
+   {
+      Random random = new Random(5463);
+      List<JointBasics> joints = MultiBodySystemRandomTools.nextJointChain(random, 10);
+      MultiBodySystemReadOnly input = MultiBodySystemReadOnly.toMultiBodySystemInput(joints.get(0).getPredecessor());
+      CalculatorPool<InverseDynamicsCalculator> pool = new CalculatorPool<>(input, InverseDynamicsCalculator::new);
+
+      InverseDynamicsCalculator first = pool.borrow();
+      InverseDynamicsCalculator second = pool.borrow();
+      assertNotSame(first, second);
+      assertTrue(first.getInput() == input);
+      assertEquals(0, pool.getNumberOfHits());
+      assertEquals(2, pool.getNumberOfMisses());
+      assertEquals(2, pool.getNumberOfCreatedCalculators());
+      assertEquals(0, pool.getNumberOfIdleCalculators());
+
+      pool.giveBack(first);
+      assertEquals(1, pool.getNumberOfIdleCalculators());
+      assertSame(first, pool.borrow());
+      assertEquals(1, pool.getNumberOfHits());
+      assertEquals(2, pool.getNumberOfCreatedCalculators());
+      assertTrue(pool.getMaximumCheckoutTime() <= pool.getTotalCheckoutTime());
+
+      pool.giveBack(first);
+      pool.giveBack(second);
+      pool.preallocate(4);
+      assertEquals(4, pool.getNumberOfIdleCalculators());
+      assertEquals(4, pool.getNumberOfCreatedCalculators());
+
+      pool.resetMetrics();
+      assertEquals(0, pool.getNumberOfHits());
+      assertEquals(0, pool.getNumberOfMisses());
+      assertEquals(0.0, pool.getAverageCheckoutTime());
+      assertThrows(NullPointerException.class, () -> pool.giveBack(null));
+   }
+
+   @Test
+   public void testResetAction()
+   {
+      List<Object> resetCalculators = new ArrayList<>();
+      CalculatorPool<Object> pool = new CalculatorPool<>(Object::new, resetCalculators::add);
+
+      pool.preallocate(2);
+      assertTrue(resetCalculators.isEmpty());
+
+      Object first = pool.borrow();
+      Object second = pool.borrow();
+      Object third = pool.borrow();
+      pool.giveBack(second);
+      pool.giveBack(first);
+      assertEquals(2, resetCalculators.size());
+      assertSame(second, resetCalculators.get(0));
+      assertSame(first, resetCalculators.get(1));
+      assertEquals(2, pool.getNumberOfIdleCalculators());
+
+      pool.giveBack(third);
+      assertEquals(3, resetCalculators.size());
+      assertSame(third, resetCalculators.get(2));
+      assertThrows(NullPointerException.class, () -> pool.giveBack(null));
+      assertEquals(3, resetCalculators.size());
+   }
+
+   @Test
+   public void testConcurrentBorrowing() throws Exception
+   {
+      int numberOfThreads = 4;
+      int numberOfBorrowsPerThread = 1000;
+      CalculatorPool<Object> pool = new CalculatorPool<>(Object::new);
+      Set<Object> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+      ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+      List<Future<?>> futures = new ArrayList<>();
+
+      for (int thread = 0; thread < numberOfThreads; thread++)
+      {
+         futures.add(executor.submit(() ->
+         {
+            for (int i = 0; i < numberOfBorrowsPerThread; i++)
+            {
+               Object calculator = pool.borrow();
+               synchronized (inUse)
+               {
+                  assertTrue(inUse.add(calculator), "The same calculator was borrowed twice.");
+               }
+               synchronized (inUse)
+               {
+                  inUse.remove(calculator);
+               }
+               pool.giveBack(calculator);
+            }
+         }));
+      }
+
+      for (Future<?> future : futures)
+         future.get();
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+      assertEquals(numberOfThreads * numberOfBorrowsPerThread, pool.getNumberOfHits() + pool.getNumberOfMisses());
+      assertTrue(pool.getNumberOfCreatedCalculators() <= numberOfThreads);
+      assertEquals(pool.getNumberOfCreatedCalculators(), pool.getNumberOfIdleCalculators());
+   }
+}
@@ -0,0 +1,108 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+public class CompiledInverseDynamicsCalculatorTest
+{
+   private static final int ITERATIONS = 500;
+   private static final double ONE_DOF_JOINT_EPSILON = 1.0e-10;
+   private static final double ALL_JOINT_EPSILON = 1.0e-8;
+
+   @Test
+   public void testPrismaticJointChain() throws Exception
+   {
+      Random random = new Random(21654);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextPrismaticJointChain(random, random.nextInt(50) + 1);
+         compareAgainstInverseDynamicsCalculator(random, i, joints, ONE_DOF_JOINT_EPSILON);
+      }
+   }
+
+   @Test
+   public void testRevoluteJointChain() throws Exception
+   {
+      Random random = new Random(2654);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextRevoluteJointChain(random, random.nextInt(50) + 1);
+         compareAgainstInverseDynamicsCalculator(random, i, joints, ONE_DOF_JOINT_EPSILON);
+      }
+   }
+
+   @Test
+   public void testRevoluteJointTree() throws Exception
+   {
+      Random random = new Random(21654);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextRevoluteJointTree(random, random.nextInt(50) + 1);
+         compareAgainstInverseDynamicsCalculator(random, i, joints, ONE_DOF_JOINT_EPSILON);
+      }
+   }
+
+   @Test
+   public void testJointChain() throws Exception
+   {
+      Random random = new Random(3465);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextJointChain(random, random.nextInt(20) + 1);
+         compareAgainstInverseDynamicsCalculator(random, i, joints, ALL_JOINT_EPSILON);
+      }
+   }
+
+   @Test
+   public void testJointTree() throws Exception
+   {
+      Random random = new Random(3465);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(20) + 1);
+         compareAgainstInverseDynamicsCalculator(random, i, joints, ALL_JOINT_EPSILON);
+      }
+   }
+
+   public static void compareAgainstInverseDynamicsCalculator(Random random, int iteration, List<? extends JointBasics> joints, double epsilon)
+   {
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+      double gravity = -9.81;
+
+      for (JointStateType stateType : JointStateType.values())
+         MultiBodySystemRandomTools.nextState(random, stateType, joints);
+      rootBody.updateFramesRecursively();
+
+      InverseDynamicsCalculator expectedCalculator = new InverseDynamicsCalculator(rootBody);
+      expectedCalculator.setGravitionalAcceleration(gravity);
+      expectedCalculator.compute();
+
+      CompiledInverseDynamicsCalculator actualCalculator = new CompiledInverseDynamicsCalculator(rootBody);
+      actualCalculator.setGravitionalAcceleration(gravity);
+      actualCalculator.compute();
+
+      DenseMatrix64F expectedTau = expectedCalculator.getJointTauMatrix();
+      DenseMatrix64F actualTau = actualCalculator.getJointTauMatrix();
+
+      assertTrue(MatrixFeatures.isEquals(expectedTau, actualTau, epsilon * Math.max(1.0, CommonOps.elementMaxAbs(expectedTau))),
+                 "Iteration: " + iteration + "\nexpected:\n" + expectedTau + "actual:\n" + actualTau);
+   }
+}
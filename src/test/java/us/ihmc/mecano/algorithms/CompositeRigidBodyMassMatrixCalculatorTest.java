@@ -79,4 +79,44 @@ public class CompositeRigidBodyMassMatrixCalculatorTest
                                                   EPSILON);
       }
    }
+
+   @Test
+   public void testIncrementalMassMatrixUpdate()
+   {
+      Random random = new Random(45346);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int numberOfJoints = random.nextInt(50) + 1;
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, numberOfJoints);
+         for (JointStateType stateToRandomize : JointStateType.values())
+            MultiBodySystemRandomTools.nextState(random, stateToRandomize, joints);
+         joints.get(0).getPredecessor().updateFramesRecursively();
+
+         ReferenceFrame matrixFrame = EuclidFrameRandomTools.nextReferenceFrame(random);
+         MultiBodySystemReadOnly input = MultiBodySystemReadOnly.toMultiBodySystemInput(joints);
+         CompositeRigidBodyMassMatrixCalculator incrementalCalculator = new CompositeRigidBodyMassMatrixCalculator(input, matrixFrame);
+         incrementalCalculator.getMassMatrix();
+         incrementalCalculator.getCentroidalMomentumMatrix();
+
+         for (int update = 0; update < 5; update++)
+         {
+            for (JointBasics joint : joints)
+            {
+               if (random.nextInt(5) != 0)
+                  continue;
+
+               MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joint);
+               incrementalCalculator.markJointChanged(joint);
+            }
+            joints.get(0).getPredecessor().updateFramesRecursively();
+
+            CompositeRigidBodyMassMatrixCalculator expectedCalculator = new CompositeRigidBodyMassMatrixCalculator(input, matrixFrame);
+            assertTrue(MatrixFeatures.isEquals(expectedCalculator.getMassMatrix(), incrementalCalculator.getMassMatrix(), EPSILON));
+            assertTrue(MatrixFeatures.isEquals(expectedCalculator.getCentroidalMomentumMatrix(),
+                                               incrementalCalculator.getCentroidalMomentumMatrix(),
+                                               EPSILON));
+         }
+      }
+   }
 }
@@ -3,6 +3,7 @@ package us.ihmc.mecano.algorithms;
 import static org.junit.jupiter.api.Assertions.*;
 import static us.ihmc.mecano.tools.MecanoRandomTools.*;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -14,12 +15,15 @@ import org.ejml.ops.CommonOps;
 import org.ejml.ops.MatrixFeatures;
 import org.junit.jupiter.api.Test;
 
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.tools.EuclidCoreIOTools;
 import us.ihmc.euclid.tools.EuclidCoreRandomTools;
 import us.ihmc.mecano.multiBodySystem.Joint;
 import us.ihmc.mecano.multiBodySystem.OneDoFJoint;
 import us.ihmc.mecano.multiBodySystem.PrismaticJoint;
 import us.ihmc.mecano.multiBodySystem.RevoluteJoint;
+import us.ihmc.mecano.multiBodySystem.RigidBody;
+import us.ihmc.mecano.multiBodySystem.SixDoFJoint;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
 import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
@@ -222,6 +226,156 @@ public class ForwardDynamicsCalculatorTest
       }
    }
 
+   @Test
+   public void testDerivativesOneDoFJointTree() throws Exception
+   {
+      Random random = new Random(6743);
+
+      for (int i = 0; i < 100; i++)
+      {
+         List<OneDoFJoint> joints = MultiBodySystemRandomTools.nextOneDoFJointTree(random, random.nextInt(20) + 1);
+         compareDerivativesAgainstFiniteDifference(random, i, joints, Collections.emptyMap());
+         compareDerivativesAgainstFiniteDifference(random, i, joints, nextExternalWrenches(random, joints));
+      }
+   }
+
+   @Test
+   public void testDerivativesJointTree() throws Exception
+   {
+      Random random = new Random(6743);
+
+      for (int i = 0; i < 100; i++)
+      {
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(20) + 1);
+         compareDerivativesAgainstFiniteDifference(random, i, joints, Collections.emptyMap());
+         compareDerivativesAgainstFiniteDifference(random, i, joints, nextExternalWrenches(random, joints));
+      }
+   }
+
+   @Test
+   public void testDerivativesFloatingJointTree() throws Exception
+   {
+      Random random = new Random(2389);
+
+      for (int i = 0; i < 100; i++)
+      {
+         List<JointBasics> joints = new ArrayList<>();
+         RigidBody elevator = new RigidBody("elevator", ReferenceFrame.getWorldFrame());
+         joints.add(new SixDoFJoint("floating", elevator));
+         RigidBody floatingBody = MultiBodySystemRandomTools.nextRigidBody(random, "floatingBody", joints.get(0));
+         joints.addAll(MultiBodySystemRandomTools.nextJointTree(random, floatingBody, random.nextInt(20) + 1));
+         compareDerivativesAgainstFiniteDifference(random, i, joints, Collections.emptyMap());
+         compareDerivativesAgainstFiniteDifference(random, i, joints, nextExternalWrenches(random, joints));
+      }
+   }
+
+   private static void compareDerivativesAgainstFiniteDifference(Random random, int iteration, List<? extends JointBasics> joints,
+                                                                 Map<RigidBodyReadOnly, WrenchReadOnly> externalWrenches)
+   {
+      double step = 1.0e-6;
+      double epsilon = 1.0e-5;
+
+      for (JointStateType stateType : JointStateType.values())
+         MultiBodySystemRandomTools.nextState(random, stateType, joints);
+
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+      rootBody.updateFramesRecursively();
+
+      ForwardDynamicsCalculator forwardDynamicsCalculator = new ForwardDynamicsCalculator(rootBody);
+      forwardDynamicsCalculator.setGravitionalAcceleration(EuclidCoreRandomTools.nextDouble(random, -10.0, -1.0));
+      externalWrenches.forEach(forwardDynamicsCalculator::setExternalWrench);
+      forwardDynamicsCalculator.setComputeDerivatives(true);
+      forwardDynamicsCalculator.compute();
+
+      List<JointBasics> indexedJoints = forwardDynamicsCalculator.getInput().getJointMatrixIndexProvider().getIndexedJointsInOrder().stream()
+                                                                 .map(JointBasics.class::cast).collect(Collectors.toList());
+      int numberOfDoFs = forwardDynamicsCalculator.getJointAccelerationMatrix().getNumRows();
+      DenseMatrix64F q = new DenseMatrix64F(indexedJoints.stream().mapToInt(JointReadOnly::getConfigurationMatrixSize).sum(), 1);
+      DenseMatrix64F qd = new DenseMatrix64F(numberOfDoFs, 1);
+      DenseMatrix64F tau = new DenseMatrix64F(numberOfDoFs, 1);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.CONFIGURATION, q);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.VELOCITY, qd);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.EFFORT, tau);
+
+      List<DenseMatrix64F> analyticalDerivatives = new ArrayList<>();
+      List<DenseMatrix64F> perturbedStates = new ArrayList<>();
+      List<JointStateType> perturbedStateTypes = new ArrayList<>();
+
+      analyticalDerivatives.add(new DenseMatrix64F(forwardDynamicsCalculator.getAccelerationPartialDerivativesWrtConfiguration()));
+      perturbedStates.add(q);
+      perturbedStateTypes.add(JointStateType.CONFIGURATION);
+      analyticalDerivatives.add(new DenseMatrix64F(forwardDynamicsCalculator.getAccelerationPartialDerivativesWrtVelocity()));
+      perturbedStates.add(qd);
+      perturbedStateTypes.add(JointStateType.VELOCITY);
+      analyticalDerivatives.add(new DenseMatrix64F(forwardDynamicsCalculator.getAccelerationPartialDerivativesWrtTau()));
+      perturbedStates.add(tau);
+      perturbedStateTypes.add(JointStateType.EFFORT);
+
+      forwardDynamicsCalculator.setComputeDerivatives(false);
+      assertNull(forwardDynamicsCalculator.getAccelerationPartialDerivativesWrtTau());
+
+      for (int i = 0; i < analyticalDerivatives.size(); i++)
+      {
+         DenseMatrix64F state = perturbedStates.get(i);
+         JointStateType stateType = perturbedStateTypes.get(i);
+         DenseMatrix64F expected = new DenseMatrix64F(numberOfDoFs, numberOfDoFs);
+         DenseMatrix64F qddPlus = new DenseMatrix64F(numberOfDoFs, 1);
+
+         for (int column = 0; column < numberOfDoFs; column++)
+         {
+            perturbState(indexedJoints, stateType, state, column, step);
+            rootBody.updateFramesRecursively();
+            forwardDynamicsCalculator.compute();
+            qddPlus.set(forwardDynamicsCalculator.getJointAccelerationMatrix());
+
+            perturbState(indexedJoints, stateType, state, column, -step);
+            rootBody.updateFramesRecursively();
+            forwardDynamicsCalculator.compute();
+
+            MultiBodySystemTools.insertJointsState(indexedJoints, stateType, state);
+
+            for (int row = 0; row < numberOfDoFs; row++)
+               expected.set(row, column, (qddPlus.get(row, 0) - forwardDynamicsCalculator.getJointAccelerationMatrix().get(row, 0)) / (2.0 * step));
+         }
+
+         rootBody.updateFramesRecursively();
+
+         DenseMatrix64F actual = analyticalDerivatives.get(i);
+         assertTrue(MatrixFeatures.isEquals(expected, actual, epsilon * Math.max(1.0, CommonOps.elementMaxAbs(expected))),
+                    "Iteration: " + iteration + ", state: " + stateType + "\nexpected:\n" + expected + "actual:\n" + actual);
+      }
+   }
+
+   /**
+    * Perturbs the state of the degree of freedom at {@code dofIndex} from the given state. The
+    * configuration is perturbed in the tangent space of the joint, such that the derivatives with
+    * respect to the configuration of spherical, planar and floating joints can be estimated.
+    */
+   private static void perturbState(List<JointBasics> indexedJoints, JointStateType stateType, DenseMatrix64F state, int dofIndex, double delta)
+   {
+      MultiBodySystemTools.insertJointsState(indexedJoints, stateType, state);
+
+      if (stateType == JointStateType.CONFIGURATION)
+      {
+         for (JointBasics joint : indexedJoints)
+         {
+            if (dofIndex < joint.getDegreesOfFreedom())
+            {
+               InverseDynamicsDerivativesCalculatorTest.perturbJointConfiguration(joint, dofIndex, delta);
+               return;
+            }
+            dofIndex -= joint.getDegreesOfFreedom();
+         }
+      }
+      else
+      {
+         double original = state.get(dofIndex, 0);
+         state.set(dofIndex, 0, original + delta);
+         MultiBodySystemTools.insertJointsState(indexedJoints, stateType, state);
+         state.set(dofIndex, 0, original);
+      }
+   }
+
    private static void compareAgainstInverseDynamicsCalculator(Random random, int iteration, List<? extends JointBasics> joints,
                                                                Map<RigidBodyReadOnly, WrenchReadOnly> externalWrenches,
                                                                List<? extends JointReadOnly> jointsToIgnore, double epsilon)
@@ -7,12 +7,14 @@ import java.util.List;
 import java.util.Random;
 
 import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.MatrixFeatures;
 import org.junit.jupiter.api.Test;
 
 import us.ihmc.euclid.referenceFrame.ReferenceFrame;
 import us.ihmc.euclid.referenceFrame.tools.ReferenceFrameTools;
 import us.ihmc.euclid.tools.EuclidCoreRandomTools;
 import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.mecano.frames.FrameStateCache;
 import us.ihmc.mecano.multiBodySystem.Joint;
 import us.ihmc.mecano.multiBodySystem.PrismaticJoint;
 import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
@@ -544,6 +546,39 @@ public class GeometricJacobianCalculatorTest
       }
    }
 
+   @Test
+   public void testWithFrameStateCache() throws Exception
+   {
+      Random random = new Random(2354L);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int numberOfJoints = random.nextInt(40) + 1;
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, numberOfJoints);
+         RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joints);
+         MultiBodySystemRandomTools.nextState(random, JointStateType.VELOCITY, joints);
+         rootBody.updateFramesRecursively();
+         FrameStateCache cache = new FrameStateCache(rootBody);
+         cache.update();
+
+         RigidBodyBasics base = joints.get(random.nextInt(numberOfJoints)).getSuccessor();
+         RigidBodyBasics endEffector = joints.get(random.nextInt(numberOfJoints)).getSuccessor();
+
+         GeometricJacobianCalculator expectedCalculator = new GeometricJacobianCalculator();
+         expectedCalculator.setKinematicChain(base, endEffector);
+         expectedCalculator.setJacobianFrame(endEffector.getBodyFixedFrame());
+
+         GeometricJacobianCalculator actualCalculator = new GeometricJacobianCalculator();
+         actualCalculator.setFrameStateCache(cache);
+         actualCalculator.setKinematicChain(base, endEffector);
+         actualCalculator.setJacobianFrame(endEffector.getBodyFixedFrame());
+
+         assertTrue(MatrixFeatures.isEquals(expectedCalculator.getJacobianMatrix(), actualCalculator.getJacobianMatrix(), 1.0e-10));
+         assertTrue(MatrixFeatures.isEquals(expectedCalculator.getConvectiveTermMatrix(), actualCalculator.getConvectiveTermMatrix(), 1.0e-10));
+      }
+   }
+
    public static void compareJacobianTwistAgainstTwistCalculator(RigidBodyReadOnly base, RigidBodyReadOnly endEffector,
                                                                  GeometricJacobianCalculator jacobianCalculator, double epsilon)
          throws AssertionError
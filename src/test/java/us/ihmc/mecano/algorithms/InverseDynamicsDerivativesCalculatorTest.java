@@ -0,0 +1,212 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.euclid.tuple4D.Quaternion;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.spatial.interfaces.TwistReadOnly;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+public class InverseDynamicsDerivativesCalculatorTest
+{
+   private static final int ITERATIONS = 100;
+   private static final double FINITE_DIFFERENCE_STEP = 1.0e-6;
+   private static final double FINITE_DIFFERENCE_EPSILON = 1.0e-6;
+   private static final double EPSILON = 1.0e-10;
+
+   @Test
+   public void testPrismaticJointChain() throws Exception
+   {
+      Random random = new Random(34536);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextPrismaticJointChain(random, random.nextInt(20) + 1);
+         compareAgainstFiniteDifference(random, i, joints);
+      }
+   }
+
+   @Test
+   public void testRevoluteJointChain() throws Exception
+   {
+      Random random = new Random(34536);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextRevoluteJointChain(random, random.nextInt(20) + 1);
+         compareAgainstFiniteDifference(random, i, joints);
+      }
+   }
+
+   @Test
+   public void testOneDoFJointTree() throws Exception
+   {
+      Random random = new Random(34536);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextOneDoFJointTree(random, random.nextInt(20) + 1);
+         compareAgainstFiniteDifference(random, i, joints);
+      }
+   }
+
+   @Test
+   public void testJointTree() throws Exception
+   {
+      Random random = new Random(34536);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(20) + 1);
+         compareAgainstFiniteDifference(random, i, joints);
+      }
+   }
+
+   private static void compareAgainstFiniteDifference(Random random, int iteration, List<? extends JointBasics> joints)
+   {
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+      double gravity = -9.81;
+
+      for (JointStateType stateType : JointStateType.values())
+         MultiBodySystemRandomTools.nextState(random, stateType, joints);
+      rootBody.updateFramesRecursively();
+
+      InverseDynamicsDerivativesCalculator derivativesCalculator = new InverseDynamicsDerivativesCalculator(rootBody);
+      derivativesCalculator.setGravitionalAcceleration(gravity);
+      derivativesCalculator.compute();
+
+      CompiledInverseDynamicsCalculator inverseDynamicsCalculator = new CompiledInverseDynamicsCalculator(derivativesCalculator.getSystem());
+      inverseDynamicsCalculator.setGravitionalAcceleration(gravity);
+
+      List<JointBasics> indexedJoints = derivativesCalculator.getSystem().getInput().getJointMatrixIndexProvider().getIndexedJointsInOrder().stream()
+                                                             .map(JointBasics.class::cast).collect(Collectors.toList());
+      int nDoFs = derivativesCalculator.getSystem().getNumberOfDoFs();
+      DenseMatrix64F q = new DenseMatrix64F(derivativesCalculator.getSystem().getConfigurationSize(), 1);
+      DenseMatrix64F qd = new DenseMatrix64F(nDoFs, 1);
+      DenseMatrix64F qdd = new DenseMatrix64F(nDoFs, 1);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.CONFIGURATION, q);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.VELOCITY, qd);
+      MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.ACCELERATION, qdd);
+
+      inverseDynamicsCalculator.compute(q, qd, qdd);
+      assertTrue(MatrixFeatures.isEquals(inverseDynamicsCalculator.getJointTauMatrix(), derivativesCalculator.getJointTauMatrix(), EPSILON));
+
+      DenseMatrix64F expected = configurationFiniteDifference(inverseDynamicsCalculator, indexedJoints, q, qd, qdd);
+      assertDerivativesEqual(iteration, expected, derivativesCalculator.getTauPartialDerivativesWrtConfiguration());
+
+      expected = finiteDifference(inverseDynamicsCalculator, q, qd, qdd, qd);
+      assertDerivativesEqual(iteration, expected, derivativesCalculator.getTauPartialDerivativesWrtVelocity());
+
+      CompositeRigidBodyMassMatrixCalculator massMatrixCalculator = new CompositeRigidBodyMassMatrixCalculator(rootBody);
+      assertDerivativesEqual(iteration, massMatrixCalculator.getMassMatrix(), derivativesCalculator.getTauPartialDerivativesWrtAcceleration());
+   }
+
+   private static DenseMatrix64F configurationFiniteDifference(CompiledInverseDynamicsCalculator calculator, List<JointBasics> indexedJoints,
+                                                               DenseMatrix64F q, DenseMatrix64F qd, DenseMatrix64F qdd)
+   {
+      int nDoFs = qd.getNumRows();
+      DenseMatrix64F derivatives = new DenseMatrix64F(nDoFs, nDoFs);
+      DenseMatrix64F qPerturbed = new DenseMatrix64F(q);
+      DenseMatrix64F tauPlus = new DenseMatrix64F(nDoFs, 1);
+      DenseMatrix64F tauMinus = new DenseMatrix64F(nDoFs, 1);
+      int column = 0;
+
+      for (JointBasics joint : indexedJoints)
+      {
+         for (int dof = 0; dof < joint.getDegreesOfFreedom(); dof++, column++)
+         {
+            MultiBodySystemTools.insertJointsState(indexedJoints, JointStateType.CONFIGURATION, q);
+            perturbJointConfiguration(joint, dof, FINITE_DIFFERENCE_STEP);
+            MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.CONFIGURATION, qPerturbed);
+            calculator.compute(qPerturbed, qd, qdd);
+            tauPlus.set(calculator.getJointTauMatrix());
+
+            MultiBodySystemTools.insertJointsState(indexedJoints, JointStateType.CONFIGURATION, q);
+            perturbJointConfiguration(joint, dof, -FINITE_DIFFERENCE_STEP);
+            MultiBodySystemTools.extractJointsState(indexedJoints, JointStateType.CONFIGURATION, qPerturbed);
+            calculator.compute(qPerturbed, qd, qdd);
+            tauMinus.set(calculator.getJointTauMatrix());
+
+            for (int row = 0; row < nDoFs; row++)
+               derivatives.set(row, column, (tauPlus.get(row, 0) - tauMinus.get(row, 0)) / (2.0 * FINITE_DIFFERENCE_STEP));
+         }
+      }
+
+      MultiBodySystemTools.insertJointsState(indexedJoints, JointStateType.CONFIGURATION, q);
+      return derivatives;
+   }
+
+   /**
+    * Perturbs the configuration of the given joint along one axis of its motion subspace:
+    * {@code H(q') = H(q) exp(S_dof * delta)}, such that the configuration of spherical, planar and
+    * floating joints remains valid.
+    */
+   static void perturbJointConfiguration(JointBasics joint, int dof, double delta)
+   {
+      TwistReadOnly unitTwist = joint.getUnitTwists().get(dof);
+      Vector3D rotationVector = new Vector3D();
+      rotationVector.setAndScale(delta, unitTwist.getAngularPart());
+      Vector3D translation = new Vector3D();
+      translation.setAndScale(delta, unitTwist.getLinearPart());
+      Quaternion rotation = new Quaternion();
+      rotation.setRotationVector(rotationVector);
+
+      RigidBodyTransform perturbation = new RigidBodyTransform();
+      perturbation.setRotation(rotation);
+      perturbation.setTranslation(translation);
+
+      RigidBodyTransform jointConfiguration = new RigidBodyTransform();
+      joint.getJointConfiguration(jointConfiguration);
+      jointConfiguration.multiply(perturbation);
+      joint.setJointConfiguration(jointConfiguration);
+   }
+
+   private static DenseMatrix64F finiteDifference(CompiledInverseDynamicsCalculator calculator, DenseMatrix64F q, DenseMatrix64F qd, DenseMatrix64F qdd,
+                                                  DenseMatrix64F variableToPerturb)
+   {
+      int nDoFs = qd.getNumRows();
+      DenseMatrix64F derivatives = new DenseMatrix64F(nDoFs, variableToPerturb.getNumRows());
+      DenseMatrix64F tauPlus = new DenseMatrix64F(nDoFs, 1);
+      DenseMatrix64F tauMinus = new DenseMatrix64F(nDoFs, 1);
+
+      for (int column = 0; column < variableToPerturb.getNumRows(); column++)
+      {
+         double original = variableToPerturb.get(column, 0);
+
+         variableToPerturb.set(column, 0, original + FINITE_DIFFERENCE_STEP);
+         calculator.compute(q, qd, qdd);
+         tauPlus.set(calculator.getJointTauMatrix());
+
+         variableToPerturb.set(column, 0, original - FINITE_DIFFERENCE_STEP);
+         calculator.compute(q, qd, qdd);
+         tauMinus.set(calculator.getJointTauMatrix());
+
+         variableToPerturb.set(column, 0, original);
+
+         for (int row = 0; row < nDoFs; row++)
+            derivatives.set(row, column, (tauPlus.get(row, 0) - tauMinus.get(row, 0)) / (2.0 * FINITE_DIFFERENCE_STEP));
+      }
+
+      return derivatives;
+   }
+
+   private static void assertDerivativesEqual(int iteration, DenseMatrix64F expected, DenseMatrix64F actual)
+   {
+      double epsilon = FINITE_DIFFERENCE_EPSILON * Math.max(1.0, CommonOps.elementMaxAbs(expected));
+      assertTrue(MatrixFeatures.isEquals(expected, actual, epsilon), "Iteration: " + iteration + "\nexpected:\n" + expected + "actual:\n" + actual);
+   }
+}
@@ -0,0 +1,81 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+
+public class InverseMassMatrixCalculatorTest
+{
+   private static final int ITERATIONS = 500;
+   private static final double EPSILON = 1.0e-10;
+
+   @Test
+   public void testRevoluteJointChain() throws Exception
+   {
+      Random random = new Random(7657);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextRevoluteJointChain(random, random.nextInt(30) + 1);
+         compareAgainstDenseInverse(random, i, joints);
+      }
+   }
+
+   @Test
+   public void testOneDoFJointTree() throws Exception
+   {
+      Random random = new Random(7657);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextOneDoFJointTree(random, random.nextInt(30) + 1);
+         compareAgainstDenseInverse(random, i, joints);
+      }
+   }
+
+   @Test
+   public void testJointTree() throws Exception
+   {
+      Random random = new Random(7657);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(30) + 1);
+         compareAgainstDenseInverse(random, i, joints);
+      }
+   }
+
+   private static void compareAgainstDenseInverse(Random random, int iteration, List<? extends JointBasics> joints)
+   {
+      MultiBodySystemReadOnly input = MultiBodySystemReadOnly.toMultiBodySystemInput(joints);
+      CompositeRigidBodyMassMatrixCalculator massMatrixCalculator = new CompositeRigidBodyMassMatrixCalculator(input);
+      InverseMassMatrixCalculator inverseMassMatrixCalculator = new InverseMassMatrixCalculator(input);
+
+      for (int j = 0; j < 2; j++)
+      {
+         MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joints);
+         input.getRootBody().updateFramesRecursively();
+         massMatrixCalculator.reset();
+         inverseMassMatrixCalculator.reset();
+
+         DenseMatrix64F massMatrix = massMatrixCalculator.getMassMatrix();
+         DenseMatrix64F expected = new DenseMatrix64F(massMatrix.getNumRows(), massMatrix.getNumCols());
+         CommonOps.invert(massMatrix, expected);
+         DenseMatrix64F actual = inverseMassMatrixCalculator.getInverseMassMatrix();
+
+         double epsilon = EPSILON * Math.max(1.0, CommonOps.elementMaxAbs(expected));
+         assertTrue(MatrixFeatures.isEquals(expected, actual, epsilon), "Iteration: " + iteration + "\nexpected:\n" + expected + "actual:\n" + actual);
+      }
+   }
+}
@@ -0,0 +1,98 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
+import org.ejml.ops.RandomMatrices;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+public class MassMatrixLTDLFactorizationTest
+{
+   private static final int ITERATIONS = 500;
+   private static final double EPSILON = 1.0e-10;
+
+   @Test
+   public void testRevoluteJointChain() throws Exception
+   {
+      Random random = new Random(45645);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextRevoluteJointChain(random, random.nextInt(30) + 1);
+         compareAgainstDenseInverse(random, i, joints);
+      }
+   }
+
+   @Test
+   public void testOneDoFJointTree() throws Exception
+   {
+      Random random = new Random(45645);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextOneDoFJointTree(random, random.nextInt(30) + 1);
+         compareAgainstDenseInverse(random, i, joints);
+      }
+   }
+
+   @Test
+   public void testJointTree() throws Exception
+   {
+      Random random = new Random(45645);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(30) + 1);
+         compareAgainstDenseInverse(random, i, joints);
+      }
+   }
+
+   private static void compareAgainstDenseInverse(Random random, int iteration, List<? extends JointBasics> joints)
+   {
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+      MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joints);
+      rootBody.updateFramesRecursively();
+
+      CompositeRigidBodyMassMatrixCalculator massMatrixCalculator = new CompositeRigidBodyMassMatrixCalculator(rootBody);
+      DenseMatrix64F massMatrix = massMatrixCalculator.getMassMatrix();
+      int nDoFs = massMatrix.getNumRows();
+
+      MassMatrixLTDLFactorization factorization = new MassMatrixLTDLFactorization(rootBody);
+      assertEquals(nDoFs, factorization.getNumberOfDoFs());
+      assertTrue(factorization.factorize(massMatrix));
+
+      DenseMatrix64F expectedInverse = new DenseMatrix64F(nDoFs, nDoFs);
+      CommonOps.invert(massMatrix, expectedInverse);
+      double epsilon = EPSILON * Math.max(1.0, CommonOps.elementMaxAbs(expectedInverse));
+
+      DenseMatrix64F actualInverse = new DenseMatrix64F(nDoFs, nDoFs);
+      factorization.invert(actualInverse);
+      assertTrue(MatrixFeatures.isEquals(expectedInverse, actualInverse, epsilon),
+                 "Iteration: " + iteration + "\nexpected:\n" + expectedInverse + "actual:\n" + actualInverse);
+
+      DenseMatrix64F b = RandomMatrices.createRandom(nDoFs, random.nextInt(5) + 1, -1.0, 1.0, random);
+      DenseMatrix64F expectedSolution = new DenseMatrix64F(nDoFs, b.getNumCols());
+      DenseMatrix64F actualSolution = new DenseMatrix64F(nDoFs, b.getNumCols());
+      CommonOps.mult(expectedInverse, b, expectedSolution);
+      factorization.solve(b, actualSolution);
+      assertTrue(MatrixFeatures.isEquals(expectedSolution, actualSolution, epsilon * Math.max(1.0, CommonOps.elementMaxAbs(b)) * nDoFs),
+                 "Iteration: " + iteration + "\nexpected:\n" + expectedSolution + "actual:\n" + actualSolution);
+
+      DenseMatrix64F inverseFactor = new DenseMatrix64F(nDoFs, nDoFs);
+      factorization.multiplyByInverseFactor(CommonOps.identity(nDoFs), inverseFactor);
+      CommonOps.multTransA(inverseFactor, inverseFactor, actualInverse);
+      assertTrue(MatrixFeatures.isEquals(expectedInverse, actualInverse, epsilon),
+                 "Iteration: " + iteration + "\nexpected:\n" + expectedInverse + "actual:\n" + actualInverse);
+   }
+}
@@ -0,0 +1,76 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
+import org.ejml.ops.RandomMatrices;
+import org.junit.jupiter.api.Test;
+
+public class MotionSubspaceKernelTest
+{
+   private static final int ITERATIONS = 1000;
+   private static final double EPSILON = 1.0e-12;
+
+   @Test
+   public void testAgainstCommonOps()
+   {
+      Random random = new Random(9834);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int nDoFs = random.nextInt(7);
+         DenseMatrix64F S = RandomMatrices.createRandom(6, nDoFs, -1.0, 1.0, random);
+         MotionSubspaceKernel kernel = MotionSubspaceKernel.newKernel(S);
+         assertEquals(nDoFs, kernel.getNumberOfDoFs());
+
+         DenseMatrix64F q = RandomMatrices.createRandom(nDoFs, 1, -1.0, 1.0, random);
+         DenseMatrix64F f = RandomMatrices.createRandom(6, 1, -1.0, 1.0, random);
+         DenseMatrix64F inertia = RandomMatrices.createSymmPosDef(6, random);
+         DenseMatrix64F Dinv = RandomMatrices.createSymmPosDef(nDoFs, random);
+         double alpha = 2.0 * random.nextDouble() - 1.0;
+
+         DenseMatrix64F expected = new DenseMatrix64F(6, 1);
+         DenseMatrix64F actual = new DenseMatrix64F(6, 1);
+         CommonOps.mult(S, q, expected);
+         kernel.multiply(q, actual);
+         assertTrue(MatrixFeatures.isIdentical(expected, actual, EPSILON));
+
+         CommonOps.addEquals(expected, f);
+         actual.set(f);
+         kernel.multiplyAdd(q, actual);
+         assertTrue(MatrixFeatures.isIdentical(expected, actual, EPSILON));
+
+         expected.reshape(nDoFs, 1);
+         actual.reshape(nDoFs, 1);
+         CommonOps.multTransA(alpha, S, f, expected);
+         kernel.multiplyTransA(alpha, f, actual);
+         assertTrue(MatrixFeatures.isIdentical(expected, actual, EPSILON));
+
+         DenseMatrix64F expectedU = new DenseMatrix64F(6, nDoFs);
+         DenseMatrix64F expectedD = new DenseMatrix64F(nDoFs, nDoFs);
+         DenseMatrix64F actualU = new DenseMatrix64F(6, nDoFs);
+         DenseMatrix64F actualD = new DenseMatrix64F(nDoFs, nDoFs);
+         CommonOps.mult(inertia, S, expectedU);
+         CommonOps.multTransA(S, expectedU, expectedD);
+         kernel.multiplyInertia(inertia, actualU, actualD);
+         assertTrue(MatrixFeatures.isIdentical(expectedU, actualU, EPSILON));
+         assertTrue(MatrixFeatures.isIdentical(expectedD, actualD, EPSILON));
+
+         DenseMatrix64F expectedU_Dinv = new DenseMatrix64F(6, nDoFs);
+         DenseMatrix64F expectedU_Dinv_UT = new DenseMatrix64F(6, 6);
+         DenseMatrix64F actualU_Dinv = new DenseMatrix64F(6, nDoFs);
+         DenseMatrix64F actualU_Dinv_UT = new DenseMatrix64F(6, 6);
+         CommonOps.mult(expectedU, Dinv, expectedU_Dinv);
+         CommonOps.multTransB(expectedU_Dinv, expectedU, expectedU_Dinv_UT);
+         kernel.computeSymmetricUpdate(expectedU, Dinv, actualU_Dinv, actualU_Dinv_UT);
+         assertTrue(MatrixFeatures.isIdentical(expectedU_Dinv, actualU_Dinv, EPSILON));
+         assertTrue(MatrixFeatures.isIdentical(expectedU_Dinv_UT, actualU_Dinv_UT, EPSILON));
+      }
+
+      assertThrows(IllegalArgumentException.class, () -> MotionSubspaceKernel.newKernel(new DenseMatrix64F(5, 1)));
+   }
+}
@@ -0,0 +1,129 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.mecano.multiBodySystem.RigidBody;
+import us.ihmc.mecano.multiBodySystem.SixDoFJoint;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MecanoRandomTools;
+import us.ihmc.mecano.tools.MecanoSettings;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+public class OneDoFJointFastPathTest
+{
+   private static final int ITERATIONS = 200;
+   private static final double EPSILON = 1.0e-10;
+
+   @Test
+   public void testOneDoFJointChain()
+   {
+      Random random = new Random(45687);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = new ArrayList<>(MultiBodySystemRandomTools.nextOneDoFJointChain(random, random.nextInt(30) + 1));
+         compareFastPathAgainstGeneralPath(random, joints);
+      }
+   }
+
+   @Test
+   public void testOneDoFJointTree()
+   {
+      Random random = new Random(8962);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = new ArrayList<>(MultiBodySystemRandomTools.nextOneDoFJointTree(random, random.nextInt(30) + 1));
+         compareFastPathAgainstGeneralPath(random, joints);
+      }
+   }
+
+   @Test
+   public void testFloatingOneDoFJointTree()
+   {
+      Random random = new Random(3421);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = new ArrayList<>();
+         RigidBody elevator = new RigidBody("elevator", ReferenceFrame.getWorldFrame());
+         joints.add(new SixDoFJoint("floating", elevator));
+         RigidBody floatingBody = MultiBodySystemRandomTools.nextRigidBody(random, "floatingBody", joints.get(0));
+         joints.addAll(MultiBodySystemRandomTools.nextOneDoFJointTree(random, floatingBody, random.nextInt(30) + 1));
+         compareFastPathAgainstGeneralPath(random, joints);
+      }
+   }
+
+   private static void compareFastPathAgainstGeneralPath(Random random, List<JointBasics> joints)
+   {
+      // The fast path has to hold with the frame checks enabled, which is the default.
+      assertTrue(MecanoSettings.FRAME_CHECKS_ENABLED);
+
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+
+      for (JointStateType stateType : JointStateType.values())
+         MultiBodySystemRandomTools.nextState(random, stateType, joints);
+      rootBody.updateFramesRecursively();
+
+      InverseDynamicsCalculator fastInverseDynamics = new InverseDynamicsCalculator(rootBody);
+      InverseDynamicsCalculator generalInverseDynamics = new InverseDynamicsCalculator(rootBody);
+      generalInverseDynamics.setOneDoFJointFastPathEnabled(false);
+      ForwardDynamicsCalculator fastForwardDynamics = new ForwardDynamicsCalculator(rootBody);
+      ForwardDynamicsCalculator generalForwardDynamics = new ForwardDynamicsCalculator(rootBody);
+      generalForwardDynamics.setOneDoFJointFastPathEnabled(false);
+      // The derivatives exercise the passes computing the product with the inverse of the mass matrix.
+      fastForwardDynamics.setComputeDerivatives(true);
+      generalForwardDynamics.setComputeDerivatives(true);
+
+      double gravity = -9.81;
+      fastInverseDynamics.setGravitionalAcceleration(gravity);
+      generalInverseDynamics.setGravitionalAcceleration(gravity);
+      fastForwardDynamics.setGravitionalAcceleration(gravity);
+      generalForwardDynamics.setGravitionalAcceleration(gravity);
+
+      for (JointBasics joint : joints)
+      {
+         if (random.nextBoolean())
+            continue;
+
+         RigidBodyBasics body = joint.getSuccessor();
+         ReferenceFrame bodyFrame = body.getBodyFixedFrame();
+         fastInverseDynamics.setExternalWrench(body, MecanoRandomTools.nextWrench(random, bodyFrame, bodyFrame));
+         generalInverseDynamics.setExternalWrench(body, fastInverseDynamics.getExternalWrench(body));
+         fastForwardDynamics.setExternalWrench(body, fastInverseDynamics.getExternalWrench(body));
+         generalForwardDynamics.setExternalWrench(body, fastInverseDynamics.getExternalWrench(body));
+      }
+
+      fastInverseDynamics.compute();
+      generalInverseDynamics.compute();
+      assertMatrixEquals(generalInverseDynamics.getJointTauMatrix(), fastInverseDynamics.getJointTauMatrix());
+
+      fastForwardDynamics.compute();
+      generalForwardDynamics.compute();
+      assertMatrixEquals(generalForwardDynamics.getJointAccelerationMatrix(), fastForwardDynamics.getJointAccelerationMatrix());
+      assertMatrixEquals(generalForwardDynamics.getAccelerationPartialDerivativesWrtConfiguration(),
+                         fastForwardDynamics.getAccelerationPartialDerivativesWrtConfiguration());
+      assertMatrixEquals(generalForwardDynamics.getAccelerationPartialDerivativesWrtVelocity(),
+                         fastForwardDynamics.getAccelerationPartialDerivativesWrtVelocity());
+      assertMatrixEquals(generalForwardDynamics.getAccelerationPartialDerivativesWrtTau(), fastForwardDynamics.getAccelerationPartialDerivativesWrtTau());
+   }
+
+   private static void assertMatrixEquals(DenseMatrix64F expected, DenseMatrix64F actual)
+   {
+      double epsilon = EPSILON * Math.max(1.0, CommonOps.elementMaxAbs(expected));
+      assertTrue(MatrixFeatures.isEquals(expected, actual, epsilon), "Expected:\n" + expected + "\nActual:\n" + actual);
+   }
+}
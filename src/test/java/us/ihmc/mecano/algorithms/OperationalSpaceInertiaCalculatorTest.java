@@ -0,0 +1,119 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.FramePoint3D;
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+
+public class OperationalSpaceInertiaCalculatorTest
+{
+   private static final int ITERATIONS = 200;
+   private static final double EPSILON = 1.0e-10;
+
+   @Test
+   public void testOneDoFJointTree() throws Exception
+   {
+      Random random = new Random(97324);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextOneDoFJointTree(random, random.nextInt(30) + 1);
+         compareAgainstJacobianAndMassMatrix(random, i, joints);
+      }
+   }
+
+   @Test
+   public void testJointTree() throws Exception
+   {
+      Random random = new Random(97324);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(30) + 1);
+         compareAgainstJacobianAndMassMatrix(random, i, joints);
+      }
+   }
+
+   private static void compareAgainstJacobianAndMassMatrix(Random random, int iteration, List<? extends JointBasics> joints)
+   {
+      ReferenceFrame worldFrame = ReferenceFrame.getWorldFrame();
+      MultiBodySystemReadOnly input = MultiBodySystemReadOnly.toMultiBodySystemInput(joints);
+      MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joints);
+      input.getRootBody().updateFramesRecursively();
+
+      CompositeRigidBodyMassMatrixCalculator massMatrixCalculator = new CompositeRigidBodyMassMatrixCalculator(input);
+      DenseMatrix64F massMatrix = massMatrixCalculator.getMassMatrix();
+      int nDoFs = massMatrix.getNumRows();
+      DenseMatrix64F inverseMassMatrix = new DenseMatrix64F(nDoFs, nDoFs);
+      CommonOps.invert(massMatrix, inverseMassMatrix);
+
+      OperationalSpaceInertiaCalculator calculator = new OperationalSpaceInertiaCalculator(input);
+      GeometricJacobianCalculator jacobianCalculator = new GeometricJacobianCalculator();
+      jacobianCalculator.setJacobianFrame(worldFrame);
+
+      int numberOfContactPoints = random.nextInt(16) + 1;
+      DenseMatrix64F contactJacobian = new DenseMatrix64F(3 * numberOfContactPoints, nDoFs);
+
+      for (int contactIndex = 0; contactIndex < numberOfContactPoints; contactIndex++)
+      {
+         RigidBodyReadOnly body = joints.get(random.nextInt(joints.size())).getSuccessor();
+         FramePoint3D point = new FramePoint3D(worldFrame, EuclidCoreRandomTools.nextPoint3D(random, 1.0));
+         assertEquals(contactIndex, calculator.addContactPoint(body, point));
+
+         jacobianCalculator.setKinematicChain(input.getRootBody(), body);
+         DenseMatrix64F jacobian = jacobianCalculator.getJacobianMatrix();
+         int column = 0;
+
+         for (JointReadOnly joint : jacobianCalculator.getJointsFromBaseToEndEffector())
+         {
+            int[] jointIndices = input.getJointMatrixIndexProvider().getJointDoFIndices(joint);
+
+            for (int dof = 0; dof < joint.getDegreesOfFreedom(); dof++)
+            {
+               double wx = jacobian.get(0, column), wy = jacobian.get(1, column), wz = jacobian.get(2, column);
+               // Linear velocity of the point: v + w x p
+               contactJacobian.set(3 * contactIndex + 0, jointIndices[dof], jacobian.get(3, column) + wy * point.getZ() - wz * point.getY());
+               contactJacobian.set(3 * contactIndex + 1, jointIndices[dof], jacobian.get(4, column) + wz * point.getX() - wx * point.getZ());
+               contactJacobian.set(3 * contactIndex + 2, jointIndices[dof], jacobian.get(5, column) + wx * point.getY() - wy * point.getX());
+               column++;
+            }
+         }
+      }
+
+      DenseMatrix64F intermediate = new DenseMatrix64F(3 * numberOfContactPoints, nDoFs);
+      DenseMatrix64F expected = new DenseMatrix64F(3 * numberOfContactPoints, 3 * numberOfContactPoints);
+      CommonOps.mult(contactJacobian, inverseMassMatrix, intermediate);
+      CommonOps.multTransB(intermediate, contactJacobian, expected);
+
+      DenseMatrix64F actual = calculator.getInverseOperationalSpaceInertia();
+      double epsilon = EPSILON * Math.max(1.0, CommonOps.elementMaxAbs(expected));
+      assertTrue(MatrixFeatures.isEquals(expected, actual, epsilon), "Iteration: " + iteration + "\nexpected:\n" + expected + "actual:\n" + actual);
+
+      // The operational-space inertia is the pseudo-inverse: A^-1 A A^-1 = A^-1
+      DenseMatrix64F operationalSpaceInertia = calculator.getOperationalSpaceInertia();
+      DenseMatrix64F product = new DenseMatrix64F(actual.getNumRows(), actual.getNumCols());
+      DenseMatrix64F intermediateProduct = new DenseMatrix64F(actual.getNumRows(), actual.getNumCols());
+      CommonOps.mult(actual, operationalSpaceInertia, intermediateProduct);
+      CommonOps.mult(intermediateProduct, actual, product);
+      assertTrue(MatrixFeatures.isEquals(actual, product, 1.0e-6 * Math.max(1.0, CommonOps.elementMaxAbs(actual))));
+
+      calculator.clearContactPoints();
+      assertEquals(0, calculator.getNumberOfContactPoints());
+      assertEquals(0, calculator.getInverseOperationalSpaceInertia().getNumRows());
+   }
+}
@@ -19,6 +19,7 @@ import us.ihmc.euclid.tuple3D.Vector3D;
 import us.ihmc.euclid.tuple3D.interfaces.Point3DReadOnly;
 import us.ihmc.euclid.tuple3D.interfaces.Vector3DReadOnly;
 import us.ihmc.euclid.tuple4D.Quaternion;
+import us.ihmc.mecano.frames.FrameStateCache;
 import us.ihmc.mecano.multiBodySystem.Joint;
 import us.ihmc.mecano.multiBodySystem.OneDoFJoint;
 import us.ihmc.mecano.multiBodySystem.PrismaticJoint;
@@ -557,6 +558,36 @@ public class SpatialAccelerationCalculatorTest
       }
    }
 
+   @Test
+   public void testRelativeAccelerationWithFrameStateCache() throws Exception
+   {
+      Random random = new Random(45345L);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int numberOfJoints = random.nextInt(40) + 1;
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, numberOfJoints);
+         RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         boolean doVelocityTerms = random.nextBoolean();
+
+         for (JointStateType stateSelection : JointStateType.values())
+            MultiBodySystemRandomTools.nextState(random, stateSelection, joints);
+         rootBody.updateFramesRecursively();
+         FrameStateCache cache = new FrameStateCache(rootBody);
+         cache.update();
+
+         SpatialAccelerationCalculator expectedCalculator = new SpatialAccelerationCalculator(rootBody, worldFrame, doVelocityTerms, true);
+         SpatialAccelerationCalculator actualCalculator = new SpatialAccelerationCalculator(rootBody, worldFrame, doVelocityTerms, true);
+         actualCalculator.setFrameStateCache(cache);
+
+         RigidBodyBasics base = joints.get(random.nextInt(numberOfJoints)).getSuccessor();
+         RigidBodyBasics body = joints.get(random.nextInt(numberOfJoints)).getSuccessor();
+         SpatialAcceleration expectedAcceleration = new SpatialAcceleration(expectedCalculator.getRelativeAcceleration(base, body));
+         SpatialAccelerationReadOnly actualAcceleration = actualCalculator.getRelativeAcceleration(base, body);
+         MecanoTestTools.assertSpatialAccelerationEquals(expectedAcceleration, actualAcceleration, 1.0e-10);
+      }
+   }
+
    public static FrameVector3D computeExpectedLinearAccelerationByFiniteDifference(double dt, RigidBodyReadOnly body, RigidBodyReadOnly bodyInFuture,
                                                                                    Point3DReadOnly bodyFixedPoint, SpatialAccelerationReadOnly rootAcceleration)
    {
@@ -0,0 +1,119 @@
+package us.ihmc.mecano.algorithms;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MecanoTestTools;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+
+public class WholeBodyJacobianCalculatorTest
+{
+   private static final int ITERATIONS = 200;
+   private static final double EPSILON = 1.0e-10;
+
+   @Test
+   public void testOneDoFJointTree() throws Exception
+   {
+      Random random = new Random(34536);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextOneDoFJointTree(random, random.nextInt(40) + 1);
+         compareAgainstGeometricJacobianCalculator(random, joints);
+      }
+   }
+
+   @Test
+   public void testJointTree() throws Exception
+   {
+      Random random = new Random(34536);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<? extends JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(40) + 1);
+         compareAgainstGeometricJacobianCalculator(random, joints);
+      }
+   }
+
+   private static void compareAgainstGeometricJacobianCalculator(Random random, List<? extends JointBasics> joints)
+   {
+      MultiBodySystemReadOnly input = MultiBodySystemReadOnly.toMultiBodySystemInput(joints);
+      WholeBodyJacobianCalculator calculator = new WholeBodyJacobianCalculator(input);
+      GeometricJacobianCalculator jacobianCalculator = new GeometricJacobianCalculator();
+
+      int numberOfTasks = random.nextInt(10) + 1;
+
+      for (int taskIndex = 0; taskIndex < numberOfTasks; taskIndex++)
+      {
+         RigidBodyReadOnly endEffector = joints.get(random.nextInt(joints.size())).getSuccessor();
+         ReferenceFrame jacobianFrame = random.nextBoolean() ? endEffector.getBodyFixedFrame() : endEffector.getParentJoint().getFrameAfterJoint();
+         assertEquals(taskIndex, calculator.addTask(endEffector, jacobianFrame));
+      }
+
+      int nDoFs = calculator.getJacobianMatrix().getNumCols();
+      assertEquals(6 * numberOfTasks, calculator.getJacobianMatrix().getNumRows());
+      assertEquals(6 * numberOfTasks, calculator.getConvectiveTermMatrix().getNumRows());
+
+      for (int j = 0; j < 2; j++)
+      {
+         MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joints);
+         MultiBodySystemRandomTools.nextState(random, JointStateType.VELOCITY, joints);
+         input.getRootBody().updateFramesRecursively();
+         calculator.reset();
+
+         DenseMatrix64F actualJacobian = new DenseMatrix64F(6, nDoFs);
+
+         for (int taskIndex = 0; taskIndex < numberOfTasks; taskIndex++)
+         {
+            jacobianCalculator.clear();
+            jacobianCalculator.setJacobianFrame(calculator.getJacobianFrame(taskIndex));
+            jacobianCalculator.setKinematicChain(input.getRootBody(), calculator.getEndEffector(taskIndex));
+
+            DenseMatrix64F expectedJacobian = new DenseMatrix64F(6, nDoFs);
+            DenseMatrix64F chainJacobian = jacobianCalculator.getJacobianMatrix();
+            int column = 0;
+
+            for (JointReadOnly joint : jacobianCalculator.getJointsFromBaseToEndEffector())
+            {
+               int[] jointIndices = input.getJointMatrixIndexProvider().getJointDoFIndices(joint);
+
+               for (int dof = 0; dof < joint.getDegreesOfFreedom(); dof++)
+               {
+                  for (int row = 0; row < 6; row++)
+                     expectedJacobian.set(row, jointIndices[dof], chainJacobian.get(row, column));
+                  column++;
+               }
+            }
+
+            calculator.getJacobianMatrix(taskIndex, actualJacobian);
+            assertTrue(MatrixFeatures.isEquals(expectedJacobian, actualJacobian, EPSILON),
+                       "expected:\n" + expectedJacobian + "actual:\n" + actualJacobian);
+
+            MecanoTestTools.assertSpatialAccelerationEquals(jacobianCalculator.getConvectiveTerm(), calculator.getConvectiveTerm(taskIndex), EPSILON);
+
+            for (int row = 0; row < 6; row++)
+            {
+               assertEquals(jacobianCalculator.getConvectiveTermMatrix().get(row, 0),
+                            calculator.getConvectiveTermMatrix().get(6 * taskIndex + row, 0),
+                            EPSILON);
+            }
+         }
+      }
+
+      calculator.clearTasks();
+      assertEquals(0, calculator.getNumberOfTasks());
+      assertEquals(0, calculator.getJacobianMatrix().getNumRows());
+   }
+}
@@ -0,0 +1,91 @@
+package us.ihmc.mecano.frames;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.tools.EuclidCoreTestTools;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.spatial.Twist;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MecanoTestTools;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+public class FrameStateCacheTest
+{
+   private static final int ITERATIONS = 200;
+   private static final double EPSILON = 1.0e-11;
+
+   @Test
+   public void testAgainstReferenceFrames()
+   {
+      Random random = new Random(8967);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int numberOfJoints = random.nextInt(40) + 1;
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, numberOfJoints);
+         RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         FrameStateCache cache = new FrameStateCache(rootBody);
+
+         List<MovingReferenceFrame> frames = new ArrayList<>();
+         frames.add(rootBody.getBodyFixedFrame());
+         for (JointBasics joint : joints)
+         {
+            frames.add(joint.getFrameBeforeJoint());
+            frames.add(joint.getFrameAfterJoint());
+            frames.add(joint.getSuccessor().getBodyFixedFrame());
+         }
+
+         for (MovingReferenceFrame frame : frames)
+            assertTrue(cache.contains(frame));
+         assertFalse(cache.contains(ReferenceFrame.getWorldFrame()));
+         assertEquals(-1, cache.indexOf(ReferenceFrame.getWorldFrame()));
+         assertEquals(frames.size(), frames.stream().mapToInt(cache::indexOf).distinct().count());
+
+         for (int update = 0; update < 5; update++)
+         {
+            MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joints);
+            MultiBodySystemRandomTools.nextState(random, JointStateType.VELOCITY, joints);
+            rootBody.updateFramesRecursively();
+            cache.update();
+
+            for (int j = 0; j < 20; j++)
+            {
+               MovingReferenceFrame frameA = frames.get(random.nextInt(frames.size()));
+               MovingReferenceFrame frameB = frames.get(random.nextInt(frames.size()));
+
+               EuclidCoreTestTools.assertRigidBodyTransformEquals(frameA.getTransformToRoot(), cache.getTransformToRoot(frameA), EPSILON);
+
+               RigidBodyTransform expectedTransform = new RigidBodyTransform();
+               RigidBodyTransform actualTransform = new RigidBodyTransform();
+               frameA.getTransformToDesiredFrame(expectedTransform, frameB);
+               cache.getTransform(frameA, frameB, actualTransform);
+               EuclidCoreTestTools.assertRigidBodyTransformEquals(expectedTransform, actualTransform, EPSILON);
+
+               Twist expectedTwist = new Twist();
+               Twist actualTwist = new Twist();
+               frameA.getTwistRelativeToOther(frameB, expectedTwist);
+               cache.getTwistRelativeToOther(frameA, frameB, actualTwist);
+               MecanoTestTools.assertTwistEquals(expectedTwist, actualTwist, EPSILON);
+
+               // The index-based queries are the same computation.
+               cache.getTransform(cache.indexOf(frameA), cache.indexOf(frameB), actualTransform);
+               EuclidCoreTestTools.assertRigidBodyTransformEquals(expectedTransform, actualTransform, EPSILON);
+               cache.getTwistRelativeToOther(cache.indexOf(frameA), cache.indexOf(frameB), actualTwist);
+               MecanoTestTools.assertTwistEquals(expectedTwist, actualTwist, EPSILON);
+            }
+         }
+
+         assertThrows(IllegalArgumentException.class, () -> cache.getTransformToRoot(ReferenceFrame.getWorldFrame()));
+      }
+   }
+}
@@ -0,0 +1,71 @@
+package us.ihmc.mecano.frames;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools.RandomTwinJointTrees;
+
+public class FrameUpdatePlanTest
+{
+   private static final int ITERATIONS = 200;
+   private static final double EPSILON = 1.0e-12;
+
+   @Test
+   public void testAgainstUpdateFramesRecursively()
+   {
+      Random random = new Random(23423);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         RandomTwinJointTrees trees = new RandomTwinJointTrees(random, random.nextInt(40) + 1);
+         List<JointBasics> jointsA = trees.getJointsA();
+         FrameUpdatePlan planA = trees.getPlanA();
+         assertEquals(planA.getNumberOfFrames(), trees.getPlanB().getNumberOfFrames());
+
+         for (int frameIndex = 0; frameIndex < planA.getNumberOfFrames(); frameIndex++)
+         {
+            MovingReferenceFrame frame = planA.getFrame(frameIndex);
+            if (frame.getMovingParent() != null)
+               assertTrue(indexOf(planA, frame.getMovingParent()) < frameIndex);
+         }
+
+         MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, jointsA);
+         MultiBodySystemRandomTools.nextState(random, JointStateType.VELOCITY, jointsA);
+
+         for (int update = 0; update < 5; update++)
+         {
+            if (update > 0)
+            { // Only a subset of the joints is changed.
+               for (JointBasics joint : jointsA)
+               {
+                  if (random.nextInt(4) != 0)
+                     continue;
+                  MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joint);
+                  MultiBodySystemRandomTools.nextState(random, JointStateType.VELOCITY, joint);
+               }
+            }
+
+            trees.updateTreeBFromTreeA();
+            planA.update();
+            trees.assertFramesEqual(EPSILON);
+         }
+      }
+   }
+
+   private static int indexOf(FrameUpdatePlan plan, MovingReferenceFrame frame)
+   {
+      for (int frameIndex = 0; frameIndex < plan.getNumberOfFrames(); frameIndex++)
+      {
+         if (plan.getFrame(frameIndex) == frame)
+            return frameIndex;
+      }
+      return -1;
+   }
+}
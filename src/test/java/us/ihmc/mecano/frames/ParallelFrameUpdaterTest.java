@@ -0,0 +1,47 @@
+package us.ihmc.mecano.frames;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools.RandomTwinJointTrees;
+
+public class ParallelFrameUpdaterTest
+{
+   private static final int ITERATIONS = 100;
+   private static final double EPSILON = 1.0e-12;
+
+   @Test
+   public void testAgainstUpdateFramesRecursively()
+   {
+      Random random = new Random(56456);
+      ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         RandomTwinJointTrees trees = new RandomTwinJointTrees(random, random.nextInt(100) + 1);
+         ParallelFrameUpdater updater = new ParallelFrameUpdater(trees.getRootBodyA(), forkJoinPool, random.nextInt(10) + 1);
+
+         for (int update = 0; update < 5; update++)
+         {
+            for (JointBasics joint : trees.getJointsA())
+            {
+               if (update > 0 && random.nextInt(4) != 0)
+                  continue;
+               MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joint);
+               MultiBodySystemRandomTools.nextState(random, JointStateType.VELOCITY, joint);
+            }
+
+            trees.updateTreeBFromTreeA();
+            updater.update();
+            trees.assertFramesEqual(EPSILON);
+         }
+      }
+
+      forkJoinPool.shutdown();
+   }
+}
@@ -0,0 +1,168 @@
+package us.ihmc.mecano.multiBodySystem.compiled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.tools.EuclidCoreTestTools;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.spatial.Twist;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+public class CompiledMultiBodySystemStateTest
+{
+   private static final int ITERATIONS = 100;
+   private static final double EPSILON = 1.0e-10;
+
+   @Test
+   public void testFramesAgainstMultiBodySystem()
+   {
+      Random random = new Random(34734);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(30) + 1);
+         RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         ReferenceFrame rootFrame = rootBody.getBodyFixedFrame();
+         CompiledMultiBodySystem model = CompiledMultiBodySystem.compile(rootBody);
+         List<JointBasics> indexedJoints = new ArrayList<>();
+         for (JointReadOnly joint : model.getInput().getJointMatrixIndexProvider().getIndexedJointsInOrder())
+            indexedJoints.add((JointBasics) joint);
+
+         // Several states sharing the same model.
+         CompiledMultiBodySystemState[] states = new CompiledMultiBodySystemState[5];
+
+         for (int stateIndex = 0; stateIndex < states.length; stateIndex++)
+         {
+            MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joints);
+            MultiBodySystemRandomTools.nextState(random, JointStateType.VELOCITY, joints);
+            states[stateIndex] = new CompiledMultiBodySystemState(model);
+            states[stateIndex].readJointStates(JointStateType.CONFIGURATION);
+            states[stateIndex].readJointStates(JointStateType.VELOCITY);
+            assertTrue(states[stateIndex].getModel() == model);
+         }
+
+         for (CompiledMultiBodySystemState state : states)
+         {
+            state.writeJointStates(JointStateType.CONFIGURATION, indexedJoints);
+            state.writeJointStates(JointStateType.VELOCITY, indexedJoints);
+            rootBody.updateFramesRecursively();
+
+            RigidBodyTransform expectedTransform = new RigidBodyTransform();
+            RigidBodyTransform actualTransform = new RigidBodyTransform();
+            Twist expectedTwist = new Twist();
+
+            for (int jointIndex = 0; jointIndex < model.getNumberOfJoints(); jointIndex++)
+            {
+               JointBasics joint = (JointBasics) model.getJoint(jointIndex);
+               joint.getFrameAfterJoint().getTransformToDesiredFrame(expectedTransform, rootFrame);
+               state.getTransformToRoot(jointIndex, actualTransform);
+               EuclidCoreTestTools.assertRigidBodyTransformEquals(expectedTransform, actualTransform, EPSILON);
+
+               joint.getSuccessor().getBodyFixedFrame().getTwistRelativeToOther(rootFrame, expectedTwist);
+               expectedTwist.changeFrame(joint.getFrameAfterJoint());
+               double[] bodyTwists = state.getBodyTwists();
+               int s = CompiledMultiBodySystem.SPATIAL_VECTOR_SIZE * jointIndex;
+               EuclidCoreTestTools.assertTuple3DEquals(expectedTwist.getAngularPart(),
+                                                       new Vector3D(bodyTwists[s + 0], bodyTwists[s + 1], bodyTwists[s + 2]),
+                                                       EPSILON);
+               EuclidCoreTestTools.assertTuple3DEquals(expectedTwist.getLinearPart(),
+                                                       new Vector3D(bodyTwists[s + 3], bodyTwists[s + 4], bodyTwists[s + 5]),
+                                                       EPSILON);
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testSet()
+   {
+      Random random = new Random(6756);
+      List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, 20);
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+      CompiledMultiBodySystem model = CompiledMultiBodySystem.compile(rootBody);
+
+      for (JointStateType stateType : JointStateType.values())
+         MultiBodySystemRandomTools.nextState(random, stateType, joints);
+
+      CompiledMultiBodySystemState original = new CompiledMultiBodySystemState(model);
+      CompiledMultiBodySystemState copy = new CompiledMultiBodySystemState(model);
+
+      for (JointStateType stateType : JointStateType.values())
+         original.readJointStates(stateType);
+
+      copy.set(original);
+      assertArrayEquals(original.getConfiguration(), copy.getConfiguration());
+      assertArrayEquals(original.getVelocity(), copy.getVelocity());
+      assertArrayEquals(original.getAcceleration(), copy.getAcceleration());
+      assertArrayEquals(original.getEffort(), copy.getEffort());
+      assertArrayEquals(original.getTransformsToRoot(), copy.getTransformsToRoot());
+      assertArrayEquals(original.getBodyTwists(), copy.getBodyTwists());
+
+      CompiledMultiBodySystemState other = new CompiledMultiBodySystemState(CompiledMultiBodySystem.compile(rootBody));
+      assertThrows(IllegalArgumentException.class, () -> other.set(original));
+   }
+
+   @Test
+   public void testJointLimits()
+   {
+      Random random = new Random(8734);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(30) + 1);
+
+         for (JointBasics joint : joints)
+         {
+            if (joint instanceof OneDoFJointBasics)
+            {
+               OneDoFJointBasics oneDoFJoint = (OneDoFJointBasics) joint;
+               oneDoFJoint.setJointLimits(EuclidCoreRandomTools.nextDouble(random, -2.0, 0.0), EuclidCoreRandomTools.nextDouble(random, 0.0, 2.0));
+               oneDoFJoint.setVelocityLimits(EuclidCoreRandomTools.nextDouble(random, -2.0, 0.0), EuclidCoreRandomTools.nextDouble(random, 0.0, 2.0));
+               oneDoFJoint.setEffortLimits(EuclidCoreRandomTools.nextDouble(random, -2.0, 0.0), EuclidCoreRandomTools.nextDouble(random, 0.0, 2.0));
+            }
+         }
+
+         RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         CompiledMultiBodySystem model = CompiledMultiBodySystem.compile(rootBody);
+
+         for (int jointIndex = 0; jointIndex < model.getNumberOfJoints(); jointIndex++)
+         {
+            JointReadOnly joint = model.getJoint(jointIndex);
+
+            if (joint instanceof OneDoFJointBasics)
+            {
+               OneDoFJointBasics oneDoFJoint = (OneDoFJointBasics) joint;
+               assertEquals(oneDoFJoint.getJointLimitLower(), model.getJointLimitLower(jointIndex));
+               assertEquals(oneDoFJoint.getJointLimitUpper(), model.getJointLimitUpper(jointIndex));
+               assertEquals(oneDoFJoint.getVelocityLimitLower(), model.getVelocityLimitLower(jointIndex));
+               assertEquals(oneDoFJoint.getVelocityLimitUpper(), model.getVelocityLimitUpper(jointIndex));
+               assertEquals(oneDoFJoint.getEffortLimitLower(), model.getEffortLimitLower(jointIndex));
+               assertEquals(oneDoFJoint.getEffortLimitUpper(), model.getEffortLimitUpper(jointIndex));
+            }
+            else
+            {
+               assertEquals(Double.NEGATIVE_INFINITY, model.getJointLimitLower(jointIndex));
+               assertEquals(Double.POSITIVE_INFINITY, model.getJointLimitUpper(jointIndex));
+               assertEquals(Double.NEGATIVE_INFINITY, model.getVelocityLimitLower(jointIndex));
+               assertEquals(Double.POSITIVE_INFINITY, model.getVelocityLimitUpper(jointIndex));
+               assertEquals(Double.NEGATIVE_INFINITY, model.getEffortLimitLower(jointIndex));
+               assertEquals(Double.POSITIVE_INFINITY, model.getEffortLimitUpper(jointIndex));
+            }
+         }
+      }
+   }
+}
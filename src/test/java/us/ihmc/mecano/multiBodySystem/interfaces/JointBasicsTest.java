@@ -0,0 +1,151 @@
+package us.ihmc.mecano.multiBodySystem.interfaces;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.tools.EuclidCoreTestTools;
+import us.ihmc.mecano.multiBodySystem.FixedJoint;
+import us.ihmc.mecano.multiBodySystem.OneDoFJoint;
+import us.ihmc.mecano.tools.JointStateType;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools;
+import us.ihmc.mecano.tools.MultiBodySystemRandomTools.RandomTwinJointTrees;
+import us.ihmc.mecano.tools.MultiBodySystemTools;
+
+public class JointBasicsTest
+{
+   private static final int ITERATIONS = 100;
+   private static final double EPSILON = 1.0e-12;
+
+   @Test
+   public void testSelectiveUpdateAgainstFullUpdate()
+   {
+      Random random = new Random(34789);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         // A is updated selectively and B fully.
+         RandomTwinJointTrees trees = new RandomTwinJointTrees(random, random.nextInt(50) + 1);
+         List<JointBasics> jointsA = trees.getJointsA();
+
+         for (int update = 0; update < 10; update++)
+         {
+            if (update > 0 && random.nextBoolean())
+            { // Only changing the first joint such that all the other joints are descendants of a changed joint.
+               nextJointState(random, jointsA.get(0));
+            }
+            else
+            {
+               for (JointBasics joint : jointsA)
+               {
+                  if (update == 0 || random.nextInt(4) == 0)
+                     nextJointState(random, joint);
+               }
+            }
+
+            trees.updateTreeBFromTreeA();
+            trees.getRootBodyA().updateFramesRecursively();
+
+            for (JointBasics joint : jointsA)
+               assertFalse(joint instanceof OneDoFJoint && joint.isFrameUpdateRequired());
+
+            trees.assertFramesEqual(EPSILON);
+         }
+      }
+   }
+
+   @Test
+   public void testUnchangedJointIsSkipped()
+   {
+      Random random = new Random(6732);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<OneDoFJoint> joints = MultiBodySystemRandomTools.nextOneDoFJointChain(random, random.nextInt(10) + 2);
+         RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         rootBody.updateFramesRecursively();
+
+         for (OneDoFJoint joint : joints)
+            assertFalse(joint.isFrameUpdateRequired());
+
+         int skippedIndex = random.nextInt(joints.size() - 1);
+         OneDoFJoint skippedJoint = joints.get(skippedIndex);
+         OneDoFJoint descendant = joints.get(skippedIndex + 1);
+         RigidBodyTransform skippedTransform = new RigidBodyTransform(skippedJoint.getFrameAfterJoint().getTransformToParent());
+         RigidBodyTransform descendantTransform = new RigidBodyTransform(descendant.getFrameAfterJoint().getTransformToParent());
+
+         // The skipped joint is changed without flagging it, its frame should not be updated.
+         skippedJoint.setQ(skippedJoint.getQ() + EuclidCoreRandomTools.nextDouble(random, 0.1, 1.0));
+         assertTrue(skippedJoint.isFrameUpdateRequired());
+         skippedJoint.setFrameUpdateRequired(false);
+         // The descendant of the skipped joint should still be updated.
+         descendant.setQ(descendant.getQ() + EuclidCoreRandomTools.nextDouble(random, 0.1, 1.0));
+         rootBody.updateFramesRecursively();
+
+         EuclidCoreTestTools.assertRigidBodyTransformEquals(skippedTransform, skippedJoint.getFrameAfterJoint().getTransformToParent(), EPSILON);
+         assertFalse(descendant.isFrameUpdateRequired());
+         assertFalse(descendantTransform.epsilonEquals(descendant.getFrameAfterJoint().getTransformToParent(), EPSILON));
+
+         // Once flagged, the joint is updated.
+         skippedJoint.setFrameUpdateRequired(true);
+         rootBody.updateFramesRecursively();
+         assertFalse(skippedJoint.isFrameUpdateRequired());
+         assertFalse(skippedTransform.epsilonEquals(skippedJoint.getFrameAfterJoint().getTransformToParent(), EPSILON));
+      }
+   }
+
+   @Test
+   public void testFixedJointIsUpdatedOnce()
+   {
+      Random random = new Random(9823);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<OneDoFJoint> joints = MultiBodySystemRandomTools.nextOneDoFJointChain(random, random.nextInt(10) + 1);
+         RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         OneDoFJoint parentJoint = joints.get(random.nextInt(joints.size()));
+         int[] numberOfUpdates = {0};
+         FixedJoint fixedJoint = new FixedJoint("fixedJoint", parentJoint.getSuccessor(), EuclidCoreRandomTools.nextRigidBodyTransform(random))
+         {
+            @Override
+            public void setFrameUpdateRequired(boolean frameUpdateRequired)
+            {
+               // The flag is cleared once per update of the joint frames.
+               if (!frameUpdateRequired)
+                  numberOfUpdates[0]++;
+               super.setFrameUpdateRequired(frameUpdateRequired);
+            }
+         };
+         MultiBodySystemRandomTools.nextRigidBody(random, "fixedBody", fixedJoint);
+         OneDoFJoint childJoint = MultiBodySystemRandomTools.nextOneDoFJoint(random, "childJoint", fixedJoint.getSuccessor());
+         MultiBodySystemRandomTools.nextRigidBody(random, "childBody", childJoint);
+
+         assertTrue(fixedJoint.isFrameUpdateRequired());
+
+         for (int update = 0; update < 5; update++)
+         {
+            MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joints);
+            RigidBodyTransform childTransform = new RigidBodyTransform(childJoint.getFrameAfterJoint().getTransformToParent());
+            childJoint.setQ(childJoint.getQ() + EuclidCoreRandomTools.nextDouble(random, 0.1, 1.0));
+            rootBody.updateFramesRecursively();
+
+            assertFalse(fixedJoint.isFrameUpdateRequired());
+            assertEquals(1, numberOfUpdates[0]);
+            // The recursion still goes through the fixed joint.
+            assertFalse(childJoint.isFrameUpdateRequired());
+            assertFalse(childTransform.epsilonEquals(childJoint.getFrameAfterJoint().getTransformToParent(), EPSILON));
+         }
+      }
+   }
+
+   private static void nextJointState(Random random, JointBasics joint)
+   {
+      MultiBodySystemRandomTools.nextState(random, JointStateType.CONFIGURATION, joint);
+      MultiBodySystemRandomTools.nextState(random, JointStateType.VELOCITY, joint);
+   }
+}
@@ -0,0 +1,231 @@
+package us.ihmc.mecano.spatial;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.tools.EuclidCoreRandomTools;
+import us.ihmc.euclid.tools.EuclidCoreTestTools;
+import us.ihmc.euclid.transform.RigidBodyTransform;
+import us.ihmc.euclid.tuple3D.Vector3D;
+import us.ihmc.mecano.spatial.interfaces.SpatialVectorReadOnly;
+import us.ihmc.mecano.tools.MecanoRandomTools;
+
+public class SpatialVectorArrayTest
+{
+   private static final int ITERATIONS = 100;
+   private static final double EPSILON = 1.0e-12;
+   private static final ReferenceFrame worldFrame = ReferenceFrame.getWorldFrame();
+
+   @Test
+   public void testBasicOperations()
+   {
+      Random random = new Random(3453);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int size = random.nextInt(50) + 1;
+         SpatialVector[] vectors1 = new SpatialVector[size];
+         SpatialVector[] vectors2 = new SpatialVector[size];
+         SpatialVectorArray array1 = new SpatialVectorArray(size);
+         SpatialVectorArray array2 = new SpatialVectorArray(size);
+
+         for (int index = 0; index < size; index++)
+         {
+            vectors1[index] = MecanoRandomTools.nextSpatialVector(random, worldFrame);
+            vectors2[index] = MecanoRandomTools.nextSpatialVector(random, worldFrame);
+            array1.set(index, vectors1[index]);
+            array2.set(index, vectors2[index]);
+         }
+
+         assertEquals(size, array1.size());
+         assertEquals(vectors1[0].getLinearPart().getY(), array1.getElement(SpatialVectorArray.LINEAR_Y, 0));
+
+         double scale = EuclidCoreRandomTools.nextDouble(random, 2.0);
+         SpatialVectorArray result = new SpatialVectorArray(size);
+         result.set(array1);
+         result.add(array2);
+         result.scale(scale);
+         result.sub(array2);
+
+         Vector3D expectedAngularSum = new Vector3D();
+         Vector3D expectedLinearSum = new Vector3D();
+
+         for (int index = 0; index < size; index++)
+         {
+            SpatialVector expected = new SpatialVector(vectors1[index]);
+            expected.add(vectors2[index]);
+            expected.scale(scale);
+            expected.sub(vectors2[index]);
+            assertVectorEquals(expected, result, index);
+
+            expectedAngularSum.add(vectors1[index].getAngularPart());
+            expectedLinearSum.add(vectors1[index].getLinearPart());
+         }
+
+         Vector3D actualAngularSum = new Vector3D();
+         Vector3D actualLinearSum = new Vector3D();
+         array1.sum(actualAngularSum, actualLinearSum);
+         EuclidCoreTestTools.assertTuple3DEquals(expectedAngularSum, actualAngularSum, EPSILON);
+         EuclidCoreTestTools.assertTuple3DEquals(expectedLinearSum, actualLinearSum, EPSILON);
+
+         result.setToZero();
+         for (double value : result.getData())
+            assertEquals(0.0, value);
+
+         assertThrows(IllegalArgumentException.class, () -> array1.add(new SpatialVectorArray(size + 1)));
+      }
+   }
+
+   @Test
+   public void testCrossProducts()
+   {
+      Random random = new Random(7657);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int size = random.nextInt(50) + 1;
+         SpatialVector[] motions = new SpatialVector[size];
+         SpatialVector[] others = new SpatialVector[size];
+         SpatialVectorArray motionArray = new SpatialVectorArray(size);
+         SpatialVectorArray otherArray = new SpatialVectorArray(size);
+
+         for (int index = 0; index < size; index++)
+         {
+            motions[index] = MecanoRandomTools.nextSpatialVector(random, worldFrame);
+            others[index] = MecanoRandomTools.nextSpatialVector(random, worldFrame);
+            motionArray.set(index, motions[index]);
+            otherArray.set(index, others[index]);
+         }
+
+         SpatialVectorArray crossMotion = new SpatialVectorArray(size);
+         crossMotion.crossMotion(motionArray, otherArray);
+         SpatialVectorArray crossForce = new SpatialVectorArray(size);
+         crossForce.crossForce(motionArray, otherArray);
+
+         for (int index = 0; index < size; index++)
+         {
+            Vector3D w = new Vector3D(motions[index].getAngularPart());
+            Vector3D v = new Vector3D(motions[index].getLinearPart());
+            Vector3D a = new Vector3D(others[index].getAngularPart());
+            Vector3D l = new Vector3D(others[index].getLinearPart());
+
+            SpatialVector expectedMotion = new SpatialVector(worldFrame);
+            expectedMotion.getAngularPart().cross(w, a);
+            expectedMotion.getLinearPart().cross(w, l);
+            expectedMotion.addCrossToLinearPart(v, a);
+            assertVectorEquals(expectedMotion, crossMotion, index);
+
+            SpatialVector expectedForce = new SpatialVector(worldFrame);
+            expectedForce.getAngularPart().cross(w, a);
+            expectedForce.addCrossToAngularPart(v, l);
+            expectedForce.getLinearPart().cross(w, l);
+            assertVectorEquals(expectedForce, crossForce, index);
+         }
+      }
+   }
+
+   @Test
+   public void testMultiplyInertia()
+   {
+      Random random = new Random(87);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int size = random.nextInt(50) + 1;
+         SpatialInertia[] inertias = new SpatialInertia[size];
+         SpatialVector[] motions = new SpatialVector[size];
+         SpatialVectorArray motionArray = new SpatialVectorArray(size);
+         double[] mass = new double[size];
+         double[] comX = new double[size], comY = new double[size], comZ = new double[size];
+         double[] ixx = new double[size], iyy = new double[size], izz = new double[size];
+         double[] ixy = new double[size], ixz = new double[size], iyz = new double[size];
+
+         for (int index = 0; index < size; index++)
+         {
+            inertias[index] = MecanoRandomTools.nextSpatialInertia(random, worldFrame, worldFrame);
+            motions[index] = MecanoRandomTools.nextSpatialVector(random, worldFrame);
+            motionArray.set(index, motions[index]);
+            mass[index] = inertias[index].getMass();
+            comX[index] = inertias[index].getCenterOfMassOffset().getX();
+            comY[index] = inertias[index].getCenterOfMassOffset().getY();
+            comZ[index] = inertias[index].getCenterOfMassOffset().getZ();
+            ixx[index] = inertias[index].getMomentOfInertia().getM00();
+            iyy[index] = inertias[index].getMomentOfInertia().getM11();
+            izz[index] = inertias[index].getMomentOfInertia().getM22();
+            ixy[index] = inertias[index].getMomentOfInertia().getM01();
+            ixz[index] = inertias[index].getMomentOfInertia().getM02();
+            iyz[index] = inertias[index].getMomentOfInertia().getM12();
+         }
+
+         SpatialVectorArray result = new SpatialVectorArray(size);
+         result.multiplyInertia(mass, comX, comY, comZ, ixx, iyy, izz, ixy, ixz, iyz, motionArray);
+
+         for (int index = 0; index < size; index++)
+         {
+            DenseMatrix64F inertiaMatrix = new DenseMatrix64F(6, 6);
+            DenseMatrix64F motionMatrix = new DenseMatrix64F(6, 1);
+            DenseMatrix64F productMatrix = new DenseMatrix64F(6, 1);
+            inertias[index].get(inertiaMatrix);
+            motions[index].get(motionMatrix);
+            CommonOps.mult(inertiaMatrix, motionMatrix, productMatrix);
+            SpatialVector expected = new SpatialVector(worldFrame);
+            expected.set(productMatrix);
+            assertVectorEquals(expected, result, index);
+         }
+      }
+   }
+
+   @Test
+   public void testApplyTransform()
+   {
+      Random random = new Random(2342);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int size = random.nextInt(50) + 1;
+         double[] transforms = new double[SpatialVectorArray.TRANSFORM_SIZE * size];
+         Twist[] twists = new Twist[size];
+         Wrench[] wrenches = new Wrench[size];
+         SpatialVectorArray twistArray = new SpatialVectorArray(size);
+         SpatialVectorArray wrenchArray = new SpatialVectorArray(size);
+
+         for (int index = 0; index < size; index++)
+         {
+            RigidBodyTransform transform = EuclidCoreRandomTools.nextRigidBodyTransform(random);
+            SpatialVectorArray.setTransform(transforms, size, index, transform);
+            twists[index] = MecanoRandomTools.nextTwist(random, worldFrame, worldFrame, worldFrame);
+            wrenches[index] = MecanoRandomTools.nextWrench(random, worldFrame, worldFrame);
+            twistArray.set(index, twists[index]);
+            wrenchArray.set(index, wrenches[index]);
+            twists[index].applyTransform(transform);
+            wrenches[index].applyTransform(transform);
+         }
+
+         twistArray.applyTransformAsMotion(transforms);
+         wrenchArray.applyTransformAsForce(transforms);
+
+         for (int index = 0; index < size; index++)
+         {
+            assertVectorEquals(twists[index], twistArray, index);
+            assertVectorEquals(wrenches[index], wrenchArray, index);
+         }
+
+         assertThrows(IllegalArgumentException.class, () -> twistArray.applyTransformAsMotion(new double[transforms.length - 1]));
+      }
+   }
+
+   private static void assertVectorEquals(SpatialVectorReadOnly expected, SpatialVectorArray actualArray, int index)
+   {
+      Vector3D actualAngularPart = new Vector3D();
+      Vector3D actualLinearPart = new Vector3D();
+      actualArray.get(index, actualAngularPart, actualLinearPart);
+      EuclidCoreTestTools.assertTuple3DEquals(expected.getAngularPart(), actualAngularPart, EPSILON);
+      EuclidCoreTestTools.assertTuple3DEquals(expected.getLinearPart(), actualLinearPart, EPSILON);
+   }
+}
@@ -0,0 +1,109 @@
+package us.ihmc.mecano.tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.RandomMatrices;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.referenceFrame.tools.EuclidFrameRandomTools;
+import us.ihmc.mecano.spatial.SpatialAcceleration;
+import us.ihmc.mecano.spatial.SpatialInertia;
+import us.ihmc.mecano.spatial.SpatialVector;
+import us.ihmc.mecano.spatial.Twist;
+import us.ihmc.mecano.spatial.Wrench;
+
+public class MecanoIOToolsTest
+{
+   private static final int ITERATIONS = 1000;
+
+   @Test
+   public void testAppendDouble()
+   {
+      Random random = new Random(34656);
+
+      double[] specialValues = {0.0, -0.0, -1.0e-4, 0.9999, 1.0e7, -1.0e7, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1.0e20, -1.0e20};
+
+      for (int precision = 0; precision <= 6; precision++)
+      {
+         for (double value : specialValues)
+            assertAppendDouble(value, precision);
+      }
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int precision = random.nextInt(7);
+         double value = (2.0 * random.nextDouble() - 1.0) * Math.pow(10.0, random.nextInt(8) - 3);
+         assertAppendDouble(value, precision);
+      }
+
+      assertThrows(IllegalArgumentException.class, () -> MecanoIOTools.appendDouble(new StringBuilder(), 1.0, -1));
+      assertThrows(IllegalArgumentException.class, () -> MecanoIOTools.appendDouble(new StringBuilder(), 1.0, MecanoIOTools.MAX_PRECISION + 1));
+   }
+
+   private static void assertAppendDouble(double value, int precision)
+   {
+      StringBuilder builder = new StringBuilder();
+      MecanoIOTools.appendDouble(builder, value, precision);
+      assertEquals(String.format("%" + (precision + 3) + "." + precision + "f", value), builder.toString());
+   }
+
+   @Test
+   public void testAppendSpatialQuantities()
+   {
+      Random random = new Random(4576);
+      String format = "%6.3f";
+      StringBuilder builder = new StringBuilder();
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         ReferenceFrame bodyFrame = EuclidFrameRandomTools.nextReferenceFrame(random);
+         ReferenceFrame baseFrame = EuclidFrameRandomTools.nextReferenceFrame(random);
+         ReferenceFrame expressedInFrame = EuclidFrameRandomTools.nextReferenceFrame(random);
+
+         SpatialVector spatialVector = MecanoRandomTools.nextSpatialVector(random, expressedInFrame);
+         builder.setLength(0);
+         MecanoIOTools.appendSpatialVectorString(builder, spatialVector);
+         assertEquals(MecanoIOTools.getSpatialVectorString(format, spatialVector), builder.toString());
+
+         Twist twist = MecanoRandomTools.nextTwist(random, bodyFrame, baseFrame, expressedInFrame);
+         builder.setLength(0);
+         MecanoIOTools.appendTwistString(builder, twist);
+         assertEquals(MecanoIOTools.getTwistString(format, twist), builder.toString());
+
+         Wrench wrench = MecanoRandomTools.nextWrench(random, bodyFrame, expressedInFrame);
+         builder.setLength(0);
+         MecanoIOTools.appendWrenchString(builder, wrench);
+         assertEquals(MecanoIOTools.getWrenchString(format, wrench), builder.toString());
+
+         SpatialAcceleration spatialAcceleration = MecanoRandomTools.nextSpatialAcceleration(random, bodyFrame, baseFrame, expressedInFrame);
+         builder.setLength(0);
+         MecanoIOTools.appendSpatialAccelerationString(builder, spatialAcceleration);
+         assertEquals(MecanoIOTools.getSpatialAccelerationString(format, spatialAcceleration), builder.toString());
+
+         SpatialInertia spatialInertia = MecanoRandomTools.nextSpatialInertia(random, bodyFrame, expressedInFrame);
+         builder.setLength(0);
+         MecanoIOTools.appendSpatialInertiaString(builder, spatialInertia);
+         assertEquals(MecanoIOTools.getSpatialInertiaString(format, spatialInertia), builder.toString());
+
+         DenseMatrix64F matrix = RandomMatrices.createRandom(random.nextInt(10) + 1, random.nextInt(10) + 1, -1.0, 1.0, random);
+         builder.setLength(0);
+         MecanoIOTools.appendDenseMatrix64FString(builder, matrix);
+         assertEquals(MecanoIOTools.getDenseMatrix64FString(format, matrix), builder.toString());
+
+         String expected = MecanoIOTools.getTwistString(format, twist);
+         CharBuffer charBuffer = CharBuffer.allocate(expected.length());
+         MecanoIOTools.appendTwistString(charBuffer, twist);
+         charBuffer.flip();
+         assertEquals(expected, charBuffer.toString());
+      }
+
+      builder.setLength(0);
+      MecanoIOTools.appendTwistString(builder, null);
+      assertEquals("null", builder.toString());
+   }
+}
@@ -0,0 +1,135 @@
+package us.ihmc.mecano.tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.referenceFrame.exceptions.ReferenceFrameMismatchException;
+import us.ihmc.euclid.referenceFrame.tools.EuclidFrameRandomTools;
+import us.ihmc.mecano.spatial.SpatialInertia;
+import us.ihmc.mecano.spatial.Twist;
+import us.ihmc.mecano.spatial.Wrench;
+
+public class MecanoSettingsTest
+{
+   private static final ReferenceFrame worldFrame = ReferenceFrame.getWorldFrame();
+
+   /** Exit code of {@link FrameMismatchChecker} when no frame mismatch was detected. */
+   private static final int NO_MISMATCH_DETECTED = 0;
+   /** Exit code of {@link FrameMismatchChecker} when every frame mismatch was detected. */
+   private static final int ALL_MISMATCHES_DETECTED = 1;
+
+   @Test
+   public void testDisablingFrameChecks() throws Exception
+   {
+      // The setting is read once when loading the class, so it has to be tested in a new JVM.
+      assertEquals(ALL_MISMATCHES_DETECTED, runFrameMismatchChecker(false));
+      assertEquals(NO_MISMATCH_DETECTED, runFrameMismatchChecker(true));
+   }
+
+   @Test
+   public void testFrameChecksEnabledByDefault()
+   {
+      if (Boolean.getBoolean(MecanoSettings.DISABLE_FRAME_CHECKS_PROPERTY))
+         return;
+
+      assertTrue(MecanoSettings.FRAME_CHECKS_ENABLED);
+
+      Random random = new Random(4577);
+      ReferenceFrame otherFrame = EuclidFrameRandomTools.nextReferenceFrame(random);
+
+      Twist twist = MecanoRandomTools.nextTwist(random, worldFrame, worldFrame, worldFrame);
+      Twist otherTwist = MecanoRandomTools.nextTwist(random, worldFrame, worldFrame, otherFrame);
+      twist.checkReferenceFrameMatch(worldFrame, worldFrame, worldFrame);
+      assertThrows(ReferenceFrameMismatchException.class, () -> twist.checkBodyFrameMatch(otherFrame));
+      assertThrows(ReferenceFrameMismatchException.class, () -> twist.checkBaseFrameMatch(otherFrame));
+      assertThrows(ReferenceFrameMismatchException.class, () -> twist.checkExpressedInFrameMatch(otherFrame));
+      assertThrows(ReferenceFrameMismatchException.class, () -> twist.checkReferenceFrameMatch(otherFrame));
+      assertThrows(ReferenceFrameMismatchException.class, () -> twist.add(otherTwist));
+
+      Wrench wrench = MecanoRandomTools.nextWrench(random, worldFrame, worldFrame);
+      assertThrows(ReferenceFrameMismatchException.class, () -> wrench.checkBodyFrameMatch(otherFrame));
+      assertThrows(ReferenceFrameMismatchException.class, () -> wrench.checkExpressedInFrameMatch(otherFrame));
+
+      SpatialInertia inertia = MecanoRandomTools.nextSpatialInertia(random, worldFrame, worldFrame);
+      assertThrows(ReferenceFrameMismatchException.class, () -> inertia.checkBodyFrameMatch(otherFrame));
+      assertThrows(ReferenceFrameMismatchException.class, () -> inertia.checkReferenceFrameMatch(worldFrame, otherFrame));
+   }
+
+   private static int runFrameMismatchChecker(boolean disableFrameChecks) throws Exception
+   {
+      List<String> command = new ArrayList<>();
+      command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path") + File.pathSeparator + codeSource(FrameMismatchChecker.class) + File.pathSeparator
+            + codeSource(MecanoSettings.class) + File.pathSeparator + codeSource(ReferenceFrame.class) + File.pathSeparator
+            + codeSource(EuclidFrameRandomTools.class));
+      if (disableFrameChecks)
+         command.add("-D" + MecanoSettings.DISABLE_FRAME_CHECKS_PROPERTY + "=true");
+      command.add(FrameMismatchChecker.class.getName());
+
+      Process process = new ProcessBuilder(command).inheritIO().start();
+      assertTrue(process.waitFor(60, TimeUnit.SECONDS), "The forked JVM did not terminate.");
+      return process.exitValue();
+   }
+
+   private static String codeSource(Class<?> clazz) throws Exception
+   {
+      return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+   }
+
+   /**
+    * Operates on objects with mismatching frames and exits with {@link #NO_MISMATCH_DETECTED} if none
+    * of the operations threw, {@link #ALL_MISMATCHES_DETECTED} if all of them threw, and {@code 2}
+    * otherwise.
+    */
+   public static class FrameMismatchChecker
+   {
+      public static void main(String[] args)
+      {
+         Random random = new Random(3478);
+         ReferenceFrame otherFrame = EuclidFrameRandomTools.nextReferenceFrame(random);
+         Twist twist = MecanoRandomTools.nextTwist(random, worldFrame, worldFrame, worldFrame);
+         Twist otherTwist = MecanoRandomTools.nextTwist(random, worldFrame, worldFrame, otherFrame);
+         Wrench wrench = MecanoRandomTools.nextWrench(random, worldFrame, worldFrame);
+         SpatialInertia inertia = MecanoRandomTools.nextSpatialInertia(random, worldFrame, worldFrame);
+
+         List<Runnable> mismatches = new ArrayList<>();
+         mismatches.add(() -> twist.checkBodyFrameMatch(otherFrame));
+         mismatches.add(() -> twist.checkBaseFrameMatch(otherFrame));
+         mismatches.add(() -> twist.checkExpressedInFrameMatch(otherFrame));
+         mismatches.add(() -> twist.add(otherTwist));
+         mismatches.add(() -> wrench.checkBodyFrameMatch(otherFrame));
+         mismatches.add(() -> wrench.checkExpressedInFrameMatch(otherFrame));
+         mismatches.add(() -> inertia.checkReferenceFrameMatch(worldFrame, otherFrame));
+
+         int numberOfMismatchesDetected = 0;
+
+         for (Runnable mismatch : mismatches)
+         {
+            try
+            {
+               mismatch.run();
+            }
+            catch (ReferenceFrameMismatchException e)
+            {
+               numberOfMismatchesDetected++;
+            }
+         }
+
+         if (numberOfMismatchesDetected == 0 && !MecanoSettings.FRAME_CHECKS_ENABLED)
+            System.exit(NO_MISMATCH_DETECTED);
+         else if (numberOfMismatchesDetected == mismatches.size() && MecanoSettings.FRAME_CHECKS_ENABLED)
+            System.exit(ALL_MISMATCHES_DETECTED);
+         else
+            System.exit(2);
+      }
+   }
+}
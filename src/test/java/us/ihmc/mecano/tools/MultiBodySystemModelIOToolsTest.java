@@ -0,0 +1,142 @@
+package us.ihmc.mecano.tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.euclid.referenceFrame.ReferenceFrame;
+import us.ihmc.euclid.tools.EuclidCoreTestTools;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.OneDoFJointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyReadOnly;
+import us.ihmc.mecano.spatial.interfaces.SpatialInertiaReadOnly;
+
+public class MultiBodySystemModelIOToolsTest
+{
+   private static final int ITERATIONS = 100;
+   private static final double EPSILON = 1.0e-12;
+
+   @Test
+   public void testWriteAndReadModel() throws IOException
+   {
+      Random random = new Random(23457);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(30) + 1);
+
+         for (JointBasics joint : joints)
+         {
+            if (joint instanceof OneDoFJointBasics)
+            {
+               OneDoFJointBasics oneDoFJoint = (OneDoFJointBasics) joint;
+               oneDoFJoint.setJointLimits(-random.nextDouble(), random.nextDouble());
+               oneDoFJoint.setVelocityLimits(-random.nextDouble(), random.nextDouble());
+               oneDoFJoint.setEffortLimits(-random.nextDouble(), random.nextDouble());
+            }
+         }
+
+         RigidBodyBasics originalRootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         RigidBodyBasics loadedRootBody;
+
+         if (random.nextBoolean())
+         {
+            loadedRootBody = MultiBodySystemModelIOTools.readModel(MultiBodySystemModelIOTools.writeModel(originalRootBody), ReferenceFrame.getWorldFrame());
+         }
+         else
+         {
+            Path file = Files.createTempFile("model", ".bin");
+
+            try
+            {
+               MultiBodySystemModelIOTools.writeModel(originalRootBody, file);
+               loadedRootBody = MultiBodySystemModelIOTools.readModel(file, ReferenceFrame.getWorldFrame(), null, null);
+            }
+            finally
+            {
+               Files.deleteIfExists(file);
+            }
+         }
+
+         assertModelEquals(originalRootBody, loadedRootBody);
+      }
+   }
+
+   @Test
+   public void testInvalidModel()
+   {
+      Random random = new Random(4587);
+      List<JointBasics> joints = MultiBodySystemRandomTools.nextJointChain(random, 5);
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+
+      assertThrows(IllegalArgumentException.class, () -> MultiBodySystemModelIOTools.writeModel(joints.get(2).getSuccessor()));
+
+      byte[] model = MultiBodySystemModelIOTools.writeModel(rootBody);
+      byte[] truncatedModel = new byte[model.length / 2];
+      System.arraycopy(model, 0, truncatedModel, 0, truncatedModel.length);
+      assertThrows(IllegalArgumentException.class, () -> MultiBodySystemModelIOTools.readModel(truncatedModel, ReferenceFrame.getWorldFrame()));
+
+      model[0] = 0;
+      assertThrows(IllegalArgumentException.class, () -> MultiBodySystemModelIOTools.readModel(model, ReferenceFrame.getWorldFrame()));
+   }
+
+   private static void assertModelEquals(RigidBodyReadOnly expectedRootBody, RigidBodyReadOnly actualRootBody)
+   {
+      List<? extends RigidBodyReadOnly> expectedBodies = expectedRootBody.subtreeList();
+      List<? extends RigidBodyReadOnly> actualBodies = actualRootBody.subtreeList();
+      assertEquals(expectedBodies.size(), actualBodies.size());
+
+      for (int bodyIndex = 0; bodyIndex < expectedBodies.size(); bodyIndex++)
+      {
+         RigidBodyReadOnly expectedBody = expectedBodies.get(bodyIndex);
+         RigidBodyReadOnly actualBody = actualBodies.get(bodyIndex);
+
+         assertEquals(expectedBody.getName(), actualBody.getName());
+         assertEquals(expectedBody.isRootBody(), actualBody.isRootBody());
+         assertEquals(expectedBody.getChildrenJoints().size(), actualBody.getChildrenJoints().size());
+         EuclidCoreTestTools.assertRigidBodyTransformEquals(expectedBody.getBodyFixedFrame().getTransformToParent(),
+                                                            actualBody.getBodyFixedFrame().getTransformToParent(),
+                                                            EPSILON);
+
+         if (expectedBody.isRootBody())
+            continue;
+
+         SpatialInertiaReadOnly expectedInertia = expectedBody.getInertia();
+         SpatialInertiaReadOnly actualInertia = actualBody.getInertia();
+         assertEquals(expectedInertia.getMass(), actualInertia.getMass(), EPSILON);
+         EuclidCoreTestTools.assertMatrix3DEquals(expectedInertia.getMomentOfInertia(), actualInertia.getMomentOfInertia(), EPSILON);
+         EuclidCoreTestTools.assertTuple3DEquals(expectedInertia.getCenterOfMassOffset(), actualInertia.getCenterOfMassOffset(), EPSILON);
+
+         JointReadOnly expectedJoint = expectedBody.getParentJoint();
+         JointReadOnly actualJoint = actualBody.getParentJoint();
+         assertEquals(expectedJoint.getName(), actualJoint.getName());
+         assertEquals(expectedJoint.getClass(), actualJoint.getClass());
+         assertEquals(expectedJoint.getPredecessor().getName(), actualJoint.getPredecessor().getName());
+         EuclidCoreTestTools.assertRigidBodyTransformEquals(expectedJoint.getFrameBeforeJoint().getTransformToParent(),
+                                                            actualJoint.getFrameBeforeJoint().getTransformToParent(),
+                                                            EPSILON);
+
+         if (expectedJoint instanceof OneDoFJointReadOnly)
+         {
+            OneDoFJointReadOnly expectedOneDoFJoint = (OneDoFJointReadOnly) expectedJoint;
+            OneDoFJointReadOnly actualOneDoFJoint = (OneDoFJointReadOnly) actualJoint;
+            EuclidCoreTestTools.assertTuple3DEquals(expectedOneDoFJoint.getJointAxis(), actualOneDoFJoint.getJointAxis(), EPSILON);
+            assertEquals(expectedOneDoFJoint.getJointLimitLower(), actualOneDoFJoint.getJointLimitLower());
+            assertEquals(expectedOneDoFJoint.getJointLimitUpper(), actualOneDoFJoint.getJointLimitUpper());
+            assertEquals(expectedOneDoFJoint.getVelocityLimitLower(), actualOneDoFJoint.getVelocityLimitLower());
+            assertEquals(expectedOneDoFJoint.getVelocityLimitUpper(), actualOneDoFJoint.getVelocityLimitUpper());
+            assertEquals(expectedOneDoFJoint.getEffortLimitLower(), actualOneDoFJoint.getEffortLimitLower());
+            assertEquals(expectedOneDoFJoint.getEffortLimitUpper(), actualOneDoFJoint.getEffortLimitUpper());
+         }
+      }
+   }
+}
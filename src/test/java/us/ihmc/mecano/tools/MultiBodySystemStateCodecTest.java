@@ -0,0 +1,106 @@
+package us.ihmc.mecano.tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+
+public class MultiBodySystemStateCodecTest
+{
+   private static final int ITERATIONS = 50;
+   private static final double EPSILON = 1.0e-12;
+
+   @Test
+   public void testWriteAndRead()
+   {
+      Random random = new Random(34675);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(30) + 1);
+         MultiBodySystemReadOnly input = MultiBodySystemReadOnly.toMultiBodySystemInput(MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor()));
+         List<? extends JointReadOnly> indexedJoints = input.getJointMatrixIndexProvider().getIndexedJointsInOrder();
+         MultiBodySystemStateCodec codec = new MultiBodySystemStateCodec(input);
+
+         assertEquals(MultiBodySystemTools.computeDegreesOfFreedom(indexedJoints), codec.getNumberOfDoFs());
+         assertEquals(Double.BYTES * (codec.getConfigurationSize() + 3 * codec.getNumberOfDoFs()), codec.getRecordSize());
+
+         int numberOfRecords = 5;
+         ByteBuffer buffer = random.nextBoolean() ? ByteBuffer.allocate(MultiBodySystemStateCodec.HEADER_SIZE + numberOfRecords * codec.getRecordSize())
+               : ByteBuffer.allocateDirect(MultiBodySystemStateCodec.HEADER_SIZE + numberOfRecords * codec.getRecordSize());
+         DenseMatrix64F[][] expectedStates = new DenseMatrix64F[numberOfRecords][JointStateType.values().length];
+
+         codec.writeHeader(buffer);
+
+         for (int recordIndex = 0; recordIndex < numberOfRecords; recordIndex++)
+         {
+            for (JointStateType stateType : JointStateType.values())
+            {
+               MultiBodySystemRandomTools.nextState(random, stateType, joints);
+               DenseMatrix64F state = new DenseMatrix64F(codec.getConfigurationSize(), 1);
+               int size = MultiBodySystemTools.extractJointsState(indexedJoints, stateType, state);
+               state.reshape(size, 1, true);
+               expectedStates[recordIndex][stateType.ordinal()] = state;
+            }
+
+            codec.write(buffer);
+         }
+
+         assertEquals(0, buffer.remaining());
+         buffer.flip();
+         codec.readHeader(buffer);
+
+         for (int recordIndex = 0; recordIndex < numberOfRecords; recordIndex++)
+         {
+            for (JointStateType stateType : JointStateType.values())
+               MultiBodySystemRandomTools.nextState(random, stateType, joints);
+
+            codec.read(buffer);
+
+            for (JointStateType stateType : JointStateType.values())
+            {
+               DenseMatrix64F expected = expectedStates[recordIndex][stateType.ordinal()];
+               DenseMatrix64F actual = new DenseMatrix64F(expected.getNumRows(), 1);
+               MultiBodySystemTools.extractJointsState(indexedJoints, stateType, actual);
+               assertTrue(MatrixFeatures.isIdentical(expected, actual, EPSILON));
+            }
+         }
+
+         assertEquals(0, buffer.remaining());
+      }
+   }
+
+   @Test
+   public void testHeaderMismatch()
+   {
+      Random random = new Random(2354);
+      List<JointBasics> joints = MultiBodySystemRandomTools.nextJointChain(random, 10);
+      List<JointBasics> otherJoints = MultiBodySystemRandomTools.nextJointChain(random, 11);
+      MultiBodySystemStateCodec codec = new MultiBodySystemStateCodec(joints);
+      MultiBodySystemStateCodec otherCodec = new MultiBodySystemStateCodec(otherJoints);
+
+      ByteBuffer buffer = ByteBuffer.allocate(MultiBodySystemStateCodec.HEADER_SIZE);
+      codec.writeHeader(buffer);
+      buffer.flip();
+      assertThrows(IllegalArgumentException.class, () -> otherCodec.readHeader(buffer));
+
+      buffer.rewind();
+      buffer.putInt(0, 0);
+      assertThrows(IllegalArgumentException.class, () -> codec.readHeader(buffer));
+
+      ByteBuffer tooSmall = ByteBuffer.allocate(codec.getRecordSize() - 1);
+      assertThrows(BufferOverflowException.class, () -> codec.write(tooSmall));
+      assertThrows(BufferUnderflowException.class, () -> codec.read(tooSmall));
+   }
+}
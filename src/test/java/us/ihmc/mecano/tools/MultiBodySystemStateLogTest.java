@@ -0,0 +1,156 @@
+package us.ihmc.mecano.tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.RigidBodyBasics;
+
+public class MultiBodySystemStateLogTest
+{
+   private static final int ITERATIONS = 10;
+   private static final double EPSILON = 1.0e-12;
+
+   @Test
+   public void testWriteAndRead() throws IOException
+   {
+      Random random = new Random(45786);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         List<JointBasics> joints = MultiBodySystemRandomTools.nextJointTree(random, random.nextInt(20) + 1);
+         RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+         MultiBodySystemReadOnly input = MultiBodySystemReadOnly.toMultiBodySystemInput(rootBody);
+         List<? extends JointReadOnly> indexedJoints = input.getJointMatrixIndexProvider().getIndexedJointsInOrder();
+
+         int numberOfRecords = random.nextInt(100) + 1;
+         // Using small chunks to exercise the mapping of several regions.
+         int writerChunkSize = random.nextInt(2000) + 1;
+         int readerChunkSize = random.nextInt(2000) + 1;
+         long[] expectedTimestamps = new long[numberOfRecords];
+         List<DenseMatrix64F[]> expectedStates = new ArrayList<>();
+
+         Path file = Files.createTempFile("stateLog", ".bin");
+
+         try
+         {
+            try (MultiBodySystemStateLogWriter writer = new MultiBodySystemStateLogWriter(file, new MultiBodySystemStateCodec(input), writerChunkSize))
+            {
+               for (int tick = 0; tick < numberOfRecords; tick++)
+               {
+                  expectedStates.add(nextState(random, joints, indexedJoints, writer.getCodec()));
+                  expectedTimestamps[tick] = random.nextLong();
+                  writer.append(expectedTimestamps[tick]);
+                  assertEquals(tick + 1, writer.getNumberOfRecords());
+               }
+            }
+
+            // The file is trimmed to the records appended when closing the writer.
+            long recordStride = Long.BYTES + new MultiBodySystemStateCodec(input).getRecordSize();
+            assertEquals(MultiBodySystemStateLogWriter.FILE_HEADER_SIZE + numberOfRecords * recordStride, Files.size(file));
+
+            try (MultiBodySystemStateLogReader reader = new MultiBodySystemStateLogReader(file, rootBody, readerChunkSize))
+            {
+               assertEquals(numberOfRecords, reader.getNumberOfRecords());
+
+               for (int j = 0; j < 2 * numberOfRecords; j++)
+               {
+                  int tick = random.nextInt(numberOfRecords);
+                  assertEquals(expectedTimestamps[tick], reader.getTimestamp(tick));
+                  assertEquals(expectedTimestamps[tick], reader.read(tick));
+                  assertState(expectedStates.get(tick), indexedJoints);
+               }
+
+               int fromTick = random.nextInt(numberOfRecords);
+               int toTick = fromTick + random.nextInt(numberOfRecords - fromTick + 1);
+               long[] nextExpectedTick = {fromTick};
+
+               reader.replay(fromTick, toTick, tick ->
+               {
+                  assertEquals(nextExpectedTick[0]++, tick);
+                  assertState(expectedStates.get((int) tick), indexedJoints);
+               });
+               assertEquals(toTick, nextExpectedTick[0]);
+
+               assertThrows(IndexOutOfBoundsException.class, () -> reader.read(-1));
+               assertThrows(IndexOutOfBoundsException.class, () -> reader.read(numberOfRecords));
+               assertThrows(IndexOutOfBoundsException.class, () -> reader.getTimestamp(numberOfRecords));
+               assertThrows(IndexOutOfBoundsException.class, () -> reader.replay(0, numberOfRecords + 1, null));
+            }
+         }
+         finally
+         {
+            Files.deleteIfExists(file);
+         }
+      }
+   }
+
+   @Test
+   public void testSystemMismatch() throws IOException
+   {
+      Random random = new Random(2346);
+      List<JointBasics> joints = MultiBodySystemRandomTools.nextJointChain(random, 10);
+      List<JointBasics> otherJoints = MultiBodySystemRandomTools.nextJointChain(random, 11);
+      RigidBodyBasics rootBody = MultiBodySystemTools.getRootBody(joints.get(0).getPredecessor());
+      RigidBodyBasics otherRootBody = MultiBodySystemTools.getRootBody(otherJoints.get(0).getPredecessor());
+
+      Path file = Files.createTempFile("stateLog", ".bin");
+
+      try
+      {
+         try (MultiBodySystemStateLogWriter writer = new MultiBodySystemStateLogWriter(file, MultiBodySystemReadOnly.toMultiBodySystemInput(rootBody)))
+         {
+            writer.append(0L);
+         }
+
+         assertThrows(IllegalArgumentException.class, () -> new MultiBodySystemStateLogReader(file, otherRootBody));
+
+         Files.write(file, new byte[] {1, 2, 3});
+         assertThrows(IllegalArgumentException.class, () -> new MultiBodySystemStateLogReader(file, rootBody));
+      }
+      finally
+      {
+         Files.deleteIfExists(file);
+      }
+   }
+
+   private static DenseMatrix64F[] nextState(Random random, List<JointBasics> joints, List<? extends JointReadOnly> indexedJoints,
+                                             MultiBodySystemStateCodec codec)
+   {
+      DenseMatrix64F[] states = new DenseMatrix64F[JointStateType.values().length];
+
+      for (JointStateType stateType : JointStateType.values())
+      {
+         MultiBodySystemRandomTools.nextState(random, stateType, joints);
+         DenseMatrix64F state = new DenseMatrix64F(codec.getConfigurationSize(), 1);
+         int size = MultiBodySystemTools.extractJointsState(indexedJoints, stateType, state);
+         state.reshape(size, 1, true);
+         states[stateType.ordinal()] = state;
+      }
+
+      return states;
+   }
+
+   private static void assertState(DenseMatrix64F[] expectedStates, List<? extends JointReadOnly> indexedJoints)
+   {
+      for (JointStateType stateType : JointStateType.values())
+      {
+         DenseMatrix64F expected = expectedStates[stateType.ordinal()];
+         DenseMatrix64F actual = new DenseMatrix64F(expected.getNumRows(), 1);
+         MultiBodySystemTools.extractJointsState(indexedJoints, stateType, actual);
+         assertTrue(MatrixFeatures.isIdentical(expected, actual, EPSILON));
+      }
+   }
+}
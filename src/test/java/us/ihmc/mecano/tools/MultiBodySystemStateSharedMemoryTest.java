@@ -0,0 +1,223 @@
+package us.ihmc.mecano.tools;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.MatrixFeatures;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.mecano.multiBodySystem.PrismaticJoint;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.JointReadOnly;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemBasics;
+import us.ihmc.mecano.multiBodySystem.interfaces.MultiBodySystemReadOnly;
+
+public class MultiBodySystemStateSharedMemoryTest
+{
+   private static final int ITERATIONS = 50;
+   private static final double EPSILON = 1.0e-12;
+
+   @Test
+   public void testPublishAndRead() throws IOException
+   {
+      Random random = new Random(3465);
+
+      for (int i = 0; i < ITERATIONS; i++)
+      {
+         int numberOfJoints = random.nextInt(20) + 1;
+         long seed = random.nextLong();
+         // Same seed for both systems such that they are identical.
+         List<JointBasics> publisherJoints = MultiBodySystemRandomTools.nextJointTree(new Random(seed), numberOfJoints);
+         List<JointBasics> subscriberJoints = MultiBodySystemRandomTools.nextJointTree(new Random(seed), numberOfJoints);
+         MultiBodySystemReadOnly publisherInput = MultiBodySystemReadOnly.toMultiBodySystemInput(MultiBodySystemTools.getRootBody(publisherJoints.get(0)
+                                                                                                                                                 .getPredecessor()));
+         MultiBodySystemBasics subscriberInput = MultiBodySystemBasics.toMultiBodySystemBasics(MultiBodySystemTools.getRootBody(subscriberJoints.get(0)
+                                                                                                                                                 .getPredecessor()));
+         List<? extends JointReadOnly> publisherIndexedJoints = publisherInput.getJointMatrixIndexProvider().getIndexedJointsInOrder();
+         List<? extends JointReadOnly> subscriberIndexedJoints = subscriberInput.getJointMatrixIndexProvider().getIndexedJointsInOrder();
+
+         Path file = Files.createTempFile("sharedState", ".bin");
+
+         try (MultiBodySystemStatePublisher publisher = new MultiBodySystemStatePublisher(file, publisherInput);
+               MultiBodySystemStateSubscriber subscriber = new MultiBodySystemStateSubscriber(file, subscriberInput))
+         {
+            assertFalse(subscriber.hasNewState());
+            assertFalse(subscriber.read());
+
+            for (int publication = 1; publication <= 5; publication++)
+            {
+               for (JointStateType stateType : JointStateType.values())
+                  MultiBodySystemRandomTools.nextState(random, stateType, publisherJoints);
+
+               publisher.publish();
+               assertEquals(publication, publisher.getNumberOfPublications());
+               assertTrue(subscriber.hasNewState());
+               assertTrue(subscriber.read());
+               assertFalse(subscriber.hasNewState());
+               assertEquals(publication, subscriber.getLastPublicationRead());
+
+               for (JointStateType stateType : JointStateType.values())
+               {
+                  DenseMatrix64F expected = new DenseMatrix64F(publisher.getCodec().getConfigurationSize(), 1);
+                  DenseMatrix64F actual = new DenseMatrix64F(publisher.getCodec().getConfigurationSize(), 1);
+                  int size = MultiBodySystemTools.extractJointsState(publisherIndexedJoints, stateType, expected);
+                  MultiBodySystemTools.extractJointsState(subscriberIndexedJoints, stateType, actual);
+                  expected.reshape(size, 1, true);
+                  actual.reshape(size, 1, true);
+                  assertTrue(MatrixFeatures.isIdentical(expected, actual, EPSILON));
+               }
+            }
+         }
+         finally
+         {
+            Files.deleteIfExists(file);
+         }
+      }
+   }
+
+   @Test
+   public void testConsistencyWithConcurrentPublisher() throws Exception
+   {
+      int numberOfJoints = 50;
+      int numberOfPublications = 100000;
+      List<PrismaticJoint> publisherJoints = MultiBodySystemRandomTools.nextPrismaticJointChain(new Random(456), numberOfJoints);
+      List<PrismaticJoint> subscriberJoints = MultiBodySystemRandomTools.nextPrismaticJointChain(new Random(456), numberOfJoints);
+      MultiBodySystemReadOnly publisherInput = MultiBodySystemReadOnly.toMultiBodySystemInput(MultiBodySystemTools.getRootBody(publisherJoints.get(0)
+                                                                                                                                              .getPredecessor()));
+      MultiBodySystemBasics subscriberInput = MultiBodySystemBasics.toMultiBodySystemBasics(MultiBodySystemTools.getRootBody(subscriberJoints.get(0)
+                                                                                                                                              .getPredecessor()));
+
+      Path file = Files.createTempFile("sharedState", ".bin");
+
+      try (MultiBodySystemStatePublisher publisher = new MultiBodySystemStatePublisher(file, publisherInput);
+            MultiBodySystemStateSubscriber subscriber = new MultiBodySystemStateSubscriber(file, subscriberInput))
+      {
+         AtomicReference<Throwable> publisherError = new AtomicReference<>();
+         Thread publisherThread = new Thread(() ->
+         {
+            try
+            {
+               for (int publication = 1; publication <= numberOfPublications; publication++)
+               {
+                  // All the values of a publication are identical, such that a torn read can be detected.
+                  for (PrismaticJoint joint : publisherJoints)
+                  {
+                     joint.setQ(publication);
+                     joint.setQd(publication);
+                     joint.setQdd(publication);
+                     joint.setTau(publication);
+                  }
+                  publisher.publish();
+               }
+            }
+            catch (Throwable e)
+            {
+               publisherError.set(e);
+            }
+         });
+         publisherThread.start();
+
+         long lastPublicationRead = 0;
+
+         while (publisherThread.isAlive() || subscriber.hasNewState())
+         {
+            if (!subscriber.read(Integer.MAX_VALUE))
+               continue;
+
+            double expected = subscriberJoints.get(0).getQ();
+
+            for (PrismaticJoint joint : subscriberJoints)
+            {
+               assertEquals(expected, joint.getQ());
+               assertEquals(expected, joint.getQd());
+               assertEquals(expected, joint.getQdd());
+               assertEquals(expected, joint.getTau());
+            }
+
+            assertTrue(subscriber.getLastPublicationRead() >= lastPublicationRead);
+            assertEquals(subscriber.getLastPublicationRead(), (long) expected);
+            lastPublicationRead = subscriber.getLastPublicationRead();
+         }
+
+         publisherThread.join();
+         assertNull(publisherError.get());
+         assertEquals(numberOfPublications, lastPublicationRead);
+      }
+      finally
+      {
+         Files.deleteIfExists(file);
+      }
+   }
+
+   @Test
+   public void testFailedReadLeavesJointsUnchanged() throws IOException
+   {
+      Random random = new Random(7856);
+      int numberOfJoints = 10;
+      long seed = random.nextLong();
+      List<JointBasics> publisherJoints = MultiBodySystemRandomTools.nextJointTree(new Random(seed), numberOfJoints);
+      List<JointBasics> subscriberJoints = MultiBodySystemRandomTools.nextJointTree(new Random(seed), numberOfJoints);
+      MultiBodySystemReadOnly publisherInput = MultiBodySystemReadOnly.toMultiBodySystemInput(MultiBodySystemTools.getRootBody(publisherJoints.get(0)
+                                                                                                                                              .getPredecessor()));
+      MultiBodySystemBasics subscriberInput = MultiBodySystemBasics.toMultiBodySystemBasics(MultiBodySystemTools.getRootBody(subscriberJoints.get(0)
+                                                                                                                                              .getPredecessor()));
+      List<? extends JointReadOnly> subscriberIndexedJoints = subscriberInput.getJointMatrixIndexProvider().getIndexedJointsInOrder();
+
+      Path file = Files.createTempFile("sharedState", ".bin");
+
+      try
+      {
+         // Start with a file larger than needed, the publisher should resize it.
+         Files.write(file, new byte[10000]);
+
+         try (MultiBodySystemStatePublisher publisher = new MultiBodySystemStatePublisher(file, publisherInput);
+               MultiBodySystemStateSubscriber subscriber = new MultiBodySystemStateSubscriber(file, subscriberInput);
+               FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+         {
+            assertEquals(MultiBodySystemStatePublisher.computeFileSize(publisher.getCodec()), Files.size(file));
+
+            for (JointStateType stateType : JointStateType.values())
+               MultiBodySystemRandomTools.nextState(random, stateType, publisherJoints);
+            publisher.publish();
+
+            for (JointStateType stateType : JointStateType.values())
+               MultiBodySystemRandomTools.nextState(random, stateType, subscriberJoints);
+            DenseMatrix64F[] expectedStates = new DenseMatrix64F[JointStateType.values().length];
+
+            for (JointStateType stateType : JointStateType.values())
+            {
+               expectedStates[stateType.ordinal()] = new DenseMatrix64F(publisher.getCodec().getConfigurationSize(), 1);
+               MultiBodySystemTools.extractJointsState(subscriberIndexedJoints, stateType, expectedStates[stateType.ordinal()]);
+            }
+
+            // Simulates a publisher stuck in the middle of a write.
+            MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+            buffer.order(MultiBodySystemStatePublisher.BYTE_ORDER);
+            buffer.putLong(MultiBodySystemStatePublisher.SEQUENCE_POSITION, 3L);
+            assertFalse(subscriber.read(10));
+
+            for (JointStateType stateType : JointStateType.values())
+            {
+               DenseMatrix64F actual = new DenseMatrix64F(publisher.getCodec().getConfigurationSize(), 1);
+               MultiBodySystemTools.extractJointsState(subscriberIndexedJoints, stateType, actual);
+               assertTrue(MatrixFeatures.isIdentical(expectedStates[stateType.ordinal()], actual, 0.0));
+            }
+         }
+      }
+      finally
+      {
+         Files.deleteIfExists(file);
+      }
+   }
+}